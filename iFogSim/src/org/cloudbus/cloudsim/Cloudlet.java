@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -23,7 +24,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public class Cloudlet {
+public class Cloudlet implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The User or Broker ID. It is advisable that broker set this ID with its own ID, so that
@@ -365,7 +368,9 @@ public class Cloudlet {
 	/**
 	 * Internal class that keeps track Cloudlet's movement in different CloudResources.
 	 */
-	public static class Resource {
+	public static class Resource implements Serializable {
+
+		private static final long serialVersionUID = 1L;
 
 		/** Cloudlet's submission time to a CloudResource. */
 		public double submissionTime = 0.0;
@@ -24,6 +24,8 @@ import org.fog.entities.Tuple;
  */
 public class CloudletSchedulerDynamicWorkload extends CloudletSchedulerTimeShared {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The mips. */
 	private double mips;
 
@@ -26,6 +26,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The cloudlet waiting list. */
 	private List<? extends ResCloudlet> cloudletWaitingList;
 
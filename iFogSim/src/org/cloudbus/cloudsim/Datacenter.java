@@ -32,6 +32,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class Datacenter extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The characteristics. */
 	private DatacenterCharacteristics characteristics;
 
@@ -31,6 +31,8 @@ import org.cloudbus.cloudsim.lists.VmList;
  */
 public class DatacenterBroker extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The vm list. */
 	protected List<? extends Vm> vmList;
 
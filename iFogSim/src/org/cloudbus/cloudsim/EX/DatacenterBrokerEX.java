@@ -25,6 +25,9 @@ import java.util.logging.Level;
  * @author Remo Andreoli
  */
 public class DatacenterBrokerEX extends DatacenterBroker {
+
+    private static final long serialVersionUID = 1L;
+
     /** Number of VM destructions requested. */
     private int vmDestructsRequested = 0;
 
@@ -16,6 +16,9 @@ import java.util.Objects;
  * 
  */
 public class DatacenterEX extends Datacenter {
+
+    private static final long serialVersionUID = 1L;
+
     private IVmBootDelayDistribution delayDistribution = new ConstantVmBootDelay(0);
 
     public DatacenterEX(String name, DatacenterCharacteristics characteristics, VmAllocationPolicy vmAllocationPolicy,
@@ -6,6 +6,7 @@ import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.GuestEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.EX.disk.HddCloudlet;
+import org.cloudbus.cloudsim.EX.disk.HddCloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.EX.disk.HddVm;
 import org.cloudbus.cloudsim.EX.vm.MonitoredVmEX;
 
@@ -29,6 +30,9 @@ import java.util.Map;
  * 
  */
 public class MonitoringBrokerEX extends DatacenterBrokerEX {
+
+    private static final long serialVersionUID = 1L;
+
     /** The time of the first measurement. */
     private final double offset = Math.min(0.01, CloudSim.getMinTimeBetweenEvents());
     /** The period between subsequent VM utilisation measurements. */
@@ -203,6 +207,10 @@ public class MonitoringBrokerEX extends DatacenterBrokerEX {
             double vmMips = vm.getMips() * vm.getNumberOfPes();
             double vmIOMips = 0;
             double vmRam = vm.getRam();
+            // Schedulers may update the remaining lengths lazily
+            if (vm.getCloudletScheduler() instanceof HddCloudletSchedulerTimeShared hddScheduler) {
+                hddScheduler.updateCloudletsProgress();
+            }
             for (Cloudlet cl : vm.getCloudletScheduler().getCloudletExecList()) {
                 sumCPUCloudLets += cl.getRemainingCloudletLength();
                 if (vm instanceof HddVm) {
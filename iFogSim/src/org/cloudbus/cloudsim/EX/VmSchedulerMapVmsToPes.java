@@ -17,6 +17,8 @@ import java.util.Map;
  */
 public abstract class VmSchedulerMapVmsToPes<P extends Pe> extends VmSchedulerWithIndependentPes<P> {
 
+    private static final long serialVersionUID = 1L;
+
     private final Map<Integer, List<Integer>> vmsToPes = new HashMap<>();
 
     public VmSchedulerMapVmsToPes(final List<P> pelist) {
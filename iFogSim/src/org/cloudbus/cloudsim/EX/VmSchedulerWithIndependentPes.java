@@ -5,6 +5,8 @@ import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.core.GuestEntity;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,8 +28,17 @@ import java.util.Map;
  */
 public abstract class VmSchedulerWithIndependentPes<P extends Pe> extends VmScheduler {
 
+    private static final long serialVersionUID = 1L;
+
     private final LinkedHashMap<P, VmScheduler> peIdsToSchedulers = new LinkedHashMap<>();
 
+    /**
+     * The allocated mips of the guests, computed on demand. Hosts ask for them
+     * at every update, while they change only on allocation and deallocation,
+     * which clear them, as sharing a Pe changes the shares of the other guests.
+     */
+    private final Map<GuestEntity, List<Double>> guestsToAllocatedMips = new HashMap<>();
+
     public VmSchedulerWithIndependentPes(final List<P> pelist) {
         super(pelist);
         for (P pe : pelist) {
@@ -37,6 +48,11 @@ public abstract class VmSchedulerWithIndependentPes<P extends Pe> extends VmSche
 
     @Override
     public List<Double> getAllocatedMipsForGuest(final GuestEntity guest) {
+        List<Double> cached = guestsToAllocatedMips.get(guest);
+        if (cached != null) {
+            return cached;
+        }
+
         List<Double> result = new ArrayList<>();
         for (Map.Entry<P, VmScheduler> entry : peIdsToSchedulers.entrySet()) {
             P pe = entry.getKey();
@@ -49,11 +65,14 @@ public abstract class VmSchedulerWithIndependentPes<P extends Pe> extends VmSche
             }
         }
 
+        result = Collections.unmodifiableList(result);
+        guestsToAllocatedMips.put(guest, result);
         return result;
     }
 
     @Override
     public boolean allocatePesForGuest(final GuestEntity guest, final List<Double> mipsShare) {
+        guestsToAllocatedMips.clear();
         boolean result = true;
         int i = 0;
         for (Map.Entry<P, VmScheduler> entry : peIdsToSchedulers.entrySet()) {
@@ -71,6 +90,7 @@ public abstract class VmSchedulerWithIndependentPes<P extends Pe> extends VmSche
 
     @Override
     public void deallocatePesForGuest(final GuestEntity guest) {
+        guestsToAllocatedMips.clear();
         for (Map.Entry<P, VmScheduler> entry : peIdsToSchedulers.entrySet()) {
             P pe = entry.getKey();
             VmScheduler scheduler = entry.getValue();
@@ -82,6 +102,7 @@ public abstract class VmSchedulerWithIndependentPes<P extends Pe> extends VmSche
 
     @Override
     public void deallocatePesForAllGuests() {
+        guestsToAllocatedMips.clear();
         for (Map.Entry<P, VmScheduler> entry : peIdsToSchedulers.entrySet()) {
             VmScheduler scheduler = entry.getValue();
             scheduler.deallocatePesForAllGuests();
@@ -5,6 +5,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.cloudbus.cloudsim.core.GuestEntity;
 import org.cloudbus.cloudsim.EX.billing.BaseCustomerVmBillingPolicy;
 import org.cloudbus.cloudsim.EX.vm.VmEX;
+import org.cloudbus.cloudsim.util.RandomStreams;
 import org.uncommons.maths.number.NumberGenerator;
 import org.uncommons.maths.random.GaussianGenerator;
 import org.uncommons.maths.random.MersenneTwisterRNG;
@@ -128,9 +129,9 @@ public class GaussianByTypeBootDelay implements IVmBootDelayDistribution {
         Random merseneGenerator = null;
         if (seed == null) {
             try {
-                merseneGenerator = seedGen == null ? new MersenneTwisterRNG() : new MersenneTwisterRNG(seedGen);
+                merseneGenerator = seedGen == null ? new MersenneTwisterRNG(RandomStreams.seedBytes(RandomStreams.nextSeed(GaussianByTypeBootDelay.class.getName()), 16)) : new MersenneTwisterRNG(seedGen);
             } catch (SeedException e) {
-                merseneGenerator = new MersenneTwisterRNG();
+                merseneGenerator = new MersenneTwisterRNG(RandomStreams.seedBytes(RandomStreams.nextSeed(GaussianByTypeBootDelay.class.getName()), 16));
             }
         } else {
             merseneGenerator = new MersenneTwisterRNG(seed);
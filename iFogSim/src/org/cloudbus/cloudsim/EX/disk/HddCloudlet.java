@@ -16,6 +16,8 @@ import org.cloudbus.cloudsim.EX.util.TextUtil;
  */
 public class HddCloudlet extends Cloudlet {
 
+    private static final long serialVersionUID = 1L;
+
     private static final UtilizationModelFull UTIL_MODEL_FULL = new UtilizationModelFull();
 
     /** The length of Cloudlet finished so far. */
@@ -0,0 +1,445 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for Modeling and
+ * Simulation of Clouds Licence: GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.EX.disk;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Consts;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A scheduler of the CPU and the disks of a VM, which gives the cloudlets the
+ * same shares as {@link HddCloudletSchedulerTimeShared}, without updating all
+ * the cloudlets at every update.
+ *
+ * <br>
+ * <br>
+ *
+ * All the cloudlets on a resource progress at the same rate per PE: the CPU
+ * is time-shared, and a disk is shared equally by the cloudlets doing IO on
+ * it. Thus the scheduler keeps a virtual clock per resource, the number of
+ * instructions served per PE since the start, and a cloudlet's work on a
+ * resource is done when the clock reaches its finish tag, the clock when the
+ * work was queued plus the remaining length per PE. The works of each
+ * resource are kept in a heap ordered by finish tag, so an update advances
+ * the clocks and takes the works done from the tops of the heaps, in O(d + k
+ * log n) time for d disks and k works done, instead of updating the n
+ * cloudlets. The exec list is only walked, once, when cloudlets finish, to
+ * finish them in the same order as the time-shared scheduler.
+ *
+ * <br>
+ * <br>
+ *
+ * The progress of a cloudlet is written to it when one of its works is done,
+ * when it is paused, cancelled or migrated, and by
+ * {@link #updateCloudletsProgress()}. In between, its remaining lengths are
+ * those it had when it was last updated.
+ *
+ * <br>
+ * <br>
+ *
+ * The next event is estimated for the works at the tops of the heaps, while
+ * the time-shared scheduler estimates it for all the cloudlets from their
+ * remaining lengths rounded down to whole MIs, which may pick another
+ * cloudlet about one MI of service from its end. So the finish times of the
+ * two schedulers may differ a little after such an event, see
+ * {@code org.fog.test.benchmark.HddSchedulerComparison}.
+ */
+public class HddCloudletSchedulerProcessorSharing extends HddCloudletSchedulerTimeShared {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The work of a cloudlet on the CPU or on a disk. */
+    private static final class Work implements Comparable<Work>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final HddCloudlet cloudlet;
+
+        /** Whether this is the IO work of the cloudlet. */
+        private final boolean io;
+
+        /** The number of PEs of the resource used by the cloudlet. */
+        private final int pes;
+
+        /** The clock of the resource when the progress was last written. */
+        private double clockAtUpdate;
+
+        /** The clock of the resource at which the work is done. */
+        private double finishTag;
+
+        /**
+         * Whether the work was taken out of the resource. It is dropped from
+         * the heap when it gets to the top.
+         */
+        private boolean removed;
+
+        private Work(final HddCloudlet cloudlet, final boolean io, final int pes) {
+            this.cloudlet = cloudlet;
+            this.io = io;
+            this.pes = pes;
+        }
+
+        @Override
+        public int compareTo(final Work other) {
+            return Double.compare(finishTag, other.finishTag);
+        }
+    }
+
+    /** The CPU or a disk, with its virtual clock and its works. */
+    private static final class Resource implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The number of instructions served per PE since the start. */
+        private double clock;
+
+        private final PriorityQueue<Work> works = new PriorityQueue<>();
+
+        /** The number of works of the heap that were not removed. */
+        private int size;
+
+        /**
+         * Returns the work with the smallest finish tag.
+         *
+         * @return the work, or null if the resource has no work.
+         */
+        private Work peek() {
+            while (!works.isEmpty() && works.peek().removed) {
+                works.poll();
+            }
+            return works.peek();
+        }
+    }
+
+    private final Resource cpu = new Resource();
+
+    /** The disks, in the order of the host's disk list. */
+    private final List<Resource> disks = new ArrayList<>();
+
+    /** The CPU work of the cloudlets being executed, if they have some left. */
+    private final Map<HddCloudlet, Work> cpuWorks = new HashMap<>();
+
+    /** The IO work of the cloudlets being executed, if they have some left. */
+    private final Map<HddCloudlet, Work> ioWorks = new HashMap<>();
+
+    /**
+     * Cloudlets being executed without any work queued, which are finished at
+     * the next update if they are done.
+     */
+    private final Set<HddCloudlet> idle = new LinkedHashSet<>();
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see HddCloudletSchedulerTimeShared#updateVmProcessing(double, List, List)
+     */
+    @Override
+    public double updateVmProcessing(final double currentTime, final List<Double> mipsShare,
+            final List<Double> iopsShare) {
+        setCurrentMipsShare(mipsShare);
+        setCurrentIOMipsShare(iopsShare);
+
+        List<HddCloudlet> execList = this.<HddCloudlet> getCloudletExecList();
+        if (execList.isEmpty()) {
+            setPreviousTime(currentTime);
+            return 0.0;
+        }
+
+        // Advance the clocks over the elapsed time span, with the shares of
+        // the cloudlets being executed during it
+        double timeSpan = currentTime - getPreviousTime();
+        HddCloudlet first = execList.get(0);
+        cpu.clock += timeSpan * getTotalCurrentAllocatedMipsForCloudlet(first, currentTime) / first.getNumberOfPes()
+                * Consts.MILLION;
+        for (int i = 0; i < disks.size(); i++) {
+            Resource disk = disks.get(i);
+            if (disk.size > 0) {
+                disk.clock += timeSpan * getIOMips(iopsShare, i) / disk.size * Consts.MILLION;
+            }
+        }
+
+        // Take the works done
+        Set<HddCloudlet> finished = new HashSet<>();
+        for (HddCloudlet cl : idle) {
+            if (cl.isDone()) {
+                finished.add(cl);
+            }
+        }
+        idle.clear();
+        takeDoneWorks(cpu, cpuWorks, finished);
+        for (Resource disk : disks) {
+            takeDoneWorks(disk, ioWorks, finished);
+        }
+
+        if (!finished.isEmpty()) {
+            for (Iterator<HddCloudlet> iter = execList.iterator(); iter.hasNext();) {
+                HddCloudlet cl = iter.next();
+                if (finished.contains(cl)) {
+                    cloudletFinish(cl);
+                    iter.remove();
+                }
+            }
+        }
+
+        double nextEvent = computeNextEventTime(currentTime, iopsShare);
+        setPreviousTime(currentTime);
+
+        return nextEvent;
+    }
+
+    /**
+     * Takes the works of a resource that may be done, i.e. whose finish tag is
+     * less than one million instructions per PE ahead of the clock, as the
+     * remaining lengths are rounded down to millions of instructions. The works
+     * that are not done are queued again with their remaining length.
+     *
+     * @param finished
+     *            - the set the cloudlets done with all their works are added
+     *            to.
+     */
+    private void takeDoneWorks(final Resource resource, final Map<HddCloudlet, Work> resourceWorks,
+            final Set<HddCloudlet> finished) {
+        List<Work> notDone = new ArrayList<>();
+        Work work;
+        while ((work = resource.peek()) != null
+                && work.finishTag < resource.clock + (double) Consts.MILLION / work.pes) {
+            resource.works.poll();
+            updateProgress(resource, work);
+            long remaining = work.io ? work.cloudlet.getRemainingCloudletIOLength() : work.cloudlet
+                    .getRemainingCloudletLength();
+            if (remaining > 0) {
+                work.finishTag = resource.clock + (double) remaining * Consts.MILLION / work.pes;
+                notDone.add(work);
+            } else {
+                resource.size--;
+                resourceWorks.remove(work.cloudlet);
+                if (!cpuWorks.containsKey(work.cloudlet) && !ioWorks.containsKey(work.cloudlet)) {
+                    if (work.cloudlet.isDone()) {
+                        finished.add(work.cloudlet);
+                    }
+                }
+            }
+        }
+        resource.works.addAll(notDone);
+    }
+
+    /**
+     * Computes the earliest estimated finish time of the works of the
+     * cloudlets still running, from the work at the top of each resource.
+     */
+    private double computeNextEventTime(final double currentTime, final List<Double> iopsShare) {
+        double nextEvent = Double.MAX_VALUE;
+
+        Work work = cpu.peek();
+        if (work != null) {
+            updateProgress(cpu, work);
+            nextEvent = getEstimatedFinishTime(work.cloudlet, currentTime);
+        }
+        for (int i = 0; i < disks.size(); i++) {
+            Resource disk = disks.get(i);
+            work = disk.peek();
+            if (work != null) {
+                updateProgress(disk, work);
+                double estimatedFinishIOTime = currentTime + work.cloudlet.getRemainingCloudletIOLength()
+                        / (getIOMips(iopsShare, i) / disk.size * work.pes);
+                nextEvent = Math.min(nextEvent, estimatedFinishIOTime);
+            }
+        }
+
+        if (nextEvent < Double.MAX_VALUE && nextEvent - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+            nextEvent = currentTime + CloudSim.getMinTimeBetweenEvents();
+        }
+        return nextEvent;
+    }
+
+    private static double getIOMips(final List<Double> iopsShare, final int diskIndex) {
+        return diskIndex < iopsShare.size() ? iopsShare.get(diskIndex) : 0;
+    }
+
+    /**
+     * Writes the progress of a work since it was last written to its cloudlet.
+     */
+    private static void updateProgress(final Resource resource, final Work work) {
+        long finishedSoFar = (long) ((resource.clock - work.clockAtUpdate) * work.pes);
+        if (work.io) {
+            work.cloudlet.updateCloudletFinishedSoFar(0, finishedSoFar);
+        } else {
+            work.cloudlet.updateCloudletFinishedSoFar(finishedSoFar, 0);
+        }
+        work.clockAtUpdate = resource.clock;
+    }
+
+    /**
+     * Writes the progress of the cloudlets being executed to them, up to the
+     * last update of the scheduler.
+     */
+    @Override
+    public void updateCloudletsProgress() {
+        for (Work work : cpuWorks.values()) {
+            updateProgress(cpu, work);
+        }
+        for (Work work : ioWorks.values()) {
+            updateProgress(disks.get(getDiskIndex(getVm().getHost().getHddList(), work.cloudlet)), work);
+        }
+    }
+
+    /**
+     * Queues the works of a cloudlet added to the exec list on its resources.
+     */
+    private void queue(final HddCloudlet cl) {
+        if (cl.getRemainingCloudletLength() > 0) {
+            cpuWorks.put(cl, queue(cpu, cl, false, cl.getNumberOfPes(), cl.getRemainingCloudletLength()));
+        }
+        List<? extends HddPe> pes = getVm().getHost().getHddList();
+        int diskIndex = getDiskIndex(pes, cl);
+        if (diskIndex >= 0 && cl.getRemainingCloudletIOLength() > 0) {
+            while (disks.size() < pes.size()) {
+                disks.add(new Resource());
+            }
+            ioWorks.put(cl, queue(disks.get(diskIndex), cl, true, cl.getNumberOfHddPes(),
+                    cl.getRemainingCloudletIOLength()));
+        }
+        if (!cpuWorks.containsKey(cl) && !ioWorks.containsKey(cl)) {
+            idle.add(cl);
+        }
+    }
+
+    private static Work queue(final Resource resource, final HddCloudlet cl, final boolean io, final int pes,
+            final long remainingLength) {
+        Work work = new Work(cl, io, pes);
+        work.clockAtUpdate = resource.clock;
+        work.finishTag = resource.clock + (double) remainingLength * Consts.MILLION / pes;
+        resource.works.add(work);
+        resource.size++;
+        return work;
+    }
+
+    /**
+     * Takes the works of a cloudlet leaving the exec list out of its
+     * resources, after writing their progress to it.
+     */
+    private void dequeue(final HddCloudlet cl) {
+        Work work = cpuWorks.remove(cl);
+        if (work != null) {
+            updateProgress(cpu, work);
+            work.removed = true;
+            cpu.size--;
+        }
+        work = ioWorks.remove(cl);
+        if (work != null) {
+            Resource disk = disks.get(getDiskIndex(getVm().getHost().getHddList(), cl));
+            updateProgress(disk, work);
+            work.removed = true;
+            disk.size--;
+        }
+        idle.remove(cl);
+    }
+
+    private HddCloudlet findExecCloudlet(final int cloudletId) {
+        for (HddCloudlet cl : this.<HddCloudlet> getCloudletExecList()) {
+            if (cl.getCloudletId() == cloudletId) {
+                return cl;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see HddCloudletSchedulerTimeShared#cloudletSubmit(Cloudlet, double)
+     */
+    @Override
+    public double cloudletSubmit(final Cloudlet cl, final double fileTransferTime) {
+        double result = super.cloudletSubmit(cl, fileTransferTime);
+        HddCloudlet hddCloudlet = (HddCloudlet) cl;
+        if (containsDataFor(hddCloudlet)) {
+            queue(hddCloudlet);
+        }
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see HddCloudletSchedulerTimeShared#cloudletPause(int)
+     */
+    @Override
+    public boolean cloudletPause(final int cloudletId) {
+        HddCloudlet cl = findExecCloudlet(cloudletId);
+        if (cl != null) {
+            dequeue(cl);
+        }
+        return super.cloudletPause(cloudletId);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see HddCloudletSchedulerTimeShared#cloudletResume(int)
+     */
+    @Override
+    public double cloudletResume(final int cloudletId) {
+        HddCloudlet cl = null;
+        for (HddCloudlet paused : this.<HddCloudlet> getCloudletPausedList()) {
+            if (paused.getCloudletId() == cloudletId) {
+                cl = paused;
+                break;
+            }
+        }
+        double result = super.cloudletResume(cloudletId);
+        if (cl != null) {
+            queue(cl);
+        }
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.cloudbus.cloudsim.CloudletScheduler#cloudletCancel(int)
+     */
+    @Override
+    public Cloudlet cloudletCancel(final int cloudletId) {
+        HddCloudlet cl = findExecCloudlet(cloudletId);
+        if (cl != null) {
+            dequeue(cl);
+        }
+        return super.cloudletCancel(cloudletId);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.cloudbus.cloudsim.CloudletScheduler#migrateCloudlet()
+     */
+    @Override
+    public Cloudlet migrateCloudlet() {
+        List<HddCloudlet> execList = this.<HddCloudlet> getCloudletExecList();
+        if (!execList.isEmpty()) {
+            dequeue(execList.get(0));
+        }
+        return super.migrateCloudlet();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see HddCloudletSchedulerTimeShared#failAllCloudlets()
+     */
+    @Override
+    public void failAllCloudlets() {
+        for (HddCloudlet cl : new ArrayList<>(this.<HddCloudlet> getCloudletExecList())) {
+            dequeue(cl);
+        }
+        super.failAllCloudlets();
+    }
+}
@@ -40,6 +40,8 @@ import java.util.logging.Level;
  */
 public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared {
 
+    private static final long serialVersionUID = 1L;
+
     /** The current IO mips share. */
     private List<Double> currentIOMipsShare;
 
@@ -133,15 +135,42 @@ public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared
 
         double timeSpan = currentTime - getPreviousTime();
 
-        int[] disksToNumCloudlets = disksToNumCloudlets();
-        int[] disksToNumCopy = Arrays.copyOf(disksToNumCloudlets, disksToNumCloudlets.length);
-        for (ListIterator<HddCloudlet> iter = this.<HddCloudlet> getCloudletExecList().listIterator(); iter
-                .hasNext();) {
+        List<HddCloudlet> execList = this.<HddCloudlet> getCloudletExecList();
+        List<? extends HddPe> pes = getVm().getHost().getHddList();
+
+        // Look up the disk of each cloudlet once, count the cloudlets doing
+        // IO on each disk during the elapsed time span, and take the CPU share
+        // of each cloudlet before any cloudlet finishes and leaves its share
+        int[] diskIndices = new int[execList.size()];
+        double[] cpuMips = new double[execList.size()];
+        int[] disksToNumCloudlets = new int[pes.size()];
+        int i = 0;
+        for (HddCloudlet cl : execList) {
+            int diskIndex = getDiskIndex(pes, cl);
+            diskIndices[i] = diskIndex;
+            cpuMips[i++] = getTotalCurrentAllocatedMipsForCloudlet(cl, currentTime);
+            if (diskIndex >= 0 && cl.getRemainingCloudletIOLength() > 0) {
+                disksToNumCloudlets[diskIndex]++;
+            }
+        }
+
+        // The cloudlets still doing IO on each disk after the time span, used
+        // to estimate the next event
+        int[] disksToNumRemaining = new int[pes.size()];
+        // Disks of the cloudlets still running, in the order of the exec list
+        int[] runningDiskIndices = new int[execList.size()];
+        int running = 0;
+
+        i = 0;
+        for (ListIterator<HddCloudlet> iter = execList.listIterator(); iter.hasNext();) {
             HddCloudlet cl = iter.next();
+            double mips = cpuMips[i];
+            int diskIndex = diskIndices[i++];
             //This shared value means the value that cpu has been allocated completely for this cloudlet.
             // so the cpu has been working equal this value for duration of the time
-            long cpuFinishedSoFar = (long) (timeSpan * getTotalCurrentAllocatedMipsForCloudlet(cl, currentTime) * Consts.MILLION);
-            long ioFinishedSoFar = (long) (getIOCapacity(iopsShare, disksToNumCloudlets, cl) * timeSpan
+            double cpuShare = timeSpan * mips * Consts.MILLION;
+            long cpuFinishedSoFar = (long) cpuShare;
+            long ioFinishedSoFar = (long) (getIOCapacity(iopsShare, disksToNumCloudlets, diskIndex, cl) * timeSpan
                     * cl.getNumberOfHddPes() * Consts.MILLION);
 
             cl.updateCloudletFinishedSoFar(cpuFinishedSoFar, ioFinishedSoFar);
@@ -152,43 +181,41 @@ public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared
             if (remainingLength == 0 && remainingIOLength == 0) {
                 cloudletFinish(cl);
                 iter.remove();
-
-                // Update the disksToNumCopy, since it is expensive to recompute
-                updateDisksToNumMapping(disksToNumCopy, cl);
+            } else {
+                runningDiskIndices[running++] = diskIndex;
+                if (diskIndex >= 0 && remainingIOLength > 0) {
+                    disksToNumRemaining[diskIndex]++;
+                }
             }
         }
 
-        double nextEvent = computeNextEventTime(currentTime, mipsShare, iopsShare, disksToNumCopy);
+        double nextEvent = computeNextEventTime(currentTime, iopsShare, disksToNumRemaining, runningDiskIndices);
         setPreviousTime(currentTime);
 
         return nextEvent;
     }
 
-    private void updateDisksToNumMapping(int[] disksToNumCopy, HddCloudlet cl) {
-        List<? extends HddPe> pes = getVm().getHost().getHddList();
-        DataItem dataItem = cl.getData();
-        if (dataItem != null && cl.getRemainingCloudletIOLength() == 0) {
-            for (int i = 0; i < pes.size(); i++) {
-                // Does the cloudlet use the disk
-                if (pes.get(i).containsDataItem(dataItem.getId())) {
-                    disksToNumCopy[i]--;
-                    break;
-                }
-            }
-        }
-    }
-
-    private double computeNextEventTime(final double currentTime, final List<Double> mipsShare,
-            final List<Double> iopsShare, int[] disksToNumCloudlets) {
+    /**
+     * Computes the earliest estimated finish time of the cloudlets still
+     * running.
+     * 
+     * @param disksToNumCloudlets
+     *            - the number of cloudlets still doing IO on each disk.
+     * @param diskIndices
+     *            - the disks of the cloudlets, in the order of the exec list.
+     */
+    private double computeNextEventTime(final double currentTime, final List<Double> iopsShare,
+            final int[] disksToNumCloudlets, final int[] diskIndices) {
         // check finished cloudlets
         double nextEvent = Double.MAX_VALUE;
-        // int[] disksToNumCloudlets = disksToNumCloudlets();
 
         // estimate finish time of cloudlets
+        int i = 0;
         for (HddCloudlet cl : this.<HddCloudlet> getCloudletExecList()) {
+            int diskIndex = diskIndices[i++];
             double estimatedFinishCPUTime = cl.getRemainingCloudletLength() == 0 ? Double.NaN : getEstimatedFinishTime(cl, currentTime);
             double estimatedFinishIOTime = cl.getRemainingCloudletIOLength() == 0 ? Double.NaN : currentTime
-                    + (cl.getRemainingCloudletIOLength() / (getIOCapacity(iopsShare, disksToNumCloudlets, cl) * cl
+                    + (cl.getRemainingCloudletIOLength() / (getIOCapacity(iopsShare, disksToNumCloudlets, diskIndex, cl) * cl
                             .getNumberOfHddPes()));
 
             double estimatedFinishTime = nanMin(estimatedFinishCPUTime, estimatedFinishIOTime);
@@ -271,27 +298,37 @@ public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared
     // }
 
     private double getIOCapacity(final List<Double> mipsShare, int[] diskToCloudlets, final HddCloudlet cl) {
-        DataItem dataItem = cl.getData();
+        return getIOCapacity(mipsShare, diskToCloudlets, getDiskIndex(getVm().getHost().getHddList(), cl), cl);
+    }
+
+    private double getIOCapacity(final List<Double> mipsShare, int[] diskToCloudlets, int hddIndxInHost,
+            final HddCloudlet cl) {
         double result = 0;
-        if (dataItem != null && cl.getRemainingCloudletIOLength() > 0) {
-            List<? extends HddPe> pes = getVm().getHost().getHddList();
+        if (hddIndxInHost >= 0 && cl.getRemainingCloudletIOLength() > 0) {
+            // The result is the IOPS of the harddisk divided by the number
+            // of cloudlets using it
+            result = mipsShare.get(hddIndxInHost) / diskToCloudlets[hddIndxInHost];
+        }
+        return result;
+    }
 
-            // Get the index of the disk, containing the data item
-            int hddIndxInHost = -1;
+    /**
+     * Returns the index in the host's disk list of the disk containing the
+     * data item of a cloudlet.
+     * 
+     * @return the index of the disk, or -1 if the cloudlet has no data item
+     *         or no disk of the host contains it.
+     */
+    static int getDiskIndex(final List<? extends HddPe> pes, final HddCloudlet cl) {
+        DataItem dataItem = cl.getData();
+        if (dataItem != null) {
             for (int i = 0; i < pes.size(); i++) {
                 if (pes.get(i).containsDataItem(dataItem.getId())) {
-                    hddIndxInHost = i;
-                    break;
+                    return i;
                 }
             }
-
-            if (hddIndxInHost >= 0) {
-                // The result is the IOPS of the harddisk divided by the number
-                // of cloudlets using it
-                result = mipsShare.get(hddIndxInHost) / diskToCloudlets[hddIndxInHost];
-            }
         }
-        return result;
+        return -1;
     }
 
     /**
@@ -305,14 +342,10 @@ public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared
         List<? extends HddPe> pes = getVm().getHost().getHddList();
         int[] res = new int[pes.size()];
         for (HddCloudlet cl : this.<HddCloudlet> getCloudletExecList()) {
-            DataItem dataItem = cl.getData();
-            if (dataItem != null && cl.getRemainingCloudletIOLength() > 0) {
-                for (int i = 0; i < pes.size(); i++) {
-                    // Does the cloudlet use the disk
-                    if (pes.get(i).containsDataItem(dataItem.getId())) {
-                        res[i]++;
-                        break;
-                    }
+            if (cl.getRemainingCloudletIOLength() > 0) {
+                int diskIndex = getDiskIndex(pes, cl);
+                if (diskIndex >= 0) {
+                    res[diskIndex]++;
                 }
             }
         }
@@ -336,6 +369,15 @@ public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared
     // }
     // }
 
+    /**
+     * Writes the progress of the cloudlets being executed to them, up to the
+     * last update of the scheduler. This scheduler updates the cloudlets at
+     * every update, so there is nothing to write, but a subclass may update
+     * them lazily.
+     */
+    public void updateCloudletsProgress() {
+    }
+
     /**
      * Pauses execution of a cloudlet.
      * 
@@ -480,7 +522,7 @@ public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared
             HddCloudlet hddCloudlet = iter.next();
             iter.remove();
             hddCloudlet.updateStatus(Cloudlet.CloudletStatus.FAILED);
-            ((List) cloudletFailedList).add(hddCloudlet);
+            getCloudletFailedList().add(hddCloudlet);
         }
 
         for (ListIterator<HddCloudlet> iter = this.<HddCloudlet> getCloudletPausedList().listIterator(); iter
@@ -488,7 +530,7 @@ public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared
             HddCloudlet hddCloudlet = iter.next();
             iter.remove();
             hddCloudlet.updateStatus(Cloudlet.CloudletStatus.FAILED);
-            ((List) cloudletFailedList).add(hddCloudlet);
+            getCloudletFailedList().add(hddCloudlet);
         }
     }
 
@@ -497,10 +539,10 @@ public class HddCloudletSchedulerTimeShared extends CloudletSchedulerTimeShared
         getCloudletExecList().remove(hddResCloudlet);
         getCloudletFailedList().remove(hddResCloudlet);
         hddResCloudlet.updateStatus(Cloudlet.CloudletStatus.FAILED);
-        ((List) cloudletFailedList).add(hddResCloudlet);
+        getCloudletFailedList().add(hddResCloudlet);
     }
 
-    private boolean containsDataFor(final HddCloudlet cl) {
+    boolean containsDataFor(final HddCloudlet cl) {
         DataItem dataItem = cl.getData();
         boolean result = dataItem == null;
 
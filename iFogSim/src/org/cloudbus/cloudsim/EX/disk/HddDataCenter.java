@@ -22,6 +22,8 @@ import java.util.logging.Level;
  */
 public class HddDataCenter extends DatacenterEX {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constr.
      * 
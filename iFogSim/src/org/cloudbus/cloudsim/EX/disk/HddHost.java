@@ -21,6 +21,8 @@ import java.util.List;
  */
 public class HddHost extends Host {
 
+    private static final long serialVersionUID = 1L;
+
     /** The list of harddisks. */
     private final List<? extends HddPe> hddList;
     /** A scheduler for the harddisk operations. */
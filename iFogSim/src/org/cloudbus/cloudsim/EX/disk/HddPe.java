@@ -17,6 +17,8 @@ import java.util.Map;
  */
 public class HddPe extends Pe {
 
+    private static final long serialVersionUID = 1L;
+
     private final Map<Integer, DataItem> data = new LinkedHashMap<>();
 
     /**
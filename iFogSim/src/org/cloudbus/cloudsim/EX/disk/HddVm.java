@@ -22,6 +22,8 @@ import java.util.List;
  */
 public class HddVm extends MonitoredVmEX {
 
+    private static final long serialVersionUID = 1L;
+
     /** The IO MIPS. */
     private double ioMips;
     private final LinkedHashSet<Integer> hdds = new LinkedHashSet<>();
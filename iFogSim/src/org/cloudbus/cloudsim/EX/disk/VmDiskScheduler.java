@@ -17,6 +17,8 @@ import java.util.List;
  */
 public class VmDiskScheduler extends VmSchedulerWithIndependentPes<HddPe> {
 
+    private static final long serialVersionUID = 1L;
+
     public VmDiskScheduler(final List<HddPe> pelist) {
         super(pelist);
     }
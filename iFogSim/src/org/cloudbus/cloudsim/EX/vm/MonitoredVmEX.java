@@ -21,6 +21,8 @@ import java.util.List;
  */
 public class MonitoredVmEX extends VmEX {
 
+    private static final long serialVersionUID = 1L;
+
     private final double summaryPeriodLength;
 
     private final MonitoredData data = new MonitoredData();
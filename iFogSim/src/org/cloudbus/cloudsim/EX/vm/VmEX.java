@@ -18,6 +18,8 @@ import java.util.Objects;
  */
 public class VmEX extends Vm {
 
+    private static final long serialVersionUID = 1L;
+
     private VmStatus status;
     private final VMMetadata metadata;
 
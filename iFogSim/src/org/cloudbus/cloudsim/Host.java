@@ -7,6 +7,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,7 +25,9 @@ import org.cloudbus.cloudsim.provisioners.RamProvisioner;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public class Host {
+public class Host implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The id. */
 	private int id;
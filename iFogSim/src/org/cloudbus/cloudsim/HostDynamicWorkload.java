@@ -9,7 +9,6 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -25,6 +24,8 @@ import org.cloudbus.cloudsim.provisioners.RamProvisioner;
  */
 public class HostDynamicWorkload extends Host {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The utilization mips. */
 	private double utilizationMips;
 
@@ -32,7 +33,8 @@ public class HostDynamicWorkload extends Host {
 	private double previousUtilizationMips;
 
 	/** The state history. */
-	private final List<HostStateHistoryEntry> stateHistory = new LinkedList<HostStateHistoryEntry>();
+	private final StateHistory<HostStateHistoryEntry> stateHistory = new StateHistory<HostStateHistoryEntry>(
+			HostStateHistoryEntry::new);
 
 	/**
 	 * Instantiates a new host.
@@ -270,7 +272,7 @@ public class HostDynamicWorkload extends Host {
 	 * 
 	 * @return the state history
 	 */
-	public List<HostStateHistoryEntry> getStateHistory() {
+	public StateHistory<HostStateHistoryEntry> getStateHistory() {
 		return stateHistory;
 	}
 
@@ -285,20 +287,7 @@ public class HostDynamicWorkload extends Host {
 	public
 			void
 			addStateHistoryEntry(double time, double allocatedMips, double requestedMips, boolean isActive) {
-
-		HostStateHistoryEntry newState = new HostStateHistoryEntry(
-				time,
-				allocatedMips,
-				requestedMips,
-				isActive);
-		if (!getStateHistory().isEmpty()) {
-			HostStateHistoryEntry previousState = getStateHistory().get(getStateHistory().size() - 1);
-			if (previousState.getTime() == time) {
-				getStateHistory().set(getStateHistory().size() - 1, newState);
-				return;
-			}
-		}
-		getStateHistory().add(newState);
+		getStateHistory().add(time, allocatedMips, requestedMips, isActive);
 	}
 
 }
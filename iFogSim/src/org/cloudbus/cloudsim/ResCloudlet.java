@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.core.CloudSim;
 
 /**
@@ -24,7 +26,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  * @author Rajkumar Buyya
  * @since CloudSim Toolkit 1.0
  */
-public class ResCloudlet {
+public class ResCloudlet implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The Cloudlet object. */
 	private final Cloudlet cloudlet;
@@ -0,0 +1,290 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The state history of a host or VM: a sequence of (time, allocated MIPS, requested MIPS, flag)
+ * states, each holding from its time until the time of the next one. The states are kept in
+ * primitive arrays according to a retention policy, and are read either as a list of entries,
+ * created on access, or without allocation through a {@link Cursor}.
+ *
+ * A state added at the time of the last state replaces it. The list view is read-only.
+ *
+ * @param <E> the type of the history entries
+ * @see HostDynamicWorkload#getStateHistory()
+ * @see Vm#getStateHistory()
+ */
+public class StateHistory<E> extends AbstractList<E> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The retention policy of a state history.
+	 */
+	public enum Retention {
+		/** All states are kept. */
+		ALL,
+		/** No state is kept. */
+		NONE,
+		/** The newest states are kept, up to the capacity of the history. */
+		LAST,
+		/**
+		 * A state equal to the one before it except for its time is not kept. As a state holds
+		 * until the next one, durations and time integrals computed from the history are unchanged.
+		 */
+		RUN_LENGTH
+	}
+
+	/**
+	 * Creates the entries of a state history.
+	 *
+	 * @param <E> the type of the history entries
+	 */
+	public interface EntryFactory<E> extends Serializable {
+
+		E createEntry(double time, double allocatedMips, double requestedMips, boolean flag);
+
+	}
+
+	/**
+	 * A forward-only reader of the states of a history. A cursor must not be used once states have
+	 * been added to the history.
+	 */
+	public class Cursor {
+
+		private int index = -1;
+
+		/**
+		 * Moves to the next state.
+		 *
+		 * @return true, if there is a next state
+		 */
+		public boolean next() {
+			if (index + 1 >= size) {
+				return false;
+			}
+			index++;
+			return true;
+		}
+
+		public double getTime() {
+			return times[slot(index)];
+		}
+
+		public double getAllocatedMips() {
+			return allocatedMips[slot(index)];
+		}
+
+		public double getRequestedMips() {
+			return requestedMips[slot(index)];
+		}
+
+		/**
+		 * Gets the flag of the state, i.e. whether the host is active or the VM in migration.
+		 *
+		 * @return the flag
+		 */
+		public boolean getFlag() {
+			return flags[slot(index)];
+		}
+
+	}
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The retention of new histories. */
+	private static Retention defaultRetention = Retention.ALL;
+
+	/** The capacity of new histories retaining the last states. */
+	private static int defaultCapacity = 1000;
+
+	private final EntryFactory<E> entryFactory;
+
+	private Retention retention;
+
+	private double[] times;
+
+	private double[] allocatedMips;
+
+	private double[] requestedMips;
+
+	private boolean[] flags;
+
+	/** The slot of the oldest state. */
+	private int first;
+
+	private int size;
+
+	/**
+	 * Instantiates a new state history with the default retention policy.
+	 *
+	 * @param entryFactory the entry factory
+	 */
+	public StateHistory(EntryFactory<E> entryFactory) {
+		this.entryFactory = entryFactory;
+		setRetention(defaultRetention, defaultCapacity);
+	}
+
+	/**
+	 * Sets the retention policy of the histories created from now on.
+	 *
+	 * @param retention the retention policy
+	 * @param capacity the number of states kept by histories retaining the last states
+	 */
+	public static void setDefaultRetention(Retention retention, int capacity) {
+		if (retention == Retention.LAST && capacity < 1) {
+			throw new IllegalArgumentException("The capacity of a history must be positive");
+		}
+		defaultRetention = retention;
+		defaultCapacity = capacity;
+	}
+
+	public static Retention getDefaultRetention() {
+		return defaultRetention;
+	}
+
+	public static int getDefaultCapacity() {
+		return defaultCapacity;
+	}
+
+	/**
+	 * Sets the retention policy, applying it to the states already kept.
+	 *
+	 * @param retention the retention policy
+	 * @param capacity the number of states kept if the newest states are retained
+	 */
+	public void setRetention(Retention retention, int capacity) {
+		if (retention == Retention.LAST && capacity < 1) {
+			throw new IllegalArgumentException("The capacity of a history must be positive");
+		}
+		List<double[]> states = new ArrayList<double[]>(size);
+		for (int i = 0; i < size; i++) {
+			int slot = slot(i);
+			states.add(new double[] { times[slot], allocatedMips[slot], requestedMips[slot], flags[slot] ? 1 : 0 });
+		}
+		this.retention = retention;
+		int length = retention == Retention.LAST ? capacity : retention == Retention.NONE ? 0 : Math.max(INITIAL_CAPACITY, size);
+		times = new double[length];
+		allocatedMips = new double[length];
+		requestedMips = new double[length];
+		flags = new boolean[length];
+		first = 0;
+		size = 0;
+		for (double[] state : states) {
+			add(state[0], state[1], state[2], state[3] != 0);
+		}
+	}
+
+	public Retention getRetention() {
+		return retention;
+	}
+
+	/**
+	 * Adds a state, replacing the last state if it has the same time.
+	 *
+	 * @param time the time
+	 * @param allocatedMips the allocated mips
+	 * @param requestedMips the requested mips
+	 * @param flag whether the host is active or the VM in migration
+	 */
+	public void add(double time, double allocatedMips, double requestedMips, boolean flag) {
+		if (retention == Retention.NONE) {
+			return;
+		}
+		if (size > 0 && times[slot(size - 1)] == time) {
+			size--;
+		}
+		if (retention == Retention.RUN_LENGTH && size > 0) {
+			int last = slot(size - 1);
+			if (this.allocatedMips[last] == allocatedMips
+					&& this.requestedMips[last] == requestedMips
+					&& flags[last] == flag) {
+				return;
+			}
+		}
+		if (size == times.length) {
+			if (retention == Retention.LAST) {
+				first = slot(1);
+				size--;
+			} else {
+				grow();
+			}
+		}
+		int slot = slot(size);
+		times[slot] = time;
+		this.allocatedMips[slot] = allocatedMips;
+		this.requestedMips[slot] = requestedMips;
+		flags[slot] = flag;
+		size++;
+	}
+
+	private void grow() {
+		int length = times.length * 2;
+		times = unwrap(times, length);
+		allocatedMips = unwrap(allocatedMips, length);
+		requestedMips = unwrap(requestedMips, length);
+		boolean[] newFlags = new boolean[length];
+		for (int i = 0; i < size; i++) {
+			newFlags[i] = flags[slot(i)];
+		}
+		flags = newFlags;
+		first = 0;
+	}
+
+	private double[] unwrap(double[] values, int length) {
+		double[] newValues = new double[length];
+		for (int i = 0; i < size; i++) {
+			newValues[i] = values[slot(i)];
+		}
+		return newValues;
+	}
+
+	private int slot(int index) {
+		int slot = first + index;
+		return slot < times.length ? slot : slot - times.length;
+	}
+
+	/**
+	 * Creates a cursor positioned before the oldest state.
+	 *
+	 * @return the cursor
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Gets a state as a new entry; changing the entry does not change the history.
+	 */
+	@Override
+	public E get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int slot = slot(index);
+		return entryFactory.createEntry(times[slot], allocatedMips[slot], requestedMips[slot], flags[slot]);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		first = 0;
+		size = 0;
+	}
+
+}
@@ -17,6 +17,8 @@ package org.cloudbus.cloudsim;
  */
 public class UtilizationModelNull implements UtilizationModel {
 
+	private static final long serialVersionUID = 1L;
+
 	/*
 	 * (non-Javadoc)
 	 * @see cloudsim.power.UtilizationModel#getUtilization(double)
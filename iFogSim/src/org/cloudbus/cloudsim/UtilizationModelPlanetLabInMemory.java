@@ -8,6 +8,8 @@ import java.io.IOException;
  * The Class UtilizationModelPlanetLab.
  */
 public class UtilizationModelPlanetLabInMemory implements UtilizationModel {
+
+	private static final long serialVersionUID = 1L;
 	
 	/** The scheduling interval. */
 	private double schedulingInterval;
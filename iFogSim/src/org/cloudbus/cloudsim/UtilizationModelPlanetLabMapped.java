@@ -0,0 +1,115 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+import org.cloudbus.cloudsim.util.UtilizationTraceStore;
+
+/**
+ * The utilization model of a PlanetLab trace read from a memory-mapped {@link UtilizationTraceStore}.
+ * It behaves as a {@link UtilizationModelPlanetLabInMemory} loaded from the file the trace was packed
+ * from, but holds no copy of the trace.
+ */
+public class UtilizationModelPlanetLabMapped implements UtilizationModel {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The scheduling interval. */
+	private double schedulingInterval;
+
+	/** The store holding the trace, reopened from its file when the model is deserialized. */
+	private transient UtilizationTraceStore store;
+
+	/** The path of the file of the store. */
+	private final String storePath;
+
+	/** The index of the trace in the store. */
+	private final int trace;
+
+	/**
+	 * Instantiates a new utilization model reading a trace of a store.
+	 *
+	 * @param store the store
+	 * @param trace the index of the trace in the store
+	 * @param schedulingInterval the scheduling interval
+	 * @see UtilizationTraceStore#getUtilizationModel(int, double)
+	 */
+	public UtilizationModelPlanetLabMapped(UtilizationTraceStore store, int trace, double schedulingInterval) {
+		this.store = store;
+		storePath = store.getPath();
+		this.trace = trace;
+		setSchedulingInterval(schedulingInterval);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.power.UtilizationModel#getUtilization(double)
+	 */
+	@Override
+	public double getUtilization(double time) {
+		if (time % getSchedulingInterval() == 0) {
+			return store.getUtilization(trace, (int) time / (int) getSchedulingInterval());
+		}
+		int time1 = (int) Math.floor(time / getSchedulingInterval());
+		int time2 = (int) Math.ceil(time / getSchedulingInterval());
+		double utilization1 = store.getUtilization(trace, time1);
+		double utilization2 = store.getUtilization(trace, time2);
+		double delta = (utilization2 - utilization1) / ((time2 - time1) * getSchedulingInterval());
+		double utilization = utilization1 + delta * (time - time1 * getSchedulingInterval());
+		return utilization;
+	}
+
+	/**
+	 * Copies the trace out of the store, e.g. to compute statistics over it.
+	 *
+	 * @return the utilization samples
+	 */
+	public double[] getData() {
+		double[] data = new double[store.getSamples()];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = store.getUtilization(trace, i);
+		}
+		return data;
+	}
+
+	/**
+	 * Gets the store holding the trace.
+	 *
+	 * @return the store
+	 */
+	public UtilizationTraceStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Gets the index of the trace in the store.
+	 *
+	 * @return the index
+	 */
+	public int getTrace() {
+		return trace;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		store = UtilizationTraceStore.reopen(storePath);
+	}
+
+	/**
+	 * Sets the scheduling interval.
+	 *
+	 * @param schedulingInterval the new scheduling interval
+	 */
+	public void setSchedulingInterval(double schedulingInterval) {
+		this.schedulingInterval = schedulingInterval;
+	}
+
+	/**
+	 * Gets the scheduling interval.
+	 *
+	 * @return the scheduling interval
+	 */
+	public double getSchedulingInterval() {
+		return schedulingInterval;
+	}
+}
@@ -7,8 +7,8 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -20,7 +20,9 @@ import java.util.List;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public class Vm {
+public class Vm implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The id. */
 	private int id;
@@ -74,7 +76,8 @@ public class Vm {
 	private boolean beingInstantiated;
 
 	/** The mips allocation history. */
-	private final List<VmStateHistoryEntry> stateHistory = new LinkedList<VmStateHistoryEntry>();
+	private final StateHistory<VmStateHistoryEntry> stateHistory = new StateHistory<VmStateHistoryEntry>(
+			VmStateHistoryEntry::new);
 
 	/**
 	 * Creates a new VMCharacteristics object.
@@ -574,7 +577,7 @@ public class Vm {
 	 * 
 	 * @return the state history
 	 */
-	public List<VmStateHistoryEntry> getStateHistory() {
+	public StateHistory<VmStateHistoryEntry> getStateHistory() {
 		return stateHistory;
 	}
 
@@ -591,19 +594,7 @@ public class Vm {
 			double allocatedMips,
 			double requestedMips,
 			boolean isInMigration) {
-		VmStateHistoryEntry newState = new VmStateHistoryEntry(
-				time,
-				allocatedMips,
-				requestedMips,
-				isInMigration);
-		if (!getStateHistory().isEmpty()) {
-			VmStateHistoryEntry previousState = getStateHistory().get(getStateHistory().size() - 1);
-			if (previousState.getTime() == time) {
-				getStateHistory().set(getStateHistory().size() - 1, newState);
-				return;
-			}
-		}
-		getStateHistory().add(newState);
+		getStateHistory().add(time, allocatedMips, requestedMips, isInMigration);
 	}
 
 }
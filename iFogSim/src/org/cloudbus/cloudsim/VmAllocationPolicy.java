@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
@@ -20,7 +21,9 @@ import java.util.Map;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public abstract class VmAllocationPolicy {
+public abstract class VmAllocationPolicy implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The host list. */
 	private List<? extends Host> hostList;
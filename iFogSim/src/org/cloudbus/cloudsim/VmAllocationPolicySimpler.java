@@ -21,6 +21,9 @@ import java.util.List;
  * @since CloudSim Toolkit 7.0
  */
 public class VmAllocationPolicySimpler extends VmAllocationPolicy {
+
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Creates a new VmAllocationPolicy object.
 	 *
@@ -11,6 +11,9 @@ import java.util.*;
  * Modified by Remo Andreoli (March 2024)
  */
 public class VmAllocationWithSelectionPolicy extends VmAllocationPolicy {
+
+    private static final long serialVersionUID = 1L;
+
     private SelectionPolicy<HostEntity> selectionPolicy;
 
     private Set<HostEntity> excludedHostCandidates;
@@ -0,0 +1,184 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.util.WorkloadStream;
+
+/**
+ * A broker submitting the jobs of a workload trace at their submit times. The jobs are read from a
+ * {@link WorkloadStream} as the simulation advances, a look-ahead window at a time, so only the
+ * jobs of the window are held before they are submitted.
+ * <p>
+ * The first job is submitted when the VMs have been created, and the other jobs at the same time
+ * offsets from it as in the trace. The jobs are assigned to the created VMs in turn. Cloudlets
+ * submitted to the broker by {@link #submitCloudletList(java.util.List)} are submitted as usual
+ * when the VMs are created.
+ * <p>
+ * The broker can be saved in a checkpoint: it keeps the {@link WorkloadStream.Source source} of the
+ * stream and the number of jobs it took, and reopens the stream after them when it is restored. The
+ * trace must then still be at the same path.
+ *
+ * @see org.cloudbus.cloudsim.util.WorkloadFileReader#stream()
+ */
+public class WorkloadDatacenterBroker extends DatacenterBroker {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The jobs still to be submitted, reopened from the source when the broker is deserialized. */
+	private transient WorkloadStream workload;
+
+	/** The trace of the jobs, with its format and filters. */
+	private final WorkloadStream.Source workloadSource;
+
+	/** The number of jobs taken from the stream. */
+	private long jobsTaken;
+
+	/** Whether the stream was closed before the end of the trace, the VMs having failed. */
+	private boolean workloadClosed;
+
+	/** The time ahead of the clock up to which jobs are submitted at a time. */
+	private final double lookAhead;
+
+	/** The simulation time minus the trace time, set when the first job is submitted. */
+	private double timeOffset;
+
+	private boolean workloadStarted;
+
+	/** The index of the VM the next job is submitted to. */
+	private int vmIndex;
+
+	/**
+	 * Instantiates a new workload datacenter broker.
+	 *
+	 * @param name the name
+	 * @param workload the jobs to submit
+	 * @param lookAhead the time ahead of the clock up to which jobs are submitted at a time
+	 * @throws Exception the exception
+	 */
+	public WorkloadDatacenterBroker(String name, WorkloadStream workload, double lookAhead) throws Exception {
+		super(name);
+		if (lookAhead < 0) {
+			throw new IllegalArgumentException("The look-ahead time must be >= 0");
+		}
+		this.workload = workload;
+		workloadSource = workload.getSource();
+		this.lookAhead = lookAhead;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.DatacenterBroker#submitCloudlets()
+	 */
+	@Override
+	protected void submitCloudlets() {
+		super.submitCloudlets();
+		if (!workloadStarted) {
+			workloadStarted = true;
+			if (workload.hasNext()) {
+				timeOffset = CloudSim.clock() - workload.peekSubmitTime();
+			}
+			submitWorkload();
+		}
+	}
+
+	/**
+	 * Submits the jobs due up to the end of the look-ahead window, each delayed until its submit
+	 * time, and schedules the submission of the next jobs.
+	 */
+	protected void submitWorkload() {
+		if (getVmsCreatedList().isEmpty()) {
+			workload.close();
+			workloadClosed = true;
+			return;
+		}
+
+		double horizon = CloudSim.clock() + lookAhead;
+		while (workload.hasNext() && workload.peekSubmitTime() + timeOffset <= horizon) {
+			double delay = Math.max(0, workload.peekSubmitTime() + timeOffset - CloudSim.clock());
+			Cloudlet cloudlet = workload.next();
+			jobsTaken++;
+			Vm vm = getVmsCreatedList().get(vmIndex);
+			vmIndex = (vmIndex + 1) % getVmsCreatedList().size();
+
+			cloudlet.setUserId(getId());
+			cloudlet.setVmId(vm.getId());
+			send(getVmsToDatacentersMap().get(vm.getId()), delay, CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+			cloudletsSubmitted++;
+			getCloudletSubmittedList().add(cloudlet);
+		}
+
+		if (workload.hasNext()) {
+			double delay = workload.peekSubmitTime() + timeOffset - lookAhead - CloudSim.clock();
+			schedule(getId(), Math.max(delay, CloudSim.getMinTimeBetweenEvents()), CloudSimTags.WORKLOAD_SUBMIT);
+		} else if (cloudletsSubmitted == 0 && getCloudletList().isEmpty()) {
+			Log.printLine(CloudSim.clock() + ": " + getName() + ": No jobs to execute. Finishing...");
+			clearDatacenters();
+			finishExecution();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.DatacenterBroker#processCloudletReturn(org.cloudbus.cloudsim.core.SimEvent)
+	 */
+	@Override
+	protected void processCloudletReturn(SimEvent ev) {
+		if (!workload.hasNext()) {
+			super.processCloudletReturn(ev);
+			return;
+		}
+
+		// more jobs are to be submitted, so the simulation goes on even if no cloudlet is running
+		Cloudlet cloudlet = (Cloudlet) ev.getData();
+		getCloudletReceivedList().add(cloudlet);
+		Log.printLine(CloudSim.clock() + ": " + getName() + ": Cloudlet " + cloudlet.getCloudletId()
+				+ " received");
+		cloudletsSubmitted--;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.DatacenterBroker#processOtherEvent(org.cloudbus.cloudsim.core.SimEvent)
+	 */
+	@Override
+	protected void processOtherEvent(SimEvent ev) {
+		if (ev != null && ev.getTag() == CloudSimTags.WORKLOAD_SUBMIT) {
+			submitWorkload();
+		} else {
+			super.processOtherEvent(ev);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		workload = workloadSource.open();
+		if (workloadClosed) {
+			workload.close();
+		} else {
+			workload.skip(jobsTaken);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.DatacenterBroker#shutdownEntity()
+	 */
+	@Override
+	public void shutdownEntity() {
+		workload.close();
+		super.shutdownEntity();
+	}
+
+}
@@ -18,6 +18,9 @@ import java.util.List;
  * Modified by Remo Andreoli (Feb 2024)
  */
 public class ContainerDatacenter extends Datacenter {
+
+    private static final long serialVersionUID = 1L;
+
     /**
      * The container provisioner.
      */
@@ -26,6 +26,9 @@ import java.util.HashMap;
  */
 
 public class ContainerDatacenterBroker extends DatacenterBroker {
+
+    private static final long serialVersionUID = 1L;
+
     /**
      * The container list
      */
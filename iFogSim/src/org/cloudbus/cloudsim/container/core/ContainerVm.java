@@ -35,6 +35,8 @@ import java.util.List;
  */
 public class ContainerVm extends Vm {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * The Cloudlet scheduler.
      */
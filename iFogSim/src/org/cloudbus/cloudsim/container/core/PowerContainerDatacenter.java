@@ -24,6 +24,8 @@ import java.util.List;
  */
 public class PowerContainerDatacenter extends ContainerDatacenter {
 
+    private static final long serialVersionUID = 1L;
+
 
     /**
      * The power.
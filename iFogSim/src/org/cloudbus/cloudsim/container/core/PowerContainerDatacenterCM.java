@@ -23,6 +23,9 @@ import java.util.List;
  * Modified by Remo Andreoli (Feb 2024)
  */
 public class PowerContainerDatacenterCM extends PowerContainerDatacenter {
+
+    private static final long serialVersionUID = 1L;
+
     /**
      * The disable container migrations.
      */
@@ -23,6 +23,9 @@ import java.util.List;
  * Modified by Remo Andreoli (March 2024)
  */
 public class PowerContainerVm extends ContainerVm implements PowerGuestEntity {
+
+    private static final long serialVersionUID = 1L;
+
     /**
      * The utilization history.
      */
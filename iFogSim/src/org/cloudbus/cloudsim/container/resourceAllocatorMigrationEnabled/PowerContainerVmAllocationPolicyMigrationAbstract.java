@@ -25,6 +25,8 @@ import java.util.*;
  */
 public abstract class PowerContainerVmAllocationPolicyMigrationAbstract extends VmAllocationPolicySimpler {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * The vm selection policy.
      */
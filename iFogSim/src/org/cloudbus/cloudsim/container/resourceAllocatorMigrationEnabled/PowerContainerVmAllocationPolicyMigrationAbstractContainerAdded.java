@@ -9,6 +9,7 @@ package org.cloudbus.cloudsim.container.resourceAllocatorMigrationEnabled;
 
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.container.core.*;
+import org.cloudbus.cloudsim.container.utils.CapacityIndex;
 import org.cloudbus.cloudsim.container.utils.IDs;
 import org.cloudbus.cloudsim.container.utils.RandomGen;
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -34,6 +35,8 @@ import java.util.*;
 
 public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainerAdded extends PowerContainerVmAllocationPolicyMigrationAbstract {
 
+    private static final long serialVersionUID = 1L;
+
     private ContainerDatacenter datacenter;
     /**
      * The container selection policy.
@@ -45,6 +48,18 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
     protected long vmBw;
     protected long vmSize;
     protected double[] vmMips;
+    /**
+     * The hosts by the largest free MIPS of their VMs, kept while an allocation is being optimized so that
+     * the hosts having no VM with enough free MIPS for a container are not searched; null otherwise. The
+     * free MIPS of the VMs change with every update of their schedulers, so the index is rebuilt for each
+     * optimization instead of following the allocations the datacenter makes in between.
+     */
+    private CapacityIndex<PowerHost> hostCapacityIndex;
+    /**
+     * The margin below the free MIPS a container needs that a host is still searched with, covering the
+     * rounding of the free MIPS of a VM when a container is created on it and destroyed again.
+     */
+    private static final double CAPACITY_TOLERANCE = 1e-6;
 
     public PowerContainerVmAllocationPolicyMigrationAbstractContainerAdded(List<? extends HostEntity> hostList,
                                                                            SelectionPolicy<GuestEntity> vmSelectionPolicy, SelectionPolicy<PowerGuestEntity> containerSelectionPolicy,
@@ -79,6 +94,8 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
         List<? extends GuestEntity> containersToMigrate = getContainersToMigrateFromHosts(overUtilizedHosts);
         getExecutionTimeHistoryVmSelection().add(ExecutionTimeMeasurer.end("optimizeAllocationContainerSelection"));
 
+        rebuildHostCapacityIndex();
+
         Log.println("Reallocation of Containers from the over-utilized hosts:");
         ExecutionTimeMeasurer.start("optimizeAllocationVmReallocation");
         List<GuestMapping> migrationMap = getPlacementForLeftContainers(containersToMigrate, new HashSet<Host>(overUtilizedHosts));
@@ -90,6 +107,7 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
 
         migrationMap.addAll(getContainerMigrationMapFromUnderUtilizedHosts(overUtilizedHosts, migrationMap));
 
+        hostCapacityIndex = null;
         restoreAllocation();
 
         getExecutionTimeHistoryTotal().add(ExecutionTimeMeasurer.end("optimizeAllocationTotal"));
@@ -154,7 +172,11 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
 
             }
 
-            excludedHostsForFindingUnderUtilizedHost.addAll(extractHostListFromMigrationMap(newVmPlacement));
+            List<PowerHost> newVmPlacementHosts = extractHostListFromMigrationMap(newVmPlacement);
+            for (PowerHost host : newVmPlacementHosts) {
+                updateHostCapacity(host);
+            }
+            excludedHostsForFindingUnderUtilizedHost.addAll(newVmPlacementHosts);
             //The migration mapp does not have a value for container since the whole vm would be migrated.
             migrationMap.addAll(newVmPlacement);
             Log.println();
@@ -304,6 +326,7 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
             
             if(allocateHostForGuest(vm, host)){
                 Log.println("The vm ID #" + vm.getId() + "will be created ");
+                updateHostCapacity(host);
                 vm.setInWaiting(vmStatus);
                 return vm;
             }
@@ -402,21 +425,16 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
         double minPower = Double.MAX_VALUE;
         PowerHost allocatedHost = null;
         ContainerVm allocatedVm = null;
-        List<Host> underUtilizedHostList = new ArrayList<>();
-        List<ContainerVm> vmList = new ArrayList<>();
+        Map<Host, List<ContainerVm>> createdVmsByHost = new LinkedHashMap<>();
         for(GuestMapping map : createdVm){
-            underUtilizedHostList.add((Host) map.host());
+            createdVmsByHost.computeIfAbsent((Host) map.host(), host -> new ArrayList<>()).add((ContainerVm) map.vm());
         }
+        List<Host> underUtilizedHostList = new ArrayList<>(createdVmsByHost.keySet());
         HostList.sortByCpuUtilization(underUtilizedHostList);
         for (Host host1 : underUtilizedHostList) {
 
             PowerHost host = (PowerHost) host1;
-            for(GuestMapping map : createdVm) {
-                if (map.host() == host1) {
-                    vmList.add((ContainerVm) map.vm());
-                }
-            }
-            for (ContainerVm vm : vmList) {
+            for (ContainerVm vm : createdVmsByHost.get(host1)) {
 //                if vm is not created no need for checking!
 
                 if (vm.isSuitableForGuest(container)) {
@@ -496,7 +514,20 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
         PowerHost allocatedHost = null;
         ContainerVm allocatedVm = null;
 
-        for (PowerHost host : this.<PowerHost>getHostList()) {
+        int allocatedHostRank = Integer.MAX_VALUE;
+
+        // with the index, the hosts come by free MIPS and ties in power go to the host first in the host list
+        Collection<PowerHost> hostList = this.<PowerHost>getHostList();
+        if (hostCapacityIndex != null) {
+            hostList = hostCapacityIndex.getItemsWithCapacity(container.getTotalMips() - CAPACITY_TOLERANCE);
+        }
+        int hostRank = 0;
+        for (PowerHost host : hostList) {
+            if (hostCapacityIndex != null) {
+                hostRank = hostCapacityIndex.getRank(host);
+            } else {
+                hostRank++;
+            }
             if (excludedHosts.contains(host)) {
                 continue;
             }
@@ -519,9 +550,10 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
                         double powerAfterAllocation = getPowerAfterContainerAllocation(host, (Container) container, vm);
                         if (powerAfterAllocation != -1) {
                             double powerDiff = powerAfterAllocation - host.getPower();
-                            if (powerDiff < minPower) {
+                            if (powerDiff < minPower || (powerDiff == minPower && hostRank < allocatedHostRank)) {
                                 minPower = powerDiff;
                                 allocatedHost = host;
+                                allocatedHostRank = hostRank;
                                 allocatedVm = vm;
                             }
                         }
@@ -537,6 +569,47 @@ public abstract class PowerContainerVmAllocationPolicyMigrationAbstractContainer
         return new GuestMapping(allocatedVm, allocatedHost);
     }
 
+    /**
+     * Indexes all hosts by the largest free MIPS of their VMs. From then on, until the index is dropped at the
+     * end of the optimization, every VM created on or moved to a host and every container destroyed on a VM
+     * has to be followed by an {@link #updateHostCapacity(Host) update} of its host, as the index must never
+     * hold less free MIPS than a host has. Creating a container only lowers them and needs no update, nor
+     * does trying a container on a VM while looking for a host, as it is destroyed right away.
+     */
+    protected void rebuildHostCapacityIndex() {
+        hostCapacityIndex = new CapacityIndex<>();
+        int rank = 0;
+        for (PowerHost host : this.<PowerHost>getHostList()) {
+            hostCapacityIndex.put(host, getLargestAvailableMips(host), rank++);
+        }
+    }
+
+    /**
+     * Updates the largest free MIPS of the VMs of a host in the host capacity index, if there is one.
+     *
+     * @param host the host
+     */
+    protected void updateHostCapacity(Host host) {
+        if (hostCapacityIndex != null) {
+            hostCapacityIndex.setCapacity((PowerHost) host, getLargestAvailableMips(host));
+        }
+    }
+
+    /**
+     * Gets the largest free MIPS of the VMs of a host. A container can only be created on a VM whose free MIPS
+     * are at least its total MIPS.
+     *
+     * @param host the host
+     * @return the largest free MIPS, or -1 if the host has no VM
+     */
+    protected double getLargestAvailableMips(Host host) {
+        double largestAvailableMips = -1;
+        for (Vm vm : host.getVmList()) {
+            largestAvailableMips = Math.max(largestAvailableMips, ((ContainerVm) vm).getAvailableMips());
+        }
+        return largestAvailableMips;
+    }
+
     protected boolean isVmOverUtilized(ContainerVm vm) {
         boolean isOverUtilized = true;
         double util = 0;
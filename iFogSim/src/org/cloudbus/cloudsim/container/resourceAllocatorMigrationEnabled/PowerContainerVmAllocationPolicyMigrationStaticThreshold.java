@@ -20,6 +20,8 @@ import java.util.List;
  */
 public class PowerContainerVmAllocationPolicyMigrationStaticThreshold extends PowerContainerVmAllocationPolicyMigrationAbstract {
 
+    private static final long serialVersionUID = 1L;
+
     /** The utilization threshold. */
     private double utilizationThreshold = 0.9;
 
@@ -0,0 +1,143 @@
+package org.cloudbus.cloudsim.container.utils;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * An index of items ordered by their spare capacity, e.g. hosts by the largest free MIPS of their VMs,
+ * telling which items have at least a given capacity without scanning all of them. Each item also has a
+ * rank, unique in the index, usually its position in the list it was taken from. The items found come in
+ * the order of their capacity; the rank lets a caller break ties the same way a scan of that list would.
+ *
+ * The capacity recorded for an item may be above its actual capacity but must never be below it: the
+ * capacity of an item has to be updated whenever it grows, while updating it when it shrinks only makes
+ * queries return fewer items.
+ *
+ * @param <T> the type of the items
+ */
+public class CapacityIndex<T> {
+
+    private static final class Entry<T> {
+        private final T item;
+        private final double capacity;
+        private final int rank;
+
+        private Entry(T item, double capacity, int rank) {
+            this.item = item;
+            this.capacity = capacity;
+            this.rank = rank;
+        }
+    }
+
+    private static final Comparator<Entry<?>> BY_CAPACITY =
+            Comparator.<Entry<?>>comparingDouble(entry -> entry.capacity).thenComparingInt(entry -> entry.rank);
+
+    private final TreeSet<Entry<T>> entries = new TreeSet<>(BY_CAPACITY);
+
+    private final Map<T, Entry<T>> entryByItem = new HashMap<>();
+
+    /**
+     * Adds an item, or replaces its capacity and rank if it is indexed already.
+     *
+     * @param item     the item
+     * @param capacity the capacity of the item
+     * @param rank     the rank of the item
+     */
+    public void put(T item, double capacity, int rank) {
+        remove(item);
+        Entry<T> entry = new Entry<>(item, capacity, rank);
+        entries.add(entry);
+        entryByItem.put(item, entry);
+    }
+
+    /**
+     * Updates the capacity of an indexed item, keeping its rank.
+     *
+     * @param item     the item
+     * @param capacity the capacity of the item
+     * @return true, if the item is indexed
+     */
+    public boolean setCapacity(T item, double capacity) {
+        Entry<T> entry = entryByItem.get(item);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.capacity != capacity) {
+            put(item, capacity, entry.rank);
+        }
+        return true;
+    }
+
+    public boolean remove(T item) {
+        Entry<T> entry = entryByItem.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        entries.remove(entry);
+        return true;
+    }
+
+    public boolean contains(T item) {
+        return entryByItem.containsKey(item);
+    }
+
+    /**
+     * Gets the rank of an indexed item.
+     *
+     * @param item the item
+     * @return the rank, or -1 if the item is not indexed
+     */
+    public int getRank(T item) {
+        Entry<T> entry = entryByItem.get(item);
+        return entry == null ? -1 : entry.rank;
+    }
+
+    public int size() {
+        return entryByItem.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        entryByItem.clear();
+    }
+
+    /**
+     * Gets the items having at least a capacity. The items are a view of the index, found in logarithmic
+     * time and not copied, so the index must not be changed while they are iterated.
+     *
+     * @param minCapacity the capacity
+     * @return the items, by capacity
+     */
+    public Collection<T> getItemsWithCapacity(double minCapacity) {
+        NavigableSet<Entry<T>> found = entries.tailSet(new Entry<>(null, minCapacity, Integer.MIN_VALUE), true);
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                Iterator<Entry<T>> it = found.iterator();
+                return new Iterator<T>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return it.next().item;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return found.size();
+            }
+        };
+    }
+
+}
@@ -2,6 +2,8 @@ package org.cloudbus.cloudsim.container.utils;
 
 import java.util.Random;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 /**
  * The class is generated to produce an integer with a gaussian/normal distribution
  * Created by sareh on 16/12/15.
@@ -12,7 +14,7 @@ public class RandomGaussian {
     Random random;
 
     public RandomGaussian() {
-        setRandom(new Random());
+        setRandom(RandomStreams.newRandom(RandomGaussian.class.getName()));
 
     }
 
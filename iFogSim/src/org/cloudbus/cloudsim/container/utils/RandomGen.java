@@ -2,6 +2,8 @@ package org.cloudbus.cloudsim.container.utils;
 
 import java.util.Random;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 /**
  * Created by sareh on 13/08/15.
  */
@@ -9,7 +11,7 @@ public class RandomGen {
     Random random;
 
     public RandomGen() {
-        setRandom(new Random());
+        setRandom(RandomStreams.newRandom(RandomGen.class.getName()));
 //        random.setSeed(123456789);
     }
 
@@ -338,6 +338,12 @@ public class CloudSim {
 	/** The abrupt terminate. */
 	private static boolean abruptTerminate = false;
 
+	/** The time of the scheduled checkpoint, -1 if there is none. */
+	private static double checkpointAt = -1;
+
+	/** The action taking the scheduled checkpoint. */
+	private static Runnable checkpointAction;
+
 	/**
 	 * Initialise the simulation for stand alone simulations. This function should be called at the
 	 * start of the simulation.
@@ -882,6 +888,17 @@ public class CloudSim {
 			runStart();
 		}
 		while (true) {
+			if (checkpointAt >= 0
+					&& (future.size() == 0 || future.iterator().next().eventTime() > checkpointAt)) {
+				Runnable action = checkpointAction;
+				checkpointAt = -1;
+				checkpointAction = null;
+				action.run();
+				if (abruptTerminate || !running) {
+					break;
+				}
+			}
+
 			if (runClockTick() || abruptTerminate) {
 				break;
 			}
@@ -948,6 +965,76 @@ public class CloudSim {
 		paused = false;
 		pauseAt = -1;
 		abruptTerminate = false;
+		checkpointAt = -1;
+		checkpointAction = null;
+	}
+
+	/**
+	 * Schedules a checkpoint of the simulation: the action is run once, when every event up to the
+	 * given time has been processed and before any later event is. It typically saves a
+	 * {@link SimulationCheckpoint}, and may terminate the simulation with
+	 * {@link #abruptallyTerminate()} once the checkpoint is saved.
+	 * 
+	 * @param time the simulation time of the checkpoint
+	 * @param action the action taking the checkpoint
+	 * @return true, if successful; false if the time has already passed
+	 */
+	public static boolean scheduleCheckpoint(double time, Runnable action) {
+		if (time < clock) {
+			return false;
+		}
+		checkpointAt = time;
+		checkpointAction = action;
+		return true;
+	}
+
+	/**
+	 * Copies the state of the simulation into a checkpoint.
+	 * 
+	 * @param checkpoint the checkpoint
+	 */
+	static void saveState(SimulationCheckpoint checkpoint) {
+		checkpoint.cisId = cisId;
+		checkpoint.shutdownId = shutdownId;
+		checkpoint.cis = cis;
+		checkpoint.traceFlag = traceFlag;
+		checkpoint.calendar = calendar;
+		checkpoint.terminateAt = terminateAt;
+		checkpoint.minTimeBetweenEvents = minTimeBetweenEvents;
+		checkpoint.entities = entities;
+		checkpoint.entitiesByName = entitiesByName;
+		checkpoint.future = future;
+		checkpoint.deferred = deferred;
+		checkpoint.clock = clock;
+		checkpoint.waitPredicates = waitPredicates;
+	}
+
+	/**
+	 * Replaces the state of the simulation by the one of a checkpoint. The simulation is then
+	 * running: {@link #startSimulation()} resumes it without starting the entities again.
+	 * 
+	 * @param checkpoint the checkpoint
+	 */
+	static void restoreState(SimulationCheckpoint checkpoint) {
+		cisId = checkpoint.cisId;
+		shutdownId = checkpoint.shutdownId;
+		cis = checkpoint.cis;
+		traceFlag = checkpoint.traceFlag;
+		calendar = checkpoint.calendar;
+		terminateAt = checkpoint.terminateAt;
+		minTimeBetweenEvents = checkpoint.minTimeBetweenEvents;
+		entities = checkpoint.entities;
+		entitiesByName = checkpoint.entitiesByName;
+		future = checkpoint.future;
+		deferred = checkpoint.deferred;
+		clock = checkpoint.clock;
+		waitPredicates = checkpoint.waitPredicates;
+		running = true;
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+		checkpointAt = -1;
+		checkpointAction = null;
 	}
 
 	/**
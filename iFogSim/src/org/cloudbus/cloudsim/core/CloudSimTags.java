@@ -265,6 +265,9 @@ public class CloudSimTags {
 
 	public static final int NextCycle = BASE + 48;
 
+	/** Denotes an internal event for a broker to submit the next jobs of its workload */
+	public static final int WORKLOAD_SUBMIT = BASE + 49;
+
 	/** Private Constructor */
 	private CloudSimTags() {
 		throw new UnsupportedOperationException("CloudSim Tags cannot be instantiated");
@@ -7,6 +7,9 @@ import java.util.Collections;
 
 /* a CPU, a network link, ... */
 public class ScheduledResource extends SimEntity {
+
+    private static final long serialVersionUID = 1L;
+
     public static class ResourceUse implements Comparable<ResourceUse> {
         public int src;
         public int dst;
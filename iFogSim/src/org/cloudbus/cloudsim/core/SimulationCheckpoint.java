@@ -0,0 +1,287 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.math3.util.Pair;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.util.RandomStreams;
+
+/**
+ * A checkpoint of a running simulation: the entities, with everything they refer to, the future
+ * and deferred event queues, the clock and the state of the {@link RandomStreams}. A checkpoint
+ * taken once a simulation has warmed up, see {@link CloudSim#scheduleCheckpoint(double, Runnable)},
+ * can be restored any number of times, in the same or in another JVM, to simulate variants of the
+ * rest of the simulation without simulating the warm-up again.
+ * <p>
+ * The state kept in static fields outside of {@link CloudSim}, e.g. by monitors, is saved as
+ * attachments, see {@link #attach(String, Serializable)}. Everything saved must be
+ * {@link Serializable}, except the fields marked transient, which are rebuilt when needed, and the
+ * {@link Pair}s, which are saved as their elements. The checkpoint is written with Java
+ * serialization, compressed with GZIP, behind a short header identifying the format.
+ */
+public class SimulationCheckpoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The magic number starting a checkpoint file. */
+	private static final int MAGIC = 0x43534350;
+
+	/** The version of the format of the checkpoint files. */
+	private static final int FORMAT_VERSION = 1;
+
+	/** The size of the buffers of the checkpoint streams. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// The state of CloudSim, set by CloudSim itself
+	int cisId;
+
+	int shutdownId;
+
+	CloudInformationService cis;
+
+	boolean traceFlag;
+
+	Calendar calendar;
+
+	double terminateAt;
+
+	double minTimeBetweenEvents;
+
+	List<SimEntity> entities;
+
+	Map<String, SimEntity> entitiesByName;
+
+	FutureQueue future;
+
+	DeferredQueue deferred;
+
+	double clock;
+
+	Map<Integer, Predicate> waitPredicates;
+
+	/** The master seed of the random streams. */
+	private long masterSeed;
+
+	/** The number of streams created so far by name. */
+	private Map<String, Long> streamCounts;
+
+	/** The state saved along with the one of the simulation, by key. */
+	private final Map<String, Serializable> attachments = new LinkedHashMap<String, Serializable>();
+
+	private SimulationCheckpoint() {
+	}
+
+	/**
+	 * Captures the state of the running simulation. The checkpoint refers to the live state until it
+	 * is written, so it must be written before the simulation goes on.
+	 *
+	 * @return the checkpoint
+	 */
+	public static SimulationCheckpoint capture() {
+		SimulationCheckpoint checkpoint = new SimulationCheckpoint();
+		CloudSim.saveState(checkpoint);
+		if (checkpoint.entities == null) {
+			throw new IllegalStateException("The simulation has not been initialised");
+		}
+		checkpoint.masterSeed = RandomStreams.getMasterSeed();
+		checkpoint.streamCounts = RandomStreams.getStreamCounts();
+		return checkpoint;
+	}
+
+	/**
+	 * Restores the state of the simulation, along with the one of the random streams. The
+	 * attachments are restored by their owners. {@link CloudSim#startSimulation()} then resumes the
+	 * simulation from the time of the checkpoint.
+	 */
+	public void restore() {
+		RandomStreams.setMasterSeed(masterSeed, streamCounts);
+		CloudSim.restoreState(this);
+	}
+
+	/**
+	 * Gets the simulation time of the checkpoint.
+	 *
+	 * @return the time
+	 */
+	public double getTime() {
+		return clock;
+	}
+
+	/**
+	 * Saves some state along with the one of the simulation. The state is serialized with the rest
+	 * of the checkpoint, so the objects it shares with the simulation are still shared once restored.
+	 *
+	 * @param key the key of the state
+	 * @param state the state
+	 */
+	public void attach(String key, Serializable state) {
+		attachments.put(key, state);
+	}
+
+	/**
+	 * Gets some state saved along with the one of the simulation.
+	 *
+	 * @param key the key of the state
+	 * @return the state, null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Serializable> T getAttachment(String key) {
+		return (T) attachments.get(key);
+	}
+
+	/**
+	 * Writes the checkpoint.
+	 *
+	 * @param out the stream to write to, left open
+	 * @throws IOException if the checkpoint cannot be written, e.g. if some of the state is not
+	 *             serializable
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(FORMAT_VERSION);
+		header.flush();
+		GZIPOutputStream zip = new GZIPOutputStream(out, BUFFER_SIZE);
+		ObjectOutputStream objects = new CheckpointOutputStream(new BufferedOutputStream(zip, BUFFER_SIZE));
+		objects.writeObject(this);
+		objects.flush();
+		zip.finish();
+	}
+
+	/**
+	 * Writes the checkpoint to a file.
+	 *
+	 * @param fileName the name of the file
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	public void save(String fileName) throws IOException {
+		try (OutputStream out = new FileOutputStream(fileName)) {
+			write(out);
+		}
+	}
+
+	/**
+	 * Reads a checkpoint.
+	 *
+	 * @param in the stream to read from, left open
+	 * @return the checkpoint
+	 * @throws IOException if the stream does not hold a checkpoint, or one of classes that no longer
+	 *             match the ones of the simulation
+	 */
+	public static SimulationCheckpoint read(InputStream in) throws IOException {
+		DataInputStream header = new DataInputStream(in);
+		if (header.readInt() != MAGIC) {
+			throw new IOException("Not a simulation checkpoint");
+		}
+		int version = header.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported checkpoint format version " + version);
+		}
+		ObjectInputStream objects = new CheckpointInputStream(new BufferedInputStream(new GZIPInputStream(in,
+				BUFFER_SIZE), BUFFER_SIZE));
+		try {
+			return (SimulationCheckpoint) objects.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("The checkpoint refers to an unknown class", e);
+		}
+	}
+
+	/**
+	 * Reads a checkpoint from a file.
+	 *
+	 * @param fileName the name of the file
+	 * @return the checkpoint
+	 * @throws IOException if the file does not hold a checkpoint
+	 */
+	public static SimulationCheckpoint load(String fileName) throws IOException {
+		try (InputStream in = new FileInputStream(fileName)) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * The serialized form of a {@link Pair}, which is not serializable itself.
+	 */
+	private static class SerializedPair implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Object key;
+
+		private final Object value;
+
+		SerializedPair(Pair<?, ?> pair) {
+			key = pair.getKey();
+			value = pair.getValue();
+		}
+
+	}
+
+	/**
+	 * The stream writing checkpoints, which replaces the objects that are not serializable by their
+	 * serialized form.
+	 */
+	private static class CheckpointOutputStream extends ObjectOutputStream {
+
+		CheckpointOutputStream(OutputStream out) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) throws IOException {
+			if (obj instanceof Pair) {
+				return new SerializedPair((Pair<?, ?>) obj);
+			}
+			return obj;
+		}
+
+	}
+
+	/**
+	 * The stream reading checkpoints, which rebuilds the objects replaced when writing them.
+	 */
+	private static class CheckpointInputStream extends ObjectInputStream {
+
+		CheckpointInputStream(InputStream in) throws IOException {
+			super(in);
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) throws IOException {
+			if (obj instanceof SerializedPair) {
+				SerializedPair pair = (SerializedPair) obj;
+				return new Pair<Object, Object>(pair.key, pair.value);
+			}
+			return obj;
+		}
+
+	}
+
+}
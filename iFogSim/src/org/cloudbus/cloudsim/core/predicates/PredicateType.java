@@ -20,6 +20,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class PredicateType extends Predicate {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The tags. */
 	private final int[] tags;
 
@@ -23,4 +23,16 @@ public interface ContinuousDistribution {
 	 */
 	double sample();
 
+	/**
+	 * Samples the random number generator many times, e.g. to generate a whole workload at once.
+	 * The samples are the ones successive calls to {@link #sample()} would give.
+	 * 
+	 * @param out the array receiving the samples, filled entirely
+	 */
+	default void sample(double[] out) {
+		for (int i = 0; i < out.length; i++) {
+			out[i] = sample();
+		}
+	}
+
 }
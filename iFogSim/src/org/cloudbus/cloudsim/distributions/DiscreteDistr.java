@@ -0,0 +1,165 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.distributions;
+
+import java.util.Random;
+
+import org.cloudbus.cloudsim.util.RandomStreams;
+
+/**
+ * A discrete distribution over a finite set of values with given weights, e.g. an empirical
+ * distribution or a bounded Zipf distribution of ranks. Samples are drawn in constant time from
+ * an alias table built with Vose's method: each column of the table holds a value, with the
+ * probability of keeping it, and an alias value taken otherwise.
+ */
+public class DiscreteDistr implements ContinuousDistribution {
+
+	/** The num gen. */
+	private final Random numGen;
+
+	/** The values. */
+	private final double[] values;
+
+	/** The probability of keeping the value of each column. */
+	private final double[] probability;
+
+	/** The index of the alias value of each column. */
+	private final int[] alias;
+
+	/**
+	 * Instantiates a new discrete distr.
+	 *
+	 * @param seed the seed
+	 * @param values the values
+	 * @param weights the weights of the values, not necessarily summing to 1
+	 */
+	public DiscreteDistr(long seed, double[] values, double[] weights) {
+		this(new Random(seed), values, weights);
+	}
+
+	/**
+	 * Instantiates a new discrete distr.
+	 *
+	 * @param values the values
+	 * @param weights the weights of the values, not necessarily summing to 1
+	 */
+	public DiscreteDistr(double[] values, double[] weights) {
+		this(RandomStreams.newRandom(DiscreteDistr.class.getName()), values, weights);
+	}
+
+	private DiscreteDistr(Random numGen, double[] values, double[] weights) {
+		if (values.length == 0 || values.length != weights.length) {
+			throw new IllegalArgumentException("Values must not be empty and must have one weight each");
+		}
+		double total = 0.0;
+		for (double weight : weights) {
+			if (weight < 0.0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+				throw new IllegalArgumentException("Weights must be finite and not negative");
+			}
+			total += weight;
+		}
+		if (total <= 0.0) {
+			throw new IllegalArgumentException("Weights must not all be 0");
+		}
+
+		this.numGen = numGen;
+		this.values = values.clone();
+		int n = values.length;
+		probability = new double[n];
+		alias = new int[n];
+
+		// scaled so that a column holds n / n = 1 on average
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights[i] * n / total;
+			if (scaled[i] < 1.0) {
+				small[smallCount++] = i;
+			} else {
+				large[largeCount++] = i;
+			}
+		}
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+			probability[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+			if (scaled[more] < 1.0) {
+				small[smallCount++] = more;
+			} else {
+				large[largeCount++] = more;
+			}
+		}
+		// the columns left are full, up to rounding errors
+		while (largeCount > 0) {
+			int more = large[--largeCount];
+			probability[more] = 1.0;
+			alias[more] = more;
+		}
+		while (smallCount > 0) {
+			int less = small[--smallCount];
+			probability[less] = 1.0;
+			alias[less] = less;
+		}
+	}
+
+	/**
+	 * Instantiates a bounded Zipf distribution of the ranks 1 to population, rank k having a
+	 * probability proportional to 1 / k^shape.
+	 *
+	 * @param seed the seed
+	 * @param shape the shape
+	 * @param population the population
+	 * @return the distribution
+	 */
+	public static DiscreteDistr zipf(long seed, double shape, int population) {
+		if (shape <= 0.0 || population < 1) {
+			throw new IllegalArgumentException("Shape must be greater than 0.0 and population greater than 0");
+		}
+		double[] ranks = new double[population];
+		double[] weights = new double[population];
+		for (int k = 1; k <= population; k++) {
+			ranks[k - 1] = k;
+			weights[k - 1] = 1 / Math.pow(k, shape);
+		}
+		return new DiscreteDistr(seed, ranks, weights);
+	}
+
+	/**
+	 * Generate a new random number.
+	 *
+	 * @return the next random number in the sequence
+	 */
+	@Override
+	public double sample() {
+		return values[sampleIndex()];
+	}
+
+	@Override
+	public void sample(double[] out) {
+		for (int i = 0; i < out.length; i++) {
+			out[i] = values[sampleIndex()];
+		}
+	}
+
+	/**
+	 * Draws the index of a value.
+	 *
+	 * @return the index
+	 */
+	private int sampleIndex() {
+		int column = numGen.nextInt(values.length);
+		return numGen.nextDouble() < probability[column] ? column : alias[column];
+	}
+
+}
@@ -10,6 +10,8 @@ package org.cloudbus.cloudsim.distributions;
 
 import java.util.Random;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 /**
  * An exponential number generator.
  * 
@@ -47,7 +49,7 @@ public class ExponentialDistr implements ContinuousDistribution {
 		if (mean <= 0.0) {
 			throw new IllegalArgumentException("Mean must be greated than 0.0");
 		}
-		numGen = new Random(System.currentTimeMillis());
+		numGen = RandomStreams.newRandom(ExponentialDistr.class.getName());
 		this.mean = mean;
 	}
 
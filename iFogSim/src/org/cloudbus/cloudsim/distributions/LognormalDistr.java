@@ -10,6 +10,8 @@ package org.cloudbus.cloudsim.distributions;
 
 import java.util.Random;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 /**
  * The Class LognormalDistr.
  * 
@@ -55,7 +57,7 @@ public class LognormalDistr implements ContinuousDistribution {
 			throw new IllegalArgumentException("Mean and deviation must be greater than 0.0");
 		}
 
-		numGen = new Random(System.currentTimeMillis());
+		numGen = RandomStreams.newRandom(LognormalDistr.class.getName());
 		this.mean = mean;
 		this.dev = dev;
 	}
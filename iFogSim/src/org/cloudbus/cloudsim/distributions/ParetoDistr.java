@@ -11,6 +11,8 @@ package org.cloudbus.cloudsim.distributions;
 
 import java.util.Random;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 /**
  * The Class ParetoDistr.
  * 
@@ -56,7 +58,7 @@ public class ParetoDistr implements ContinuousDistribution {
 			throw new IllegalArgumentException("Mean and deviation must be greater than 0.0");
 		}
 
-		numGen = new Random(System.currentTimeMillis());
+		numGen = RandomStreams.newRandom(ParetoDistr.class.getName());
 		this.shape = shape;
 		this.location = location;
 	}
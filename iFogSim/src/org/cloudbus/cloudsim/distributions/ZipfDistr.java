@@ -11,6 +11,8 @@ package org.cloudbus.cloudsim.distributions;
 
 import java.util.Random;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 /**
  * The Class ZipfDistr.
  * 
@@ -28,6 +30,9 @@ public class ZipfDistr implements ContinuousDistribution {
 	/** The den. */
 	private double den;
 
+	/** The partial sums of the series: sums[k - 1] is the sum of 1 / j^shape for j from 1 to k. */
+	private double[] sums;
+
 	/**
 	 * Instantiates a new zipf distr.
 	 * 
@@ -55,43 +60,51 @@ public class ZipfDistr implements ContinuousDistribution {
 		if (shape <= 0.0) {
 			throw new IllegalArgumentException("Mean must be greated than 0.0 and population greater than 0");
 		}
-		numGen = new Random(System.currentTimeMillis());
+		numGen = RandomStreams.newRandom(ZipfDistr.class.getName());
 		this.shape = shape;
 		computeDen(shape, population);
 	}
 
 	/**
-	 * Generate a new random number.
+	 * Generate a new random number. The partial sum reached by the variate is found by binary search
+	 * in the precomputed sums, instead of summing the series up to it on every call.
 	 * 
 	 * @return the next random number in the sequence
 	 */
 	@Override
 	public double sample() {
 		double variate = numGen.nextDouble();
-		double num = 1;
-		double nextNum = 1 + 1 / Math.pow(2, shape);
-		double j = 3;
-
-		while (variate > nextNum / den) {
-			num = nextNum;
-			nextNum += 1 / Math.pow(j, shape);
-			j++;
+
+		// the first partial sum, from the second one on, that the variate does not exceed
+		int low = 1;
+		int high = sums.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (variate > sums[mid] / den) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
 		}
 
-		return num / den;
+		return sums[low - 1] / den;
 	}
 
 	/**
-	 * Compute den.
+	 * Compute den, along with the partial sums of the series.
 	 * 
 	 * @param shape the shape
 	 * @param population the population
 	 */
 	private void computeDen(double shape, int population) {
-		den = 0.0;
-		for (int j = 1; j <= population; j++) {
-			den += 1 / Math.pow(j, shape);
+		// at least the first two partial sums, as a sample compares the variate with the second one
+		sums = new double[Math.max(population, 2)];
+		double sum = 0.0;
+		for (int j = 1; j <= sums.length; j++) {
+			sum += 1 / Math.pow(j, shape);
+			sums[j - 1] = sum;
 		}
+		den = population > 0 ? sums[population - 1] : 0.0;
 	}
 
 }
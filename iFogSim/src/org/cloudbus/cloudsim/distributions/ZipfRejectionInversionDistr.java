@@ -0,0 +1,146 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.distributions;
+
+import java.util.Random;
+
+import org.cloudbus.cloudsim.util.RandomStreams;
+
+/**
+ * A Zipf distribution of the ranks 1 to population, rank k having a probability proportional to
+ * 1 / k^shape, sampled by rejection-inversion (W. Hormann and G. Derflinger, "Rejection-inversion
+ * to generate variates from monotone discrete distributions", 1996). It takes constant expected
+ * time and memory whatever the population, so it suits populations too large for the tables of
+ * {@link DiscreteDistr#zipf(long, double, int)}, up to {@link Long#MAX_VALUE} to approximate an
+ * unbounded distribution.
+ */
+public class ZipfRejectionInversionDistr implements ContinuousDistribution {
+
+	/** The num gen. */
+	private final Random numGen;
+
+	/** The shape. */
+	private final double shape;
+
+	/** The population. */
+	private final long population;
+
+	/** H(1.5) - 1, the lower bound of the variates to invert. */
+	private final double hIntegralX1;
+
+	/** H(population + 0.5), the upper bound of the variates to invert. */
+	private final double hIntegralPopulation;
+
+	/** The distance from a rank under which the inverse is always accepted. */
+	private final double s;
+
+	/**
+	 * Instantiates a new zipf rejection inversion distr.
+	 *
+	 * @param seed the seed
+	 * @param shape the shape
+	 * @param population the population
+	 */
+	public ZipfRejectionInversionDistr(long seed, double shape, long population) {
+		this(new Random(seed), shape, population);
+	}
+
+	/**
+	 * Instantiates a new zipf rejection inversion distr.
+	 *
+	 * @param shape the shape
+	 * @param population the population
+	 */
+	public ZipfRejectionInversionDistr(double shape, long population) {
+		this(RandomStreams.newRandom(ZipfRejectionInversionDistr.class.getName()), shape, population);
+	}
+
+	private ZipfRejectionInversionDistr(Random numGen, double shape, long population) {
+		if (shape <= 0.0 || population < 1) {
+			throw new IllegalArgumentException("Shape must be greater than 0.0 and population greater than 0");
+		}
+		this.numGen = numGen;
+		this.shape = shape;
+		this.population = population;
+		hIntegralX1 = hIntegral(1.5) - 1.0;
+		hIntegralPopulation = hIntegral(population + 0.5);
+		s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2));
+	}
+
+	/**
+	 * Generate a new random number.
+	 *
+	 * @return the next random number in the sequence, a rank
+	 */
+	@Override
+	public double sample() {
+		while (true) {
+			// uniform in (hIntegralX1, hIntegralPopulation]
+			double u = hIntegralPopulation + numGen.nextDouble() * (hIntegralX1 - hIntegralPopulation);
+			double x = hIntegralInverse(u);
+			long k = (long) (x + 0.5);
+			if (k < 1) {
+				k = 1;
+			} else if (k > population) {
+				k = population;
+			}
+			if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+				return k;
+			}
+		}
+	}
+
+	/**
+	 * H(x), the integral of h, (x^(1 - shape) - 1) / (1 - shape) or log(x) if the shape is 1.
+	 */
+	private double hIntegral(double x) {
+		double logX = Math.log(x);
+		return helper2((1.0 - shape) * logX) * logX;
+	}
+
+	/**
+	 * h(x) = 1 / x^shape.
+	 */
+	private double h(double x) {
+		return Math.exp(-shape * Math.log(x));
+	}
+
+	/**
+	 * The inverse of H.
+	 */
+	private double hIntegralInverse(double x) {
+		double t = x * (1.0 - shape);
+		if (t < -1.0) {
+			// only reached by rounding errors
+			t = -1.0;
+		}
+		return Math.exp(helper1(t) * x);
+	}
+
+	/**
+	 * log(1 + x) / x, accurate for x close to 0.
+	 */
+	private static double helper1(double x) {
+		if (Math.abs(x) > 1e-8) {
+			return Math.log1p(x) / x;
+		}
+		return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+	}
+
+	/**
+	 * (exp(x) - 1) / x, accurate for x close to 0.
+	 */
+	private static double helper2(double x) {
+		if (Math.abs(x) > 1e-8) {
+			return Math.expm1(x) / x;
+		}
+		return 1.0 + x * 0.5 * (1.0 + x * 1.0 / 3.0 * (1.0 + 0.25 * x));
+	}
+
+}
@@ -12,6 +12,7 @@ import com.opencsv.CSVReader;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.cloudbus.cloudsim.geolocation.BaseGeolocationService;
+import org.cloudbus.cloudsim.geolocation.GeoDistanceCacheKey;
 import org.cloudbus.cloudsim.geolocation.IGeolocationService;
 import org.cloudbus.cloudsim.geolocation.IPMetadata;
 import org.cloudbus.cloudsim.EX.util.CustomLog;
@@ -23,6 +24,7 @@ import java.util.*;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 /**
  * 
@@ -48,7 +50,15 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
             .initialCapacity(INITIAL_CACHE_SIZE).maximumSize(CACHE_SIZE).build();
 
     /** In order to minimise the number of created instances, we keep a cache. */
-    private final Cache<String, Double> ipDistanceCache = CacheBuilder.newBuilder().concurrencyLevel(1)
+    private final Cache<Pair<String, String>, Double> ipDistanceCache = CacheBuilder.newBuilder().concurrencyLevel(1)
+            .initialCapacity(INITIAL_CACHE_SIZE).maximumSize(CACHE_SIZE).build();
+
+    /**
+     * Estimated latencies between locations, keyed by the locations rounded to
+     * {@link #LATENCY_CACHE_COORD_DIGITS} digits, so that distinct IPs in the
+     * same area share an estimate.
+     */
+    private final Cache<GeoDistanceCacheKey, Double> coordLatencyCache = CacheBuilder.newBuilder()
             .initialCapacity(INITIAL_CACHE_SIZE).maximumSize(CACHE_SIZE).build();
 
     // @TODO Extract these TSV/CSV constants elsewhere as they can be reused ...
@@ -65,6 +75,24 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
     private static final double LATENCY_EPSILON = 0.001;
     /** Number of approximations to use when estimating a latency. */
     private static final int NUM_APPROX_FOR_LATENCY_ESTIMATION = 3;
+    /**
+     * Digits to which coordinates are rounded in the latency cache. This is
+     * finer than the rounding of the distance cache, which already bounds the
+     * precision of an estimate.
+     */
+    private static final int LATENCY_CACHE_COORD_DIGITS = 2;
+    /** Initial search radius in meters, when looking for the nearest measurements. */
+    private static final double MIN_SEARCH_RADIUS = 1000;
+    /**
+     * A bound of the sum of two distances on the earth in meters, beyond which
+     * the search radius is not increased.
+     */
+    private static final double MAX_ACCUM_DISTANCE = 2 * Math.PI * 6378137;
+    /**
+     * Distance in meters from the antipode of a location, within which the
+     * distances to the sites are checked to be defined.
+     */
+    private static final double ANTIPODE_CHECK_DISTANCE = 500_000;
     /** A pattern for a string representing a decimal double number. */
     private static final String DOUBLE_GROUP_PATTERN = "(\\-?\\d+(\\.\\d+)?)";
     /** A regular expression for strings of the format (latitude longitude). */
@@ -76,6 +104,23 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
     private final Map<String, double[]> nodesTable = new HashMap<>();
     private final Map<Pair<String, String>, Double> latencyTable = new HashMap<>();
 
+    // Index of the latency table. Measurements are numbered in the iteration
+    // order of the table and sites in order of appearance in the table.
+    /** Names of the monitoring sites, by site number. */
+    private String[] siteNames = new String[0];
+    /** Coordinates of the monitoring sites, by site number. */
+    private double[][] siteCoords = new double[0][];
+    /** Monitoring site of each measurement, by measurement number. */
+    private int[] entrySites1 = new int[0];
+    /** Remote site of each measurement, by measurement number. */
+    private int[] entrySites2 = new int[0];
+    /** Latency of each measurement, by measurement number. */
+    private double[] entryLatencies = new double[0];
+    /** The numbers of the measurements of each site in ascending order, by site number. */
+    private int[][] siteEntries = new int[0][];
+    /** Spatial index of the monitoring sites. */
+    private SiteIndex siteIndex = new SiteIndex(new double[0][]);
+
     /**
      * Constructor.
      * 
@@ -132,6 +177,7 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
                 BufferedReader nodeDefsReader = new BufferedReader(new InputStreamReader(pingerMonitoringSites))) {
             parseNodesDefitions(nodeDefsReader);
             parseInterNodePings(pingsReader);
+            indexLatencyTable();
         } catch (Exception e) {
             String msg = " A file could not be found or read properly. Message: " + e.getMessage();
             CustomLog.logError(Level.SEVERE, msg, e);
@@ -210,6 +256,61 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
         }
     }
 
+    private void indexLatencyTable() {
+        int numEntries = latencyTable.size();
+        Map<String, Integer> siteNumbers = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        entrySites1 = new int[numEntries];
+        entrySites2 = new int[numEntries];
+        entryLatencies = new double[numEntries];
+
+        int entry = 0;
+        for (Map.Entry<Pair<String, String>, Double> el : latencyTable.entrySet()) {
+            entrySites1[entry] = siteNumber(siteNumbers, names, el.getKey().getLeft());
+            entrySites2[entry] = siteNumber(siteNumbers, names, el.getKey().getRight());
+            entryLatencies[entry] = el.getValue();
+            entry++;
+        }
+
+        int numSites = names.size();
+        siteNames = names.toArray(new String[numSites]);
+        siteCoords = new double[numSites][];
+        for (int site = 0; site < numSites; site++) {
+            siteCoords[site] = nodesTable.get(siteNames[site]);
+        }
+        siteIndex = new SiteIndex(siteCoords);
+
+        int[] degrees = new int[numSites];
+        for (int e = 0; e < numEntries; e++) {
+            degrees[entrySites1[e]]++;
+            if (entrySites2[e] != entrySites1[e]) {
+                degrees[entrySites2[e]]++;
+            }
+        }
+        siteEntries = new int[numSites][];
+        for (int site = 0; site < numSites; site++) {
+            siteEntries[site] = new int[degrees[site]];
+            degrees[site] = 0;
+        }
+        for (int e = 0; e < numEntries; e++) {
+            siteEntries[entrySites1[e]][degrees[entrySites1[e]]++] = e;
+            if (entrySites2[e] != entrySites1[e]) {
+                siteEntries[entrySites2[e]][degrees[entrySites2[e]]++] = e;
+            }
+        }
+        CustomLog.printf(Level.FINER, "Indexed %d ping measurments between %d sites", numEntries, numSites);
+    }
+
+    private static int siteNumber(final Map<String, Integer> siteNumbers, final List<String> names, final String node) {
+        Integer number = siteNumbers.get(node);
+        if (number == null) {
+            number = names.size();
+            siteNumbers.put(node, number);
+            names.add(node);
+        }
+        return number;
+    }
+
     private static Double averageLatency(final List<Double> measurements) {
         double sum = 0;
         int count = 0;
@@ -276,7 +377,7 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
 
     @Override
     public final double latency(final String ip1, final String ip2) {
-        String key = ip1 + ip2;
+        Pair<String, String> key = ImmutablePair.of(ip1, ip2);
         Double cached = ipDistanceCache.getIfPresent(key);
         if (cached != null) {
             return cached;
@@ -292,9 +393,245 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
         return result;
     }
 
+    /**
+     * Estimates the latency between two locations by averaging the latencies of
+     * the {@value #NUM_APPROX_FOR_LATENCY_ESTIMATION} measurements whose sites
+     * are nearest to the locations. Estimates are cached by location rounded
+     * to {@value #LATENCY_CACHE_COORD_DIGITS} digits.
+     */
     @Override
     public double latency(final double[] reqCoord1, final double[] reqCoord2) {
-		// Set up the heap...
+        GeoDistanceCacheKey key = GeoDistanceCacheKey.of(reqCoord1[0], reqCoord1[1], reqCoord2[0], reqCoord2[1],
+                LATENCY_CACHE_COORD_DIGITS);
+        Double cached = coordLatencyCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        double result = estimateLatency(reqCoord1, reqCoord2);
+        coordLatencyCache.put(key, result);
+        return result;
+    }
+
+    /**
+     * Estimates the latencies between many pairs of IPs in parallel.
+     * 
+     * @param ips1
+     *            - the first IP of each pair. Must not be null.
+     * @param ips2
+     *            - the second IP of each pair. Must not be null and must be
+     *            as long as ips1.
+     * @return the latency between each pair, in the order of the pairs.
+     */
+    public double[] latencies(final String[] ips1, final String[] ips2) {
+        Preconditions.checkNotNull(ips1);
+        Preconditions.checkNotNull(ips2);
+        Preconditions.checkArgument(ips1.length == ips2.length, "The IP arrays differ in length");
+
+        double[] result = new double[ips1.length];
+        IntStream.range(0, result.length).parallel().forEach(i -> result[i] = latency(ips1[i], ips2[i]));
+        return result;
+    }
+
+    /**
+     * Estimates the latencies between many pairs of locations in parallel.
+     * 
+     * @param coords1
+     *            - the first location of each pair. Must not be null.
+     * @param coords2
+     *            - the second location of each pair. Must not be null and must
+     *            be as long as coords1.
+     * @return the latency between each pair, in the order of the pairs.
+     */
+    public double[] latencies(final double[][] coords1, final double[][] coords2) {
+        Preconditions.checkNotNull(coords1);
+        Preconditions.checkNotNull(coords2);
+        Preconditions.checkArgument(coords1.length == coords2.length, "The coordinate arrays differ in length");
+
+        double[] result = new double[coords1.length];
+        IntStream.range(0, result.length).parallel().forEach(i -> result[i] = latency(coords1[i], coords2[i]));
+        return result;
+    }
+
+    /**
+     * Finds the nearest measurements without scanning the whole latency table.
+     * Only the measurements within a search radius (the sum of the distances
+     * of their sites to the requested locations) are put in the heap, in the
+     * order of the table. The radius is doubled until the heap is full.
+     * Measurements outside the radius can neither displace nor block the ones
+     * inside it in {@link #updateHeap(MinMaxPriorityQueue, PingERLatencyEntry)},
+     * so the result is the same as with a full scan. The sites near the
+     * requested locations are looked up in {@link #siteIndex}, and only the
+     * distances to them and to the other sites of their measurements are
+     * computed.
+     */
+    private double estimateLatency(final double[] reqCoord1, final double[] reqCoord2) {
+        int numEntries = entryLatencies.length;
+        if (numEntries == 0) {
+            return latencyFullScan(reqCoord1, reqCoord2);
+        }
+
+        SiteDistances distances = new SiteDistances(reqCoord1, reqCoord2);
+        if (distances.mayBeUndefined()) {
+            return latencyFullScan(reqCoord1, reqCoord2);
+        }
+        double minDistance1 = distances.nearestSiteDistance(true);
+        double minDistance2 = distances.nearestSiteDistance(false);
+
+        List<PingERLatencyEntry> matches = new ArrayList<>();
+        double radius = Math.max(minDistance1 + minDistance2, MIN_SEARCH_RADIUS);
+        while (radius <= MAX_ACCUM_DISTANCE) {
+            // In the nearest of its two orientations, every measurement within
+            // the radius has a site within radius - minDistance2 of reqCoord1
+            BitSet inRadius = new BitSet(numEntries);
+            BitSet sites = siteIndex.sitesWithin(distances.point1, radius - minDistance2);
+            for (int site = sites.nextSetBit(0); site >= 0; site = sites.nextSetBit(site + 1)) {
+                if (distances.distance1(site) + minDistance2 <= radius) {
+                    for (int e : siteEntries[site]) {
+                        if (!inRadius.get(e) && distances.accumDistanceAtMost(e, radius)) {
+                            inRadius.set(e);
+                        }
+                    }
+                }
+            }
+
+            boolean complete = inRadius.cardinality() == numEntries;
+            if (complete || inRadius.cardinality() >= NUM_APPROX_FOR_LATENCY_ESTIMATION) {
+                MinMaxPriorityQueue<PingERLatencyEntry> heap = createHeap();
+                for (int e = inRadius.nextSetBit(0); e >= 0; e = inRadius.nextSetBit(e + 1)) {
+                    updateHeap(heap, distances.entry(e), matches);
+                }
+                if (complete || heap.size() >= NUM_APPROX_FOR_LATENCY_ESTIMATION) {
+                    return weigthedAverage(heap);
+                }
+            }
+            radius *= 2;
+        }
+        // Only if some distances could not be computed after all
+        return latencyFullScan(reqCoord1, reqCoord2);
+    }
+
+    /**
+     * The distances of the sites to two requested locations, computed as they
+     * are needed in a query of {@link #estimateLatency(double[], double[])}.
+     */
+    private final class SiteDistances {
+
+        final double[] reqCoord1;
+        final double[] reqCoord2;
+        final double[] point1;
+        final double[] point2;
+        /** The distances to reqCoord1 by site number, negative if not computed yet. */
+        final double[] distances1;
+        /** The distances to reqCoord2 by site number, negative if not computed yet. */
+        final double[] distances2;
+
+        SiteDistances(final double[] reqCoord1, final double[] reqCoord2) {
+            this.reqCoord1 = reqCoord1;
+            this.reqCoord2 = reqCoord2;
+            point1 = SiteIndex.toPoint(reqCoord1);
+            point2 = SiteIndex.toPoint(reqCoord2);
+            distances1 = new double[siteCoords.length];
+            distances2 = new double[siteCoords.length];
+            Arrays.fill(distances1, -1);
+            Arrays.fill(distances2, -1);
+        }
+
+        double distance1(final int site) {
+            if (distances1[site] < 0) {
+                distances1[site] = distance(reqCoord1, siteCoords[site]);
+            }
+            return distances1[site];
+        }
+
+        double distance2(final int site) {
+            if (distances2[site] < 0) {
+                distances2[site] = distance(reqCoord2, siteCoords[site]);
+            }
+            return distances2[site];
+        }
+
+        /**
+         * Checks if the distance to a site may be undefined, which happens
+         * when the coordinates are not known or, as Vincenty's formula does not
+         * always converge there, when the site is nearly antipodal.
+         */
+        boolean mayBeUndefined() {
+            if (Double.isNaN(reqCoord1[0] + reqCoord1[1] + reqCoord2[0] + reqCoord2[1])) {
+                return true;
+            }
+            BitSet antipodal1 = siteIndex.sitesWithin(antipode(point1), ANTIPODE_CHECK_DISTANCE);
+            for (int site = antipodal1.nextSetBit(0); site >= 0; site = antipodal1.nextSetBit(site + 1)) {
+                if (Double.isNaN(distance1(site))) {
+                    return true;
+                }
+            }
+            BitSet antipodal2 = siteIndex.sitesWithin(antipode(point2), ANTIPODE_CHECK_DISTANCE);
+            for (int site = antipodal2.nextSetBit(0); site >= 0; site = antipodal2.nextSetBit(site + 1)) {
+                if (Double.isNaN(distance2(site))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Finds the distance of the nearest site to a requested location, by
+         * doubling a search radius until it contains a site.
+         */
+        double nearestSiteDistance(final boolean first) {
+            double radius = MIN_SEARCH_RADIUS;
+            while (true) {
+                BitSet sites = siteIndex.sitesWithin(first ? point1 : point2, radius);
+                double nearest = Double.POSITIVE_INFINITY;
+                for (int site = sites.nextSetBit(0); site >= 0; site = sites.nextSetBit(site + 1)) {
+                    double d = first ? distance1(site) : distance2(site);
+                    if (d < nearest) {
+                        nearest = d;
+                    }
+                }
+                // Sites out of the radius are farther than it
+                if (nearest <= radius || sites.cardinality() == siteCoords.length) {
+                    return nearest;
+                }
+                radius *= 2;
+            }
+        }
+
+        /**
+         * Checks if a measurement is within a radius. The lower bounds of the
+         * distances spare computing them for the far away sites.
+         */
+        boolean accumDistanceAtMost(final int entry, final double radius) {
+            int site1 = entrySites1[entry];
+            int site2 = entrySites2[entry];
+            boolean direct = siteIndex.lowerBound(point1, site1) + siteIndex.lowerBound(point2, site2) <= radius
+                    && distance1(site1) + distance2(site2) <= radius;
+            return direct || siteIndex.lowerBound(point1, site2) + siteIndex.lowerBound(point2, site1) <= radius
+                    && distance1(site2) + distance2(site1) <= radius;
+        }
+
+        PingERLatencyEntry entry(final int entry) {
+            int site1 = entrySites1[entry];
+            int site2 = entrySites2[entry];
+            double distanceSum = distance1(site1) + distance2(site2);
+            double distanceSumInverse = distance1(site2) + distance2(site1);
+            if (distanceSum < distanceSumInverse) {
+                return new PingERLatencyEntry(siteNames[site1], siteCoords[site1], siteNames[site2],
+                        siteCoords[site2], distanceSum, entryLatencies[entry]);
+            } else {
+                return new PingERLatencyEntry(siteNames[site1], siteCoords[site2], siteNames[site2],
+                        siteCoords[site1], distanceSumInverse, entryLatencies[entry]);
+            }
+        }
+
+        private double[] antipode(final double[] point) {
+            return new double[] { -point[0], -point[1], -point[2] };
+        }
+    }
+
+    private static MinMaxPriorityQueue<PingERLatencyEntry> createHeap() {
+        // Set up the heap...
         @SuppressWarnings("rawtypes")
         MinMaxPriorityQueue.Builder builderRaw = MinMaxPriorityQueue.maximumSize(NUM_APPROX_FOR_LATENCY_ESTIMATION);
         @SuppressWarnings({ "unchecked" })
@@ -304,8 +641,17 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
         // We keep all latencies within a priority queue with a fixed size N. At
         // the end we compute the average of the best N elements, which are kept
         // in the queue.
-        MinMaxPriorityQueue<PingERLatencyEntry> heap = builder.create();
+        return builder.create();
+    }
 
+    /**
+     * Estimates the latency by scanning the whole latency table. Used when the
+     * distances to the sites are not all defined, in which case the index can
+     * not be used.
+     */
+    private double latencyFullScan(final double[] reqCoord1, final double[] reqCoord2) {
+        MinMaxPriorityQueue<PingERLatencyEntry> heap = createHeap();
+        List<PingERLatencyEntry> matches = new ArrayList<>();
 
         // Loop through the latencies and put them in the priority queue.
         for (Map.Entry<Pair<String, String>, Double> el : latencyTable.entrySet()) {
@@ -340,12 +686,11 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
             } else {
                 qEntry = new PingERLatencyEntry(node1, nodeCoord2, node2, nodeCoord1, distanceSumInverse, latency);
             }
-            updateHeap(heap, qEntry);
+            updateHeap(heap, qEntry, matches);
         }
 
-        double result = weigthedAverage(heap);
-		return result;
-	}
+        return weigthedAverage(heap);
+    }
 
     public double weigthedAverage(final MinMaxPriorityQueue<PingERLatencyEntry> heap) {
         double sumLatencies = 0;
@@ -388,6 +733,11 @@ public class GeoIP2PingERService extends BaseGeolocationService implements IGeol
      *            - the new entry.
      */
     public void updateHeap(final MinMaxPriorityQueue<PingERLatencyEntry> heap, final PingERLatencyEntry qEntry) {
+        updateHeap(heap, qEntry, elemsWithMatchingNodes);
+    }
+
+    private static void updateHeap(final MinMaxPriorityQueue<PingERLatencyEntry> heap, final PingERLatencyEntry qEntry,
+            final List<PingERLatencyEntry> elemsWithMatchingNodes) {
         elemsWithMatchingNodes.clear();
         for (PingERLatencyEntry e : heap) {
             if (qEntry.node1.equals(e.node1) || qEntry.node1.equals(e.node2) || qEntry.node2.equals(e.node1)
@@ -0,0 +1,172 @@
+package org.cloudbus.cloudsim.geolocation.geoip2;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A k-d tree over the locations of sites, to find the sites near a location
+ * without computing the distance to all of them. Locations are indexed as
+ * points of the unit sphere, from which a lower bound of the distance on the
+ * surface of the earth is cheap to compute.
+ *
+ * <br>
+ * <br>
+ * The bound holds for the distances given by
+ * {@link org.cloudbus.cloudsim.geolocation.BaseGeolocationService#distance(double, double, double, double)}
+ * : it allows for the difference between the sphere and the WGS-84 ellipsoid,
+ * and for the distance cache returning the distance between locations up to
+ * 0.1 degree away from the requested ones.
+ */
+final class SiteIndex {
+
+    /** The mean radius of the earth, in meters. */
+    private static final double EARTH_RADIUS = 6371008.8;
+    /**
+     * The largest relative difference between a distance on the sphere and on
+     * the ellipsoid, about 0.5%, with some margin.
+     */
+    private static final double ELLIPSOID_ERROR = 0.01;
+    /**
+     * The largest error of a cached distance, in meters. Two locations rounded
+     * to the same cache key are at most 0.1 degree of latitude and longitude
+     * away, about 16 km, and this can happen at both ends.
+     */
+    private static final double DISTANCE_CACHE_ERROR = 40000;
+
+    /** The points of the sites on the unit sphere, by site number. */
+    private final double[][] points;
+    /**
+     * The site numbers in tree order: the site at the middle of a range splits
+     * the rest of the range on its axis.
+     */
+    private final int[] tree;
+    /** The split axis of each position of the tree. */
+    private final int[] axes;
+
+    /**
+     * Constructor.
+     *
+     * @param coords
+     *            - the coordinates (latitude, longitude) of the sites, by site
+     *            number. Must not be null.
+     */
+    SiteIndex(final double[][] coords) {
+        points = new double[coords.length][];
+        List<Integer> sites = new ArrayList<>(coords.length);
+        for (int site = 0; site < coords.length; site++) {
+            points[site] = toPoint(coords[site]);
+            sites.add(site);
+        }
+        tree = new int[coords.length];
+        axes = new int[coords.length];
+        build(sites, 0, coords.length);
+    }
+
+    private void build(final List<Integer> sites, final int from, final int to) {
+        if (from >= to) {
+            return;
+        }
+        // Split on the axis along which the points are the most spread
+        int axis = 0;
+        double maxSpread = -1;
+        for (int a = 0; a < 3; a++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, points[sites.get(i)][a]);
+                max = Math.max(max, points[sites.get(i)][a]);
+            }
+            if (max - min > maxSpread) {
+                maxSpread = max - min;
+                axis = a;
+            }
+        }
+        final int splitAxis = axis;
+        sites.subList(from, to).sort(Comparator.comparingDouble(site -> points[site][splitAxis]));
+
+        int middle = (from + to) >>> 1;
+        tree[middle] = sites.get(middle);
+        axes[middle] = splitAxis;
+        build(sites, from, middle);
+        build(sites, middle + 1, to);
+    }
+
+    /**
+     * Converts coordinates to a point of the unit sphere.
+     *
+     * @param coord
+     *            - the coordinates (latitude, longitude). Must not be null.
+     * @return the point.
+     */
+    static double[] toPoint(final double[] coord) {
+        double lat = Math.toRadians(coord[0]);
+        double lon = Math.toRadians(coord[1]);
+        return new double[] { Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat) };
+    }
+
+    /**
+     * Returns a lower bound of the distance between a point and a site.
+     *
+     * @param point
+     *            - a point of the unit sphere. Must not be null.
+     * @param site
+     *            - the site number.
+     * @return the lower bound in meters. May be negative.
+     */
+    double lowerBound(final double[] point, final int site) {
+        double chord = Math.sqrt(squaredChord(point, points[site]));
+        double angle = 2 * Math.asin(Math.min(1, chord / 2));
+        return angle * EARTH_RADIUS * (1 - ELLIPSOID_ERROR) - DISTANCE_CACHE_ERROR;
+    }
+
+    /**
+     * Returns the sites whose distance to a point may not exceed a bound, i.e.
+     * whose {@link #lowerBound(double[], int)} does not exceed it.
+     *
+     * @param point
+     *            - a point of the unit sphere. Must not be null.
+     * @param distance
+     *            - the bound, in meters.
+     * @return the site numbers.
+     */
+    BitSet sitesWithin(final double[] point, final double distance) {
+        BitSet result = new BitSet(points.length);
+        double angle = (distance + DISTANCE_CACHE_ERROR) / (EARTH_RADIUS * (1 - ELLIPSOID_ERROR));
+        if (angle >= Math.PI) {
+            result.set(0, points.length);
+        } else if (angle >= 0) {
+            // Widened a little, so that rounding can not leave a site out
+            double maxChord = 2 * Math.sin(angle / 2) * (1 + 1e-9) + 1e-12;
+            collect(point, distance, maxChord, 0, tree.length, result);
+        }
+        return result;
+    }
+
+    private void collect(final double[] point, final double distance, final double maxChord, final int from,
+            final int to, final BitSet result) {
+        if (from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        int site = tree[middle];
+        if (lowerBound(point, site) <= distance) {
+            result.set(site);
+        }
+        double offset = point[axes[middle]] - points[site][axes[middle]];
+        if (offset - maxChord <= 0) {
+            collect(point, distance, maxChord, from, middle, result);
+        }
+        if (offset + maxChord >= 0) {
+            collect(point, distance, maxChord, middle + 1, to, result);
+        }
+    }
+
+    private static double squaredChord(final double[] point1, final double[] point2) {
+        double dx = point1[0] - point2[0];
+        double dy = point1[1] - point2[1];
+        double dz = point1[2] - point2[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -36,6 +36,8 @@ import org.cloudbus.cloudsim.lists.VmList;
  */
 public class NetDatacenterBroker extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	// TODO: remove unnecessary variables
 
 	/** The vm list. */
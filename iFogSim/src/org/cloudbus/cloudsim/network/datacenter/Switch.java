@@ -27,6 +27,8 @@ import org.cloudbus.cloudsim.lists.VmList;
 
 public class Switch extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	// switch level
 	public int id;
 
@@ -38,6 +38,8 @@ import org.cloudbus.cloudsim.core.predicates.PredicateType;
  */
 public class PowerDatacenter extends Datacenter {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The power. */
 	private double power;
 
@@ -195,14 +197,23 @@ public class PowerDatacenter extends Datacenter {
 					getLastProcessTime(),
 					currentTime);
 
-			for (PowerHost host : this.<PowerHost> getHostList()) {
-				double previousUtilizationOfCpu = host.getPreviousUtilizationOfCpu();
-				double utilizationOfCpu = host.getUtilizationOfCpu();
-				double timeFrameHostEnergy = host.getEnergyLinearInterpolation(
-						previousUtilizationOfCpu,
-						utilizationOfCpu,
-						timeDiff);
-				timeFrameDatacenterEnergy += timeFrameHostEnergy;
+			List<PowerHost> hostList = this.<PowerHost> getHostList();
+			PowerHost[] hosts = hostList.toArray(new PowerHost[hostList.size()]);
+			double[] previousUtilizationOfCpu = new double[hosts.length];
+			double[] utilizationOfCpu = new double[hosts.length];
+			for (int i = 0; i < hosts.length; i++) {
+				previousUtilizationOfCpu[i] = hosts[i].getPreviousUtilizationOfCpu();
+				utilizationOfCpu[i] = hosts[i].getUtilizationOfCpu();
+			}
+			double[] timeFrameHostEnergy = PowerHost.getEnergyLinearInterpolation(
+					hosts,
+					previousUtilizationOfCpu,
+					utilizationOfCpu,
+					timeDiff);
+
+			for (int i = 0; i < hosts.length; i++) {
+				PowerHost host = hosts[i];
+				timeFrameDatacenterEnergy += timeFrameHostEnergy[i];
 
 				Log.printLine();
 				Log.formatLine(
@@ -210,13 +221,13 @@ public class PowerDatacenter extends Datacenter {
 						currentTime,
 						host.getId(),
 						getLastProcessTime(),
-						previousUtilizationOfCpu * 100,
-						utilizationOfCpu * 100);
+						previousUtilizationOfCpu[i] * 100,
+						utilizationOfCpu[i] * 100);
 				Log.formatLine(
 						"%.2f: [Host #%d] energy is %.2f W*sec",
 						currentTime,
 						host.getId(),
-						timeFrameHostEnergy);
+						timeFrameHostEnergy[i]);
 			}
 
 			Log.formatLine(
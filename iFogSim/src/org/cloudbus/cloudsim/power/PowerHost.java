@@ -8,12 +8,16 @@
 
 package org.cloudbus.cloudsim.power;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.cloudbus.cloudsim.HostDynamicWorkload;
 import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.cloudbus.cloudsim.power.models.PowerModelTable;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
 
@@ -33,9 +37,14 @@ import org.cloudbus.cloudsim.provisioners.RamProvisioner;
  */
 public class PowerHost extends HostDynamicWorkload {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The power model. */
 	private PowerModel powerModel;
 
+	/** The power model the power is computed with, i.e. the power model compiled. */
+	private PowerModel compiledPowerModel;
+
 	/**
 	 * Instantiates a new host.
 	 * 
@@ -76,7 +85,7 @@ public class PowerHost extends HostDynamicWorkload {
 	protected double getPower(double utilization) {
 		double power = 0;
 		try {
-			power = getPowerModel().getPower(utilization);
+			power = compiledPowerModel.getPower(utilization);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(0);
@@ -92,7 +101,7 @@ public class PowerHost extends HostDynamicWorkload {
 	public double getMaxPower() {
 		double power = 0;
 		try {
-			power = getPowerModel().getPower(1);
+			power = compiledPowerModel.getPower(1);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(0);
@@ -117,6 +126,101 @@ public class PowerHost extends HostDynamicWorkload {
 		return (fromPower + (toPower - fromPower) / 2) * time;
 	}
 
+	/**
+	 * Gets the energy consumption of hosts using linear interpolation of their utilization change,
+	 * as {@link #getEnergyLinearInterpolation(double, double, double)} does for each of them, with
+	 * the power of the hosts sharing a power model computed in one batch.
+	 * 
+	 * @param hosts the hosts
+	 * @param fromUtilization the from utilization of each host
+	 * @param toUtilization the to utilization of each host
+	 * @param time the time
+	 * @return the energy of each host
+	 */
+	static double[] getEnergyLinearInterpolation(
+			PowerHost[] hosts,
+			double[] fromUtilization,
+			double[] toUtilization,
+			double time) {
+		double[] energy = new double[hosts.length];
+		int[] active = new int[hosts.length];
+		int activeNum = 0;
+		for (int i = 0; i < hosts.length; i++) {
+			if (fromUtilization[i] != 0) {
+				active[activeNum++] = i;
+			}
+		}
+		PowerHost[] powerHosts = new PowerHost[2 * activeNum];
+		double[] utilization = new double[2 * activeNum];
+		for (int j = 0; j < activeNum; j++) {
+			powerHosts[2 * j] = powerHosts[2 * j + 1] = hosts[active[j]];
+			utilization[2 * j] = fromUtilization[active[j]];
+			utilization[2 * j + 1] = toUtilization[active[j]];
+		}
+		double[] power = getPower(powerHosts, utilization);
+		for (int j = 0; j < activeNum; j++) {
+			double fromPower = power[2 * j];
+			double toPower = power[2 * j + 1];
+			energy[active[j]] = (fromPower + (toPower - fromPower) / 2) * time;
+		}
+		return energy;
+	}
+
+	/**
+	 * Gets the power of hosts at utilization values, as {@link #getPower(double)} does for each of
+	 * them, calling the batch {@link PowerModel#getPower(double[], double[])} once per power model.
+	 * The hosts of a SPECpower model share its compiled table, see
+	 * {@link PowerModelTable#compile(PowerModel)}.
+	 * 
+	 * @param hosts the host of each utilization value
+	 * @param utilization the utilization values
+	 * @return the power at each utilization value
+	 */
+	static double[] getPower(PowerHost[] hosts, double[] utilization) {
+		// group the values by power model, keeping their order within a group
+		Map<PowerModel, Integer> models = new IdentityHashMap<PowerModel, Integer>();
+		int[] group = new int[hosts.length];
+		int[] groupSize = new int[hosts.length];
+		for (int i = 0; i < hosts.length; i++) {
+			Integer g = models.get(hosts[i].compiledPowerModel);
+			if (g == null) {
+				g = models.size();
+				models.put(hosts[i].compiledPowerModel, g);
+			}
+			group[i] = g;
+			groupSize[g]++;
+		}
+		int[] groupStart = new int[models.size() + 1];
+		for (int g = 0; g < models.size(); g++) {
+			groupStart[g + 1] = groupStart[g] + groupSize[g];
+		}
+		int[] order = new int[hosts.length];
+		int[] next = Arrays.copyOf(groupStart, models.size());
+		for (int i = 0; i < hosts.length; i++) {
+			order[next[group[i]]++] = i;
+		}
+
+		double[] power = new double[hosts.length];
+		try {
+			for (int g = 0; g < models.size(); g++) {
+				int size = groupStart[g + 1] - groupStart[g];
+				double[] groupUtilization = new double[size];
+				double[] groupPower = new double[size];
+				for (int k = 0; k < size; k++) {
+					groupUtilization[k] = utilization[order[groupStart[g] + k]];
+				}
+				hosts[order[groupStart[g]]].compiledPowerModel.getPower(groupUtilization, groupPower);
+				for (int k = 0; k < size; k++) {
+					power[order[groupStart[g] + k]] = groupPower[k];
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(0);
+		}
+		return power;
+	}
+
 	/**
 	 * Sets the power model.
 	 * 
@@ -124,6 +228,7 @@ public class PowerHost extends HostDynamicWorkload {
 	 */
 	protected void setPowerModel(PowerModel powerModel) {
 		this.powerModel = powerModel;
+		compiledPowerModel = powerModel == null ? null : PowerModelTable.compile(powerModel);
 	}
 
 	/**
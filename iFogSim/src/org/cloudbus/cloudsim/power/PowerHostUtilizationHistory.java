@@ -16,6 +16,7 @@ import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
 import org.cloudbus.cloudsim.util.MathUtil;
+import org.cloudbus.cloudsim.util.RegressionHistory;
 
 /**
  * The class of a host that stores its CPU utilization history. The history is used by VM allocation
@@ -34,6 +35,8 @@ import org.cloudbus.cloudsim.util.MathUtil;
  */
 public class PowerHostUtilizationHistory extends PowerHost {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Instantiates a new power host utilization history.
 	 * 
@@ -65,11 +68,48 @@ public class PowerHostUtilizationHistory extends PowerHost {
 		double[] utilizationHistory = new double[PowerVm.HISTORY_LENGTH];
 		double hostMips = getTotalMips();
 		for (PowerVm vm : this.<PowerVm> getVmList()) {
-			for (int i = 0; i < vm.getUtilizationHistory().size(); i++) {
-				utilizationHistory[i] += vm.getUtilizationHistory().get(i) * vm.getMips() / hostMips;
+			RegressionHistory vmUtilizationHistory = vm.getUtilizationHistory();
+			for (int i = 0; i < vmUtilizationHistory.size(); i++) {
+				utilizationHistory[i] += vmUtilizationHistory.getValue(i) * vm.getMips() / hostMips;
 			}
 		}
 		return MathUtil.trimZeroTail(utilizationHistory);
 	}
 
+	/**
+	 * Gets the least squares estimates of the intercept and slope of the newest
+	 * {@link PowerVm#REGRESSION_WINDOW} values of the host utilization history, the oldest of them
+	 * at x = 1 and the newest at x = {@link PowerVm#REGRESSION_WINDOW}. The host history is the
+	 * MIPS-weighted sum of the VM histories, so are its window sums, which the VM histories keep up
+	 * to date as values are added; no history is copied or scanned.
+	 * 
+	 * @return the intercept and slope, or null if the host utilization history has fewer than
+	 *         {@link PowerVm#REGRESSION_WINDOW} values
+	 */
+	protected double[] getUtilizationRegressionEstimates() {
+		int n = PowerVm.REGRESSION_WINDOW;
+		double hostMips = getTotalMips();
+		double sumY = 0;
+		double sumAgeY = 0;
+		boolean filled = false;
+		for (PowerVm vm : this.<PowerVm> getVmList()) {
+			RegressionHistory vmUtilizationHistory = vm.getUtilizationHistory();
+			double weight = vm.getMips() / hostMips;
+			sumY += vmUtilizationHistory.getWindowSum() * weight;
+			sumAgeY += vmUtilizationHistory.getWindowAgeSum() * weight;
+			filled |= vmUtilizationHistory.getOlderNonZeroCount() > 0;
+		}
+		// the history is trimmed of its trailing zero values
+		if (!filled) {
+			return null;
+		}
+		// the value of age k is at x = n - k
+		double sumX = n * (n + 1) / 2.0;
+		double sumXY = n * sumY - sumAgeY;
+		double sumSquaredDeviationsX = n * ((double) n * n - 1) / 12;
+		double slope = (sumXY - sumX * sumY / n) / sumSquaredDeviationsX;
+		double intercept = (sumY - slope * sumX) / n;
+		return new double[] { intercept, slope };
+	}
+
 }
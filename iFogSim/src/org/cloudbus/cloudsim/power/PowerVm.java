@@ -8,13 +8,13 @@
 
 package org.cloudbus.cloudsim.power;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.CloudletScheduler;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.util.MathUtil;
+import org.cloudbus.cloudsim.util.RegressionHistory;
 
 /**
  * The class of a VM that stores its CPU utilization history. The history is used by VM allocation
@@ -33,11 +33,16 @@ import org.cloudbus.cloudsim.util.MathUtil;
  */
 public class PowerVm extends Vm {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The Constant HISTORY_LENGTH. */
 	public static final int HISTORY_LENGTH = 30;
 
+	/** The number of newest utilization values used by the local regression policies. */
+	public static final int REGRESSION_WINDOW = 10;
+
 	/** The utilization history. */
-	private final List<Double> utilizationHistory = new LinkedList<Double>();
+	private final RegressionHistory utilizationHistory = new RegressionHistory(HISTORY_LENGTH, REGRESSION_WINDOW);
 
 	/** The previous time. */
 	private double previousTime;
@@ -171,10 +176,7 @@ public class PowerVm extends Vm {
 	 * @param utilization the utilization
 	 */
 	public void addUtilizationHistoryValue(final double utilization) {
-		getUtilizationHistory().add(0, utilization);
-		if (getUtilizationHistory().size() > HISTORY_LENGTH) {
-			getUtilizationHistory().remove(HISTORY_LENGTH);
-		}
+		getUtilizationHistory().addFirst(utilization);
 	}
 
 	/**
@@ -182,7 +184,7 @@ public class PowerVm extends Vm {
 	 * 
 	 * @return the utilization history
 	 */
-	protected List<Double> getUtilizationHistory() {
+	protected RegressionHistory getUtilizationHistory() {
 		return utilizationHistory;
 	}
 
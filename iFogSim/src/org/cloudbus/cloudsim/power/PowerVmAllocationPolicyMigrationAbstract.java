@@ -14,7 +14,10 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.HostDynamicWorkload;
@@ -41,6 +44,8 @@ import org.cloudbus.cloudsim.util.ExecutionTimeMeasurer;
  */
 public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAllocationPolicyAbstract {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The vm selection policy. */
 	private PowerVmSelectionPolicy vmSelectionPolicy;
 
@@ -68,6 +73,65 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	/** The execution time history total. */
 	private final List<Double> executionTimeHistoryTotal = new LinkedList<Double>();
 
+	/** The execution time history of scoring the hosts for the VMs to migrate. */
+	private final List<Double> executionTimeHistoryHostScoring = new LinkedList<Double>();
+
+	/** The time spent scoring hosts since the last optimization, in seconds. */
+	private double hostScoringTime;
+
+	/** Whether the hosts are scored in parallel when there are enough of them. */
+	private boolean parallelHostScoring = true;
+
+	/** The number of hosts from which the hosts are scored in parallel. */
+	private static final int PARALLEL_HOST_SCORING_THRESHOLD = 512;
+
+	/**
+	 * Whether the power of the scored hosts is computed in batches, i.e. the policy computes the
+	 * power after allocation as this class does.
+	 */
+	private final boolean batchPowerScoring = !overridesGetPowerAfterAllocation(getClass());
+
+	/**
+	 * The score of a host for a VM, computed without changing the host or the VM.
+	 */
+	private static class HostScore implements Comparable<HostScore> {
+
+		final PowerHost host;
+
+		/** The index of the host in the host list, which breaks ties between equal scores. */
+		final int index;
+
+		/** The utilization of the host in MIPS. */
+		final double utilizationMips;
+
+		/** The utilization of the host before and after the VM is allocated to it. */
+		double utilization, utilizationAfterAllocation;
+
+		/** The power increase of the host if the VM is allocated to it. */
+		double powerDiff;
+
+		/**
+		 * Whether the power of the host could not be computed before checking that it can take the
+		 * VM, for its utilization before or after the allocation is outside of [0, 1].
+		 */
+		boolean deferred;
+
+		/** Whether the host has been checked to be able to take the VM. */
+		boolean checked;
+
+		HostScore(PowerHost host, int index, double utilizationMips) {
+			this.host = host;
+			this.index = index;
+			this.utilizationMips = utilizationMips;
+		}
+
+		@Override
+		public int compareTo(HostScore other) {
+			int result = Double.compare(powerDiff, other.powerDiff);
+			return result != 0 ? result : Integer.compare(index, other.index);
+		}
+	}
+
 	/**
 	 * Instantiates a new power vm allocation policy migration abstract.
 	 * 
@@ -91,6 +155,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	@Override
 	public List<Map<String, Object>> optimizeAllocation(List<? extends Vm> vmList) {
 		ExecutionTimeMeasurer.start("optimizeAllocationTotal");
+		hostScoringTime = 0;
 
 		ExecutionTimeMeasurer.start("optimizeAllocationHostSelection");
 		List<PowerHostUtilizationHistory> overUtilizedHosts = getOverUtilizedHosts();
@@ -118,6 +183,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		restoreAllocation();
 
 		getExecutionTimeHistoryTotal().add(ExecutionTimeMeasurer.end("optimizeAllocationTotal"));
+		getExecutionTimeHistoryHostScoring().add(hostScoringTime);
 
 		return migrationMap;
 	}
@@ -210,32 +276,166 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	 * @return the power host
 	 */
 	public PowerHost findHostForVm(Vm vm, Set<? extends Host> excludedHosts) {
-		double minPower = Double.MAX_VALUE;
-		PowerHost allocatedHost = null;
+		ExecutionTimeMeasurer.start("findHostForVmScoring");
+		List<HostScore> scores = scoreHosts(vm, excludedHosts);
+		hostScoringTime += ExecutionTimeMeasurer.end("findHostForVmScoring");
+
+		// The selected host is the one with the least power increase among the hosts that can take
+		// the VM, the first one in the host list in case of a tie. The checks whether a host can take
+		// the VM change the host and the VM, so they are made one host at a time, from the least power
+		// increase, until a host passes them.
+		List<HostScore> candidates = new ArrayList<HostScore>(scores.size());
+		for (HostScore score : scores) {
+			if (!score.deferred) {
+				candidates.add(score);
+			} else if (canTakeVm(score, vm)) {
+				try {
+					double powerAfterAllocation = getPowerAfterAllocation(score.host, vm);
+					if (powerAfterAllocation != -1) {
+						score.powerDiff = powerAfterAllocation - score.host.getPower();
+						candidates.add(score);
+					}
+				} catch (Exception e) {
+				}
+			}
+		}
+		PriorityQueue<HostScore> queue = new PriorityQueue<HostScore>(candidates);
+		while (!queue.isEmpty()) {
+			HostScore score = queue.poll();
+			if (score.checked || canTakeVm(score, vm)) {
+				return score.host;
+			}
+		}
+		return null;
+	}
 
-		for (PowerHost host : this.<PowerHost> getHostList()) {
+	/**
+	 * Checks whether a host can take a VM without becoming over-utilized.
+	 * 
+	 * @param score the score of the host
+	 * @param vm the vm
+	 * @return true, if the host can take the VM
+	 */
+	private boolean canTakeVm(HostScore score, Vm vm) {
+		score.checked = true;
+		if (!score.host.isSuitableForVm(vm)) {
+			return false;
+		}
+		return score.utilizationMips == 0 || !isHostOverUtilizedAfterAllocation(score.host, vm);
+	}
+
+	/**
+	 * Scores the hosts that are not excluded for a VM, in host list order, by the power increase
+	 * if the VM is allocated to them. Scoring reads the hosts and the VM without changing them, so
+	 * many hosts are scored in parallel. Hosts whose utilization before or after the allocation
+	 * is outside of [0, 1] are deferred, for the power models reject such utilization: their power
+	 * is only computed once they pass the checks, as it was before scoring was introduced.
+	 * 
+	 * @param vm the vm
+	 * @param excludedHosts the excluded hosts
+	 * @return the scores, in host list order, without the hosts whose power after allocation is -1
+	 */
+	private List<HostScore> scoreHosts(final Vm vm, final Set<? extends Host> excludedHosts) {
+		final List<PowerHost> hosts = this.<PowerHost> getHostList();
+		final HostScore[] scores = new HostScore[hosts.size()];
+		IntStream indexes = IntStream.range(0, hosts.size());
+		if (isParallelHostScoring() && hosts.size() >= PARALLEL_HOST_SCORING_THRESHOLD
+				&& ForkJoinPool.getCommonPoolParallelism() > 1) {
+			indexes = indexes.parallel();
+		}
+		indexes.forEach(i -> {
+			PowerHost host = hosts.get(i);
 			if (excludedHosts.contains(host)) {
-				continue;
+				return;
 			}
-			if (host.isSuitableForVm(vm)) {
-				if (getUtilizationOfCpuMips(host) != 0 && isHostOverUtilizedAfterAllocation(host, vm)) {
-					continue;
+			HostScore score = new HostScore(host, i, getUtilizationOfCpuMips(host));
+			double utilization = host.getUtilizationOfCpu();
+			double utilizationAfterAllocation = getMaxUtilizationAfterAllocation(host, vm);
+			scores[i] = score;
+			if (utilization < 0 || utilization > 1 || utilizationAfterAllocation < 0 || utilizationAfterAllocation > 1) {
+				score.deferred = true;
+				return;
+			}
+			score.utilization = utilization;
+			score.utilizationAfterAllocation = utilizationAfterAllocation;
+			if (!batchPowerScoring) {
+				double powerAfterAllocation = getPowerAfterAllocation(host, vm);
+				if (powerAfterAllocation != -1) {
+					score.powerDiff = powerAfterAllocation - host.getPower();
+				} else {
+					scores[i] = null;
 				}
+			}
+		});
+		if (batchPowerScoring) {
+			scorePower(scores);
+		}
+		List<HostScore> result = new ArrayList<HostScore>(scores.length);
+		for (HostScore score : scores) {
+			if (score != null) {
+				result.add(score);
+			}
+		}
+		return result;
+	}
 
-				try {
-					double powerAfterAllocation = getPowerAfterAllocation(host, vm);
-					if (powerAfterAllocation != -1) {
-						double powerDiff = powerAfterAllocation - host.getPower();
-						if (powerDiff < minPower) {
-							minPower = powerDiff;
-							allocatedHost = host;
-						}
-					}
-				} catch (Exception e) {
+	/**
+	 * Sets the power increase of the scores that are not deferred, computing the power of the hosts
+	 * before and after the allocation in batches, one per power model. Drops the scores whose power
+	 * after allocation is -1.
+	 * 
+	 * @param scores the scores, null for the excluded hosts
+	 */
+	private static void scorePower(HostScore[] scores) {
+		int scored = 0;
+		for (HostScore score : scores) {
+			if (score != null && !score.deferred) {
+				scored++;
+			}
+		}
+		PowerHost[] hosts = new PowerHost[2 * scored];
+		double[] utilization = new double[2 * scored];
+		int j = 0;
+		for (HostScore score : scores) {
+			if (score != null && !score.deferred) {
+				hosts[2 * j] = hosts[2 * j + 1] = score.host;
+				utilization[2 * j] = score.utilizationAfterAllocation;
+				utilization[2 * j + 1] = score.utilization;
+				j++;
+			}
+		}
+		double[] power = PowerHost.getPower(hosts, utilization);
+		j = 0;
+		for (int i = 0; i < scores.length; i++) {
+			HostScore score = scores[i];
+			if (score != null && !score.deferred) {
+				double powerAfterAllocation = power[2 * j];
+				if (powerAfterAllocation != -1) {
+					score.powerDiff = powerAfterAllocation - power[2 * j + 1];
+				} else {
+					scores[i] = null;
 				}
+				j++;
+			}
+		}
+	}
+
+	/**
+	 * Checks if a policy class computes the power after allocation other than this class.
+	 * 
+	 * @param policyClass the class of the policy
+	 * @return true, if the class overrides getPowerAfterAllocation
+	 */
+	private static boolean overridesGetPowerAfterAllocation(Class<?> policyClass) {
+		for (Class<?> c = policyClass; c != PowerVmAllocationPolicyMigrationAbstract.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("getPowerAfterAllocation", PowerHost.class, Vm.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not declared by this class
 			}
 		}
-		return allocatedHost;
+		return false;
 	}
 
 	/**
@@ -537,7 +737,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	protected double getPowerAfterAllocation(PowerHost host, Vm vm) {
 		double power = 0;
 		try {
-			power = host.getPowerModel().getPower(getMaxUtilizationAfterAllocation(host, vm));
+			power = host.getPower(getMaxUtilizationAfterAllocation(host, vm));
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(0);
@@ -608,6 +808,35 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		return vmSelectionPolicy;
 	}
 
+	/**
+	 * Gets the execution time history of scoring the hosts for the VMs to migrate, one entry per
+	 * optimization, to compare sequential and parallel scoring.
+	 * 
+	 * @return the execution time history of host scoring
+	 */
+	public List<Double> getExecutionTimeHistoryHostScoring() {
+		return executionTimeHistoryHostScoring;
+	}
+
+	/**
+	 * Checks whether the hosts are scored in parallel when there are many of them.
+	 * 
+	 * @return true, if the hosts are scored in parallel
+	 */
+	public boolean isParallelHostScoring() {
+		return parallelHostScoring;
+	}
+
+	/**
+	 * Sets whether the hosts are scored in parallel when there are many of them. The selected
+	 * hosts are the same either way.
+	 * 
+	 * @param parallelHostScoring whether the hosts are scored in parallel
+	 */
+	public void setParallelHostScoring(boolean parallelHostScoring) {
+		this.parallelHostScoring = parallelHostScoring;
+	}
+
 	/**
 	 * Gets the utilization history.
 	 * 
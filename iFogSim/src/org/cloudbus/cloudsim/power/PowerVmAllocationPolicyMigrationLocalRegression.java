@@ -30,6 +30,8 @@ import org.cloudbus.cloudsim.util.MathUtil;
  */
 public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllocationPolicyMigrationAbstract {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The scheduling interval. */
 	private double schedulingInterval;
 
@@ -90,21 +92,16 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
 		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
-		double[] utilizationHistory = _host.getUtilizationHistory();
-		int length = 10; // we use 10 to make the regression responsive enough to latest values
-		if (utilizationHistory.length < length) {
-			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
-		}
-		double[] utilizationHistoryReversed = new double[length];
-		for (int i = 0; i < length; i++) {
-			utilizationHistoryReversed[i] = utilizationHistory[length - i - 1];
-		}
+		int length = PowerVm.REGRESSION_WINDOW; // we use 10 to make the regression responsive enough to latest values
 		double[] estimates = null;
 		try {
-			estimates = getParameterEstimates(utilizationHistoryReversed);
+			estimates = getParameterEstimates(_host);
 		} catch (IllegalArgumentException e) {
 			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
 		}
+		if (estimates == null) {
+			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
+		}
 		double migrationIntervals = Math.ceil(getMaximumVmMigrationTime(_host) / getSchedulingInterval());
 		double predictedUtilization = estimates[0] + estimates[1] * (length + migrationIntervals);
 		predictedUtilization *= getSafetyParameter();
@@ -114,6 +111,24 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 		return predictedUtilization >= 1;
 	}
 
+	/**
+	 * Gets the parameter estimates of the newest {@link PowerVm#REGRESSION_WINDOW} values of the host
+	 * utilization history, oldest first.
+	 * 
+	 * The Loess fit of {@link #getParameterEstimates(double[])} and the robust fit of
+	 * {@link PowerVmAllocationPolicyMigrationLocalRegressionRobust} both weight the values with
+	 * positive weights, and {@link MathUtil#createWeigthedLinearRegression(double[], double[], double[])}
+	 * only applies weights when at least 40% of them are not positive. Both fits are hence the ordinary
+	 * least squares fit of the window, which the host computes from the sliding sums of its VM histories.
+	 * Subclasses estimating the parameters differently should override this method.
+	 * 
+	 * @param host the host
+	 * @return the parameter estimates, or null if the host utilization history is too short
+	 */
+	protected double[] getParameterEstimates(PowerHostUtilizationHistory host) {
+		return host.getUtilizationRegressionEstimates();
+	}
+
 	/**
 	 * Gets the parameter estimates.
 	 * 
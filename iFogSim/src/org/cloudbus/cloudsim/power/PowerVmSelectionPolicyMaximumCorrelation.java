@@ -8,12 +8,19 @@
 
 package org.cloudbus.cloudsim.power;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.CholeskyDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
 import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.util.MathUtil;
+import org.cloudbus.cloudsim.util.RegressionHistory;
 
 /**
  * The Maximum Correlation (MC) VM selection policy.
@@ -31,9 +38,42 @@ import org.cloudbus.cloudsim.util.MathUtil;
  */
 public class PowerVmSelectionPolicyMaximumCorrelation extends PowerVmSelectionPolicy {
 
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The margin by which the coefficients computed from the co-moment matrix must separate the
+	 * selected VM from the others, and the least distance of a coefficient from 1, for the selection
+	 * to be made without solving the regressions one by one.
+	 */
+	private static final double DECISION_MARGIN = 1e-6;
+
 	/** The fallback policy. */
 	private PowerVmSelectionPolicy fallbackPolicy;
 
+	/** The cached co-moments of pairs of VM utilization histories, valid until the clock advances. */
+	private final Map<PowerVm, Map<PowerVm, CoMoment>> coMoments = new HashMap<PowerVm, Map<PowerVm, CoMoment>>();
+
+	/** The time the cached co-moments were computed at. */
+	private double coMomentsTime = -1;
+
+	/**
+	 * The co-moment of the newest values of two VM utilization histories, with the history counts
+	 * it was computed for.
+	 */
+	private static class CoMoment {
+		final long count1;
+		final long count2;
+		final int size;
+		final double value;
+
+		CoMoment(long count1, long count2, int size, double value) {
+			this.count1 = count1;
+			this.count2 = count2;
+			this.size = size;
+			this.value = value;
+		}
+	}
+
 	/**
 	 * Instantiates a new power vm selection policy maximum correlation.
 	 * 
@@ -58,7 +98,7 @@ public class PowerVmSelectionPolicyMaximumCorrelation extends PowerVmSelectionPo
 		}
 		List<Double> metrics = null;
 		try {
-			metrics = getCorrelationCoefficients(getUtilizationMatrix(migratableVms));
+			metrics = getCorrelationCoefficients(migratableVms);
 		} catch (IllegalArgumentException e) { // the degrees of freedom must be greater than zero
 			return getFallbackPolicy().getVmToMigrate(host);
 		}
@@ -85,9 +125,9 @@ public class PowerVmSelectionPolicyMaximumCorrelation extends PowerVmSelectionPo
 		int m = getMinUtilizationHistorySize(vmList);
 		double[][] utilization = new double[n][m];
 		for (int i = 0; i < n; i++) {
-			List<Double> vmUtilization = vmList.get(i).getUtilizationHistory();
-			for (int j = 0; j < vmUtilization.size(); j++) {
-				utilization[i][j] = vmUtilization.get(j);
+			RegressionHistory vmUtilization = vmList.get(i).getUtilizationHistory();
+			for (int j = 0; j < m; j++) {
+				utilization[i][j] = vmUtilization.getValue(j);
 			}
 		}
 		return utilization;
@@ -110,6 +150,155 @@ public class PowerVmSelectionPolicyMaximumCorrelation extends PowerVmSelectionPo
 		return minSize;
 	}
 
+	/**
+	 * Gets the correlation coefficients of the VMs, i.e. the coefficients of determination of the
+	 * regression of the utilization of each VM on the utilization of the others.
+	 * 
+	 * For n VMs with centered co-moment matrix C of their newest m values, the coefficient of VM i
+	 * is 1 - 1 / (C[i][i] * inverse(C)[i][i]), so one Cholesky inversion replaces the n regressions
+	 * of {@link #getCorrelationCoefficients(double[][])}, and the co-moments of the VMs that remain
+	 * on the host are reused as the VMs to migrate are selected one by one. The regressions are
+	 * solved one by one when the inversion is ill-conditioned or its coefficients are too close to
+	 * each other for rounding not to matter, so that the same VM is selected either way.
+	 * 
+	 * @param vmList the VMs
+	 * @return the correlation coefficients
+	 * @throws IllegalArgumentException if there are not enough values for the regressions
+	 */
+	protected List<Double> getCorrelationCoefficients(final List<PowerVm> vmList) {
+		int n = vmList.size();
+		int m = getMinUtilizationHistorySize(vmList);
+		if (n < 2 || m < n) {
+			return getCorrelationCoefficients(getUtilizationMatrix(vmList));
+		}
+		double[][] c = getCoMomentMatrix(vmList, m);
+		double[] coefficients = new double[n];
+		try {
+			RealMatrix inverse = new CholeskyDecomposition(new Array2DRowRealMatrix(c, false)).getSolver().getInverse();
+			for (int i = 0; i < n; i++) {
+				coefficients[i] = 1 - 1 / (c[i][i] * inverse.getEntry(i, i));
+			}
+		} catch (MathIllegalArgumentException e) { // constant or collinear histories
+			return getCorrelationCoefficients(getUtilizationMatrix(vmList));
+		}
+		if (!isDecisive(coefficients)) {
+			return getCorrelationCoefficients(getUtilizationMatrix(vmList));
+		}
+		List<Double> correlationCoefficients = new LinkedList<Double>();
+		for (double coefficient : coefficients) {
+			correlationCoefficients.add(coefficient);
+		}
+		return correlationCoefficients;
+	}
+
+	/**
+	 * Checks whether the coefficients select the same VM as the coefficients computed without
+	 * rounding would, i.e. they are far from 1 and the largest of them is positive and apart from
+	 * the others.
+	 * 
+	 * @param coefficients the coefficients
+	 * @return true, if the selection is decisive
+	 */
+	private boolean isDecisive(final double[] coefficients) {
+		double max = Double.NEGATIVE_INFINITY;
+		double secondMax = Double.NEGATIVE_INFINITY;
+		for (double coefficient : coefficients) {
+			if (Double.isNaN(coefficient) || coefficient > 1 - DECISION_MARGIN) {
+				return false;
+			}
+			if (coefficient > max) {
+				secondMax = max;
+				max = coefficient;
+			} else if (coefficient > secondMax) {
+				secondMax = coefficient;
+			}
+		}
+		return max > DECISION_MARGIN && max - secondMax > DECISION_MARGIN;
+	}
+
+	/**
+	 * Gets the centered co-moment matrix of the newest values of the VM utilization histories.
+	 * 
+	 * @param vmList the VMs
+	 * @param m the number of newest values
+	 * @return the co-moment matrix
+	 */
+	protected double[][] getCoMomentMatrix(final List<PowerVm> vmList, final int m) {
+		if (coMomentsTime != CloudSim.clock()) {
+			coMoments.clear();
+			coMomentsTime = CloudSim.clock();
+		}
+		int n = vmList.size();
+		double[][] centered = new double[n][];
+		double[][] c = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			PowerVm vm1 = vmList.get(i);
+			for (int j = 0; j <= i; j++) {
+				PowerVm vm2 = vmList.get(j);
+				CoMoment coMoment = getCachedCoMoment(vm1, vm2, m);
+				if (coMoment == null) {
+					if (centered[i] == null) {
+						centered[i] = getCenteredUtilization(vm1, m);
+					}
+					if (centered[j] == null) {
+						centered[j] = getCenteredUtilization(vm2, m);
+					}
+					double value = 0;
+					for (int k = 0; k < m; k++) {
+						value += centered[i][k] * centered[j][k];
+					}
+					coMoment = new CoMoment(vm1.getUtilizationHistory().getCount(), vm2.getUtilizationHistory().getCount(), m, value);
+					putCachedCoMoment(vm1, vm2, coMoment);
+				}
+				c[i][j] = c[j][i] = coMoment.value;
+			}
+		}
+		return c;
+	}
+
+	private double[] getCenteredUtilization(final PowerVm vm, final int m) {
+		RegressionHistory history = vm.getUtilizationHistory();
+		double mean = 0;
+		for (int k = 0; k < m; k++) {
+			mean += history.getValue(k);
+		}
+		mean /= m;
+		double[] centered = new double[m];
+		for (int k = 0; k < m; k++) {
+			centered[k] = history.getValue(k) - mean;
+		}
+		return centered;
+	}
+
+	private CoMoment getCachedCoMoment(final PowerVm vm1, final PowerVm vm2, final int m) {
+		Map<PowerVm, CoMoment> row = coMoments.get(vm1);
+		CoMoment coMoment = row == null ? null : row.get(vm2);
+		if (coMoment == null
+				|| coMoment.size != m
+				|| coMoment.count1 != vm1.getUtilizationHistory().getCount()
+				|| coMoment.count2 != vm2.getUtilizationHistory().getCount()) {
+			return null;
+		}
+		return coMoment;
+	}
+
+	private void putCachedCoMoment(final PowerVm vm1, final PowerVm vm2, final CoMoment coMoment) {
+		Map<PowerVm, CoMoment> row = coMoments.get(vm1);
+		if (row == null) {
+			row = new HashMap<PowerVm, CoMoment>();
+			coMoments.put(vm1, row);
+		}
+		row.put(vm2, coMoment);
+		if (vm1 != vm2) {
+			row = coMoments.get(vm2);
+			if (row == null) {
+				row = new HashMap<PowerVm, CoMoment>();
+				coMoments.put(vm2, row);
+			}
+			row.put(vm1, new CoMoment(coMoment.count2, coMoment.count1, coMoment.size, coMoment.value));
+		}
+	}
+
 	/**
 	 * Gets the correlation coefficients.
 	 * 
@@ -28,6 +28,8 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class PowerVmSelectionPolicyMinimumMigrationTime extends PowerVmSelectionPolicy {
 
+	private static final long serialVersionUID = 1L;
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -29,6 +29,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class PowerVmSelectionPolicyMinimumUtilization extends PowerVmSelectionPolicy {
 
+	private static final long serialVersionUID = 1L;
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Random;
 
 import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.util.RandomStreams;
 
 /**
  * The Random Selection (RS) VM selection policy.
@@ -29,6 +30,11 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class PowerVmSelectionPolicyRandomSelection extends PowerVmSelectionPolicy {
 
+	private static final long serialVersionUID = 1L;
+
+	/** The random number generator of the selection. */
+	private final Random random = RandomStreams.newRandom(PowerVmSelectionPolicyRandomSelection.class.getName());
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -41,7 +47,7 @@ public class PowerVmSelectionPolicyRandomSelection extends PowerVmSelectionPolic
 		if (migratableVms.isEmpty()) {
 			return null;
 		}
-		int index = (new Random()).nextInt(migratableVms.size());
+		int index = random.nextInt(migratableVms.size());
 		return migratableVms.get(index);
 	}
 
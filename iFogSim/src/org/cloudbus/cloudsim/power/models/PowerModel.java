@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.power.models;
 
+import java.io.Serializable;
+
 /**
  * The PowerModel interface needs to be implemented in order to provide a model of power consumption
  * depending on utilization for system components.
@@ -25,7 +27,7 @@ package org.cloudbus.cloudsim.power.models;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
  */
-public interface PowerModel {
+public interface PowerModel extends Serializable {
 
 	/**
 	 * Get power consumption by the utilization percentage according to the power model.
@@ -36,4 +38,19 @@ public interface PowerModel {
 	 */
 	double getPower(double utilization) throws IllegalArgumentException;
 
+	/**
+	 * Gets the power consumption for many utilization values at once, e.g. of all hosts sharing a
+	 * power model.
+	 * 
+	 * @param utilization the utilization values
+	 * @param power the array receiving the power consumption of each utilization value, at least
+	 *            as long as utilization
+	 * @throws IllegalArgumentException if a utilization value is rejected by the power model
+	 */
+	default void getPower(double[] utilization, double[] power) throws IllegalArgumentException {
+		for (int i = 0; i < utilization.length; i++) {
+			power[i] = getPower(utilization[i]);
+		}
+	}
+
 }
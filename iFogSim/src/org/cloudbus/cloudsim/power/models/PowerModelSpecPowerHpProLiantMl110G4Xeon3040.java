@@ -25,6 +25,8 @@ package org.cloudbus.cloudsim.power.models;
  */
 public class PowerModelSpecPowerHpProLiantMl110G4Xeon3040 extends PowerModelSpecPower {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The power. */
 	private final double[] power = { 86, 89.4, 92.6, 96, 99.5, 102, 106, 108, 112, 114, 117 };
 
@@ -0,0 +1,175 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.power.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A power model interpolating linearly between the power consumption at equally spaced
+ * utilization values, held in a table. It is the evaluated form of another power model:
+ * {@link #compile(PowerModel)} turns a model based on SPECpower data into a table giving exactly
+ * the same power, without calling the model for every utilization value, and
+ * {@link #sample(PowerModel, int)} approximates any power model by a table.
+ *
+ * The closed-form models, such as {@link PowerModelLinear} or {@link PowerModelCubic}, are not
+ * compiled: a table only approximates them, and folding their constants would round differently,
+ * so they compute the power themselves, in batches through the default
+ * {@link PowerModel#getPower(double[], double[])}.
+ */
+public final class PowerModelTable implements PowerModel {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The compiled tables, by power data. */
+	private static final Map<List<Double>, PowerModelTable> COMPILED =
+			new ConcurrentHashMap<List<Double>, PowerModelTable>();
+
+	/** The number of steps between utilization 0 and 1. */
+	private final int steps;
+
+	/** The length of a step. */
+	private final double step;
+
+	/** The power consumption at utilization i / steps, for i from 0 to steps. */
+	private final double[] power;
+
+	/**
+	 * Instantiates a new power model table.
+	 *
+	 * @param power the power consumption at equally spaced utilization values from 0 to 1
+	 */
+	private PowerModelTable(double[] power) {
+		this.steps = power.length - 1;
+		this.step = 1.0 / steps;
+		this.power = power;
+	}
+
+	/**
+	 * Compiles a power model, if it is one of the models computed from a table of power data. The
+	 * power data of such a model must not change. Models with the same power data are compiled to
+	 * the same table, so that the hosts of a model can have their power computed in one batch.
+	 *
+	 * @param model the power model
+	 * @return a power model table equivalent to the model, or the model itself if it cannot be
+	 *         compiled
+	 */
+	public static PowerModel compile(PowerModel model) {
+		if (model instanceof PowerModelSpecPower && !overridesGetPower(model.getClass())) {
+			PowerModelSpecPower specPowerModel = (PowerModelSpecPower) model;
+			List<Double> power = new ArrayList<Double>(11);
+			for (int i = 0; i < 11; i++) {
+				power.add(specPowerModel.getPowerData(i));
+			}
+			return COMPILED.computeIfAbsent(power, data -> {
+				double[] table = new double[data.size()];
+				for (int i = 0; i < table.length; i++) {
+					table[i] = data.get(i);
+				}
+				return new PowerModelTable(table);
+			});
+		}
+		return model;
+	}
+
+	/**
+	 * Approximates a power model by the linear interpolation of its power consumption at equally
+	 * spaced utilization values. The power consumption at these values is the one of the model. The
+	 * models consuming no power when idle, such as {@link PowerModelLinear}, jump at utilization 0,
+	 * so their table is only close to them from the second value on.
+	 *
+	 * @param model the power model
+	 * @param steps the number of steps between utilization 0 and 1
+	 * @return the power model table
+	 */
+	public static PowerModelTable sample(PowerModel model, int steps) {
+		if (steps < 1) {
+			throw new IllegalArgumentException("The number of steps must be positive");
+		}
+		double[] power = new double[steps + 1];
+		for (int i = 0; i <= steps; i++) {
+			power[i] = model.getPower((double) i / steps);
+		}
+		return new PowerModelTable(power);
+	}
+
+	/**
+	 * Checks if a subclass of PowerModelSpecPower computes the power other than from its power data.
+	 *
+	 * @param modelClass the class of the power model
+	 * @return true, if the class overrides getPower
+	 */
+	private static boolean overridesGetPower(Class<?> modelClass) {
+		try {
+			return modelClass.getMethod("getPower", double.class).getDeclaringClass() != PowerModelSpecPower.class;
+		} catch (NoSuchMethodException e) {
+			return true;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.power.models.PowerModel#getPower(double)
+	 */
+	@Override
+	public double getPower(double utilization) throws IllegalArgumentException {
+		if (utilization < 0 || utilization > 1) {
+			throw new IllegalArgumentException("Utilization value must be between 0 and 1");
+		}
+		return interpolate(utilization);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.power.models.PowerModel#getPower(double[], double[])
+	 */
+	@Override
+	public void getPower(double[] utilization, double[] power) throws IllegalArgumentException {
+		for (int i = 0; i < utilization.length; i++) {
+			if (utilization[i] < 0 || utilization[i] > 1) {
+				throw new IllegalArgumentException("Utilization value must be between 0 and 1");
+			}
+		}
+		for (int i = 0; i < utilization.length; i++) {
+			power[i] = interpolate(utilization[i]);
+		}
+	}
+
+	/**
+	 * Interpolates the power consumption at a utilization value between 0 and 1.
+	 *
+	 * @param utilization the utilization
+	 * @return the power consumption
+	 */
+	private double interpolate(double utilization) {
+		// the same operations as in PowerModelSpecPower, so that a compiled model gives the same
+		// power, which takes the branches: a branch-free interpolation rounds differently
+		if (utilization % step == 0) {
+			return power[(int) (utilization * steps)];
+		}
+		int utilization1 = (int) Math.floor(utilization * steps);
+		int utilization2 = (int) Math.ceil(utilization * steps);
+		double power1 = power[utilization1];
+		double power2 = power[utilization2];
+		double delta = (power2 - power1) / steps;
+		return power1 + delta * (utilization - (double) utilization1 / steps) * (steps * steps);
+	}
+
+	/**
+	 * Gets the number of steps between utilization 0 and 1.
+	 *
+	 * @return the number of steps
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+}
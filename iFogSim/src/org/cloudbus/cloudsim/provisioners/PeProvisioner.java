@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.provisioners;
 
+import java.io.Serializable;
 import java.util.List;
 
 import org.cloudbus.cloudsim.Vm;
@@ -18,7 +19,9 @@ import org.cloudbus.cloudsim.Vm;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
  */
-public abstract class PeProvisioner {
+public abstract class PeProvisioner implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The mips. */
 	private double mips;
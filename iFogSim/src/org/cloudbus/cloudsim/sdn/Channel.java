@@ -8,8 +8,10 @@
 
 package org.cloudbus.cloudsim.sdn;
 
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -81,6 +83,18 @@ public class Channel {
 		nodes.get(nodes.size()-1).updateNetworkUtilization();
 	}
 	
+	/**
+	 * Channels whose bandwidth may depend on this channel: those passing through a link of this channel in the same direction.
+	 * @return channels sharing a link with this channel, including this channel if it is still on its links
+	 */
+	public Set<Channel> getChannelsSharingLinks() {
+		Set<Channel> channels = new LinkedHashSet<Channel>();
+		for(int i=0; i<nodes.size()-1; i++) {
+			channels.addAll(links.get(i).getChannels(nodes.get(i)));
+		}
+		return channels;
+	}
+	
 	private double getLowestSharedBandwidth() {
 		// Get the lowest bandwidth along links in the channel
 		double lowestSharedBw = Double.POSITIVE_INFINITY;
@@ -309,6 +323,10 @@ public class Channel {
 		return returnList;
 	}
 	
+	public boolean hasArrivedPackages() {
+		return !completed.isEmpty();
+	}
+	
 	public int getChId() {
 		return chId;
 	}
@@ -17,6 +17,8 @@ package org.cloudbus.cloudsim.sdn;
  */
 public class CoreSwitch extends Switch {
 
+	private static final long serialVersionUID = 1L;
+
 	public CoreSwitch(String name,int bw, long iops, int upports, int downports, NetworkOperatingSystem nos) {
 		super(name, bw, iops, upports, downports, nos);
 		//if (upports>0) throw new IllegalArgumentException("Core switches cannot have uplinks.");
@@ -94,7 +94,7 @@ public class Link {
 		return latency;
 	}
 	
-	private List<Channel> getChannels(Node from) {
+	public List<Channel> getChannels(Node from) {
 		List<Channel> channels;
 		if(isUplink(from)) {
 			channels = this.upChannels;
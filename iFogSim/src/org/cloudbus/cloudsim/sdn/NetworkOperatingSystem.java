@@ -16,9 +16,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.Host;
@@ -52,12 +55,18 @@ import org.json.simple.JSONValue;
  */
 public abstract class NetworkOperatingSystem extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	String physicalTopologyFileName; 
 	protected PhysicalTopology topology;
 	//Hashtable<Integer,SDNHost> vmHostTable;
 	Hashtable<Package,Node> pkgTable;
 	
-	Hashtable<String, Channel> channelTable;
+	Map<Long, Channel> channelTable;
+	
+	// Estimated finish time of the earliest transmission in each channel. Entries replaced in channelFinishTimes are left in the queue and skipped.
+	private PriorityQueue<ChannelFinishTime> finishTimeQueue = new PriorityQueue<ChannelFinishTime>();
+	private Map<Channel, ChannelFinishTime> channelFinishTimes = new HashMap<Channel, ChannelFinishTime>();
 
 	List<Host> hosts;
 	protected List<SDNHost> sdnhosts;
@@ -77,6 +86,9 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	
 	// Resolution of the result.
 	public static double minTimeBetweenEvents = 0.001;	// in sec
+	// Elapsed times are rounded up to this many places once per update of a channel, and channels are only
+	// updated when a transmission is due or their bandwidth changes. Results therefore depend slightly on the
+	// places: with the default they differ by up to ~1e-5 relative from stepping every channel at every event.
 	public static int resolutionPlaces = 5;
 	public static int timeUnit = 1;	// 1: sec, 1000: msec
 	
@@ -97,7 +109,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		this.physicalTopologyFileName = fileName;
 		
 		this.pkgTable = new Hashtable<Package, Node>();
-		this.channelTable = new Hashtable<String, Channel>();
+		this.channelTable = new HashMap<Long, Channel>();
 		
 		initPhysicalTopology();
 	}
@@ -151,12 +163,12 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		for(Vm vm:this.vmList) {
 			Channel ch = this.findChannel(vm.getId(), destroyedVm.getId(), -1);
 			if(ch != null) {
-				this.removeChannel(getKey(vm.getId(), destroyedVm.getId(), -1));
+				this.removeChannel(getKey(ch));
 			}
 
 			ch = this.findChannel(destroyedVm.getId(), vm.getId(), -1);
 			if(ch != null) {
-				this.removeChannel(getKey(destroyedVm.getId(), vm.getId(), -1));
+				this.removeChannel(getKey(ch));
 			}
 
 		}
@@ -177,7 +189,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			return;
 		}
 		
-		updatePackageProcessing();
+		// Bring the channel up to date before the package starts sharing its bandwidth
+		updatePackageProcessing(findChannel(src, dst, flowId));
 		
 		pkgTable.put(pkg,sender);
 		
@@ -194,6 +207,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		}
 		
 		double eft = channel.addTransmission(new Transmission(pkg));
+		updateFinishTime(channel);
 		Log.printLine(CloudSim.clock() + ": " + getName() + ".addPackageToChannel ("+channel
 				+"): Transmission added:" + 
 				NetworkOperatingSystem.debugVmIdName.get(src) + "->"+
@@ -222,40 +236,71 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	}
 	
 	private double nextFinishTime() {
-		double earliestEft = Double.POSITIVE_INFINITY;
-		for(Channel ch:channelTable.values()){
-			
-			double eft = ch.nextFinishTime();
-			if (eft<earliestEft){
-				earliestEft=eft;
-			}
-		}
+		ChannelFinishTime next = peekFinishTime();
 		
-		if(earliestEft == Double.POSITIVE_INFINITY) {
+		if(next == null || next.time == Double.POSITIVE_INFINITY) {
 			throw new IllegalArgumentException("NOS.nextFinishTime(): next finish time is infinite!");
 		}
-		return earliestEft;
+		return Math.max(next.time - CloudSim.clock(), getMinTimeBetweenNetworkEvents());
 		
 	}
 	
+	private ChannelFinishTime peekFinishTime() {
+		while(!finishTimeQueue.isEmpty()) {
+			ChannelFinishTime ft = finishTimeQueue.peek();
+			if(channelFinishTimes.get(ft.channel) == ft)
+				return ft;
+			finishTimeQueue.poll();
+		}
+		return null;
+	}
+	
+	private void updateFinishTime(Channel ch) {
+		double time;
+		if(ch.getActiveTransmissionNum() == 0 || ch.hasArrivedPackages()) {
+			// Arrived packages are delivered and empty channels removed at the next update
+			time = CloudSim.clock();
+		}
+		else {
+			// Remaining sizes are as of the last update of the channel, which is not updated unless its bandwidth changes
+			time = ch.getLastUpdateTime() + ch.nextFinishTime();
+		}
+		ChannelFinishTime ft = new ChannelFinishTime(ch, time);
+		channelFinishTimes.put(ch, ft);
+		finishTimeQueue.add(ft);
+	}
+	
 	private boolean updatePackageProcessing() {
-		boolean needSendEvent = false;
-		
-		LinkedList<Channel> completeChannels = new LinkedList<Channel>();
+		return updatePackageProcessing(null);
+	}
+	
+	/**
+	 * Updates the channels whose earliest transmission finishes before the next possible network event,
+	 * and <i>channel</i> if not null. Other channels are updated when their bandwidth changes.
+	 * @return true if any channel was updated, as its finish time changed
+	 */
+	private boolean updatePackageProcessing(Channel channel) {
+		List<Channel> dueChannels = new ArrayList<Channel>();
+		for(ChannelFinishTime ft = peekFinishTime(); ft != null
+				&& ft.time - CloudSim.clock() < getMinTimeBetweenNetworkEvents(); ft = peekFinishTime()) {
+			finishTimeQueue.poll();
+			channelFinishTimes.remove(ft.channel);
+			dueChannels.add(ft.channel);
+		}
+		if(channel != null && channelFinishTimes.remove(channel) != null) {
+			dueChannels.add(channel);
+		}
 		
-		for(Channel ch:channelTable.values()){
-			boolean isCompleted = ch.updatePackageProcessing();
-			needSendEvent = needSendEvent || isCompleted;
-			//completeChannels.add(ch.getArrivedPackages());
-			completeChannels.add(ch);
+		for(Channel ch:dueChannels){
+			ch.updatePackageProcessing();
 		}
 		
-		if(completeChannels.size() != 0) {
-			processCompletePackages(completeChannels);
-			updateChannel();
+		if(dueChannels.size() != 0) {
+			processCompletePackages(dueChannels);
+			updateChannel(dueChannels);
 		}
 
-		return needSendEvent;
+		return dueChannels.size() != 0;
 	}
 	
 	private void processCompletePackages(List<Channel> channels){
@@ -283,40 +328,54 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	
 	private Channel findChannel(int from, int to, int channelId) {
 		// check if there is a pre-configured channel for this application
-		Channel channel=channelTable.get(getKey(from,to, channelId));
-
-		if (channel == null) {
-			//there is no channel for specific flow, find the default channel for this link
-			channel=channelTable.get(getKey(from,to));
-		}
-		return channel;
+		return channelTable.get(getKey(from,to, channelId));
 	}
 	
 	private void addChannel(int src, int dst, int chId, Channel ch) {
 		//System.err.println("NOS.addChannel:"+getKey(src, dst, chId));
 		this.channelTable.put(getKey(src, dst, chId), ch);
 		ch.initialize();
-		adjustAllChannels();
+		adjustChannels(ch);
 	}
 	
-	private Channel removeChannel(String key) {
+	private Channel removeChannel(long key) {
 		//System.err.println("NOS.removeChannel:"+key);
 		Channel ch = this.channelTable.remove(key);
+		channelFinishTimes.remove(ch);
 		ch.terminate();
-		adjustAllChannels();
+		adjustChannels(ch);
 		return ch;
 	}
 	
-	private void adjustAllChannels() {
-		for(Channel ch:this.channelTable.values()) {
+	/**
+	 * Re-adjusts the bandwidth of the channels affected by adding or removing <i>changed</i>.
+	 * Dedicated channels are sized from the requested bandwidth and channel count of their links,
+	 * which only change on the links of the changed channel. Shared channels get what dedicated channels
+	 * leave on their links, so they are re-adjusted on the links of any adjusted dedicated channel as well.
+	 */
+	private void adjustChannels(Channel changed) {
+		Set<Channel> affected = changed.getChannelsSharingLinks();
+		Set<Channel> adjusted = new LinkedHashSet<Channel>();
+		for(Channel ch:affected) {
 			if(ch.adjustDedicatedBandwidthAlongLink()) {
-				// Channel BW is changed. send event.
+				adjusted.add(ch);
 			}
 		}
 		
-		for(Channel ch:this.channelTable.values()) {
+		Set<Channel> sharing = new LinkedHashSet<Channel>(affected);
+		for(Channel ch:adjusted) {
+			sharing.addAll(ch.getChannelsSharingLinks());
+		}
+		for(Channel ch:sharing) {
 			if(ch.adjustSharedBandwidthAlongLink()) {
-				// Channel BW is changed. send event.
+				adjusted.add(ch);
+			}
+		}
+		
+		// Channel BW is changed. Update the finish time.
+		for(Channel ch:adjusted) {
+			if(channelFinishTimes.containsKey(ch)) {
+				updateFinishTime(ch);
 			}
 		}
 	}
@@ -360,7 +419,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		if(flowId != -1 && lowestBw < reqBw) {
 			// free bandwidth is less than required one.
 			// Cannot make channel.
-			Log.printLine(CloudSim.clock() + ": " + getName() + ": Free bandwidth is less than required.("+getKey(src,dst,flowId)+"): ReqBW="+ reqBw + "/ Free="+lowestBw);
+			Log.printLine(CloudSim.clock() + ": " + getName() + ": Free bandwidth is less than required.("+src+"-"+dst+"-"+flowId+"): ReqBW="+ reqBw + "/ Free="+lowestBw);
 			//return null;
 		}
 		
@@ -369,27 +428,52 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		return channel;
 	}
 	
-	private void updateChannel() {
-		List<String> removeCh = new ArrayList<String>();  
-		for(String key:this.channelTable.keySet()) {
-			Channel ch = this.channelTable.get(key);
+	private void updateChannel(List<Channel> channels) {
+		List<Channel> activeCh = new ArrayList<Channel>();
+		for(Channel ch:channels) {
 			if(ch.getActiveTransmissionNum() == 0) {
 				// No more job in channel. Delete
-				removeCh.add(key);
+				removeChannel(getKey(ch));
+			}
+			else {
+				activeCh.add(ch);
 			}
 		}
 		
-		for(String key:removeCh) {
-			removeChannel(key);
+		for(Channel ch:activeCh) {
+			updateFinishTime(ch);
 		}
 	}
 	
-	private String getKey(int origin, int destination) {
-		return origin+"-"+destination;
+	private static long getKey(Channel ch) {
+		return getKey(ch.getSrcId(), ch.getDstId(), ch.getChId());
 	}
 	
-	private String getKey(int origin, int destination, int appId) {
-		return getKey(origin,destination)+"-"+appId;
+	/**
+	 * Packs origin and destination VM ids and the flow id (-1 for the default flow) into 21 bits each.
+	 */
+	private static long getKey(int origin, int destination, int appId) {
+		if(origin < 0 || origin >= KEY_LIMIT || destination < 0 || destination >= KEY_LIMIT || appId < -1 || appId + 1 >= KEY_LIMIT) {
+			throw new IllegalArgumentException("NOS.getKey(): ids out of range: "+origin+"-"+destination+"-"+appId);
+		}
+		return ((long) origin << 42) | ((long) destination << 21) | (appId + 1);
+	}
+	
+	private static final int KEY_LIMIT = 1 << 21;
+	
+	private static class ChannelFinishTime implements Comparable<ChannelFinishTime> {
+		final Channel channel;
+		final double time;
+		
+		ChannelFinishTime(Channel channel, double time) {
+			this.channel = channel;
+			this.time = time;
+		}
+		
+		@Override
+		public int compareTo(ChannelFinishTime o) {
+			return Double.compare(time, o.time);
+		}
 	}
 
 
@@ -32,6 +32,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class SDNDatacenter extends Datacenter {
 
+	private static final long serialVersionUID = 1L;
+
 	NetworkOperatingSystem nos;
 	
 	public SDNDatacenter(String name, DatacenterCharacteristics characteristics, VmAllocationPolicy vmAllocationPolicy, List<Storage> storageList, double schedulingInterval, NetworkOperatingSystem nos) throws Exception {
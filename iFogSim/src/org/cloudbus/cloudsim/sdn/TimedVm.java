@@ -21,6 +21,8 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class TimedVm extends Vm {
 
+	private static final long serialVersionUID = 1L;
+
 	private double startTime;
 	private double finishTime;
 	
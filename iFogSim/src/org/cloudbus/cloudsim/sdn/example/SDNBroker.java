@@ -30,6 +30,8 @@ import org.cloudbus.cloudsim.sdn.SDNDatacenter;
  */
 public class SDNBroker extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	private SDNDatacenter datacenter = null;
 	private String applicationFileName = null;
 	private List<String> workloadFileNames=null;
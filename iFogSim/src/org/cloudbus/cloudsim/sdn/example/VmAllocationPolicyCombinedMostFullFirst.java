@@ -13,6 +13,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
 
 public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy {
 
+	private static final long serialVersionUID = 1L;
+
 	protected final double hostTotalMips;
 	protected final double hostTotalBw;
 	protected final int hostTotalPes;
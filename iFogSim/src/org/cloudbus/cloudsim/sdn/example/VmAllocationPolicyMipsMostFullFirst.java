@@ -7,6 +7,8 @@ import org.cloudbus.cloudsim.Vm;
 
 public class VmAllocationPolicyMipsMostFullFirst extends VmAllocationPolicyCombinedMostFullFirst{
 
+	private static final long serialVersionUID = 1L;
+
 	public VmAllocationPolicyMipsMostFullFirst(List<? extends Host> list) {
 		super(list);
 	}
@@ -30,6 +30,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class VmSchedulerSpaceSharedEnergy extends VmScheduler {
 
+	private static final long serialVersionUID = 1L;
+
 	/** Map containing VM ID and a vector of PEs allocated to this VM. */
 	private Map<String, List<Pe>> peAllocationMap;
 
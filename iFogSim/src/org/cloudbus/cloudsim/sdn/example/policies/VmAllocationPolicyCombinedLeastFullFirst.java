@@ -23,6 +23,8 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class VmAllocationPolicyCombinedLeastFullFirst extends VmAllocationPolicyCombinedMostFullFirst{
 
+	private static final long serialVersionUID = 1L;
+
 	public VmAllocationPolicyCombinedLeastFullFirst(List<? extends Host> list) {
 		super(list);
 	}
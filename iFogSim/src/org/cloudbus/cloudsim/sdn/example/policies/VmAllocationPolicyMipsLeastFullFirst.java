@@ -23,6 +23,8 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class VmAllocationPolicyMipsLeastFullFirst extends VmAllocationPolicyCombinedMostFullFirst{
 
+	private static final long serialVersionUID = 1L;
+
 	public VmAllocationPolicyMipsLeastFullFirst(List<? extends Host> list) {
 		super(list);
 	}
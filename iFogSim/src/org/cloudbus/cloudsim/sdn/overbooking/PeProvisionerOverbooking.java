@@ -24,6 +24,8 @@ import org.cloudbus.cloudsim.provisioners.PeProvisioner;
  */
 public class PeProvisionerOverbooking extends PeProvisioner {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The pe table. */
 	private Map<String, List<Double>> peTable;
 	public static final double overbookingRatioMips = 4.0;	// 10% overbooking allowed for MIPS
@@ -14,6 +14,8 @@ import org.cloudbus.cloudsim.sdn.power.PowerUtilizationMaxHostInterface;
 
 public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements PowerUtilizationMaxHostInterface {
 
+	private static final long serialVersionUID = 1L;
+
 	protected final double hostTotalMips;
 	protected final double hostTotalBw;
 	protected final int hostTotalPes;
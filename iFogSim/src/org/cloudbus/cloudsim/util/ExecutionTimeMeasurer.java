@@ -19,7 +19,7 @@ import java.util.Map;
  */
 public class ExecutionTimeMeasurer {
 
-	/** The execution times. */
+	/** The start times, in nanoseconds from an arbitrary origin. */
 	private final static Map<String, Long> executionTimes = new HashMap<String, Long>();
 
 	/**
@@ -28,7 +28,7 @@ public class ExecutionTimeMeasurer {
 	 * @param name the name
 	 */
 	public static void start(String name) {
-		getExecutionTimes().put(name, System.currentTimeMillis());
+		getExecutionTimes().put(name, System.nanoTime());
 	}
 
 	/**
@@ -38,7 +38,7 @@ public class ExecutionTimeMeasurer {
 	 * @return the double
 	 */
 	public static double end(String name) {
-		double time = (System.currentTimeMillis() - getExecutionTimes().get(name)) / 1000.0;
+		double time = (System.nanoTime() - getExecutionTimes().get(name)) / 1e9;
 		getExecutionTimes().remove(name);
 		return time;
 	}
@@ -0,0 +1,180 @@
+package org.cloudbus.cloudsim.util;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The source of the random number generators of a simulation. Every generator is seeded from a single master seed and
+ * the key of its stream: the name of the stream, e.g. the class using it, and an index, e.g. the id of the entity it
+ * belongs to. Setting the master seed, with {@link #setMasterSeed(long)} or the {@code cloudsim.seed} system property,
+ * thus makes a simulation reproducible, as long as it creates the same streams. Without it, the master seed is drawn
+ * at random and runs differ as before.
+ * <p>
+ * The streams of different keys are independent: the seeds are derived with the SplitMix64 mixing function, the one of
+ * {@link SplittableRandom}, so close keys give unrelated seeds. Each user gets its own generator, so generators are not
+ * shared, and thus not contended for, by parallel code.
+ */
+public final class RandomStreams {
+
+	/** The increment of SplitMix64, the odd integer closest to 2^64 divided by the golden ratio. */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static volatile long masterSeed = initialMasterSeed();
+
+	/** The number of streams created so far by name, for the streams without an index. */
+	private static final ConcurrentMap<String, AtomicLong> streamCounts = new ConcurrentHashMap<>();
+
+	private RandomStreams() {
+	}
+
+	private static long initialMasterSeed() {
+		Long seed = Long.getLong("cloudsim.seed");
+		return seed != null ? seed : mix64(System.nanoTime() ^ System.currentTimeMillis() * GOLDEN_GAMMA);
+	}
+
+	public static long getMasterSeed() {
+		return masterSeed;
+	}
+
+	/**
+	 * Sets the master seed, e.g. before setting up a simulation, and restarts the numbering of the streams without an
+	 * index, so that the same set up gets the same generators.
+	 *
+	 * @param seed the master seed
+	 */
+	public static void setMasterSeed(long seed) {
+		masterSeed = seed;
+		streamCounts.clear();
+	}
+
+	/**
+	 * Gets the number of streams created so far by name, for the streams without an index, e.g. to save them in a
+	 * checkpoint of the simulation.
+	 *
+	 * @return a copy of the counts
+	 */
+	public static Map<String, Long> getStreamCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for (Map.Entry<String, AtomicLong> entry : streamCounts.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	/**
+	 * Sets the master seed and the numbering of the streams without an index, e.g. when restoring a checkpoint of the
+	 * simulation, so that the streams created afterwards are the ones the checkpointed simulation would have created.
+	 *
+	 * @param seed the master seed
+	 * @param counts the number of streams created so far by name
+	 */
+	public static void setMasterSeed(long seed, Map<String, Long> counts) {
+		masterSeed = seed;
+		streamCounts.clear();
+		for (Map.Entry<String, Long> entry : counts.entrySet()) {
+			streamCounts.put(entry.getKey(), new AtomicLong(entry.getValue()));
+		}
+	}
+
+	/**
+	 * Gets the seed of a stream.
+	 *
+	 * @param stream the name of the stream
+	 * @param index the index of the stream among the ones of the same name, e.g. an entity id
+	 * @return the seed
+	 */
+	public static long seed(String stream, long index) {
+		long key = mix64(masterSeed ^ mix64(hash(stream)));
+		return mix64(key + (index + 1) * GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Gets the seed of the next stream of a name, streams being numbered in the order they are asked for.
+	 *
+	 * @param stream the name of the stream
+	 * @return the seed
+	 */
+	public static long nextSeed(String stream) {
+		return seed(stream, streamCounts.computeIfAbsent(stream, name -> new AtomicLong()).getAndIncrement());
+	}
+
+	/**
+	 * Gets the seed of a stream as bytes, e.g. for the generators of the Uncommons Maths library.
+	 *
+	 * @param seed the seed of the stream, see {@link #seed(String, long)} and {@link #nextSeed(String)}
+	 * @param length the number of bytes
+	 * @return the bytes
+	 */
+	public static byte[] seedBytes(long seed, int length) {
+		byte[] bytes = new byte[length];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < length; i += 8) {
+			long value = random.nextLong();
+			for (int j = i; j < Math.min(i + 8, length); j++) {
+				bytes[j] = (byte) value;
+				value >>>= 8;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Creates the generator of a stream.
+	 *
+	 * @param stream the name of the stream
+	 * @param index the index of the stream among the ones of the same name, e.g. an entity id
+	 * @return the generator
+	 */
+	public static Random newRandom(String stream, long index) {
+		return new Random(seed(stream, index));
+	}
+
+	/**
+	 * Creates the generator of the next stream of a name.
+	 *
+	 * @param stream the name of the stream
+	 * @return the generator
+	 */
+	public static Random newRandom(String stream) {
+		return new Random(nextSeed(stream));
+	}
+
+	/**
+	 * Creates the generator of a stream, as a {@link SplittableRandom} for parallel computations, which split it
+	 * further into a generator per task.
+	 *
+	 * @param stream the name of the stream
+	 * @param index the index of the stream among the ones of the same name, e.g. an entity id
+	 * @return the generator
+	 */
+	public static SplittableRandom newSplittableRandom(String stream, long index) {
+		return new SplittableRandom(seed(stream, index));
+	}
+
+	/**
+	 * The 64-bit FNV-1a hash of a name, stable across runs unlike identity hash codes.
+	 */
+	private static long hash(String stream) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < stream.length(); i++) {
+			hash ^= stream.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * The mixing function of SplitMix64.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
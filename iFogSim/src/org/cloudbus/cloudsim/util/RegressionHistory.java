@@ -0,0 +1,151 @@
+package org.cloudbus.cloudsim.util;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+
+/**
+ * A fixed-capacity history of values, newest first, kept in a ring buffer. Besides O(1) indexed access, it maintains
+ * in O(1) per added value the sums needed to fit a linear regression over a window of its newest values: the sum of
+ * the values, the sum of the values multiplied by their age (0 for the newest value) and the number of non-zero values
+ * not newer than the oldest value of the window.
+ * The list view is read-only; values are added with {@link #addFirst(double)}.
+ */
+public class RegressionHistory extends AbstractList<Double> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The values; the newest is at head and the value of age k at (head + k) % capacity. */
+	private final double[] values;
+
+	/** The number of newest values the sums are maintained over. */
+	private final int window;
+
+	private int head;
+
+	private int size;
+
+	/** The number of values added since creation. */
+	private long count;
+
+	/** The sum of the values in the window. */
+	private double windowSum;
+
+	/** The sum of the values in the window multiplied by their age. */
+	private double windowAgeSum;
+
+	/** The number of non-zero values of age window - 1 or older. */
+	private int olderNonZeroCount;
+
+	/**
+	 * Instantiates a new regression history.
+	 *
+	 * @param capacity the number of values kept
+	 * @param window the number of newest values the sums are maintained over, at most the capacity
+	 */
+	public RegressionHistory(int capacity, int window) {
+		if (window < 1 || window > capacity) {
+			throw new IllegalArgumentException("Invalid regression window " + window + " for capacity " + capacity);
+		}
+		this.values = new double[capacity];
+		this.window = window;
+	}
+
+	/**
+	 * Adds the newest value, dropping the oldest one if the history is full.
+	 *
+	 * @param value the value
+	 */
+	public void addFirst(double value) {
+		// every value in the window gets one interval older, and the one of age window - 1 leaves it
+		double leaving = size >= window ? getValue(window - 1) : 0;
+		if (window == 1 ? value != 0 : size >= window - 1 && getValue(window - 2) != 0) {
+			olderNonZeroCount++;
+		}
+		if (size == values.length && getValue(size - 1) != 0) {
+			olderNonZeroCount--;
+		}
+		head = (head + values.length - 1) % values.length;
+		values[head] = value;
+		if (size < values.length) {
+			size++;
+		}
+		count++;
+
+		windowAgeSum += windowSum - window * leaving;
+		windowSum += value - leaving;
+
+		// recompute the sums from time to time so that rounding errors do not accumulate
+		if (count % values.length == 0) {
+			windowSum = 0;
+			windowAgeSum = 0;
+			for (int age = 0; age < getWindowSize(); age++) {
+				windowSum += getValue(age);
+				windowAgeSum += age * getValue(age);
+			}
+		}
+	}
+
+	/**
+	 * Gets a value without boxing it.
+	 *
+	 * @param age the index of the value, 0 for the newest
+	 * @return the value
+	 */
+	public double getValue(int age) {
+		if (age < 0 || age >= size) {
+			throw new IndexOutOfBoundsException("Index: " + age + ", Size: " + size);
+		}
+		return values[(head + age) % values.length];
+	}
+
+	@Override
+	public Double get(int index) {
+		return getValue(index);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of values added since creation, which changes whenever the history does.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 * Gets the number of values in the window.
+	 *
+	 * @return the smaller of the window and the size
+	 */
+	public int getWindowSize() {
+		return Math.min(size, window);
+	}
+
+	public double getWindowSum() {
+		return windowSum;
+	}
+
+	public double getWindowAgeSum() {
+		return windowAgeSum;
+	}
+
+	/**
+	 * Gets the number of non-zero values not newer than the oldest value of the window. If it is not
+	 * zero, the history trimmed of its trailing zero values still fills the window.
+	 *
+	 * @return the number of non-zero values of age window - 1 or older
+	 */
+	public int getOlderNonZeroCount() {
+		return olderNonZeroCount;
+	}
+
+}
@@ -0,0 +1,276 @@
+package org.cloudbus.cloudsim.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.UtilizationModelPlanetLabMapped;
+
+/**
+ * A store of PlanetLab-style utilization traces packed into a single memory-mapped file. A trace
+ * directory holds one file per VM with one utilization percentage per line; {@link #pack(File, File, int)}
+ * converts it once into a columnar file holding, for every trace, a fixed-width column of short
+ * percentages. Opening the store maps the file and reads its trace names only, and the utilization
+ * models it creates read the mapped columns directly, so traces are neither parsed nor copied to the
+ * heap when a simulation starts.
+ *
+ * Layout: magic, version, number of samples per trace, number of traces, the trace names as
+ * length-prefixed UTF-8, then the columns, each of samples shorts.
+ *
+ * @see UtilizationModelPlanetLabMapped
+ */
+public class UtilizationTraceStore {
+
+	private static final int MAGIC = 0x55545243; // "UTRC"
+
+	private static final short VERSION = 1;
+
+	/** The number of samples of a 24 hours trace sampled every 5 minutes, plus the repeated last sample. */
+	public static final int PLANETLAB_SAMPLES = 289;
+
+	/** The stores opened by {@link #reopen(String)}, by path. */
+	private static final Map<String, WeakReference<UtilizationTraceStore>> reopened = new HashMap<String, WeakReference<UtilizationTraceStore>>();
+
+	private final String path;
+
+	private final int samples;
+
+	private final String[] names;
+
+	private final Map<String, Integer> indexByName;
+
+	/** The columns of all traces, trace i starting at i * samples. */
+	private final ShortBuffer columns;
+
+	private UtilizationTraceStore(String path, int samples, String[] names, ShortBuffer columns) {
+		this.path = path;
+		this.samples = samples;
+		this.names = names;
+		this.columns = columns;
+		indexByName = new HashMap<String, Integer>(names.length * 2);
+		for (int i = 0; i < names.length; i++) {
+			indexByName.put(names[i], i);
+		}
+	}
+
+	/**
+	 * Packs the trace files of a directory, in name order, into a store file. As in
+	 * {@link org.cloudbus.cloudsim.UtilizationModelPlanetLabInMemory}, the first samples - 1 lines of
+	 * each file are read and the last sample repeats the one before it.
+	 *
+	 * @param inputDirectory the directory of trace files
+	 * @param storeFile the store file to write
+	 * @param samples the number of samples per trace
+	 * @return the number of traces packed
+	 * @throws NumberFormatException if a trace file has too few lines or a line is not an integer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static int pack(File inputDirectory, File storeFile, int samples) throws NumberFormatException, IOException {
+		if (samples < 2) {
+			throw new IllegalArgumentException("A trace needs at least 2 samples");
+		}
+		File[] files = inputDirectory.listFiles();
+		if (files == null) {
+			throw new IOException(inputDirectory + " is not a directory");
+		}
+		Arrays.sort(files);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(storeFile), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeInt(samples);
+			out.writeInt(files.length);
+			for (File file : files) {
+				byte[] name = file.getName().getBytes(StandardCharsets.UTF_8);
+				out.writeShort(name.length);
+				out.write(name);
+			}
+			short[] column = new short[samples];
+			for (File file : files) {
+				BufferedReader input = new BufferedReader(new FileReader(file));
+				try {
+					for (int i = 0; i < samples - 1; i++) {
+						int value = Integer.valueOf(input.readLine());
+						if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+							throw new NumberFormatException("Utilization " + value + " out of range in " + file);
+						}
+						column[i] = (short) value;
+					}
+				} finally {
+					input.close();
+				}
+				column[samples - 1] = column[samples - 2];
+				for (short value : column) {
+					out.writeShort(value);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return files.length;
+	}
+
+	/**
+	 * Opens a store file by mapping it into memory.
+	 *
+	 * @param storeFile the store file
+	 * @return the store
+	 * @throws IOException if the file cannot be read or is not a store file
+	 */
+	public static UtilizationTraceStore open(File storeFile) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(storeFile, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(storeFile + " is too large to be mapped");
+			}
+			// the mapping remains valid once the channel is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 14 || buffer.getInt() != MAGIC) {
+				throw new IOException(storeFile + " is not a utilization trace store");
+			}
+			short version = buffer.getShort();
+			if (version != VERSION) {
+				throw new IOException("Unsupported utilization trace store version " + version + " in " + storeFile);
+			}
+			int samples = buffer.getInt();
+			String[] names = new String[buffer.getInt()];
+			for (int i = 0; i < names.length; i++) {
+				byte[] name = new byte[buffer.getShort() & 0xFFFF];
+				buffer.get(name);
+				names[i] = new String(name, StandardCharsets.UTF_8);
+			}
+			ByteBuffer data = buffer.slice();
+			if (data.remaining() < (long) names.length * samples * 2) {
+				throw new IOException("Truncated utilization trace store " + storeFile);
+			}
+			return new UtilizationTraceStore(storeFile.getPath(), samples, names, data.asShortBuffer());
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Gets the store of a file, opening it unless it was already reopened and is still in use. The
+	 * utilization models of a restored checkpoint reopen their store this way, so that they share it
+	 * instead of each mapping the file.
+	 *
+	 * @param path the path of the store file
+	 * @return the store
+	 * @throws IOException if the file cannot be read or is not a store file
+	 */
+	public static synchronized UtilizationTraceStore reopen(String path) throws IOException {
+		WeakReference<UtilizationTraceStore> reference = reopened.get(path);
+		UtilizationTraceStore store = reference == null ? null : reference.get();
+		if (store == null) {
+			store = open(new File(path));
+			reopened.put(path, new WeakReference<UtilizationTraceStore>(store));
+		}
+		return store;
+	}
+
+	/**
+	 * Gets the path of the store file.
+	 *
+	 * @return the path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the number of traces.
+	 *
+	 * @return the number of traces
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	public int getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Gets the name of a trace, i.e. the name of the file it was packed from.
+	 *
+	 * @param index the index of the trace
+	 * @return the name
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * Gets the index of a trace.
+	 *
+	 * @param name the name of the file the trace was packed from
+	 * @return the index, or -1 if there is no such trace
+	 */
+	public int indexOf(String name) {
+		Integer index = indexByName.get(name);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Gets a sample of a trace.
+	 *
+	 * @param index the index of the trace
+	 * @param sample the index of the sample
+	 * @return the utilization, between 0 and 1 for a percentage trace
+	 */
+	public double getUtilization(int index, int sample) {
+		if (index < 0 || index >= names.length) {
+			throw new IndexOutOfBoundsException("Trace " + index + " of " + names.length + " in " + path);
+		}
+		if (sample < 0 || sample >= samples) {
+			throw new IndexOutOfBoundsException("Sample " + sample + " of " + samples + " in " + path);
+		}
+		return columns.get(index * samples + sample) / 100.0;
+	}
+
+	/**
+	 * Creates a utilization model reading a trace of the store.
+	 *
+	 * @param index the index of the trace
+	 * @param schedulingInterval the scheduling interval, i.e. the time between samples
+	 * @return the utilization model
+	 */
+	public UtilizationModelPlanetLabMapped getUtilizationModel(int index, double schedulingInterval) {
+		if (index < 0 || index >= names.length) {
+			throw new IndexOutOfBoundsException("Trace " + index + " of " + names.length + " in " + path);
+		}
+		return new UtilizationModelPlanetLabMapped(this, index, schedulingInterval);
+	}
+
+	/**
+	 * Packs a trace directory. Usage: UtilizationTraceStore inputDirectory storeFile [samples]
+	 *
+	 * @param args the arguments
+	 * @throws Exception if packing fails
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: UtilizationTraceStore inputDirectory storeFile [samples]");
+			return;
+		}
+		int samples = args.length > 2 ? Integer.parseInt(args[2]) : PLANETLAB_SAMPLES;
+		int traces = pack(new File(args[0]), new File(args[1]), samples);
+		System.out.println("Packed " + traces + " traces of " + samples + " samples into " + args[1]);
+	}
+
+}
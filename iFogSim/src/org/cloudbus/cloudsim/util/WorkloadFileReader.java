@@ -8,21 +8,14 @@
 
 package org.cloudbus.cloudsim.util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 import org.cloudbus.cloudsim.Cloudlet;
-import org.cloudbus.cloudsim.UtilizationModel;
-import org.cloudbus.cloudsim.UtilizationModelFull;
 
 /**
  * This class is responsible for reading resource traces from a file and creating a list of jobs.
@@ -35,7 +28,8 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  * class <tt>each with a unique 
  *      	 entity name</tt>.
  * <li>If size of the trace file is huge or contains lots of traces please increase the JVM heap
- * size accordingly by using <tt>java -Xmx</tt> option when running the simulation.
+ * size accordingly by using <tt>java -Xmx</tt> option when running the simulation, or read the
+ * jobs one at a time from {@link #stream()} instead of generating the whole workload.
  * <li>The default job file size for sending to and receiving from a resource is
  * {@link gridsim.net.Link#DEFAULT_MTU}. However, you can specify the file size by using
  * {@link #setGridletFileSize(int)}.
@@ -96,8 +90,6 @@ public class WorkloadFileReader implements WorkloadModel {
 	// comment
 	private static final int IRRELEVANT = -1; // irrelevant number
 
-	private String[] fieldArray = null; // a temp array storing all the fields
-
 	/**
 	 * Create a new {@link WorkloadFileReader} object.
 	 * 
@@ -139,25 +131,58 @@ public class WorkloadFileReader implements WorkloadModel {
 		if (jobs == null) {
 			jobs = new ArrayList<Cloudlet>();
 
-			// create a temp array
-			fieldArray = new String[MAX_FIELD];
-
+			WorkloadStream stream = stream();
 			try {
-				if (file.getName().endsWith(".gz")) {
-					readGZIPFile(file);
-				} else if (file.getName().endsWith(".zip")) {
-					readZipFile(file);
-				} else {
-					readFile(file);
+				while (stream.hasNext()) {
+					jobs.add(stream.next());
 				}
-			} catch (final FileNotFoundException e) {
-			} catch (final IOException e) {
+			} catch (final UncheckedIOException e) {
+			} finally {
+				stream.close();
 			}
 		}
 
 		return jobs;
 	}
 
+	/**
+	 * Creates a stream of the jobs of the trace, parsed in parallel by the common fork/join pool
+	 * when it has more than one thread. The stream uses the format set when it is created.
+	 * 
+	 * @return the stream of jobs
+	 */
+	public WorkloadStream stream() {
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		return stream(
+				parallelism > 1 ? ForkJoinPool.commonPool() : null,
+				WorkloadStream.DEFAULT_CHUNK_LINES,
+				2 * parallelism + 1);
+	}
+
+	/**
+	 * Creates a stream of the jobs of the trace. The stream uses the format set when it is created.
+	 * 
+	 * @param executor the executor parsing the chunks of lines read, or null to parse them in the
+	 *        thread reading the stream
+	 * @param chunkLines the number of lines of a chunk
+	 * @param lookAheadChunks the maximum number of chunks read ahead of the job being returned
+	 * @return the stream of jobs
+	 */
+	public WorkloadStream stream(final ExecutorService executor, final int chunkLines, final int lookAheadChunks) {
+		WorkloadStream.Format format = new WorkloadStream.Format(
+				JOB_NUM,
+				SUBMIT_TIME,
+				RUN_TIME,
+				NUM_PROC,
+				REQ_NUM_PROC,
+				REQ_RUN_TIME,
+				USER_ID,
+				GROUP_ID,
+				MAX_FIELD,
+				COMMENT);
+		return new WorkloadStream(file, rating, format, executor, chunkLines, lookAheadChunks);
+	}
+
 	/**
 	 * Identifies the start of a comment line.
 	 * 
@@ -245,251 +270,4 @@ public class WorkloadFileReader implements WorkloadModel {
 
 		return true;
 	}
-
-	// ------------------- PRIVATE METHODS -------------------
-
-	/**
-	 * Creates a Gridlet with the given information and adds to the list
-	 * 
-	 * @param id a Gridlet ID
-	 * @param submitTime Gridlet's submit time
-	 * @param runTime Gridlet's run time
-	 * @param numProc number of processors
-	 * @param reqRunTime user estimated run time
-	 * @param userID user id
-	 * @param groupID user's group id
-	 * @pre id >= 0
-	 * @pre submitTime >= 0
-	 * @pre runTime >= 0
-	 * @pre numProc > 0
-	 * @post $none
-	 */
-	private void createJob(
-			final int id,
-			final long submitTime,
-			final int runTime,
-			final int numProc,
-			final int reqRunTime,
-			final int userID,
-			final int groupID) {
-		// create the cloudlet
-		final int len = runTime * rating;
-		UtilizationModel utilizationModel = new UtilizationModelFull();
-		final Cloudlet wgl = new Cloudlet(
-				id,
-				len,
-				numProc,
-				0,
-				0,
-				utilizationModel,
-				utilizationModel,
-				utilizationModel);
-		jobs.add(wgl);
-	}
-
-	/**
-	 * Extracts relevant information from a given array
-	 * 
-	 * @param array an array of String
-	 * @param line a line number
-	 * @pre array != null
-	 * @pre line > 0
-	 */
-	private void extractField(final String[] array, final int line) {
-		try {
-			Integer obj = null;
-
-			// get the job number
-			int id = 0;
-			if (JOB_NUM == IRRELEVANT) {
-				id = jobs.size() + 1;
-			} else {
-				obj = new Integer(array[JOB_NUM].trim());
-				id = obj.intValue();
-			}
-
-			// get the submit time
-			final Long l = new Long(array[SUBMIT_TIME].trim());
-			final long submitTime = l.intValue();
-
-			// get the user estimated run time
-			obj = new Integer(array[REQ_RUN_TIME].trim());
-			final int reqRunTime = obj.intValue();
-
-			// if the required run time field is ignored, then use
-			// the actual run time
-			obj = new Integer(array[RUN_TIME].trim());
-			int runTime = obj.intValue();
-
-			final int userID = new Integer(array[USER_ID].trim()).intValue();
-			final int groupID = new Integer(array[GROUP_ID].trim()).intValue();
-
-			// according to the SWF manual, runtime of 0 is possible due
-			// to rounding down. E.g. runtime is 0.4 seconds -> runtime = 0
-			if (runTime <= 0) {
-				runTime = 1; // change to 1 second
-			}
-
-			// get the number of allocated processors
-			obj = new Integer(array[REQ_NUM_PROC].trim());
-			int numProc = obj.intValue();
-
-			// if the required num of allocated processors field is ignored
-			// or zero, then use the actual field
-			if (numProc == IRRELEVANT || numProc == 0) {
-				obj = new Integer(array[NUM_PROC].trim());
-				numProc = obj.intValue();
-			}
-
-			// finally, check if the num of PEs required is valid or not
-			if (numProc <= 0) {
-				numProc = 1;
-			}
-			createJob(id, submitTime, runTime, numProc, reqRunTime, userID, groupID);
-		} catch (final Exception e) {
-
-		}
-	}
-
-	/**
-	 * Breaks a line of string into many fields.
-	 * 
-	 * @param line a line of string
-	 * @param lineNum a line number
-	 * @pre line != null
-	 * @pre lineNum > 0
-	 * @post $none
-	 */
-	private void parseValue(final String line, final int lineNum) {
-		// skip a comment line
-		if (line.startsWith(COMMENT)) {
-			return;
-		}
-
-		final String[] sp = line.split("\\s+"); // split the fields based on a
-		// space
-		int len = 0; // length of a string
-		int index = 0; // the index of an array
-
-		// check for each field in the array
-		for (final String elem : sp) {
-			len = elem.length(); // get the length of a string
-
-			// if it is empty then ignore
-			if (len == 0) {
-				continue;
-			}
-			fieldArray[index] = elem;
-			index++;
-		}
-
-		if (index == MAX_FIELD) {
-			extractField(fieldArray, lineNum);
-		}
-	}
-
-	/**
-	 * Reads a text file one line at the time
-	 * 
-	 * @param fl a file name
-	 * @return <code>true</code> if successful, <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 * @throws FileNotFoundException if the file was not found
-	 */
-	private boolean readFile(final File fl) throws IOException, FileNotFoundException {
-		boolean success = false;
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(fl)));
-
-			// read one line at the time
-			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
-				line++;
-			}
-
-			reader.close();
-			success = true;
-		} finally {
-			if (reader != null) {
-				reader.close();
-			}
-		}
-
-		return success;
-	}
-
-	/**
-	 * Reads a gzip file one line at the time
-	 * 
-	 * @param fl a gzip file name
-	 * @return <code>true</code> if successful; <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 * @throws FileNotFoundException if the file was not found
-	 */
-	private boolean readGZIPFile(final File fl) throws IOException, FileNotFoundException {
-		boolean success = false;
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(fl))));
-
-			// read one line at the time
-			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
-				line++;
-			}
-
-			reader.close();
-			success = true;
-		} finally {
-			if (reader != null) {
-				reader.close();
-			}
-		}
-
-		return success;
-	}
-
-	/**
-	 * Reads a Zip file.
-	 * 
-	 * @param fl a zip file name
-	 * @return <code>true</code> if reading a file is successful; <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 */
-	private boolean readZipFile(final File fl) throws IOException {
-		boolean success = false;
-		ZipFile zipFile = null;
-		try {
-			BufferedReader reader = null;
-
-			// ZipFile offers an Enumeration of all the files in the file
-			zipFile = new ZipFile(fl);
-			final Enumeration<? extends ZipEntry> e = zipFile.entries();
-			while (e.hasMoreElements()) {
-				success = false; // reset the value again
-				final ZipEntry zipEntry = e.nextElement();
-
-				reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(zipEntry)));
-
-				// read one line at the time
-				int line = 1;
-				while (reader.ready()) {
-					parseValue(reader.readLine(), line);
-					line++;
-				}
-
-				reader.close();
-				success = true;
-			}
-		} finally {
-			if (zipFile != null) {
-				zipFile.close();
-			}
-		}
-
-		return success;
-	}
 }
@@ -0,0 +1,644 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+
+/**
+ * A stream of the jobs of a workload trace, created by {@link WorkloadFileReader#stream()}. The
+ * trace is read in chunks of lines, which are parsed by an executor while the jobs of the previous
+ * chunks are consumed, and the cloudlets are created only when they are iterated over. At most a
+ * fixed number of chunks is read ahead, so the memory used does not depend on the size of the
+ * trace.
+ * <p>
+ * The jobs can be restricted to a range of submit times, sampled and limited in number. These
+ * filters must be set before the first job is read. A job keeps the ID it has in the whole trace,
+ * whether or not the jobs before it were filtered out.
+ * <p>
+ * An error reading the trace is thrown as an {@link UncheckedIOException} by {@link #hasNext()}
+ * and {@link #next()}.
+ * <p>
+ * The stream itself is not serializable. What it reads is described by its {@link #getSource()
+ * source}, which is, so that an entity holding a stream can keep the source and the number of jobs
+ * it took, and reopen the stream at the same job when it is restored from a checkpoint.
+ *
+ * @see WorkloadFileReader
+ */
+public class WorkloadStream implements Iterator<Cloudlet>, Closeable {
+
+	/** The default number of lines of a chunk. */
+	public static final int DEFAULT_CHUNK_LINES = 4096;
+
+	private static final int IRRELEVANT = -1;
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	/**
+	 * The position of the fields of a trace. It is fixed when the stream is created, so that the
+	 * chunks can be parsed concurrently.
+	 */
+	static final class Format implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int jobNum;
+
+		private final int submitTime;
+
+		private final int runTime;
+
+		private final int numProc;
+
+		private final int reqNumProc;
+
+		private final int reqRunTime;
+
+		private final int userId;
+
+		private final int groupId;
+
+		private final int maxField;
+
+		private final String comment;
+
+		Format(
+				final int jobNum,
+				final int submitTime,
+				final int runTime,
+				final int numProc,
+				final int reqNumProc,
+				final int reqRunTime,
+				final int userId,
+				final int groupId,
+				final int maxField,
+				final String comment) {
+			this.jobNum = jobNum;
+			this.submitTime = submitTime;
+			this.runTime = runTime;
+			this.numProc = numProc;
+			this.reqNumProc = reqNumProc;
+			this.reqRunTime = reqRunTime;
+			this.userId = userId;
+			this.groupId = groupId;
+			this.maxField = maxField;
+			this.comment = comment;
+		}
+
+	}
+
+	/**
+	 * The trace a stream reads, with its format and its filters. A stream opened from a source has
+	 * the same jobs as the stream the source was taken from. The chunks of the reopened stream are
+	 * parsed by the common fork/join pool when it has more than one thread, as with
+	 * {@link WorkloadFileReader#stream()}, since the executor of a stream is not serializable.
+	 */
+	public static final class Source implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File file;
+
+		private final int rating;
+
+		private final Format format;
+
+		private final int chunkLines;
+
+		private final int lookAheadChunks;
+
+		private final long minSubmitTime;
+
+		private final long maxSubmitTime;
+
+		private final int sampling;
+
+		private final long maxJobs;
+
+		private Source(final WorkloadStream stream) {
+			file = stream.file;
+			rating = stream.rating;
+			format = stream.format;
+			chunkLines = stream.chunkLines;
+			lookAheadChunks = stream.lookAheadChunks;
+			minSubmitTime = stream.minSubmitTime;
+			maxSubmitTime = stream.maxSubmitTime;
+			sampling = stream.sampling;
+			maxJobs = stream.maxJobs;
+		}
+
+		/**
+		 * Gets the trace file.
+		 *
+		 * @return the trace file
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Opens a new stream of the jobs of the source, from the first one.
+		 *
+		 * @return the stream
+		 */
+		public WorkloadStream open() {
+			WorkloadStream stream = new WorkloadStream(
+					file,
+					rating,
+					format,
+					ForkJoinPool.getCommonPoolParallelism() > 1 ? ForkJoinPool.commonPool() : null,
+					chunkLines,
+					lookAheadChunks);
+			stream.minSubmitTime = minSubmitTime;
+			stream.maxSubmitTime = maxSubmitTime;
+			stream.sampling = sampling;
+			stream.maxJobs = maxJobs;
+			return stream;
+		}
+
+	}
+
+	/** The jobs parsed from a chunk of lines, in the order of the lines. */
+	private static final class Chunk {
+
+		private final int[] ids;
+
+		private final long[] submitTimes;
+
+		private final int[] runTimes;
+
+		private final int[] numProcs;
+
+		private int size;
+
+		private Chunk(final int capacity) {
+			ids = new int[capacity];
+			submitTimes = new long[capacity];
+			runTimes = new int[capacity];
+			numProcs = new int[capacity];
+		}
+
+	}
+
+	private final File file;
+
+	private final int rating;
+
+	private final Format format;
+
+	/** The executor parsing the chunks, or null to parse them when they are read. */
+	private final ExecutorService executor;
+
+	private final int chunkLines;
+
+	private final int lookAheadChunks;
+
+	/** The chunks read and parsed, or being parsed, in the order of the trace. */
+	private final ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+
+	private final UtilizationModel utilizationModel = new UtilizationModelFull();
+
+	private long minSubmitTime = Long.MIN_VALUE;
+
+	private long maxSubmitTime = Long.MAX_VALUE;
+
+	private int sampling = 1;
+
+	private long maxJobs = Long.MAX_VALUE;
+
+	private boolean started;
+
+	private boolean closed;
+
+	private BufferedReader reader;
+
+	private ZipFile zipFile;
+
+	private Enumeration<? extends ZipEntry> zipEntries;
+
+	private boolean endOfTrace;
+
+	private Chunk chunk;
+
+	private int position;
+
+	/** The number of jobs parsed so far, including those filtered out. */
+	private int jobsParsed;
+
+	/** The number of jobs in the submit time range so far. */
+	private long jobsInRange;
+
+	private long jobsReturned;
+
+	private Cloudlet next;
+
+	private long nextSubmitTime;
+
+	/**
+	 * Instantiates a new workload stream.
+	 *
+	 * @param file the trace file, as ASCII text, zip or gz
+	 * @param rating the resource's PE rating
+	 * @param format the position of the fields in the trace
+	 * @param executor the executor parsing the chunks, or null to parse them in the reading thread
+	 * @param chunkLines the number of lines of a chunk
+	 * @param lookAheadChunks the maximum number of chunks read ahead
+	 */
+	WorkloadStream(
+			final File file,
+			final int rating,
+			final Format format,
+			final ExecutorService executor,
+			final int chunkLines,
+			final int lookAheadChunks) {
+		if (chunkLines <= 0) {
+			throw new IllegalArgumentException("The number of lines of a chunk must be > 0.");
+		} else if (lookAheadChunks <= 0) {
+			throw new IllegalArgumentException("The number of chunks read ahead must be > 0.");
+		}
+		this.file = file;
+		this.rating = rating;
+		this.format = format;
+		this.executor = executor;
+		this.chunkLines = chunkLines;
+		this.lookAheadChunks = lookAheadChunks;
+	}
+
+	/**
+	 * Restricts the jobs to those submitted in a range of times.
+	 *
+	 * @param from the first submit time of the range
+	 * @param to the submit time after the range
+	 * @return this stream
+	 */
+	public WorkloadStream setSubmitTimeRange(final long from, final long to) {
+		checkNotStarted();
+		if (from > to) {
+			throw new IllegalArgumentException("Invalid submit time range.");
+		}
+		minSubmitTime = from;
+		maxSubmitTime = to;
+		return this;
+	}
+
+	/**
+	 * Keeps one job out of a number of jobs in the submit time range, starting with the first one.
+	 *
+	 * @param every the number of jobs per job kept
+	 * @return this stream
+	 */
+	public WorkloadStream setSampling(final int every) {
+		checkNotStarted();
+		if (every <= 0) {
+			throw new IllegalArgumentException("Sampling must keep one job out of a number > 0.");
+		}
+		sampling = every;
+		return this;
+	}
+
+	/**
+	 * Limits the number of jobs of the stream. Reading the trace stops once this number of jobs has
+	 * been returned.
+	 *
+	 * @param maxJobs the maximum number of jobs
+	 * @return this stream
+	 */
+	public WorkloadStream setMaxJobs(final long maxJobs) {
+		checkNotStarted();
+		if (maxJobs < 0) {
+			throw new IllegalArgumentException("The maximum number of jobs must be >= 0.");
+		}
+		this.maxJobs = maxJobs;
+		return this;
+	}
+
+	/**
+	 * Gets the source of the stream, from which a stream with the same jobs can be opened. The
+	 * filters must be set before the source is taken.
+	 *
+	 * @return the source
+	 */
+	public Source getSource() {
+		return new Source(this);
+	}
+
+	/**
+	 * Skips jobs, e.g. those a restored entity had already taken from the stream it reopens.
+	 *
+	 * @param count the number of jobs to skip
+	 * @return the number of jobs skipped, less than the count if the stream has fewer jobs left
+	 */
+	public long skip(final long count) {
+		long skipped = 0;
+		while (skipped < count && hasNext()) {
+			next = null;
+			skipped++;
+		}
+		return skipped;
+	}
+
+	private void checkNotStarted() {
+		if (started) {
+			throw new IllegalStateException("The jobs of the stream are already being read.");
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		if (closed) {
+			return false;
+		}
+		started = true;
+		while (jobsReturned < maxJobs) {
+			if (chunk == null || position == chunk.size) {
+				chunk = nextChunk();
+				position = 0;
+				if (chunk == null) {
+					break;
+				}
+				continue;
+			}
+
+			int i = position++;
+			jobsParsed++;
+			long submitTime = chunk.submitTimes[i];
+			if (submitTime < minSubmitTime || submitTime >= maxSubmitTime || jobsInRange++ % sampling != 0) {
+				continue;
+			}
+
+			// the job ID is its number in the trace if the trace has no job number field
+			int id = format.jobNum == IRRELEVANT ? jobsParsed : chunk.ids[i];
+			next = new Cloudlet(
+					id,
+					chunk.runTimes[i] * rating,
+					chunk.numProcs[i],
+					0,
+					0,
+					utilizationModel,
+					utilizationModel,
+					utilizationModel);
+			nextSubmitTime = submitTime;
+			jobsReturned++;
+			return true;
+		}
+		close();
+		return false;
+	}
+
+	@Override
+	public Cloudlet next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Cloudlet cloudlet = next;
+		next = null;
+		return cloudlet;
+	}
+
+	/**
+	 * Gets the submit time in the trace of the job {@link #next()} returns.
+	 *
+	 * @return the submit time
+	 * @throws NoSuchElementException if the stream has no more jobs
+	 */
+	public long peekSubmitTime() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return nextSubmitTime;
+	}
+
+	/**
+	 * Stops reading the trace. The stream has no more jobs once closed.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		next = null;
+		chunk = null;
+		for (Future<Chunk> future : pending) {
+			future.cancel(false);
+		}
+		pending.clear();
+		try {
+			if (reader != null) {
+				reader.close();
+			}
+			if (zipFile != null) {
+				zipFile.close();
+			}
+		} catch (final IOException e) {
+		}
+	}
+
+	/**
+	 * Reads chunks ahead up to the look-ahead limit and gets the next chunk.
+	 *
+	 * @return the next chunk, or null at the end of the trace
+	 */
+	private Chunk nextChunk() {
+		try {
+			readAhead();
+			Future<Chunk> future = pending.poll();
+			return future == null ? null : future.get();
+		} catch (final IOException e) {
+			close();
+			throw new UncheckedIOException(e);
+		} catch (final InterruptedException e) {
+			close();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while parsing " + file, e);
+		} catch (final ExecutionException e) {
+			close();
+			throw new IllegalStateException("Failed to parse " + file, e.getCause());
+		}
+	}
+
+	private void readAhead() throws IOException {
+		if (reader == null && !endOfTrace) {
+			open();
+		}
+		while (!endOfTrace && pending.size() < lookAheadChunks) {
+			final String[] lines = new String[chunkLines];
+			int count = 0;
+			String line;
+			while (count < chunkLines && (line = readLine()) != null) {
+				lines[count++] = line;
+			}
+			if (count < chunkLines) {
+				endOfTrace = true;
+			}
+			if (count > 0) {
+				final int size = count;
+				FutureTask<Chunk> task = new FutureTask<Chunk>(() -> parse(lines, size));
+				if (executor == null) {
+					task.run();
+				} else {
+					executor.execute(task);
+				}
+				pending.add(task);
+			}
+		}
+	}
+
+	private void open() throws IOException {
+		if (file.getName().endsWith(".zip")) {
+			zipFile = new ZipFile(file);
+			zipEntries = zipFile.entries();
+			nextZipEntry();
+		} else if (file.getName().endsWith(".gz")) {
+			reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file), 1 << 16)));
+		} else {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)), 1 << 16);
+		}
+	}
+
+	/**
+	 * Moves to the next entry of a zip file. The entries are read one after the other as a single
+	 * trace.
+	 */
+	private void nextZipEntry() throws IOException {
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+		if (zipEntries.hasMoreElements()) {
+			reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(zipEntries.nextElement())));
+		} else {
+			endOfTrace = true;
+		}
+	}
+
+	private String readLine() throws IOException {
+		while (reader != null) {
+			String line = reader.readLine();
+			if (line != null) {
+				return line;
+			}
+			if (zipFile == null) {
+				return null;
+			}
+			nextZipEntry();
+		}
+		return null;
+	}
+
+	/**
+	 * Parses a chunk of lines. Comment lines, lines without the expected number of fields and lines
+	 * with invalid fields are skipped.
+	 *
+	 * @param lines the lines
+	 * @param count the number of lines
+	 * @return the jobs of the lines
+	 */
+	private Chunk parse(final String[] lines, final int count) {
+		Chunk result = new Chunk(count);
+		String[] fields = new String[format.maxField];
+		for (int l = 0; l < count; l++) {
+			String line = lines[l];
+			if (line.startsWith(format.comment)) {
+				continue;
+			}
+
+			int index = 0;
+			boolean tooManyFields = false;
+			for (final String elem : WHITESPACE.split(line)) {
+				if (elem.length() == 0) {
+					continue;
+				}
+				if (index == fields.length) {
+					tooManyFields = true;
+					break;
+				}
+				fields[index++] = elem;
+			}
+
+			if (!tooManyFields && index == format.maxField) {
+				extractFields(fields, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Extracts the job of a line and adds it to a chunk, unless a field is invalid.
+	 *
+	 * @param fields the fields of the line
+	 * @param result the chunk
+	 */
+	private void extractFields(final String[] fields, final Chunk result) {
+		try {
+			int id = 0;
+			if (format.jobNum != IRRELEVANT) {
+				id = Integer.parseInt(fields[format.jobNum].trim());
+			}
+
+			final long submitTime = Long.valueOf(fields[format.submitTime].trim()).intValue();
+
+			// the user estimated run time, user and group are not used but must be valid
+			Integer.parseInt(fields[format.reqRunTime].trim());
+			Integer.parseInt(fields[format.userId].trim());
+			Integer.parseInt(fields[format.groupId].trim());
+
+			// according to the SWF manual, runtime of 0 is possible due
+			// to rounding down. E.g. runtime is 0.4 seconds -> runtime = 0
+			int runTime = Integer.parseInt(fields[format.runTime].trim());
+			if (runTime <= 0) {
+				runTime = 1;
+			}
+
+			// if the required num of allocated processors field is ignored
+			// or zero, then use the actual field
+			int numProc = Integer.parseInt(fields[format.reqNumProc].trim());
+			if (numProc == IRRELEVANT || numProc == 0) {
+				numProc = Integer.parseInt(fields[format.numProc].trim());
+			}
+			if (numProc <= 0) {
+				numProc = 1;
+			}
+
+			int i = result.size++;
+			result.ids[i] = id;
+			result.submitTimes[i] = submitTime;
+			result.runTimes[i] = runTime;
+			result.numProcs[i] = numProc;
+		} catch (final Exception e) {
+		}
+	}
+
+}
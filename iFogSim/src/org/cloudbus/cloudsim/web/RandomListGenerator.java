@@ -4,6 +4,8 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Random;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 /**
  * Generates values randomly. An associative array of values and probabilities
  * is provided in the constructor.
@@ -14,7 +16,7 @@ import java.util.Random;
  */
 public class RandomListGenerator<T> implements IGenerator<T> {
 
-    private final Random rand = new Random();
+    private final Random rand = RandomStreams.newRandom(RandomListGenerator.class.getName());
 
     private final LinkedHashMap<T, Double> values = new LinkedHashMap<>();
     private final double maxValue;
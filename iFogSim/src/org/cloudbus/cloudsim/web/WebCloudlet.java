@@ -23,6 +23,8 @@ import org.cloudbus.cloudsim.EX.util.Textualize;
         "CloudletLength", "CloudletIOLength", "ActualCPUTime", "FinishTime", "CloudletStatusString", "Finished" })
 public class WebCloudlet extends HddCloudlet {
 
+    private static final long serialVersionUID = 1L;
+
     private final double idealStartTime;
     private int sessionId;
 
@@ -362,6 +362,17 @@ public class WebSession {
                 && currentDBServerCloudLets != null && areAllCloudletsFinished(currentDBServerCloudLets);
     }
 
+    /**
+     * Returns if the cloudlets of the current step have all finished, so that
+     * the session can go on with its next step once it is due.
+     * 
+     * @return if the cloudlets of the current step have all finished.
+     */
+    public boolean isStepFinished() {
+        return (currentAppServerCloudLet == null || currentAppServerCloudLet.isFinished())
+                && (currentDBServerCloudLets == null || areAllCloudletsFinished(currentDBServerCloudLets));
+    }
+
     /**
      * Returns if the session has failed.
      * 
@@ -7,4 +7,5 @@ public enum WebTags implements CloudSimTags {
     LOG_TAG,
     SUBMIT_SESSION_TAG,
     UPDATE_SESSION_TAG,
+    WAKE_UP_SESSIONS_TAG,
 }
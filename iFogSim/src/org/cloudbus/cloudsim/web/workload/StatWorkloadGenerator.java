@@ -4,6 +4,7 @@ import org.cloudbus.cloudsim.EX.util.CustomLog;
 import org.cloudbus.cloudsim.web.WebSession;
 import org.cloudbus.cloudsim.web.workload.freq.FrequencyFunction;
 import org.cloudbus.cloudsim.web.workload.sessions.ISessionGenerator;
+import org.cloudbus.cloudsim.util.RandomStreams;
 import org.uncommons.maths.number.NumberGenerator;
 import org.uncommons.maths.random.MersenneTwisterRNG;
 import org.uncommons.maths.random.PoissonGenerator;
@@ -79,9 +80,9 @@ public class StatWorkloadGenerator implements IWorkloadGenerator {
         Random newRNG = null;
         if (seed == null) {
             try {
-                newRNG = seedGen == null ? new MersenneTwisterRNG() : new MersenneTwisterRNG(seedGen);
+                newRNG = seedGen == null ? new MersenneTwisterRNG(RandomStreams.seedBytes(RandomStreams.nextSeed(StatWorkloadGenerator.class.getName()), 16)) : new MersenneTwisterRNG(seedGen);
             } catch (SeedException e) {
-                newRNG = new MersenneTwisterRNG();
+                newRNG = new MersenneTwisterRNG(RandomStreams.seedBytes(RandomStreams.nextSeed(StatWorkloadGenerator.class.getName()), 16));
             }
 
         } else {
@@ -22,6 +22,9 @@ import java.util.List;
  * @author Remo Andreoli
  */
 public class PerformanceLoggingWebBroker extends WebBroker {
+
+    private static final long serialVersionUID = 1L;
+
     public static final List<? extends Class<?>> HEADER_TYPES = Arrays.asList(Double.class, Integer.class,
             Double.class, Double.class, Double.class);
 
@@ -24,6 +24,9 @@ import java.util.logging.Level;
  * 
  */
 public class WebBroker extends MonitoringBrokerEX {
+
+    private static final long serialVersionUID = 1L;
+
     private boolean isTimerRunning = false;
     private final double stepPeriod;
     private final Map<Long, ILoadBalancer> appsToLoadBalancers = new HashMap<>();
@@ -33,6 +36,18 @@ public class WebBroker extends MonitoringBrokerEX {
     private final List<WebSession> completedSessions = new ArrayList<>();
     private final List<WebSession> canceledSessions = new ArrayList<>();
 
+    /**
+     * If sessions are stepped only when they can go on, rather than polled
+     * every step period.
+     */
+    private boolean eventDriven = false;
+    /** The next steps of the sessions whose current step is running. */
+    private final Map<Integer, SessionStep> runningSteps = new HashMap<>();
+    /** The next steps of the sessions whose current step has finished. */
+    private final PriorityQueue<SessionStep> dueSteps = new PriorityQueue<>();
+    private long stepCount = 0;
+    private double wakeUpTime = Double.POSITIVE_INFINITY;
+
     /** Mapping of application Ids to entry points. */
     private final Map<Long, IEntryPoint> entryPoins = new HashMap<>();
 
@@ -139,6 +154,32 @@ public class WebBroker extends MonitoringBrokerEX {
         return stepPeriod;
     }
 
+    /**
+     * Returns if the sessions are stepped only when they can go on.
+     * 
+     * @return if the sessions are stepped only when they can go on.
+     */
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    /**
+     * Sets if the sessions are stepped only when they can go on. By default a
+     * session with running cloudlets is polled one step period after it
+     * submitted them and whenever one of them returns. In the event driven
+     * mode its next step is scheduled instead when the last of them returns,
+     * at once if the step is due or else at the time it becomes due, and all
+     * due steps are taken by a single wake up event of the broker. The
+     * sessions take their steps at the same times in both modes. Must be set
+     * before the simulation starts.
+     * 
+     * @param eventDriven
+     *            - if the sessions are stepped only when they can go on.
+     */
+    public void setEventDriven(final boolean eventDriven) {
+        this.eventDriven = eventDriven;
+    }
+
     @Override
     public void processEvent(final SimEvent ev) {
         if (!isTimerRunning) {
@@ -305,6 +346,8 @@ public class WebBroker extends MonitoringBrokerEX {
         } else if (tag == WebTags.UPDATE_SESSION_TAG) {
             Integer sessId = (Integer) ev.getData();
             updateSessions(sessId);
+        } else if (tag == WebTags.WAKE_UP_SESSIONS_TAG) {
+            wakeUpSessions();
         } else {
             super.processOtherEvent(ev);
         }
@@ -364,7 +407,12 @@ public class WebBroker extends MonitoringBrokerEX {
                         double nextIdealTime = currTime + stepPeriod;
                         sess.notifyOfTime(nextIdealTime);
 
-                        send(getId(), stepPeriod, WebTags.UPDATE_SESSION_TAG, sess.getSessionId());
+                        if (eventDriven) {
+                            runningSteps.put(sess.getSessionId(),
+                                    new SessionStep(nextIdealTime, stepCount++, sess.getSessionId()));
+                        } else {
+                            send(getId(), stepPeriod, WebTags.UPDATE_SESSION_TAG, sess.getSessionId());
+                        }
                     }
                 } catch (SessionFailedException e) {
                     CustomLog.printf("Broker(%s): Session %d with metadata %s has failed. Details: %s", this,
@@ -376,6 +424,7 @@ public class WebBroker extends MonitoringBrokerEX {
 
         // Remote completed sessions...
         for (Integer id : completedIds) {
+            runningSteps.remove(id);
             WebSession sess = activeSessions.remove(id);
             if (sess != null) {
                 completedSessions.add(sess);
@@ -383,6 +432,56 @@ public class WebBroker extends MonitoringBrokerEX {
         }
     }
 
+    /**
+     * Schedules the next step of a session in the event driven mode, once a
+     * cloudlet of its current step has returned.
+     * 
+     * @param sessionId
+     *            - the id of the session.
+     */
+    private void stepWhenDue(final int sessionId) {
+        WebSession sess = activeSessions.get(sessionId);
+        if (sess == null || sess.isComplete() || sess.isFailed()) {
+            updateSessions(sessionId);
+        } else if (sess.isStepFinished()) {
+            SessionStep next = runningSteps.remove(sessionId);
+            if (next == null || next.time <= CloudSim.clock()) {
+                updateSessions(sessionId);
+            } else {
+                dueSteps.add(next);
+                scheduleWakeUp();
+            }
+        }
+    }
+
+    /**
+     * Makes sure a wake up event comes no later than the earliest due step.
+     */
+    private void scheduleWakeUp() {
+        SessionStep first = dueSteps.peek();
+        if (first != null && first.time < wakeUpTime) {
+            double currTime = CloudSim.clock();
+            double delay = first.time - currTime;
+            // the wake up must not come before the step is due
+            while (currTime + delay < first.time) {
+                delay = Math.nextUp(delay);
+            }
+            wakeUpTime = first.time;
+            send(getId(), delay, WebTags.WAKE_UP_SESSIONS_TAG);
+        }
+    }
+
+    private void wakeUpSessions() {
+        double currTime = CloudSim.clock();
+        if (currTime >= wakeUpTime) {
+            wakeUpTime = Double.POSITIVE_INFINITY;
+        }
+        while (!dueSteps.isEmpty() && dueSteps.peek().time <= currTime) {
+            updateSessions(dueSteps.poll().sessionId);
+        }
+        scheduleWakeUp();
+    }
+
     private void logSessionFailure(WebSession sess) {
         StringBuffer detailsBuffer = new StringBuffer();
         for (WebCloudlet wc : sess.getFailedCloudlets()) {
@@ -412,7 +511,11 @@ public class WebBroker extends MonitoringBrokerEX {
         if (CloudSim.clock() < getLifeLength()) {
             // kill the broker only if its life length is over/expired
             if (cloudlet instanceof WebCloudlet) {
-                updateSessions(((WebCloudlet) cloudlet).getSessionId());
+                if (eventDriven) {
+                    stepWhenDue(((WebCloudlet) cloudlet).getSessionId());
+                } else {
+                    updateSessions(((WebCloudlet) cloudlet).getSessionId());
+                }
             }
         }
     }
@@ -473,4 +576,27 @@ public class WebBroker extends MonitoringBrokerEX {
         return result;
     }
 
+    /**
+     * The next step of a session. Steps due at the same time are taken in the
+     * order they were scheduled in, as the update events of the polling mode
+     * are.
+     */
+    private static final class SessionStep implements Comparable<SessionStep> {
+        private final double time;
+        private final long order;
+        private final int sessionId;
+
+        private SessionStep(final double time, final long order, final int sessionId) {
+            this.time = time;
+            this.order = order;
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public int compareTo(final SessionStep other) {
+            int result = Double.compare(time, other.time);
+            return result != 0 ? result : Long.compare(order, other.order);
+        }
+    }
+
 }
@@ -1,5 +1,6 @@
 package org.cloudbus.cloudsim.web.workload.freq;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
 import org.uncommons.maths.random.GaussianGenerator;
 import org.uncommons.maths.random.MersenneTwisterRNG;
 import org.uncommons.maths.random.SeedException;
@@ -119,9 +120,9 @@ public class FiniteValuedInterval {
             Random rng = null;
             if (seed == null) {
                 try {
-                    rng = seedGen == null ? new MersenneTwisterRNG() : new MersenneTwisterRNG(seedGen);
+                    rng = seedGen == null ? new MersenneTwisterRNG(RandomStreams.seedBytes(RandomStreams.nextSeed(FiniteValuedInterval.class.getName()), 16)) : new MersenneTwisterRNG(seedGen);
                 } catch (SeedException e) {
-                    rng = new MersenneTwisterRNG();
+                    rng = new MersenneTwisterRNG(RandomStreams.seedBytes(RandomStreams.nextSeed(FiniteValuedInterval.class.getName()), 16));
                 }
             } else {
                 rng = new MersenneTwisterRNG(seed);
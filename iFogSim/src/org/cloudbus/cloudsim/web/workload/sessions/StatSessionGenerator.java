@@ -1,6 +1,7 @@
 package org.cloudbus.cloudsim.web.workload.sessions;
 
 import org.cloudbus.cloudsim.EX.disk.DataItem;
+import org.cloudbus.cloudsim.util.RandomStreams;
 import org.cloudbus.cloudsim.web.*;
 
 import java.util.*;
@@ -14,7 +15,7 @@ public class StatSessionGenerator implements ISessionGenerator {
     protected final IGenerator<String[]> metadataGenerator;
     protected final DataItem[] data;
 
-    protected Random dataRandomiser = new Random();
+    protected Random dataRandomiser = RandomStreams.newRandom(StatSessionGenerator.class.getName());
 
     public StatSessionGenerator(final Map<String, List<Double>> asSessionParams,
             final Map<String, List<Double>> dbSessionParams, final int userId, final int step,
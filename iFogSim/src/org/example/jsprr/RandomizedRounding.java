@@ -2,8 +2,10 @@ package org.example.jsprr;
 
 import java.util.*;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 public class RandomizedRounding {
-    private final Random rng = new Random();
+    private final Random rng = RandomStreams.newRandom(RandomizedRounding.class.getName());
 
     /**
      * Perform randomized rounding based on LP fractional assignments.
@@ -1,10 +1,14 @@
 package org.fog.application;
 
+import java.io.Serializable;
 import java.util.List;
 
 import org.fog.utils.TimeKeeper;
 
-public class AppLoop {
+public class AppLoop implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	private int loopId;
 	private List<String> modules;
 	public AppLoop(List<String> modules){
@@ -19,6 +19,8 @@ import org.fog.utils.FogUtils;
  */
 public class AppModule extends PowerVm{
 
+	private static final long serialVersionUID = 1L;
+
 	private String name;
 	private String appId;
 	private Map<Pair<String, String>, SelectivityModel> selectivityMap;
@@ -1,5 +1,6 @@
 package org.fog.application;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -18,7 +19,10 @@ import org.fog.utils.GeoCoverage;
  * @author Harshit Gupta
  *
  */
-public class Application {
+public class Application implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	
 	private String appId;
 	private int userId;
@@ -45,6 +49,12 @@ public class Application {
 
 	protected DAG dag;
 
+	/**
+	 * Compiled dataflow plan. Discarded whenever the modules, edges, loops or tuple mappings change,
+	 * and not saved in checkpoints as it is compiled again on demand.
+	 */
+	private transient ApplicationPlan plan;
+
 	/**
 	 * Creates a plain vanilla application with no modules and edges.
 	 * @param appId
@@ -70,7 +80,7 @@ public class Application {
 				mips, ram, bw, size, vmm, new TupleScheduler(mips, 1), new HashMap<Pair<String, String>, SelectivityModel>());
 		
 		getModules().add(module);
-		
+		plan = null;
 	}
 
 	/**
@@ -87,6 +97,7 @@ public class Application {
 				mips, ram, bw, size, vmm, new TupleScheduler(mips, 1), new HashMap<Pair<String, String>, SelectivityModel>());
 
 		getModules().add(module);
+		plan = null;
 	}
 	
 	/**
@@ -104,6 +115,7 @@ public class Application {
 		AppEdge edge = new AppEdge(source, destination, tupleCpuLength, tupleNwLength, tupleType, direction, edgeType);
 		getEdges().add(edge);
 		getEdgeMap().put(edge.getTupleType(), edge);
+		plan = null;
 	}
 	
 	/**
@@ -121,6 +133,7 @@ public class Application {
 		AppEdge edge = new AppEdge(source, destination, periodicity, tupleCpuLength, tupleNwLength, tupleType, direction, edgeType);
 		getEdges().add(edge);
 		getEdgeMap().put(edge.getTupleType(), edge);
+		plan = null;
 	}
 	
 	/**
@@ -133,6 +146,7 @@ public class Application {
 	public void addTupleMapping(String moduleName, String inputTupleType, String outputTupleType, SelectivityModel selectivityModel){
 		AppModule module = getModuleByName(moduleName);
 		module.getSelectivityMap().put(new Pair<String, String>(inputTupleType, outputTupleType), selectivityModel);
+		plan = null;
 	}
 	
 	/**
@@ -194,41 +208,12 @@ public class Application {
 	 */
 	public List<Tuple> getResultantTuples(String moduleName, Tuple inputTuple, int sourceDeviceId, int sourceModuleId){
 		List<Tuple> tuples = new ArrayList<Tuple>();
-		AppModule module = getModuleByName(moduleName);
-		for(AppEdge edge : getEdges()){
-			if(edge.getSource().equals(moduleName)){
-				Pair<String, String> pair = new Pair<String, String>(inputTuple.getTupleType(), edge.getTupleType());
-				
-				if(module.getSelectivityMap().get(pair)==null)
-					continue;
-				SelectivityModel selectivityModel = module.getSelectivityMap().get(pair);
-				if(selectivityModel.canSelect()){
-					//TODO check if the edge is ACTUATOR, then create multiple tuples
-					if(edge.getEdgeType() == AppEdge.ACTUATOR){
-						//for(Integer actuatorId : module.getActuatorSubscriptions().get(edge.getTupleType())){
-							Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),  
-									(long) (edge.getTupleCpuLength()),
-									inputTuple.getNumberOfPes(),
-									(long) (edge.getTupleNwLength()),
-									inputTuple.getCloudletOutputSize(),
-									inputTuple.getUtilizationModelCpu(),
-									inputTuple.getUtilizationModelRam(),
-									inputTuple.getUtilizationModelBw()
-									);
-							tuple.setActualTupleId(inputTuple.getActualTupleId());
-							tuple.setUserId(inputTuple.getUserId());
-							tuple.setAppId(inputTuple.getAppId());
-							tuple.setDestModuleName(edge.getDestination());
-							tuple.setSrcModuleName(edge.getSource());
-							tuple.setDirection(Tuple.ACTUATOR);
-							tuple.setTupleType(edge.getTupleType());
-							tuple.setSourceDeviceId(sourceDeviceId);
-							tuple.setSourceModuleId(sourceModuleId);
-							//tuple.setActuatorId(actuatorId);
-							
-							tuples.add(tuple);
-						//}
-					}else{
+		for(ApplicationPlan.Output output : getPlan().getOutputs(moduleName, inputTuple.getTupleType())){
+			AppEdge edge = output.getEdge();
+			if(output.getSelectivityModel().canSelect()){
+				//TODO check if the edge is ACTUATOR, then create multiple tuples
+				if(edge.getEdgeType() == AppEdge.ACTUATOR){
+					//for(Integer actuatorId : module.getActuatorSubscriptions().get(edge.getTupleType())){
 						Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),  
 								(long) (edge.getTupleCpuLength()),
 								inputTuple.getNumberOfPes(),
@@ -243,13 +228,35 @@ public class Application {
 						tuple.setAppId(inputTuple.getAppId());
 						tuple.setDestModuleName(edge.getDestination());
 						tuple.setSrcModuleName(edge.getSource());
-						tuple.setDirection(edge.getDirection());
+						tuple.setDirection(Tuple.ACTUATOR);
 						tuple.setTupleType(edge.getTupleType());
+						tuple.setSourceDeviceId(sourceDeviceId);
 						tuple.setSourceModuleId(sourceModuleId);
-						tuple.setTraversedMicroservices(inputTuple.getTraversed());
-
+						//tuple.setActuatorId(actuatorId);
+						
 						tuples.add(tuple);
-					}
+					//}
+				}else{
+					Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),  
+							(long) (edge.getTupleCpuLength()),
+							inputTuple.getNumberOfPes(),
+							(long) (edge.getTupleNwLength()),
+							inputTuple.getCloudletOutputSize(),
+							inputTuple.getUtilizationModelCpu(),
+							inputTuple.getUtilizationModelRam(),
+							inputTuple.getUtilizationModelBw()
+							);
+					tuple.setActualTupleId(inputTuple.getActualTupleId());
+					tuple.setUserId(inputTuple.getUserId());
+					tuple.setAppId(inputTuple.getAppId());
+					tuple.setDestModuleName(edge.getDestination());
+					tuple.setSrcModuleName(edge.getSource());
+					tuple.setDirection(edge.getDirection());
+					tuple.setTupleType(edge.getTupleType());
+					tuple.setSourceModuleId(sourceModuleId);
+					tuple.setTraversedMicroservices(inputTuple.getTraversed());
+
+					tuples.add(tuple);
 				}
 			}
 		}
@@ -263,7 +270,7 @@ public class Application {
 	 * @return
 	 */
 	public Tuple createTuple(AppEdge edge, int sourceDeviceId, int sourceModuleId){
-		AppModule module = getModuleByName(edge.getSource());
+		AppModule module = getPlan().getModule(edge.getSource());
 		if(edge.getEdgeType() == AppEdge.ACTUATOR){
 			for(Integer actuatorId : module.getActuatorSubscriptions().get(edge.getTupleType())){
 				Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),  
@@ -322,12 +329,14 @@ public class Application {
 	}
 	public void setModules(List<AppModule> modules) {
 		this.modules = modules;
+		plan = null;
 	}
 	public List<AppEdge> getEdges() {
 		return edges;
 	}
 	public void setEdges(List<AppEdge> edges) {
 		this.edges = edges;
+		plan = null;
 	}
 	public GeoCoverage getGeoCoverage() {
 		return geoCoverage;
@@ -342,6 +351,7 @@ public class Application {
 
 	public void setLoops(List<AppLoop> loops) {
 		this.loops = loops;
+		plan = null;
 	}
 
 	public int getUserId() {
@@ -397,4 +407,18 @@ public class Application {
 	public DAG getDAG() {
 		return dag;
 	}
+
+	/**
+	 * Compiles the dataflow plan of the application if it is not compiled already.
+	 * Called when the application is submitted to a device so that tuple processing never pays for compilation.
+	 */
+	public void compilePlan() {
+		if (plan == null)
+			plan = new ApplicationPlan(this);
+	}
+
+	public ApplicationPlan getPlan() {
+		compilePlan();
+		return plan;
+	}
 }
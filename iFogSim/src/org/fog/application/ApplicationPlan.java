@@ -0,0 +1,279 @@
+package org.fog.application;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.util.Pair;
+import org.fog.application.selectivity.SelectivityModel;
+import org.fog.entities.Tuple;
+
+/**
+ * Compiled execution plan of an application in the Distributed Dataflow Model.
+ * Module names (including sensor and actuator names appearing in loops) and tuple types are interned to integer ids,
+ * and the output edges, selectivity models and loop start/end flags are precomputed per id, so that per-tuple fan-out
+ * and loop bookkeeping do not scan the edges and loops of the application.
+ * A plan is a snapshot; the owning {@link Application} discards it whenever its modules, edges, loops or tuple mappings change.
+ */
+public class ApplicationPlan {
+
+	private static final Output[] NO_OUTPUTS = new Output[0];
+	private static final AppLoop[] NO_LOOPS = new AppLoop[0];
+	private static final String[] NO_MODULES = new String[0];
+
+	/**
+	 * Output edge of a module for a given input tuple type together with the selectivity model governing it
+	 */
+	public static class Output {
+		private final AppEdge edge;
+		private final SelectivityModel selectivityModel;
+
+		Output(AppEdge edge, SelectivityModel selectivityModel) {
+			this.edge = edge;
+			this.selectivityModel = selectivityModel;
+		}
+
+		public AppEdge getEdge() {
+			return edge;
+		}
+
+		public SelectivityModel getSelectivityModel() {
+			return selectivityModel;
+		}
+	}
+
+	private final Map<String, Integer> moduleIds = new HashMap<String, Integer>();
+	private final Map<String, Integer> tupleTypeIds = new HashMap<String, Integer>();
+
+	/**
+	 * Application module by module id. Null for sensor and actuator names.
+	 */
+	private AppModule[] modules;
+
+	/**
+	 * Outputs indexed by [module id][input tuple type id]
+	 */
+	private Output[][][] outputs;
+
+	/**
+	 * Loops starting at the source module of a module pair, indexed by [source module id][destination module id]
+	 */
+	private AppLoop[][][] startingLoops;
+
+	/**
+	 * First loop ending at the destination module of a module pair, indexed by [source module id][destination module id]
+	 */
+	private AppLoop[][] endingLoop;
+
+	/**
+	 * First loop containing a module pair, indexed by [source module id][destination module id]
+	 */
+	private AppLoop[][] firstLoop;
+
+	/**
+	 * Sources of the UP edges leading to a module, indexed by module id
+	 */
+	private String[][] upstreamModules;
+
+	public ApplicationPlan(Application application) {
+		for (AppModule module : application.getModules())
+			internModule(module.getName());
+		for (AppEdge edge : application.getEdges()) {
+			internModule(edge.getSource());
+			internModule(edge.getDestination());
+			internTupleType(edge.getTupleType());
+		}
+		for (AppLoop loop : application.getLoops()) {
+			for (String module : loop.getModules())
+				internModule(module);
+		}
+		for (AppModule module : application.getModules()) {
+			for (Pair<String, String> mapping : module.getSelectivityMap().keySet())
+				internTupleType(mapping.getFirst());
+		}
+
+		int n = moduleIds.size();
+		modules = new AppModule[n];
+		for (AppModule module : application.getModules()) {
+			int id = moduleIds.get(module.getName());
+			if (modules[id] == null)
+				modules[id] = module;
+		}
+
+		compileOutputs(application, n);
+		compileLoops(application, n);
+		compileUpstreamModules(application, n);
+	}
+
+	private void compileOutputs(Application application, int n) {
+		List<List<Output>> lists = new ArrayList<List<Output>>();
+		int t = tupleTypeIds.size();
+		for (int i = 0; i < n * t; i++)
+			lists.add(null);
+		// edges are visited in application order so that resultant tuples are emitted in the same order as before
+		for (AppEdge edge : application.getEdges()) {
+			int moduleId = moduleIds.get(edge.getSource());
+			AppModule module = modules[moduleId];
+			if (module == null)
+				continue;
+			for (Map.Entry<Pair<String, String>, SelectivityModel> mapping : module.getSelectivityMap().entrySet()) {
+				if (mapping.getValue() == null || !edge.getTupleType().equals(mapping.getKey().getSecond()))
+					continue;
+				int index = moduleId * t + tupleTypeIds.get(mapping.getKey().getFirst());
+				if (lists.get(index) == null)
+					lists.set(index, new ArrayList<Output>());
+				lists.get(index).add(new Output(edge, mapping.getValue()));
+			}
+		}
+		outputs = new Output[n][t][];
+		for (int m = 0; m < n; m++) {
+			for (int i = 0; i < t; i++) {
+				List<Output> list = lists.get(m * t + i);
+				outputs[m][i] = list == null ? NO_OUTPUTS : list.toArray(new Output[list.size()]);
+			}
+		}
+	}
+
+	private void compileLoops(Application application, int n) {
+		startingLoops = new AppLoop[n][n][];
+		endingLoop = new AppLoop[n][n];
+		firstLoop = new AppLoop[n][n];
+		List<List<AppLoop>> starting = new ArrayList<List<AppLoop>>();
+		for (int i = 0; i < n * n; i++)
+			starting.add(null);
+		for (AppLoop loop : application.getLoops()) {
+			List<String> loopModules = loop.getModules();
+			boolean[][] seen = new boolean[n][n];
+			for (int i = 0; i < loopModules.size() - 1; i++) {
+				int src = moduleIds.get(loopModules.get(i));
+				int dest = moduleIds.get(loopModules.get(i + 1));
+				if (seen[src][dest])
+					continue;
+				seen[src][dest] = true;
+				if (firstLoop[src][dest] == null)
+					firstLoop[src][dest] = loop;
+				if (endingLoop[src][dest] == null && loop.isEndModule(loopModules.get(i + 1)))
+					endingLoop[src][dest] = loop;
+				if (loop.isStartModule(loopModules.get(i))) {
+					if (starting.get(src * n + dest) == null)
+						starting.set(src * n + dest, new ArrayList<AppLoop>());
+					starting.get(src * n + dest).add(loop);
+				}
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				List<AppLoop> list = starting.get(i * n + j);
+				startingLoops[i][j] = list == null ? NO_LOOPS : list.toArray(new AppLoop[list.size()]);
+			}
+		}
+	}
+
+	private void compileUpstreamModules(Application application, int n) {
+		List<List<String>> upstream = new ArrayList<List<String>>();
+		for (int i = 0; i < n; i++)
+			upstream.add(null);
+		for (AppEdge edge : application.getEdges()) {
+			if (edge.getDirection() != Tuple.UP)
+				continue;
+			int dest = moduleIds.get(edge.getDestination());
+			if (upstream.get(dest) == null)
+				upstream.set(dest, new ArrayList<String>());
+			upstream.get(dest).add(edge.getSource());
+		}
+		upstreamModules = new String[n][];
+		for (int i = 0; i < n; i++) {
+			List<String> list = upstream.get(i);
+			upstreamModules[i] = list == null ? NO_MODULES : list.toArray(new String[list.size()]);
+		}
+	}
+
+	private void internModule(String name) {
+		if (name != null && !moduleIds.containsKey(name))
+			moduleIds.put(name, moduleIds.size());
+	}
+
+	private void internTupleType(String tupleType) {
+		if (tupleType != null && !tupleTypeIds.containsKey(tupleType))
+			tupleTypeIds.put(tupleType, tupleTypeIds.size());
+	}
+
+	/**
+	 * @param name module, sensor or actuator name
+	 * @return interned id of the name, or -1 if it does not appear in the application
+	 */
+	public int getModuleId(String name) {
+		Integer id = name == null ? null : moduleIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param tupleType tuple type
+	 * @return interned id of the tuple type, or -1 if it does not appear in the application
+	 */
+	public int getTupleTypeId(String tupleType) {
+		Integer id = tupleType == null ? null : tupleTypeIds.get(tupleType);
+		return id == null ? -1 : id;
+	}
+
+	public AppModule getModule(String name) {
+		int id = getModuleId(name);
+		return id < 0 ? null : modules[id];
+	}
+
+	/**
+	 * Get the output edges that module <i>moduleName</i> may emit tuples on when it executes a tuple of type <i>inputTupleType</i>.
+	 * @param moduleName name of the module executing the tuple
+	 * @param inputTupleType type of the executed tuple
+	 * @return outputs in application edge order; never null
+	 */
+	public Output[] getOutputs(String moduleName, String inputTupleType) {
+		int moduleId = getModuleId(moduleName);
+		int tupleTypeId = getTupleTypeId(inputTupleType);
+		if (moduleId < 0 || tupleTypeId < 0)
+			return NO_OUTPUTS;
+		return outputs[moduleId][tupleTypeId];
+	}
+
+	/**
+	 * @return loops that contain the edge <i>srcModule</i> to <i>destModule</i> and start at <i>srcModule</i>; never null
+	 */
+	public AppLoop[] getStartingLoops(String srcModule, String destModule) {
+		int src = getModuleId(srcModule);
+		int dest = getModuleId(destModule);
+		if (src < 0 || dest < 0)
+			return NO_LOOPS;
+		return startingLoops[src][dest];
+	}
+
+	/**
+	 * @return first loop that contains the edge <i>srcModule</i> to <i>destModule</i> and ends at <i>destModule</i>, or null
+	 */
+	public AppLoop getEndingLoop(String srcModule, String destModule) {
+		int src = getModuleId(srcModule);
+		int dest = getModuleId(destModule);
+		if (src < 0 || dest < 0)
+			return null;
+		return endingLoop[src][dest];
+	}
+
+	/**
+	 * @return first loop that contains the edge <i>srcModule</i> to <i>destModule</i>, or null
+	 */
+	public AppLoop getFirstLoop(String srcModule, String destModule) {
+		int src = getModuleId(srcModule);
+		int dest = getModuleId(destModule);
+		if (src < 0 || dest < 0)
+			return null;
+		return firstLoop[src][dest];
+	}
+
+	/**
+	 * @return sources of the UP edges leading to <i>moduleName</i>, in application edge order; never null
+	 */
+	public String[] getUpstreamModules(String moduleName) {
+		int id = getModuleId(moduleName);
+		return id < 0 ? NO_MODULES : upstreamModules[id];
+	}
+}
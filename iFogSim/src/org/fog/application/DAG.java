@@ -1,5 +1,7 @@
 package org.fog.application;
 
+import java.io.Serializable;
+
 /**
  * Created by Samodha Pallewatta on 9/15/2019.
  */
@@ -7,7 +9,10 @@ import java.util.*;
 
 // This class represents a directed graph using adjacency
 // list representation
-public class DAG {
+public class DAG implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     private int V;   // No. of vertices
     private List<String> vertices = new ArrayList<>();
     private HashMap<String,LinkedList<String>> adj = new HashMap<>(); // Adjacency List
@@ -72,6 +77,48 @@ public class DAG {
         return stack;
     }
 
+    // Modules the UP edges of a module lead to
+    public List<String> getSuccessors(String v) {
+        if (!adj.containsKey(v))
+            return Collections.emptyList();
+        return Collections.unmodifiableList(adj.get(v));
+    }
+
+    // Topological order of the modules, without printing it. Modules not ordered by the edges keep the
+    // order of the vertices, and the ones on a cycle, if any, come last.
+    public List<String> getTopologicalOrder() {
+        Map<String, Integer> inDegree = new HashMap<>();
+        for (String vertice : vertices)
+            inDegree.put(vertice, 0);
+        for (String vertice : vertices) {
+            for (String successor : adj.get(vertice))
+                inDegree.put(successor, inDegree.get(successor) + 1);
+        }
+
+        List<String> order = new ArrayList<>();
+        Set<String> ordered = new HashSet<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (String vertice : vertices) {
+            if (inDegree.get(vertice) == 0)
+                ready.add(vertice);
+        }
+        while (!ready.isEmpty()) {
+            String v = ready.poll();
+            order.add(v);
+            ordered.add(v);
+            for (String successor : adj.get(v)) {
+                inDegree.put(successor, inDegree.get(successor) - 1);
+                if (inDegree.get(successor) == 0)
+                    ready.add(successor);
+            }
+        }
+        for (String vertice : vertices) {
+            if (!ordered.contains(vertice))
+                order.add(vertice);
+        }
+        return order;
+    }
+
     public List<String> getSources(List<String> placed,List<String> failed){
         Stack stack = new Stack();
         HashMap<String,LinkedList<String>> adj_temp = new HashMap<>(adj);
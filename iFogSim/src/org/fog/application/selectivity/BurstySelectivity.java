@@ -11,6 +11,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class BurstySelectivity implements SelectivityModel{
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Duration of the low burst period
 	 */
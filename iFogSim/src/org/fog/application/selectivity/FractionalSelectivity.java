@@ -1,5 +1,9 @@
 package org.fog.application.selectivity;
 
+import java.util.Random;
+
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 /**
  * Generates an output tuple for an incoming input tuple with a fixed probability
  * @author Harshit Gupta
@@ -7,10 +11,14 @@ package org.fog.application.selectivity;
  */
 public class FractionalSelectivity implements SelectivityModel{
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The fixed probability of output tuple creation per incoming input tuple
 	 */
 	double selectivity;
+
+	private final Random random = RandomStreams.newRandom(FractionalSelectivity.class.getName());
 	
 	public FractionalSelectivity(double selectivity){
 		setSelectivity(selectivity);
@@ -24,7 +32,7 @@ public class FractionalSelectivity implements SelectivityModel{
 	
 	@Override
 	public boolean canSelect() {
-		if(Math.random() < getSelectivity()) // if the probability condition is satisfied
+		if(random.nextDouble() < getSelectivity()) // if the probability condition is satisfied
 			return true;
 		return false;
 	}
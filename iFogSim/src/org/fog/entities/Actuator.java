@@ -12,6 +12,8 @@ import org.fog.utils.TimeKeeper;
 
 public class Actuator extends SimEntity{
 
+	private static final long serialVersionUID = 1L;
+
 	private int gatewayDeviceId;
 	private double latency;
 	private GeoLocation geoLocation;
@@ -58,26 +60,15 @@ public class Actuator extends SimEntity{
 		String destModule = tuple.getDestModuleName();
 		Application app = getApp();
 		
-		for(AppLoop loop : app.getLoops()){
-			if(loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)){
-				
-				Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				if(startTime==null)
-					break;
-				if(!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())){
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-				}
-				double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-				int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
-				double delay = CloudSim.clock()- TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-				double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
-				TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-				TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount+1);
-				break;
-			}
-		}
+		AppLoop loop = app.getPlan().getEndingLoop(srcModule, destModule);
+		if(loop == null)
+			return;
+		Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
+		if(startTime==null)
+			return;
+		double delay = CloudSim.clock()- startTime;
+		TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
+		TimeKeeper.getInstance().loopEnded(loop.getLoopId(), delay);
 	}
 
 	@Override
@@ -19,13 +19,21 @@ import org.fog.mobilitydata.Clustering;
 import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.scheduler.StreamOperatorScheduler;
 import org.fog.utils.*;
-import org.json.simple.JSONObject;
+import org.fog.utils.events.ClusteringRequest;
+import org.fog.utils.events.ModuleMigration;
 
 import java.util.*;
 
 public class FogDevice extends PowerDatacenter {
+
+    private static final long serialVersionUID = 1L;
+
     protected Queue<Tuple> northTupleQueue;
-    protected Queue<Pair<Tuple, Integer>> southTupleQueue;
+    /**
+     * Downlink queues, one per child (port). Each port is served independently so that a large tuple
+     * to one child does not block tuples to the other children.
+     */
+    protected Map<Integer, Queue<Tuple>> southTupleQueues;
 
     protected List<String> activeApplications;
 
@@ -55,9 +63,20 @@ public class FogDevice extends PowerDatacenter {
     protected Map<Integer, List<String>> childToOperatorsMap;
 
     /**
-     * Flag denoting whether the link southwards from this FogDevice is busy
+     * Child through which each destination device was found to be reachable, or -1 if it is not in the subtree.
+     * Cleared on this device and its ancestors when children are added, removed or replaced.
+     */
+    protected Map<Integer, Integer> nextHopCache = new HashMap<Integer, Integer>();
+
+    /**
+     * IDs of the children whose link southwards from this FogDevice is busy
+     */
+    protected Set<Integer> busySouthLinks;
+
+    /**
+     * Downlink bandwidth per child. Children without an entry use downlinkBandwidth.
      */
-    protected boolean isSouthLinkBusy;
+    protected Map<Integer, Double> childToBandwidthMap;
 
     /**
      * Flag denoting whether the link northwards from this FogDevice is busy
@@ -124,9 +143,10 @@ public class FogDevice extends PowerDatacenter {
         applicationMap = new HashMap<String, Application>();
         appToModulesMap = new HashMap<String, List<String>>();
         northTupleQueue = new LinkedList<Tuple>();
-        southTupleQueue = new LinkedList<Pair<Tuple, Integer>>();
+        southTupleQueues = new HashMap<Integer, Queue<Tuple>>();
+        busySouthLinks = new HashSet<Integer>();
+        childToBandwidthMap = new HashMap<Integer, Double>();
         setNorthLinkBusy(false);
-        setSouthLinkBusy(false);
 
 
         setChildrenIds(new ArrayList<Integer>());
@@ -212,9 +232,10 @@ public class FogDevice extends PowerDatacenter {
         applicationMap = new HashMap<String, Application>();
         appToModulesMap = new HashMap<String, List<String>>();
         northTupleQueue = new LinkedList<Tuple>();
-        southTupleQueue = new LinkedList<Pair<Tuple, Integer>>();
+        southTupleQueues = new HashMap<Integer, Queue<Tuple>>();
+        busySouthLinks = new HashSet<Integer>();
+        childToBandwidthMap = new HashMap<Integer, Double>();
         setNorthLinkBusy(false);
-        setSouthLinkBusy(false);
 
 
         setChildrenIds(new ArrayList<Integer>());
@@ -270,7 +291,7 @@ public class FogDevice extends PowerDatacenter {
                 updateNorthTupleQueue();
                 break;
             case FogEvents.UPDATE_SOUTH_TUPLE_QUEUE:
-                updateSouthTupleQueue();
+                updateSouthTupleQueue((Integer) ev.getData());
                 break;
             case FogEvents.ACTIVE_APP_UPDATE:
                 updateActiveApplications(ev);
@@ -307,11 +328,11 @@ public class FogDevice extends PowerDatacenter {
 
     protected void moduleSend(SimEvent ev) {
         // TODO Auto-generated method stub
-        JSONObject object = (JSONObject) ev.getData();
-        AppModule appModule = (AppModule) object.get("module");
+        ModuleMigration migration = (ModuleMigration) ev.getData();
+        AppModule appModule = migration.getModule();
         System.out.println(getName() + " is sending " + appModule.getName());
-        NetworkUsageMonitor.sendingModule((double) object.get("delay"), appModule.getSize());
-        MigrationDelayMonitor.setMigrationDelay((double) object.get("delay"));
+        NetworkUsageMonitor.sendingModule(migration.getDelay(), appModule.getSize());
+        MigrationDelayMonitor.setMigrationDelay(migration.getDelay());
 
 
         sendNow(getId(), FogEvents.RELEASE_MODULE, appModule);
@@ -321,12 +342,12 @@ public class FogDevice extends PowerDatacenter {
 
     protected void moduleReceive(SimEvent ev) {
         // TODO Auto-generated method stub
-        JSONObject object = (JSONObject) ev.getData();
-        AppModule appModule = (AppModule) object.get("module");
-        Application app = (Application) object.get("application");
+        ModuleMigration migration = (ModuleMigration) ev.getData();
+        AppModule appModule = migration.getModule();
+        Application app = migration.getApplication();
         System.out.println(getName() + " is receiving " + appModule.getName());
-        NetworkUsageMonitor.sendingModule((double) object.get("delay"), appModule.getSize());
-        MigrationDelayMonitor.setMigrationDelay((double) object.get("delay"));
+        NetworkUsageMonitor.sendingModule(migration.getDelay(), appModule.getSize());
+        MigrationDelayMonitor.setMigrationDelay(migration.getDelay());
 
         sendNow(getId(), FogEvents.APP_SUBMIT, app);
         sendNow(getId(), FogEvents.LAUNCH_MODULE, appModule);
@@ -535,29 +556,41 @@ public class FogDevice extends PowerDatacenter {
         // WILL NEED TO CHECK IF A NEW LOOP STARTS AND INSERT A UNIQUE TUPLE ID TO IT.
         String srcModule = resTuple.getSrcModuleName();
         String destModule = resTuple.getDestModuleName();
-        for (AppLoop loop : getApplicationMap().get(resTuple.getAppId()).getLoops()) {
-            if (loop.hasEdge(srcModule, destModule) && loop.isStartModule(srcModule)) {
-                int tupleId = TimeKeeper.getInstance().getUniqueId();
-                resTuple.setActualTupleId(tupleId);
-                if (!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-                    TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-                TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-                TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-
-                //Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
-
-            }
+        for (AppLoop loop : getApplicationMap().get(resTuple.getAppId()).getPlan().getStartingLoops(srcModule, destModule)) {
+            int tupleId = TimeKeeper.getInstance().getUniqueId();
+            resTuple.setActualTupleId(tupleId);
+            if (!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
+                TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
+            TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
+            TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
+
+            //Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
         }
     }
 
     protected int getChildIdWithRouteTo(int targetDeviceId) {
+        Integer nextHop = nextHopCache.get(targetDeviceId);
+        if (nextHop != null)
+            return nextHop;
+        nextHop = -1;
         for (Integer childId : getChildrenIds()) {
-            if (targetDeviceId == childId)
-                return childId;
-            if (((FogDevice) CloudSim.getEntity(childId)).getChildIdWithRouteTo(targetDeviceId) != -1)
-                return childId;
+            if (targetDeviceId == childId
+                    || ((FogDevice) CloudSim.getEntity(childId)).getChildIdWithRouteTo(targetDeviceId) != -1) {
+                nextHop = childId;
+                break;
+            }
         }
-        return -1;
+        nextHopCache.put(targetDeviceId, nextHop);
+        return nextHop;
+    }
+
+    /**
+     * Clears the next hops cached on this device and its ancestors, whose routes go through the children of this device.
+     */
+    protected void invalidateNextHops() {
+        nextHopCache.clear();
+        if (parentId > 0 && CloudSim.getEntity(parentId) instanceof FogDevice)
+            ((FogDevice) CloudSim.getEntity(parentId)).invalidateNextHops();
     }
 
     protected int getChildIdForTuple(Tuple tuple) {
@@ -625,16 +658,23 @@ public class FogDevice extends PowerDatacenter {
 
     protected void processAppSubmit(SimEvent ev) {
         Application app = (Application) ev.getData();
+        app.compilePlan();
         applicationMap.put(app.getAppId(), app);
     }
 
     public void addChild(int childId) {
         if (CloudSim.getEntityName(childId).toLowerCase().contains("sensor"))
             return;
-        if (!getChildrenIds().contains(childId) && childId != getId())
+        if (!getChildrenIds().contains(childId) && childId != getId()) {
             getChildrenIds().add(childId);
+            invalidateNextHops();
+        }
         if (!getChildToOperatorsMap().containsKey(childId))
             getChildToOperatorsMap().put(childId, new ArrayList<String>());
+        if (CloudSim.getEntity(childId) instanceof FogDevice) {
+            for (String moduleName : ((FogDevice) CloudSim.getEntity(childId)).getSubtreeOperators())
+                addOperatorToChild(childId, moduleName);
+        }
     }
 
 
@@ -740,47 +780,30 @@ public class FogDevice extends PowerDatacenter {
             } else if (tuple.getDestModuleName() != null) {
                 if (tuple.getDirection() == Tuple.UP)
                     sendUp(tuple);
-                else if (tuple.getDirection() == Tuple.DOWN) {
-                    for (int childId : getChildrenIds())
-                        sendDown(tuple, childId);
-                }
+                else if (tuple.getDirection() == Tuple.DOWN)
+                    routeDown(tuple);
             } else {
                 sendUp(tuple);
             }
         } else {
             if (tuple.getDirection() == Tuple.UP)
                 sendUp(tuple);
-            else if (tuple.getDirection() == Tuple.DOWN) {
-                for (int childId : getChildrenIds())
-                    sendDown(tuple, childId);
-            }
+            else if (tuple.getDirection() == Tuple.DOWN)
+                routeDown(tuple);
         }
     }
 
     protected void updateTimingsOnReceipt(Tuple tuple) {
         Application app = getApplicationMap().get(tuple.getAppId());
-        String srcModule = tuple.getSrcModuleName();
-        String destModule = tuple.getDestModuleName();
-        List<AppLoop> loops = app.getLoops();
-        for (AppLoop loop : loops) {
-            if (loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)) {
-                Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-                if (startTime == null)
-                    break;
-                if (!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())) {
-                    TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-                    TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-                }
-                double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-                int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
-                double delay = CloudSim.clock() - TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-                TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-                double newAverage = (currentAverage * currentCount + delay) / (currentCount + 1);
-                TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-                TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount + 1);
-                break;
-            }
-        }
+        AppLoop loop = app.getPlan().getEndingLoop(tuple.getSrcModuleName(), tuple.getDestModuleName());
+        if (loop == null)
+            return;
+        Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
+        if (startTime == null)
+            return;
+        double delay = CloudSim.clock() - startTime;
+        TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
+        TimeKeeper.getInstance().loopEnded(loop.getLoopId(), delay);
     }
 
     protected void processSensorJoining(SimEvent ev) {
@@ -823,6 +846,7 @@ public class FogDevice extends PowerDatacenter {
             appToModulesMap.put(appId, new ArrayList<String>());
         }
         appToModulesMap.get(appId).add(module.getName());
+        advertiseModule(module.getName());
         processVmCreate(ev, false);
         if (module.isBeingInstantiated()) {
             module.setBeingInstantiated(false);
@@ -881,34 +905,107 @@ public class FogDevice extends PowerDatacenter {
     }
 
 
-    protected void updateSouthTupleQueue() {
-        if (!getSouthTupleQueue().isEmpty()) {
-            Pair<Tuple, Integer> pair = getSouthTupleQueue().poll();
-            sendDownFreeLink(pair.getFirst(), pair.getSecond());
+    protected void updateSouthTupleQueue(int childId) {
+        Queue<Tuple> queue = getSouthTupleQueues().get(childId);
+        if (queue != null && !queue.isEmpty()) {
+            sendDownFreeLink(queue.poll(), childId);
         } else {
-            setSouthLinkBusy(false);
+            setSouthLinkBusy(childId, false);
         }
     }
 
     protected void sendDownFreeLink(Tuple tuple, int childId) {
-        double networkDelay = tuple.getCloudletFileSize() / getDownlinkBandwidth();
+        double networkDelay = tuple.getCloudletFileSize() / getDownlinkBandwidth(childId);
         //Logger.debug(getName(), "Sending tuple with tupleType = "+tuple.getTupleType()+" DOWN");
-        setSouthLinkBusy(true);
+        setSouthLinkBusy(childId, true);
         //System.out.println(getName()+" Sending tuple with tupleType = "+tuple.getTupleType()+" to "+childId);
         double latency = getChildToLatencyMap().get(childId);
-        send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE);
+        send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE, childId);
         send(childId, networkDelay + latency, FogEvents.TUPLE_ARRIVAL, tuple);
         NetworkUsageMonitor.sendingTuple(latency, tuple.getCloudletFileSize());
     }
 
     protected void sendDown(Tuple tuple, int childId) {
         if (getChildrenIds().contains(childId)) {
-            if (!isSouthLinkBusy()) {
+            if (!isSouthLinkBusy(childId)) {
                 sendDownFreeLink(tuple, childId);
             } else {
-                southTupleQueue.add(new Pair<Tuple, Integer>(tuple, childId));
+                Queue<Tuple> queue = getSouthTupleQueues().get(childId);
+                if (queue == null) {
+                    queue = new LinkedList<Tuple>();
+                    getSouthTupleQueues().put(childId, queue);
+                }
+                queue.add(tuple);
+            }
+        }
+    }
+
+    /**
+     * Forwards a DOWN tuple only to the children whose subtree hosts the destination module.
+     * Falls back to broadcasting to all children when no child is known to host it.
+     *
+     * @param tuple DOWN tuple that is not executed on this device
+     */
+    protected void routeDown(Tuple tuple) {
+        if (tuple.getDestinationDeviceId() != -1) {
+            int childId = getChildIdWithRouteTo(tuple.getDestinationDeviceId());
+            if (childId != -1) {
+                sendDown(tuple, childId);
+                return;
             }
         }
+        boolean sent = false;
+        for (int childId : getChildrenIds()) {
+            List<String> operators = getChildToOperatorsMap().get(childId);
+            if (operators != null && operators.contains(tuple.getDestModuleName())) {
+                sendDown(tuple, childId);
+                sent = true;
+            }
+        }
+        if (!sent) {
+            for (int childId : getChildrenIds())
+                sendDown(tuple, childId);
+        }
+    }
+
+    /**
+     * Records that a module is hosted in the subtree of the given child on this device and all its ancestors,
+     * so that DOWN tuples towards that module can be routed without broadcasting.
+     * Entries are dropped when the child leaves, but not when a module is released; a stale entry only costs an extra
+     * forwarded tuple.
+     *
+     * @param childId    child of this device through which the module is reachable
+     * @param moduleName name of the hosted module
+     */
+    protected void addOperatorToChild(int childId, String moduleName) {
+        List<String> operators = getChildToOperatorsMap().get(childId);
+        if (operators == null || operators.contains(moduleName))
+            return;
+        operators.add(moduleName);
+        if (parentId > 0 && CloudSim.getEntity(parentId) instanceof FogDevice)
+            ((FogDevice) CloudSim.getEntity(parentId)).addOperatorToChild(getId(), moduleName);
+    }
+
+    /**
+     * Advertises a module launched on this device to the ancestors of this device.
+     *
+     * @param moduleName name of the launched module
+     */
+    protected void advertiseModule(String moduleName) {
+        if (parentId > 0 && CloudSim.getEntity(parentId) instanceof FogDevice)
+            ((FogDevice) CloudSim.getEntity(parentId)).addOperatorToChild(getId(), moduleName);
+    }
+
+    /**
+     * @return names of all modules hosted on this device or in its subtree
+     */
+    public Set<String> getSubtreeOperators() {
+        Set<String> operators = new HashSet<String>();
+        for (List<String> modules : appToModulesMap.values())
+            operators.addAll(modules);
+        for (List<String> childOperators : getChildToOperatorsMap().values())
+            operators.addAll(childOperators);
+        return operators;
     }
 
 
@@ -934,6 +1031,7 @@ public class FogDevice extends PowerDatacenter {
 
     public void setChildrenIds(List<Integer> childrenIds) {
         this.childrenIds = childrenIds;
+        invalidateNextHops();
     }
 
     public double getUplinkBandwidth() {
@@ -952,16 +1050,19 @@ public class FogDevice extends PowerDatacenter {
         this.uplinkLatency = uplinkLatency;
     }
 
-    public boolean isSouthLinkBusy() {
-        return isSouthLinkBusy;
+    public boolean isSouthLinkBusy(int childId) {
+        return busySouthLinks.contains(childId);
     }
 
     public boolean isNorthLinkBusy() {
         return isNorthLinkBusy;
     }
 
-    public void setSouthLinkBusy(boolean isSouthLinkBusy) {
-        this.isSouthLinkBusy = isSouthLinkBusy;
+    public void setSouthLinkBusy(int childId, boolean isSouthLinkBusy) {
+        if (isSouthLinkBusy)
+            busySouthLinks.add(childId);
+        else
+            busySouthLinks.remove(childId);
     }
 
     public void setNorthLinkBusy(boolean isNorthLinkBusy) {
@@ -1008,12 +1109,8 @@ public class FogDevice extends PowerDatacenter {
         this.northTupleQueue = northTupleQueue;
     }
 
-    public Queue<Pair<Tuple, Integer>> getSouthTupleQueue() {
-        return southTupleQueue;
-    }
-
-    public void setSouthTupleQueue(Queue<Pair<Tuple, Integer>> southTupleQueue) {
-        this.southTupleQueue = southTupleQueue;
+    public Map<Integer, Queue<Tuple>> getSouthTupleQueues() {
+        return southTupleQueues;
     }
 
     public double getDownlinkBandwidth() {
@@ -1024,6 +1121,23 @@ public class FogDevice extends PowerDatacenter {
         this.downlinkBandwidth = downlinkBandwidth;
     }
 
+    /**
+     * @param childId ID of the child device
+     * @return bandwidth of the downlink port towards the child
+     */
+    public double getDownlinkBandwidth(int childId) {
+        Double bandwidth = childToBandwidthMap.get(childId);
+        return bandwidth != null ? bandwidth : getDownlinkBandwidth();
+    }
+
+    public void setChildDownlinkBandwidth(int childId, double bandwidth) {
+        childToBandwidthMap.put(childId, bandwidth);
+    }
+
+    public Map<Integer, Double> getChildToBandwidthMap() {
+        return childToBandwidthMap;
+    }
+
     public List<Pair<Integer, Double>> getAssociatedActuatorIds() {
         return associatedActuatorIds;
     }
@@ -1089,11 +1203,30 @@ public class FogDevice extends PowerDatacenter {
         // TODO Auto-generated method stub
         @SuppressWarnings("deprecation")
         Integer childIDobject = new Integer(childId);
-        if (getChildrenIds().contains(childId) && childId != getId())
+        if (getChildrenIds().contains(childId) && childId != getId()) {
             getChildrenIds().remove(childIDobject);
+            invalidateNextHops();
+        }
         if (getChildToOperatorsMap().containsKey(childId)) {
             List<String> operatorName = getChildToOperatorsMap().get(childId);
             getChildToOperatorsMap().remove(childId, operatorName);
+            removeStaleOperators();
+        }
+        // tuples still queued for the child are dropped, the link being gone
+        getSouthTupleQueues().remove(childId);
+        setSouthLinkBusy(childId, false);
+    }
+
+    /**
+     * Drops from the ancestors of this device the modules they route to this device but that its subtree no longer
+     * hosts, after a child left the subtree.
+     */
+    protected void removeStaleOperators() {
+        if (parentId > 0 && CloudSim.getEntity(parentId) instanceof FogDevice) {
+            FogDevice parent = (FogDevice) CloudSim.getEntity(parentId);
+            List<String> operators = parent.getChildToOperatorsMap().get(getId());
+            if (operators != null && operators.retainAll(getSubtreeOperators()))
+                parent.removeStaleOperators();
         }
     }
 
@@ -1134,9 +1267,14 @@ public class FogDevice extends PowerDatacenter {
     }
 
     protected void processClustering(int parentId, int nodeId, SimEvent ev) {
-        JSONObject objectLocator = (JSONObject) ev.getData();
-        Clustering cms = new Clustering();
-        cms.createClusterMembers(this.getParentId(), this.getId(), objectLocator);
+        ClusteringRequest request = (ClusteringRequest) ev.getData();
+        List<Integer> clusterMembers = request.getClusterMembers(this.getId());
+        if (clusterMembers != null) {
+            Clustering.applyClusterMembers(this, clusterMembers);
+        } else {
+            Clustering cms = new Clustering();
+            cms.createClusterMembers(this.getParentId(), this.getId(), request.getLocator());
+        }
     }
 
     public double getClusterLinkBandwidth() {
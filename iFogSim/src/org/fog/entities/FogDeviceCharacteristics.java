@@ -20,6 +20,8 @@ import org.fog.utils.GeoCoverage;
 
 public class FogDeviceCharacteristics extends DatacenterCharacteristics{
 
+	private static final long serialVersionUID = 1L;
+
 	/** The geographical coverage of the fog device */
 	private GeoCoverage geoCoverage;
 	
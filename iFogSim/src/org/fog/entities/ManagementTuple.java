@@ -4,6 +4,7 @@ import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.fog.application.Application;
 import org.fog.utils.ModuleLaunchConfig;
+import org.fog.utils.events.ResourceInfoUpdate;
 
 import java.util.List;
 import java.util.Map;
@@ -13,6 +14,8 @@ import java.util.Map;
  */
 public class ManagementTuple extends Tuple {
 
+    private static final long serialVersionUID = 1L;
+
     // management tuples are routed by device id, so direction doesn't matter/
     public static final int NONE = -1;
 
@@ -25,7 +28,7 @@ public class ManagementTuple extends Tuple {
     protected PlacementRequest placementRequest;
     protected Pair<String, Integer> serviceDiscoveryInfor;
     protected Map<Application, List<ModuleLaunchConfig>> deployementSet;
-    protected Pair<Integer, Map<String, Double>> resourceData;
+    protected ResourceInfoUpdate resourceData;
 
     //todo check use of this
     public Double processingDelay = 0.0;
@@ -65,11 +68,11 @@ public class ManagementTuple extends Tuple {
         return deployementSet;
     }
 
-    public Pair<Integer, Map<String, Double>> getResourceData() {
+    public ResourceInfoUpdate getResourceData() {
         return resourceData;
     }
 
-    public void setResourceData(Pair<Integer, Map<String, Double>> resourceData) {
+    public void setResourceData(ResourceInfoUpdate resourceData) {
         this.resourceData = resourceData;
     }
 }
@@ -12,7 +12,11 @@ import org.fog.application.Application;
 import org.fog.placement.MicroservicePlacementLogic;
 import org.fog.placement.PlacementLogicOutput;
 import org.fog.utils.*;
-import org.json.simple.JSONObject;
+import org.fog.utils.events.ModuleMigration;
+import org.fog.utils.events.ResourceInfoUpdate;
+import org.fog.utils.events.ServiceDiscoveryUpdate;
+import org.fog.utils.metrics.FogMetrics;
+import org.fog.utils.metrics.MetricsRegistry;
 
 import java.util.*;
 
@@ -21,6 +25,8 @@ import java.util.*;
  */
 public class MicroserviceFogDevice extends FogDevice {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Device type (1.client device 2.FCN 3.FON 4.Cloud)
      * in this work client device only holds the clientModule of the app and does not participate in processing and placement of microservices ( microservices can be shared among users,
@@ -44,7 +50,7 @@ public class MicroserviceFogDevice extends FogDevice {
      * used to forward tuples towards the destination device
      * map of <destinationID,nextDeviceID> based on shortest path.
      */
-    protected Map<Integer, Integer> routingTable = new HashMap<>();
+    protected HierarchicalRoutingTable routingTable;
 
 
     protected ControllerComponent controllerComponent;
@@ -99,9 +105,8 @@ public class MicroserviceFogDevice extends FogDevice {
     }
 
     private void updateResourceInfo(SimEvent ev) {
-        Pair<Integer, Map<String, Double>> pair = (Pair<Integer, Map<String, Double>>) ev.getData();
-        int deviceId = pair.getFirst();
-        getControllerComponent().updateResourceInfo(deviceId, pair.getSecond());
+        ResourceInfoUpdate update = (ResourceInfoUpdate) ev.getData();
+        getControllerComponent().updateResourceInfo(update.getDeviceId(), update.getResources());
     }
 
     public Map<String, Double> getResourceAvailabilityOfDevice() {
@@ -144,11 +149,11 @@ public class MicroserviceFogDevice extends FogDevice {
         return deviceType;
     }
 
-    public void addRoutingTable(Map<Integer, Integer> routingTable) {
+    public void setRoutingTable(HierarchicalRoutingTable routingTable) {
         this.routingTable = routingTable;
     }
 
-    public Map<Integer, Integer> getRoutingTable() {
+    public HierarchicalRoutingTable getRoutingTable() {
         return routingTable;
     }
 
@@ -228,7 +233,7 @@ public class MicroserviceFogDevice extends FogDevice {
             executeTuple(ev, tuple.getDestModuleName());
         } else {
             if (tuple.getDestinationDeviceId() != -1) {
-                int nextDeviceToSend = routingTable.get(tuple.getDestinationDeviceId());
+                int nextDeviceToSend = routingTable.getNextDevice(tuple.getDestinationDeviceId());
                 if (nextDeviceToSend == parentId)
                     sendUp(tuple);
                 else if (childrenIds.contains(nextDeviceToSend))
@@ -263,10 +268,7 @@ public class MicroserviceFogDevice extends FogDevice {
                             return;
                         }
                     }
-
-
-                    for (int childId : getChildrenIds())
-                        sendDown(tuple, childId);
+                    routeDown(tuple);
 
                 } else {
                     Logger.error("Routing error", "Destination id -1 for UP tuple");
@@ -315,8 +317,6 @@ public class MicroserviceFogDevice extends FogDevice {
             send(getId(), MicroservicePlacementConfig.PLACEMENT_INTERVAL, FogEvents.PROCESS_PRS);
             return;
         }
-        long startTime = System.nanoTime();
-
         List<PlacementRequest> placementRequests = new ArrayList<>();
 
         if (MicroservicePlacementConfig.PR_PROCESSING_MODE == MicroservicePlacementConfig.PERIODIC) {
@@ -327,9 +327,13 @@ public class MicroserviceFogDevice extends FogDevice {
             this.placementRequests.remove(0);
         }
 
+        // times the placement algorithm alone: unlike in earlier versions, the printed time no longer
+        // includes taking the requests off the queue
+        long startTime = System.nanoTime();
         PlacementLogicOutput placementLogicOutput = getControllerComponent().executeApplicationPlacementLogic(placementRequests);
         long endTime = System.nanoTime();
         System.out.println("Placement Algorithm Completed. Time : " + (endTime - startTime) / 1e6);
+        FogMetrics.recordPlacementRound(MetricsRegistry.getInstance(), getName(), placementRequests.size(), (endTime - startTime) / 1e6);
 
         Map<Integer, Map<Application, List<ModuleLaunchConfig>>> perDevice = placementLogicOutput.getPerDevice();
         Map<Integer, List<Pair<String, Integer>>> serviceDicovery = placementLogicOutput.getServiceDiscoveryInfo();
@@ -365,14 +369,11 @@ public class MicroserviceFogDevice extends FogDevice {
         }
         System.out.println(placementString.toString());
         for (int clientDevice : serviceDicovery.keySet()) {
-            for (Pair serviceData : serviceDicovery.get(clientDevice)) {
+            for (Pair<String, Integer> serviceData : serviceDicovery.get(clientDevice)) {
                 if (MicroservicePlacementConfig.SIMULATION_MODE == "DYNAMIC") {
                     transmitServiceDiscoveryData(clientDevice, serviceData);
                 } else if (MicroservicePlacementConfig.SIMULATION_MODE == "STATIC") {
-                    JSONObject serviceDiscoveryAdd = new JSONObject();
-                    serviceDiscoveryAdd.put("service data", serviceData);
-                    serviceDiscoveryAdd.put("action", "ADD");
-                    sendNow(clientDevice, FogEvents.UPDATE_SERVICE_DISCOVERY, serviceDiscoveryAdd);
+                    sendNow(clientDevice, FogEvents.UPDATE_SERVICE_DISCOVERY, ServiceDiscoveryUpdate.add(serviceData.getFirst(), serviceData.getSecond()));
                 }
             }
         }
@@ -410,25 +411,15 @@ public class MicroserviceFogDevice extends FogDevice {
     }
 
     public List<String> getClientServices(Application application, String microservice) {
-        List<String> clientServices = new LinkedList<>();
-
-        for (AppEdge edge : application.getEdges()) {
-            if (edge.getDestination().equals(microservice) && edge.getDirection() == Tuple.UP)
-                clientServices.add(edge.getSource());
-        }
-
-
-        return clientServices;
+        return new LinkedList<>(Arrays.asList(application.getPlan().getUpstreamModules(microservice)));
     }
 
     protected void updateServiceDiscovery(SimEvent ev) {
-        JSONObject object = (JSONObject) ev.getData();
-        Pair<String, Integer> placement = (Pair<String, Integer>) object.get("service data");
-        String action = (String) object.get("action");
-        if (action.equals("ADD"))
-            this.controllerComponent.addServiceDiscoveryInfo(placement.getFirst(), placement.getSecond());
-        else if (action.equals("REMOVE"))
-            this.controllerComponent.removeServiceDiscoveryInfo(placement.getFirst(), placement.getSecond());
+        ServiceDiscoveryUpdate update = (ServiceDiscoveryUpdate) ev.getData();
+        if (update.getAction() == ServiceDiscoveryUpdate.Action.ADD)
+            this.controllerComponent.addServiceDiscoveryInfo(update.getMicroservice(), update.getDeviceId());
+        else if (update.getAction() == ServiceDiscoveryUpdate.Action.REMOVE)
+            this.controllerComponent.removeServiceDiscoveryInfo(update.getMicroservice(), update.getDeviceId());
     }
 
     protected void processModuleArrival(SimEvent ev) {
@@ -441,6 +432,7 @@ public class MicroserviceFogDevice extends FogDevice {
         }
         if (!appToModulesMap.get(appId).contains(module.getName())) {
             appToModulesMap.get(appId).add(module.getName());
+            advertiseModule(module.getName());
             processVmCreate(ev, false);
             boolean result = getVmAllocationPolicy().allocateHostForVm(module);
             if (result) {
@@ -465,9 +457,9 @@ public class MicroserviceFogDevice extends FogDevice {
 
     @Override
     protected void moduleReceive(SimEvent ev) {
-        JSONObject object = (JSONObject) ev.getData();
-        AppModule appModule = (AppModule) object.get("module");
-        Application app = (Application) object.get("application");
+        ModuleMigration migration = (ModuleMigration) ev.getData();
+        AppModule appModule = migration.getModule();
+        Application app = migration.getApplication();
         System.out.println(CloudSim.clock() + getName() + " is receiving " + appModule.getName());
 
         sendNow(getId(), FogEvents.APP_SUBMIT, app);
@@ -475,18 +467,18 @@ public class MicroserviceFogDevice extends FogDevice {
         ModuleLaunchConfig moduleLaunchConfig = new ModuleLaunchConfig(appModule, 1);
         sendNow(getId(), FogEvents.LAUNCH_MODULE_INSTANCE, moduleLaunchConfig);
 
-        NetworkUsageMonitor.sendingModule((double) object.get("delay"), appModule.getSize());
-        MigrationDelayMonitor.setMigrationDelay((double) object.get("delay"));
+        NetworkUsageMonitor.sendingModule(migration.getDelay(), appModule.getSize());
+        MigrationDelayMonitor.setMigrationDelay(migration.getDelay());
     }
 
 
     @Override
     protected void moduleSend(SimEvent ev) {
-        JSONObject object = (JSONObject) ev.getData();
-        AppModule appModule = (AppModule) object.get("module");
+        ModuleMigration migration = (ModuleMigration) ev.getData();
+        AppModule appModule = migration.getModule();
         System.out.println(getName() + " is sending " + appModule.getName());
-        NetworkUsageMonitor.sendingModule((double) object.get("delay"), appModule.getSize());
-        MigrationDelayMonitor.setMigrationDelay((double) object.get("delay"));
+        NetworkUsageMonitor.sendingModule(migration.getDelay(), appModule.getSize());
+        MigrationDelayMonitor.setMigrationDelay(migration.getDelay());
 
         if (moduleInstanceCount.containsKey(appModule.getAppId()) && moduleInstanceCount.get(appModule.getAppId()).containsKey(appModule.getName())) {
             int moduleCount = moduleInstanceCount.get(appModule.getAppId()).get(appModule.getName());
@@ -545,17 +537,15 @@ public class MicroserviceFogDevice extends FogDevice {
             if (tuple.managementTupleType == ManagementTuple.PLACEMENT_REQUEST) {
                 sendNow(getId(), FogEvents.RECEIVE_PR, tuple.getPlacementRequest());
             } else if (tuple.managementTupleType == ManagementTuple.SERVICE_DISCOVERY_INFO) {
-                JSONObject serviceDiscoveryAdd = new JSONObject();
-                serviceDiscoveryAdd.put("service data", tuple.getServiceDiscoveryInfor());
-                serviceDiscoveryAdd.put("action", "ADD");
-                sendNow(getId(), FogEvents.UPDATE_SERVICE_DISCOVERY, serviceDiscoveryAdd);
+                Pair<String, Integer> serviceData = tuple.getServiceDiscoveryInfor();
+                sendNow(getId(), FogEvents.UPDATE_SERVICE_DISCOVERY, ServiceDiscoveryUpdate.add(serviceData.getFirst(), serviceData.getSecond()));
             } else if (tuple.managementTupleType == ManagementTuple.DEPLOYMENTREQUEST) {
                 deployModules(tuple.getDeployementSet());
             } else if (tuple.managementTupleType == ManagementTuple.RESOURCE_UPDATE) {
                 sendNow(getId(), FogEvents.UPDATE_RESOURCE_INFO, tuple.getResourceData());
             }
         } else if (tuple.getDestinationDeviceId() != -1) {
-            int nextDeviceToSend = routingTable.get(tuple.getDestinationDeviceId());
+            int nextDeviceToSend = routingTable.getNextDevice(tuple.getDestinationDeviceId());
             if (nextDeviceToSend == parentId)
                 sendUp(tuple);
             else if (childrenIds.contains(nextDeviceToSend))
@@ -619,8 +609,7 @@ public class MicroserviceFogDevice extends FogDevice {
         if (isInCluster && MicroservicePlacementConfig.ENABLE_RESOURCE_DATA_SHARING) {
             for (Integer deviceId : getClusterMembers()) {
                 ManagementTuple managementTuple = new ManagementTuple(FogUtils.generateTupleId(), ManagementTuple.NONE, ManagementTuple.RESOURCE_UPDATE);
-                Pair<Integer, Map<String, Double>> data = new Pair<>(getId(), getControllerComponent().resourceAvailability.get(getId()));
-                managementTuple.setResourceData(data);
+                managementTuple.setResourceData(new ResourceInfoUpdate(getId(), getControllerComponent().resourceAvailability.get(getId())));
                 managementTuple.setDestinationDeviceId(deviceId);
                 sendNow(getId(), FogEvents.MANAGEMENT_TUPLE_ARRIVAL, managementTuple);
             }
@@ -629,10 +618,10 @@ public class MicroserviceFogDevice extends FogDevice {
 
     protected void sendDownFreeLink(Tuple tuple, int childId) {
         if (tuple instanceof ManagementTuple) {
-            double networkDelay = tuple.getCloudletFileSize() / getDownlinkBandwidth();
-            setSouthLinkBusy(true);
+            double networkDelay = tuple.getCloudletFileSize() / getDownlinkBandwidth(childId);
+            setSouthLinkBusy(childId, true);
             double latency = getChildToLatencyMap().get(childId);
-            send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE);
+            send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE, childId);
             send(childId, networkDelay + latency + ((ManagementTuple) tuple).processingDelay, FogEvents.MANAGEMENT_TUPLE_ARRIVAL, tuple);
             //todo
 //            if (Config.ENABLE_NETWORK_USAGE_AT_PLACEMENT)
@@ -657,12 +646,12 @@ public class MicroserviceFogDevice extends FogDevice {
     }
 
     public void updateRoutingTable(int destId, int nextId) {
-        routingTable.put(destId, nextId);
+        routingTable.putRoute(destId, nextId);
     }
 
     private void updateCLusterConsInRoutingTable() {
         for(int deviceId:clusterMembers){
-            routingTable.put(deviceId,deviceId);
+            routingTable.putSubtreeRoute(deviceId, deviceId);
         }
     }
 
@@ -8,6 +8,9 @@ import java.util.Map;
  * Round Robin LoadBalancer
  */
 public class RRLoadBalancer implements LoadBalancer {
+
+    private static final long serialVersionUID = 1L;
+
     protected Map<String, Integer> loadBalancerPosition = new HashMap();
 
     public int getDeviceId(String microservice, ServiceDiscovery serviceDiscoveryInfo) {
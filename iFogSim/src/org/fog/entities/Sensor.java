@@ -13,6 +13,8 @@ import org.fog.utils.*;
 import org.fog.utils.distribution.Distribution;
 
 public class Sensor extends SimEntity{
+
+	private static final long serialVersionUID = 1L;
 	
 	private int gatewayDeviceId;
 	private GeoLocation geoLocation;
@@ -104,18 +106,15 @@ public class Sensor extends SimEntity{
 	
 	protected int updateTimings(String src, String dest){
 		Application application = getApp();
-		for(AppLoop loop : application.getLoops()){
-			if(loop.hasEdge(src, dest)){
-				
-				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-				return tupleId;
-			}
-		}
-		return -1;
+		AppLoop loop = application.getPlan().getFirstLoop(src, dest);
+		if(loop == null)
+			return -1;
+		int tupleId = TimeKeeper.getInstance().getUniqueId();
+		if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
+			TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
+		TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
+		TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
+		return tupleId;
 	}
 	
 	@Override
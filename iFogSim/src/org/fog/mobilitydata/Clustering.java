@@ -4,7 +4,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.entities.FogDevice;
 import org.fog.placement.LocationHandler;
 import org.fog.utils.Config;
-import org.json.simple.JSONObject;
+import org.fog.utils.Logger;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -16,13 +16,11 @@ import java.util.Map;
  * @author Mohammad Goudarzi
  */
 public class Clustering {
-    public void createClusterMembers(int parentId, int nodeId, JSONObject locatorObject) {
+    public void createClusterMembers(int parentId, int nodeId, LocationHandler locatorTemp) {
         List<Integer> SiblingListIDs = new ArrayList<>();
         List<FogDevice> SiblingsList = new ArrayList<FogDevice>();
         List<Integer> clusterMemberList = new ArrayList<>();
         int fogId = nodeId;
-        LocationHandler locatorTemp = new LocationHandler();
-        locatorTemp = (LocationHandler) locatorObject.get("locationsInfo");
         FogDevice parentDevice = (FogDevice) CloudSim.getEntity(parentId);
         SiblingListIDs = parentDevice.getChildrenIds();
 
@@ -68,45 +66,31 @@ public class Clustering {
         // Clustering Policy
 
 
-        if (clusterMemberList.isEmpty() || clusterMemberList.size() < 1) {
-            ((FogDevice) CloudSim.getEntity(fogId)).setSelfCluster(true);
-            ((FogDevice) CloudSim.getEntity(fogId)).setIsInCluster(true);
-        } else {
-            ((FogDevice) CloudSim.getEntity(fogId)).setIsInCluster(true);
-            ((FogDevice) CloudSim.getEntity(fogId)).setSelfCluster(false);
-            ((FogDevice) CloudSim.getEntity(fogId)).setClusterMembers(clusterMemberList);
-            Map<Integer, Double> latencyMapL2 = new HashMap<>();
-            for (int id : clusterMemberList) {
-                latencyMapL2.put(id, Config.clusteringLatency);
-            }
-            ((FogDevice) CloudSim.getEntity(fogId)).setClusterMembersToLatencyMap(latencyMapL2);
-
-        }
-        System.out.println("The Fog Device: " + locatorTemp.instanceToDataId.get(fogId) + " with id: " + fogId + " and parent id: " + parentId +
-                " has these cluster members: " + ((FogDevice) CloudSim.getEntity(fogId)).getClusterMembers());
+        applyClusterMembers((FogDevice) CloudSim.getEntity(fogId), clusterMemberList);
         return;
     }
 
-    private static boolean calculateInRange(Location loc1, Location loc2, double fogRange) {
-
-        final int R = 6371; // Radius of the earth in Kilometers
-
-        double latDistance = Math.toRadians(loc1.latitude - loc2.latitude);
-        double lonDistance = Math.toRadians(loc1.longitude - loc2.longitude);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(loc1.latitude)) * Math.cos(Math.toRadians(loc2.latitude))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c; // kms
-
-
-        distance = Math.pow(distance, 2);
-
-        if (Math.sqrt(distance) <= fogRange / 1000) {
-            return true;
-        } else {
-            return false;
+    /**
+     * Sets the cluster of a device, e.g. as computed for its whole level by {@link ClusteringEngine}.
+     *
+     * @param fogDevice      the device
+     * @param clusterMembers the ids of the cluster members, empty if the device forms a cluster by itself
+     */
+    public static void applyClusterMembers(FogDevice fogDevice, List<Integer> clusterMembers) {
+        fogDevice.setIsInCluster(true);
+        fogDevice.setSelfCluster(clusterMembers.isEmpty());
+        fogDevice.setClusterMembers(new ArrayList<>(clusterMembers));
+        Map<Integer, Double> latencyMapL2 = new HashMap<>();
+        for (int id : clusterMembers) {
+            latencyMapL2.put(id, Config.clusteringLatency);
         }
+        fogDevice.setClusterMembersToLatencyMap(latencyMapL2);
+        Logger.debug(fogDevice.getName(), "Fog device with id: " + fogDevice.getId() + " and parent id: " + fogDevice.getParentId() +
+                " has these cluster members: " + clusterMembers);
+    }
 
+    private static boolean calculateInRange(Location loc1, Location loc2, double fogRange) {
+        return ClusteringEngine.inRange(loc1.latitude, loc1.longitude, Math.cos(Math.toRadians(loc1.latitude)),
+                loc2.latitude, loc2.longitude, Math.cos(Math.toRadians(loc2.latitude)), fogRange);
     }
 }
@@ -0,0 +1,415 @@
+package org.fog.mobilitydata;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.entities.FogDevice;
+import org.fog.placement.LocationHandler;
+import org.fog.utils.Config;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Forms the clusters of the fog devices of a level, as {@link Clustering} does for a single device: the cluster of a
+ * device holds its siblings within {@link Config#Node_Communication_RANGE}, in the order of the children of their
+ * parent.
+ * <p>
+ * The siblings are bucketed into a latitude/longitude grid whose cells are at least as large as the range, so a
+ * device is only compared with the siblings of its own and of the eight neighbouring cells. The clusters of a whole
+ * level are computed in one pass, in parallel for large levels. The engine keeps the grids afterwards, so that when
+ * devices move, only their clusters and the ones of their former and new neighbours are computed again.
+ */
+public class ClusteringEngine implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int PARALLEL_CLUSTERING_THRESHOLD = 512;
+
+    private static final double EARTH_RADIUS = 6371; // km
+
+    // widens the cells so that rounding errors cannot leave a device in range out of the neighbouring cells
+    private static final double CELL_MARGIN = 1 + 1e-6;
+
+    private final LocationHandler locator;
+
+    private final double range;
+
+    private boolean parallel = true;
+
+    // <parent id, grid of its children>
+    private final Map<Integer, SiblingGrid> grids = new HashMap<>();
+
+    // <device id, cluster members>, for the devices of the clustered levels
+    private final Map<Integer, List<Integer>> clusters = new LinkedHashMap<>();
+
+    // <device id, parent id> of the clustered devices, as of their last clustering
+    private final Map<Integer, Integer> clusteredParents = new HashMap<>();
+
+    public ClusteringEngine(LocationHandler locator) {
+        this(locator, Config.Node_Communication_RANGE);
+    }
+
+    /**
+     * @param locator the locations of the devices
+     * @param range   the communication range of the devices, in meters
+     */
+    public ClusteringEngine(LocationHandler locator, double range) {
+        this.locator = locator;
+        this.range = range;
+    }
+
+    /**
+     * Computes the clusters of the devices of a level. Devices without a known location are left out.
+     *
+     * @param levelDevices the devices of the level
+     * @return the cluster members of each device, by device id
+     */
+    public Map<Integer, List<Integer>> clusterLevel(List<FogDevice> levelDevices) {
+        // the children may have changed since a previous clustering
+        for (FogDevice fogDevice : levelDevices)
+            grids.remove(fogDevice.getParentId());
+
+        List<FogDevice> clustered = new ArrayList<>();
+        for (FogDevice fogDevice : levelDevices) {
+            SiblingGrid grid = getGrid(fogDevice.getParentId());
+            if (grid == null || !grid.contains(fogDevice.getId()))
+                continue;
+            clustered.add(fogDevice);
+            clusteredParents.put(fogDevice.getId(), fogDevice.getParentId());
+        }
+
+        List<List<Integer>> members;
+        if (parallel && clustered.size() >= PARALLEL_CLUSTERING_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            // the grids are only read here, and each device gets its own list
+            members = clustered.parallelStream()
+                    .map(fogDevice -> grids.get(fogDevice.getParentId()).getMembers(fogDevice.getId(), range))
+                    .collect(Collectors.toList());
+        } else {
+            members = new ArrayList<>(clustered.size());
+            for (FogDevice fogDevice : clustered)
+                members.add(grids.get(fogDevice.getParentId()).getMembers(fogDevice.getId(), range));
+        }
+
+        Map<Integer, List<Integer>> levelClusters = new LinkedHashMap<>();
+        for (int i = 0; i < clustered.size(); i++) {
+            clusters.put(clustered.get(i).getId(), members.get(i));
+            levelClusters.put(clustered.get(i).getId(), members.get(i));
+        }
+        return levelClusters;
+    }
+
+    /**
+     * Computes again the clusters affected by devices that moved, i.e. that changed parent or location since they
+     * were clustered. These are the clusters of the moved devices and of their former and new cluster members.
+     *
+     * @param movedDevices the devices that may have moved
+     * @return the new cluster members of the devices whose cluster changed, by device id
+     */
+    public Map<Integer, List<Integer>> recluster(Collection<FogDevice> movedDevices) {
+        Map<FogDevice, Location> moved = new LinkedHashMap<>();
+        Set<Integer> affected = new LinkedHashSet<>();
+        for (FogDevice fogDevice : movedDevices) {
+            Integer previousParentId = clusteredParents.get(fogDevice.getId());
+            Location location = getLocation(fogDevice.getId());
+            if (previousParentId == null || location == null)
+                continue;
+            SiblingGrid previousGrid = grids.get(previousParentId);
+            if (previousParentId == fogDevice.getParentId() && previousGrid != null
+                    && previousGrid.isAt(fogDevice.getId(), location))
+                continue;
+            moved.put(fogDevice, location);
+            affected.add(fogDevice.getId());
+            affected.addAll(clusters.get(fogDevice.getId()));
+        }
+
+        for (Map.Entry<FogDevice, Location> move : moved.entrySet()) {
+            int deviceId = move.getKey().getId();
+            int parentId = move.getKey().getParentId();
+            int previousParentId = clusteredParents.put(deviceId, parentId);
+            SiblingGrid previousGrid = grids.get(previousParentId);
+            int order = -1;
+            if (previousGrid != null) {
+                int previousOrder = previousGrid.remove(deviceId);
+                // a device moving within its parent keeps its place among the children
+                if (previousParentId == parentId)
+                    order = previousOrder;
+            }
+            SiblingGrid grid = grids.get(parentId);
+            if (grid != null && !grid.add(deviceId, move.getValue(), order)) {
+                // the device is further from the equator than the grid was sized for
+                grids.remove(parentId);
+            }
+            getGrid(parentId);
+        }
+        for (FogDevice fogDevice : moved.keySet()) {
+            SiblingGrid grid = grids.get(fogDevice.getParentId());
+            if (grid != null && grid.contains(fogDevice.getId()))
+                affected.addAll(grid.getMembers(fogDevice.getId(), range));
+        }
+
+        Map<Integer, List<Integer>> changed = new LinkedHashMap<>();
+        for (int deviceId : affected) {
+            if (!clusters.containsKey(deviceId))
+                continue;
+            SiblingGrid grid = grids.get(clusteredParents.get(deviceId));
+            List<Integer> members = grid != null && grid.contains(deviceId)
+                    ? grid.getMembers(deviceId, range) : new ArrayList<>();
+            if (!members.equals(clusters.get(deviceId))) {
+                clusters.put(deviceId, members);
+                changed.put(deviceId, members);
+            }
+        }
+        return changed;
+    }
+
+    public List<Integer> getClusterMembers(int deviceId) {
+        List<Integer> members = clusters.get(deviceId);
+        return members != null ? Collections.unmodifiableList(members) : null;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets whether the clusters of large levels are computed in parallel. The clusters do not depend on it.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Gets the grid of the children of a parent, creating it from the current children if needed.
+     */
+    private SiblingGrid getGrid(int parentId) {
+        SiblingGrid grid = grids.get(parentId);
+        if (grid != null)
+            return grid;
+        FogDevice parent = (FogDevice) CloudSim.getEntity(parentId);
+        if (parent == null || parent.getChildrenIds() == null || parent.getChildrenIds().isEmpty())
+            return null;
+
+        List<Integer> siblingIds = new ArrayList<>();
+        List<Location> locations = new ArrayList<>();
+        for (int siblingId : parent.getChildrenIds()) {
+            Location location = getLocation(siblingId);
+            if (location != null) {
+                siblingIds.add(siblingId);
+                locations.add(location);
+            }
+        }
+        grid = new SiblingGrid(siblingIds, locations, range);
+        grids.put(parentId, grid);
+        return grid;
+    }
+
+    /**
+     * Gets the location of a device: the one of the resource, or the current one of the user.
+     */
+    private Location getLocation(int deviceId) {
+        String dataId = locator.instanceToDataId.get(deviceId);
+        if (dataId == null)
+            return null;
+        Location location = locator.dataObject.resourceLocationData.get(dataId);
+        if (location == null && locator.dataObject.usersLocation.containsKey(dataId))
+            location = locator.dataObject.usersLocation.get(dataId).get(CloudSim.clock());
+        return location;
+    }
+
+    /**
+     * Tells whether two locations are within a range. Same haversine distance as
+     * {@link LocationHandler#calculateDistance(Location, Location)}, with the cosines of the latitudes precomputed.
+     *
+     * @param range the range, in meters
+     */
+    static boolean inRange(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2, double range) {
+        double latDistance = Math.toRadians(lat1 - lat2);
+        double lonDistance = Math.toRadians(lon1 - lon2);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + cosLat1 * cosLat2
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        double distance = EARTH_RADIUS * c; // kms
+
+        distance = Math.pow(distance, 2);
+
+        return Math.sqrt(distance) <= range / 1000;
+    }
+
+    /**
+     * Grid of the children of a parent. Rows are {@code cellLatitude} degrees high and columns at least
+     * {@code cellLongitude} degrees wide, wrapping around the antimeridian, so two siblings in range are at most one
+     * row and one column apart.
+     */
+    private static class SiblingGrid implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double cellLatitude;
+
+        private final double cellLongitude;
+
+        private final int columns;
+
+        // the largest absolute latitude the columns are wide enough for
+        private final double maxAbsLatitude;
+
+        private final Map<Long, List<Sibling>> cells = new HashMap<>();
+
+        private final Map<Integer, Sibling> siblings = new HashMap<>();
+
+        // order of the next sibling added, as parents append new children
+        private int nextOrder;
+
+        SiblingGrid(List<Integer> siblingIds, List<Location> locations, double range) {
+            double maxAbsLatitude = 0;
+            for (Location location : locations)
+                maxAbsLatitude = Math.max(maxAbsLatitude, Math.abs(location.latitude));
+            this.maxAbsLatitude = maxAbsLatitude;
+
+            double angle = range / 1000 / EARTH_RADIUS; // radians
+            cellLatitude = Math.max(Math.toDegrees(angle) * CELL_MARGIN, 1e-9);
+            // at a given latitude, the longitude difference of two locations in range is at most this
+            double cosLatitude = Math.cos(Math.toRadians(maxAbsLatitude));
+            double sinHalfLongitude = Math.sin(angle / 2) / cosLatitude;
+            double cellLongitude = sinHalfLongitude >= 1 || cosLatitude <= 0 ? 360
+                    : Math.toDegrees(2 * Math.asin(sinHalfLongitude)) * CELL_MARGIN;
+            columns = (int) Math.max(1, Math.floor(360 / Math.max(cellLongitude, 1e-9)));
+            this.cellLongitude = 360.0 / columns;
+
+            for (int i = 0; i < siblingIds.size(); i++)
+                add(siblingIds.get(i), locations.get(i), -1);
+        }
+
+        boolean contains(int deviceId) {
+            return siblings.containsKey(deviceId);
+        }
+
+        boolean isAt(int deviceId, Location location) {
+            Sibling sibling = siblings.get(deviceId);
+            return sibling != null && sibling.latitude == location.latitude && sibling.longitude == location.longitude;
+        }
+
+        /**
+         * Adds a sibling.
+         *
+         * @param order the place of the sibling among the children of the parent, or -1 for the last one
+         * @return false if the sibling is further from the equator than the grid was sized for
+         */
+        boolean add(int deviceId, Location location, int order) {
+            if (Math.abs(location.latitude) > maxAbsLatitude)
+                return false;
+            if (siblings.containsKey(deviceId)) {
+                // already added when the grid was created from the children
+                int currentOrder = remove(deviceId);
+                if (order < 0)
+                    order = currentOrder;
+            }
+            int row = getRow(location.latitude);
+            int column = getColumn(location.longitude);
+            Sibling sibling = new Sibling(deviceId, location, order >= 0 ? order : nextOrder++, row, column);
+            siblings.put(deviceId, sibling);
+            cells.computeIfAbsent(getCell(row, column), cell -> new ArrayList<>()).add(sibling);
+            return true;
+        }
+
+        /**
+         * Removes a sibling.
+         *
+         * @return the place of the sibling among the children of the parent, or -1 if it was not in the grid
+         */
+        int remove(int deviceId) {
+            Sibling sibling = siblings.remove(deviceId);
+            if (sibling == null)
+                return -1;
+            List<Sibling> cell = cells.get(getCell(sibling.row, sibling.column));
+            cell.remove(sibling);
+            if (cell.isEmpty())
+                cells.remove(getCell(sibling.row, sibling.column));
+            return sibling.order;
+        }
+
+        /**
+         * Gets the siblings of a device within range, in the order of the children of the parent.
+         */
+        List<Integer> getMembers(int deviceId, double range) {
+            Sibling sibling = siblings.get(deviceId);
+            List<Sibling> members = new ArrayList<>();
+            Set<Integer> neighbourColumns = new LinkedHashSet<>();
+            for (int dc = -1; dc <= 1; dc++)
+                neighbourColumns.add(Math.floorMod(sibling.column + dc, columns));
+            for (int row = sibling.row - 1; row <= sibling.row + 1; row++) {
+                for (int column : neighbourColumns) {
+                    List<Sibling> cell = cells.get(getCell(row, column));
+                    if (cell == null)
+                        continue;
+                    for (Sibling other : cell) {
+                        if (other != sibling && inRange(sibling.latitude, sibling.longitude, sibling.cosLatitude,
+                                other.latitude, other.longitude, other.cosLatitude, range))
+                            members.add(other);
+                    }
+                }
+            }
+            members.sort(Comparator.comparingInt(member -> member.order));
+            List<Integer> memberIds = new ArrayList<>(members.size());
+            for (Sibling member : members)
+                memberIds.add(member.id);
+            return memberIds;
+        }
+
+        private int getRow(double latitude) {
+            return (int) Math.floor((latitude + 90) / cellLatitude);
+        }
+
+        private int getColumn(double longitude) {
+            return Math.floorMod((int) Math.floor((longitude + 180) / cellLongitude), columns);
+        }
+
+        private long getCell(int row, int column) {
+            return (long) row * columns + column;
+        }
+
+    }
+
+    private static class Sibling implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final int id;
+
+        final double latitude;
+
+        final double longitude;
+
+        final double cosLatitude;
+
+        final int order;
+
+        final int row;
+
+        final int column;
+
+        Sibling(int id, Location location, int order, int row, int column) {
+            this.id = id;
+            this.latitude = location.latitude;
+            this.longitude = location.longitude;
+            this.cosLatitude = Math.cos(Math.toRadians(location.latitude));
+            this.order = order;
+            this.row = row;
+            this.column = column;
+        }
+
+    }
+
+}
@@ -5,14 +5,20 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
+
+public class DataParser implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
-public class DataParser {
     public Map<String, Location> resourceLocationData = new HashMap<String, Location>();
     public Map<String, Integer> levelID = new HashMap<String, Integer>();
     public Map<Integer, ArrayList<String>> levelwiseResources = new HashMap<Integer, ArrayList<String>>();
@@ -39,9 +45,8 @@ public class DataParser {
         }
     }
 
-    private double nextMobilisationEvent(double eventTime, int mobilityPattern) {
+    private double nextMobilisationEvent(double eventTime, int mobilityPattern, Random ran) {
         // TODO Auto-generated method stub
-        Random ran = new Random();
         int seed;
         double newEventTime = -1;
         switch (mobilityPattern) {
@@ -68,6 +73,7 @@ public class DataParser {
             System.out.println("The Mobility dataset used in this simulation for user: " + userID + " is: " + datasetReference + userID + ".csv");
             String row;
             double eventTime = References.INIT_TIME;
+            Random ran = RandomStreams.newRandom("DataParser.mobilisationEvents", userID);
             while ((row = csvReader.readLine()) != null) {
                 String[] data = row.split(",");
                 try {
@@ -75,7 +81,7 @@ public class DataParser {
                     if (!tempUserLocationInfo.containsKey(eventTime))
                         tempUserLocationInfo.put(eventTime, rl);
                     else {
-                        eventTime = nextMobilisationEvent(eventTime, userMobilityPattern.get(userID));
+                        eventTime = nextMobilisationEvent(eventTime, userMobilityPattern.get(userID), ran);
                         tempUserLocationInfo.put(eventTime, rl);
                     }
 
@@ -6,6 +6,7 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 //import  java.awt.geom.
+import org.cloudbus.cloudsim.util.RandomStreams;
 import org.fog.mobilitydata.Polygon2D;
 
 import java.io.*;
@@ -25,6 +26,8 @@ public class RandomMobilityGenerator {
     double pauseTime;
     boolean directionFlag;
     JSONArray mobilitySpecJSON;
+    // the random stream of the user whose positions are generated
+    private Random random;
 
     public RandomMobilityGenerator() {
         mobilityPositions = new HashMap<>();  // the list of integer contatins the X and Y of one node.
@@ -34,14 +37,13 @@ public class RandomMobilityGenerator {
         mobilitySpecJSON = new JSONArray();
     }
 
-    private static int getRandomNumberInRange(int min, int max) {
+    private int getRandomNumberInRange(int min, int max) {
 
         if (min >= max) {
             throw new IllegalArgumentException("max must be greater than min");
         }
 
-        Random r = new Random();
-        return r.nextInt((max - min) + 1) + min;
+        return random.nextInt((max - min) + 1) + min;
     }
 
     private static boolean positionInRangeCheck(float x, float y) {
@@ -107,7 +109,7 @@ public class RandomMobilityGenerator {
         this.mobilityPositionsAngle.clear();
         this.mobilityPositionsSpeed.clear();
         this.mobilitySpecJSON.clear();
-        Random r = new Random();
+        random = RandomStreams.newRandom("RandomMobilityGenerator", user_index);
 
         boolean file = false;
 
@@ -129,7 +131,7 @@ public class RandomMobilityGenerator {
             this.mobilityPositionsAngle.put(0, angle);
             while (tempIndex < numberOfPositions) {
                 int pause_time_multiplier = 3;
-                this.mobilityPositionsPauseTime.put(tempIndex, r.nextDouble() * pause_time_multiplier);
+                this.mobilityPositionsPauseTime.put(tempIndex, random.nextDouble() * pause_time_multiplier);
                 tempIndex++;
 
             }
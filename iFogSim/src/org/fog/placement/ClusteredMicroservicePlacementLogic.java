@@ -10,14 +10,19 @@ import org.fog.entities.ControllerComponent;
 import org.fog.entities.MicroserviceFogDevice;
 import org.fog.entities.PlacementRequest;
 import org.fog.utils.Logger;
+import org.fog.utils.MicroservicePlacementConfig;
 import org.fog.utils.ModuleLaunchConfig;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by Samodha Pallewatta on 5/27/2021.
  */
 public class ClusteredMicroservicePlacementLogic implements MicroservicePlacementLogic {
+
+    private static final long serialVersionUID = 1L;
+
     /**
      * Fog network related details
      */
@@ -37,6 +42,21 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
     Map<Integer, Map<String, Integer>> mappedMicroservices = new HashMap<>();
     ; //mappedMicroservice
 
+    /** Number of placement requests from which they are placed in parallel, when enabled. */
+    private static final int PARALLEL_PLACEMENT_THRESHOLD = 64;
+
+    /**
+     * The current load maps above cover every device and are kept across runs, so that a run only resets the
+     * devices on which the previous one placed modules, and costs in proportion to the requests it places.
+     * They are rebuilt when the devices considered change.
+     */
+    private List<FogDevice> modelledDevices;
+    private Map<Integer, FogDevice> devicesById = new HashMap<>();
+    private Map<String, FogDevice> devicesByName = new HashMap<>();
+    // position of each device in currentModuleInstanceNum, to output the placements in the same order
+    private Map<Integer, Integer> deviceOrder = new HashMap<>();
+    protected Set<Integer> placedDevices = new HashSet<>();
+
     public ClusteredMicroservicePlacementLogic(int fonID) {
         setFONId(fonID);
     }
@@ -56,25 +76,68 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
         this.resourceAvailability = resourceAvailability;
         this.applicationInfo = applicationInfo;
 
+        if (modelledDevices != fogDevices)
+            initDeviceModel();
+        else
+            resetPlacedDevices();
+        mappedMicroservices.clear();
+
+        mapModules();
+        PlacementLogicOutput placement = generatePlacementMap();
+        updateResources(resourceAvailability);
+        postProcessing();
+        return placement;
+    }
+
+    @Override
+    public void fogDevicesChanged() {
+        modelledDevices = null;
+    }
+
+    private void initDeviceModel() {
+        modelledDevices = fogDevices;
+        devicesById.clear();
+        devicesByName.clear();
         setCurrentCpuLoad(new HashMap<Integer, Double>());
         setCurrentModuleMap(new HashMap<>());
+        currentModuleLoadMap = new HashMap<>();
+        currentModuleInstanceNum = new HashMap<>();
         for (FogDevice dev : fogDevices) {
+            devicesById.putIfAbsent(dev.getId(), dev);
+            devicesByName.putIfAbsent(dev.getName(), dev);
             getCurrentCpuLoad().put(dev.getId(), 0.0);
             getCurrentModuleMap().put(dev.getId(), new ArrayList<>());
             currentModuleLoadMap.put(dev.getId(), new HashMap<String, Double>());
             currentModuleInstanceNum.put(dev.getId(), new HashMap<String, Integer>());
         }
+        deviceOrder.clear();
+        for (int deviceId : currentModuleInstanceNum.keySet())
+            deviceOrder.put(deviceId, deviceOrder.size());
+        placedDevices.clear();
+    }
 
-        mapModules();
-        PlacementLogicOutput placement = generatePlacementMap();
-        updateResources(resourceAvailability);
-        postProcessing();
-        return placement;
+    private void resetPlacedDevices() {
+        for (int deviceId : placedDevices) {
+            getCurrentCpuLoad().put(deviceId, 0.0);
+            getCurrentModuleMap().get(deviceId).clear();
+            currentModuleLoadMap.get(deviceId).clear();
+            currentModuleInstanceNum.get(deviceId).clear();
+        }
+        placedDevices.clear();
+    }
+
+    /**
+     * @return the devices on which the last run placed modules, in the order of currentModuleInstanceNum
+     */
+    private List<Integer> getPlacedDevices() {
+        List<Integer> devices = new ArrayList<>(placedDevices);
+        devices.sort(Comparator.comparing(deviceOrder::get));
+        return devices;
     }
 
     @Override
     public void updateResources(Map<Integer, Map<String, Double>> resourceAvailability) {
-        for (int deviceId : currentModuleInstanceNum.keySet()) {
+        for (int deviceId : placedDevices) {
             Map<String, Integer> moduleCount = currentModuleInstanceNum.get(deviceId);
             for (String moduleName : moduleCount.keySet()) {
                 Application app = applicationInfo.get(moduleToApp.get(moduleName));
@@ -87,7 +150,9 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
 
     private PlacementLogicOutput generatePlacementMap() {
         Map<Integer, Map<String, Integer>> placement = new HashMap<>();
+        Map<Integer, PlacementRequest> requestsById = new HashMap<>();
         for (PlacementRequest placementRequest : placementRequests) {
+            requestsById.put(placementRequest.getPlacementRequestId(), placementRequest);
             List<String> toRemove = new ArrayList<>();
             //placement should include newly placed ones
             for (String microservice : mappedMicroservices.get(placementRequest.getPlacementRequestId()).keySet()) {
@@ -111,11 +176,7 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
         if (placement != null) {
             for (int prID : placement.keySet()) {
                 //retrieve application
-                PlacementRequest placementRequest = null;
-                for (PlacementRequest pr : placementRequests) {
-                    if (pr.getPlacementRequestId() == prID)
-                        placementRequest = pr;
-                }
+                PlacementRequest placementRequest = requestsById.get(prID);
                 Application application = applicationInfo.get(placementRequest.getApplicationId());
                 for (String microserviceName : placement.get(prID).keySet()) {
                     int deviceID = placement.get(prID).get(microserviceName);
@@ -137,7 +198,7 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
             }
 
             //todo module is created new here check if this is needed
-            for (int deviceId : currentModuleInstanceNum.keySet()) {
+            for (int deviceId : getPlacedDevices()) {
                 for (String microservice : currentModuleInstanceNum.get(deviceId).keySet()) {
                     Application application = applicationInfo.get(moduleToApp.get(microservice));
                     AppModule appModule = new AppModule(application.getModuleByName(microservice));
@@ -225,215 +286,281 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
                     int deviceId = device.getId();
 
                     if (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.CPU)) {
-                        Logger.debug("ModulePlacementEdgeward", "Placement of operator " + microservice + " on device " + device.getName() + " successful.");
-                        getCurrentCpuLoad().put(deviceId, getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId));
-                        System.out.println("Placement of operator " + microservice + " on device " + device.getName() + " successful.");
-
-                        moduleToApp.put(microservice, app.getAppId());
-
-                        if (!currentModuleMap.get(deviceId).contains(microservice))
-                            currentModuleMap.get(deviceId).add(microservice);
-
-                        mappedMicroservices.get(placementRequest.getPlacementRequestId()).put(microservice, deviceId);
-
-                        //currentModuleLoad
-                        if (!currentModuleLoadMap.get(deviceId).containsKey(microservice))
-                            currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips());
-                        else
-                            currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips() + currentModuleLoadMap.get(deviceId).get(microservice));
-
-
-                        //currentModuleInstance
-                        if (!currentModuleInstanceNum.get(deviceId).containsKey(microservice))
-                            currentModuleInstanceNum.get(deviceId).put(microservice, 1);
-                        else
-                            currentModuleInstanceNum.get(deviceId).put(microservice, currentModuleInstanceNum.get(deviceId).get(microservice) + 1);
-
+                        placeModule(microservice, app, device, placementRequest, null);
                         break;
                     }
                 }
             }
         }
 
-        Map<PlacementRequest, Integer> clusterNode = new HashMap<>();
-
-        Map<PlacementRequest, List<String>> toPlace = new HashMap<>();
+        List<RequestPlacement> requests = new ArrayList<>();
+        Map<PlacementRequest, RequestPlacement> requestPlacements = new HashMap<>();
+        Set<Integer> requestIds = new HashSet<>();
+        for (PlacementRequest placementRequest : placementRequests) {
+            RequestPlacement request = requestPlacements.get(placementRequest);
+            if (request == null) {
+                request = new RequestPlacement(placementRequest, applicationInfo.get(placementRequest.getApplicationId()),
+                        deviceToPlace.get(placementRequest));
+                requestPlacements.put(placementRequest, request);
+            }
+            requests.add(request);
+            requestIds.add(placementRequest.getPlacementRequestId());
+        }
+        // requests sharing their placed modules are not independent of each other
+        boolean parallel = MicroservicePlacementConfig.PARALLEL_PLACEMENT && requestIds.size() == requests.size()
+                && requests.size() >= PARALLEL_PLACEMENT_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
 
         int placementCompleteCount = 0;
         while (placementCompleteCount < placementRequests.size()) {
-            if (toPlace.isEmpty()) {
-                for (PlacementRequest placementRequest : placementRequests) {
-                    Application app = applicationInfo.get(placementRequest.getApplicationId());
-                    List<String> modulesToPlace = getModulesToPlace(mappedMicroservices.get(placementRequest.getPlacementRequestId()).keySet(), app);
+            if (!hasModulesToPlace(requests)) {
+                for (RequestPlacement request : requests) {
+                    List<String> modulesToPlace = getModulesToPlace(mappedMicroservices.get(request.placementRequest.getPlacementRequestId()).keySet(), request.app);
                     if (modulesToPlace.isEmpty())
                         placementCompleteCount++;
                     else
-                        toPlace.put(placementRequest, modulesToPlace);
+                        request.toPlace = modulesToPlace;
                 }
             }
-            for (PlacementRequest placementRequest : placementRequests) {
-                Application app = applicationInfo.get(placementRequest.getApplicationId());
-                int deviceId = deviceToPlace.get(placementRequest);
-                // if not cluster
-                if (deviceId != -1) {
-                    FogDevice device = getDevice(deviceId);
-                    List<String> placed = new ArrayList<>();
-                    if (toPlace.containsKey(placementRequest)) {
-                        for (String microservice : toPlace.get(placementRequest)) {
-                            // try to place
-                            if (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.CPU)) {
-                                Logger.debug("ModulePlacementEdgeward", "Placement of operator " + microservice + " on device " + device.getName() + " successful.");
-                                getCurrentCpuLoad().put(deviceId, getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId));
-                                System.out.println("Placement of operator " + microservice + " on device " + device.getName() + " successful.");
-
-                                moduleToApp.put(microservice, app.getAppId());
-
-                                if (!currentModuleMap.get(deviceId).contains(microservice))
-                                    currentModuleMap.get(deviceId).add(microservice);
-
-                                mappedMicroservices.get(placementRequest.getPlacementRequestId()).put(microservice, deviceId);
-
-                                //currentModuleLoad
-                                if (!currentModuleLoadMap.get(deviceId).containsKey(microservice))
-                                    currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips());
-                                else
-                                    currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips() + currentModuleLoadMap.get(deviceId).get(microservice));
-
-
-                                //currentModuleInstance
-                                if (!currentModuleInstanceNum.get(deviceId).containsKey(microservice))
-                                    currentModuleInstanceNum.get(deviceId).put(microservice, 1);
-                                else
-                                    currentModuleInstanceNum.get(deviceId).put(microservice, currentModuleInstanceNum.get(deviceId).get(microservice) + 1);
-
-                                placed.add(microservice);
-                            }
-                        }
-                        for (String m : placed) {
-                            toPlace.get(placementRequest).remove(m);
-                        }
-                        if (!toPlace.get(placementRequest).isEmpty()) {
-                            if (((MicroserviceFogDevice) device).getIsInCluster()) {
-                                // -1 indicates it's a cluster placement
-                                deviceToPlace.put(placementRequest, -1);
-                                // a device of the cluster to identify the cluster
-                                clusterNode.put(placementRequest, deviceId);
-                            } else {
-                                deviceToPlace.put(placementRequest, device.getParentId());
-                            }
-                        }
-                        if (toPlace.get(placementRequest).isEmpty())
-                            toPlace.remove(placementRequest);
-                    }
-                } else {
-                    if (toPlace.containsKey(placementRequest)) {
-                        int clusterDeviceId = clusterNode.get(placementRequest);
-                        FogDevice device = getDevice(clusterDeviceId);
-                        List<Integer> clusterDeviceIds = ((MicroserviceFogDevice) device).getClusterMembers();
-                        List<Integer> sortedClusterDevicesActive = new ArrayList<>();
-                        List<Integer> sortedClusterDevicesInactive = new ArrayList<>();
-                        for (Integer id : clusterDeviceIds) {
-                            //sort list from min to max
-                            if (currentModuleMap.get(id).size()>0 && sortedClusterDevicesActive.isEmpty())
-                                sortedClusterDevicesActive.add(id);
-                            else if(currentModuleMap.get(id).size()==0 && sortedClusterDevicesInactive.isEmpty())
-                                sortedClusterDevicesInactive.add(id);
-                            else if(currentModuleMap.get(id).size()>0){
-                                boolean isPlaced = false;
-                                for (int i = 0; i < sortedClusterDevicesActive.size(); i++) {
-                                    double sorted = resourceAvailability.get(sortedClusterDevicesActive.get(i)).get("cpu") -
-                                            getCurrentCpuLoad().get(sortedClusterDevicesActive.get(i));
-                                    double current = resourceAvailability.get(id).get("cpu") -
-                                            getCurrentCpuLoad().get(id);
-                                    if (sorted < current) {sortedClusterDevicesActive.add(i, id);
-                                        isPlaced = true;
-                                        break;
-                                    } else {
-                                        continue;
-                                    }
-                                }
-                                if (!isPlaced)
-                                    sortedClusterDevicesActive.add(id);
-                            }
-                            else{
-                                boolean isPlaced = false;
-                                for (int i = 0; i < sortedClusterDevicesInactive.size(); i++) {
-                                    double sorted = resourceAvailability.get(sortedClusterDevicesInactive.get(i)).get("cpu") -
-                                            getCurrentCpuLoad().get(sortedClusterDevicesInactive.get(i));
-                                    double current = resourceAvailability.get(id).get("cpu") -
-                                            getCurrentCpuLoad().get(id);
-                                    if (sorted < current) {sortedClusterDevicesInactive.add(i, id);
-                                        isPlaced = true;
-                                        break;
-                                    } else {
-                                        continue;
-                                    }
-                                }
-                                if (!isPlaced)
-                                    sortedClusterDevicesInactive.add(id);
-                            }
-                        }
+            if (parallel)
+                placeNextInParallel(requests);
+            else {
+                for (RequestPlacement request : requests)
+                    placeNext(request, null);
+            }
+        }
 
-                        List<Integer> sortedClusterDevices = new ArrayList<>(sortedClusterDevicesActive);
-                        sortedClusterDevices.addAll(sortedClusterDevicesInactive);
-                        List<String> placed = new ArrayList<>();
-                        for (String microservice : toPlace.get(placementRequest)) {
-                            for (int id : sortedClusterDevices) {
-                                // try to place
-                                if (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(id) <= resourceAvailability.get(id).get(ControllerComponent.CPU)) {
-                                    FogDevice placedDevice = getDevice(id);
-                                    Logger.debug("ModulePlacementEdgeward", "Placement of operator " + microservice + " on device " + placedDevice.getName() + " successful.");
-                                    getCurrentCpuLoad().put(id, getModule(microservice, app).getMips() + getCurrentCpuLoad().get(id));
-                                    System.out.println("Placement of operator " + microservice + " on device " + placedDevice.getName() + " successful.");
-
-                                    if (!currentModuleMap.get(id).contains(microservice))
-                                        currentModuleMap.get(id).add(microservice);
-
-                                    mappedMicroservices.get(placementRequest.getPlacementRequestId()).put(microservice, id);
-
-                                    moduleToApp.put(microservice, app.getAppId());
-
-                                    //currentModuleLoad
-                                    if (!currentModuleLoadMap.get(id).containsKey(microservice))
-                                        currentModuleLoadMap.get(id).put(microservice, getModule(microservice, app).getMips());
-                                    else
-                                        currentModuleLoadMap.get(id).put(microservice, getModule(microservice, app).getMips() + currentModuleLoadMap.get(id).get(microservice));
-
-
-                                    //currentModuleInstance
-                                    if (!currentModuleInstanceNum.get(id).containsKey(microservice))
-                                        currentModuleInstanceNum.get(id).put(microservice, 1);
-                                    else
-                                        currentModuleInstanceNum.get(id).put(microservice, currentModuleInstanceNum.get(id).get(microservice) + 1);
-
-                                    placed.add(microservice);
-                                    break;
-                                }
-                            }
-                        }
+    }
 
-                        for (String m : placed) {
-                            toPlace.get(placementRequest).remove(m);
+    private boolean hasModulesToPlace(List<RequestPlacement> requests) {
+        for (RequestPlacement request : requests) {
+            if (request.toPlace != null)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tries to place the modules a request can place next on the device, or the cluster, it has reached, and moves
+     * it up to the parent device if some of them do not fit.
+     *
+     * @param effects receives the updates of the state shared by all the requests, in order, null to apply them
+     *                right away
+     */
+    private void placeNext(RequestPlacement request, List<Runnable> effects) {
+        if (request.toPlace == null)
+            return;
+        PlacementRequest placementRequest = request.placementRequest;
+        Application app = request.app;
+        int deviceId = request.deviceToPlace;
+        // if not cluster
+        if (deviceId != -1) {
+            FogDevice device = getDevice(deviceId);
+            List<String> placed = new ArrayList<>();
+            for (String microservice : request.toPlace) {
+                // try to place
+                if (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.CPU)) {
+                    placeModule(microservice, app, device, placementRequest, effects);
+                    placed.add(microservice);
+                }
+            }
+            for (String m : placed) {
+                request.toPlace.remove(m);
+            }
+            if (!request.toPlace.isEmpty()) {
+                if (((MicroserviceFogDevice) device).getIsInCluster()) {
+                    // -1 indicates it's a cluster placement
+                    request.deviceToPlace = -1;
+                    // a device of the cluster to identify the cluster
+                    request.clusterNode = deviceId;
+                } else {
+                    request.deviceToPlace = device.getParentId();
+                }
+            }
+        } else {
+            int clusterDeviceId = request.clusterNode;
+            FogDevice device = getDevice(clusterDeviceId);
+            List<Integer> clusterDeviceIds = ((MicroserviceFogDevice) device).getClusterMembers();
+            List<Integer> sortedClusterDevicesActive = new ArrayList<>();
+            List<Integer> sortedClusterDevicesInactive = new ArrayList<>();
+            for (Integer id : clusterDeviceIds) {
+                //sort list from min to max
+                if (currentModuleMap.get(id).size()>0 && sortedClusterDevicesActive.isEmpty())
+                    sortedClusterDevicesActive.add(id);
+                else if(currentModuleMap.get(id).size()==0 && sortedClusterDevicesInactive.isEmpty())
+                    sortedClusterDevicesInactive.add(id);
+                else if(currentModuleMap.get(id).size()>0){
+                    boolean isPlaced = false;
+                    for (int i = 0; i < sortedClusterDevicesActive.size(); i++) {
+                        double sorted = resourceAvailability.get(sortedClusterDevicesActive.get(i)).get("cpu") -
+                                getCurrentCpuLoad().get(sortedClusterDevicesActive.get(i));
+                        double current = resourceAvailability.get(id).get("cpu") -
+                                getCurrentCpuLoad().get(id);
+                        if (sorted < current) {sortedClusterDevicesActive.add(i, id);
+                            isPlaced = true;
+                            break;
+                        } else {
+                            continue;
                         }
-                        if (!toPlace.get(placementRequest).isEmpty()) {
-                            //check
-                            deviceToPlace.put(placementRequest, device.getParentId());
+                    }
+                    if (!isPlaced)
+                        sortedClusterDevicesActive.add(id);
+                }
+                else{
+                    boolean isPlaced = false;
+                    for (int i = 0; i < sortedClusterDevicesInactive.size(); i++) {
+                        double sorted = resourceAvailability.get(sortedClusterDevicesInactive.get(i)).get("cpu") -
+                                getCurrentCpuLoad().get(sortedClusterDevicesInactive.get(i));
+                        double current = resourceAvailability.get(id).get("cpu") -
+                                getCurrentCpuLoad().get(id);
+                        if (sorted < current) {sortedClusterDevicesInactive.add(i, id);
+                            isPlaced = true;
+                            break;
+                        } else {
+                            continue;
                         }
-                        if (toPlace.get(placementRequest).isEmpty())
-                            toPlace.remove(placementRequest);
+                    }
+                    if (!isPlaced)
+                        sortedClusterDevicesInactive.add(id);
+                }
+            }
+
+            List<Integer> sortedClusterDevices = new ArrayList<>(sortedClusterDevicesActive);
+            sortedClusterDevices.addAll(sortedClusterDevicesInactive);
+            List<String> placed = new ArrayList<>();
+            for (String microservice : request.toPlace) {
+                for (int id : sortedClusterDevices) {
+                    // try to place
+                    if (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(id) <= resourceAvailability.get(id).get(ControllerComponent.CPU)) {
+                        placeModule(microservice, app, getDevice(id), placementRequest, effects);
+                        placed.add(microservice);
+                        break;
                     }
                 }
             }
+
+            for (String m : placed) {
+                request.toPlace.remove(m);
+            }
+            if (!request.toPlace.isEmpty()) {
+                //check
+                request.deviceToPlace = device.getParentId();
+            }
+        }
+        if (request.toPlace.isEmpty())
+            request.toPlace = null;
+    }
+
+    /**
+     * Runs a step of {@link #placeNext} for every request, solving concurrently the partitions of requests placed on
+     * disjoint devices and clusters, e.g. in different clusters or FON subtrees. The requests that reached a device
+     * shared with others, e.g. the cloud, are in the same partition, whose steps run in the order of the requests.
+     * The updates of the state shared by all the requests are then applied in the order of the requests, so the
+     * outcome, and the output, are the same as running the steps one after the other.
+     */
+    private void placeNextInParallel(List<RequestPlacement> requests) {
+        List<List<RequestPlacement>> partitions = partition(requests);
+        if (partitions.size() < 2) {
+            for (RequestPlacement request : requests)
+                placeNext(request, null);
+            return;
+        }
+        // the steps of a partition only replace the values of the device maps for its own devices
+        partitions.parallelStream().forEach(partition -> {
+            for (RequestPlacement request : partition)
+                placeNext(request, request.effects);
+        });
+        for (RequestPlacement request : requests) {
+            for (Runnable effect : request.effects)
+                effect.run();
+            request.effects.clear();
+        }
+    }
+
+    /**
+     * @return the requests left to place, grouped so that the requests of different groups are placed on different
+     * devices, each group in the order of the requests
+     */
+    private List<List<RequestPlacement>> partition(List<RequestPlacement> requests) {
+        // union-find forest of the devices tried by the same requests
+        Map<Integer, Integer> parents = new HashMap<>();
+        for (RequestPlacement request : requests) {
+            if (request.toPlace == null)
+                continue;
+            List<Integer> devices = getDevicesTried(request);
+            int root = findPartition(parents, devices.get(0));
+            for (int i = 1; i < devices.size(); i++) {
+                int other = findPartition(parents, devices.get(i));
+                if (other != root)
+                    parents.put(other, root);
+            }
+        }
+        Map<Integer, List<RequestPlacement>> partitions = new LinkedHashMap<>();
+        for (RequestPlacement request : requests) {
+            if (request.toPlace == null)
+                continue;
+            int root = findPartition(parents, getDevicesTried(request).get(0));
+            partitions.computeIfAbsent(root, r -> new ArrayList<>()).add(request);
         }
+        return new ArrayList<>(partitions.values());
+    }
 
+    private List<Integer> getDevicesTried(RequestPlacement request) {
+        if (request.deviceToPlace != -1)
+            return Collections.singletonList(request.deviceToPlace);
+        List<Integer> devices = new ArrayList<>();
+        devices.add(request.clusterNode);
+        devices.addAll(((MicroserviceFogDevice) getDevice(request.clusterNode)).getClusterMembers());
+        return devices;
     }
 
-    private FogDevice getDeviceByName(String deviceName) {
-        for (FogDevice f : fogDevices) {
-            if (f.getName().equals(deviceName))
-                return f;
+    private static int findPartition(Map<Integer, Integer> parents, int deviceId) {
+        int root = deviceId;
+        Integer parent;
+        while ((parent = parents.get(root)) != null)
+            root = parent;
+        // path compression
+        while ((parent = parents.get(deviceId)) != null && parent != root) {
+            parents.put(deviceId, root);
+            deviceId = parent;
         }
-        return null;
+        return root;
+    }
+
+    private void placeModule(String microservice, Application app, FogDevice device, PlacementRequest placementRequest, List<Runnable> effects) {
+        int deviceId = device.getId();
+        Runnable effect = () -> {
+            Logger.debug("ModulePlacementEdgeward", "Placement of operator " + microservice + " on device " + device.getName() + " successful.");
+            System.out.println("Placement of operator " + microservice + " on device " + device.getName() + " successful.");
+            moduleToApp.put(microservice, app.getAppId());
+            placedDevices.add(deviceId);
+        };
+        if (effects == null)
+            effect.run();
+        else
+            effects.add(effect);
+
+        getCurrentCpuLoad().put(deviceId, getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId));
+
+        if (!currentModuleMap.get(deviceId).contains(microservice))
+            currentModuleMap.get(deviceId).add(microservice);
+
+        mappedMicroservices.get(placementRequest.getPlacementRequestId()).put(microservice, deviceId);
+
+        //currentModuleLoad
+        if (!currentModuleLoadMap.get(deviceId).containsKey(microservice))
+            currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips());
+        else
+            currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips() + currentModuleLoadMap.get(deviceId).get(microservice));
+
+        //currentModuleInstance
+        if (!currentModuleInstanceNum.get(deviceId).containsKey(microservice))
+            currentModuleInstanceNum.get(deviceId).put(microservice, 1);
+        else
+            currentModuleInstanceNum.get(deviceId).put(microservice, currentModuleInstanceNum.get(deviceId).get(microservice) + 1);
+    }
+
+    private FogDevice getDeviceByName(String deviceName) {
+        return devicesByName.get(deviceName);
     }
 
     public Map<Integer, Double> getCurrentCpuLoad() {
@@ -449,11 +576,7 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
     }
 
     private FogDevice getDevice(int deviceId) {
-        for (FogDevice fogDevice : fogDevices) {
-            if (fogDevice.getId() == deviceId)
-                return fogDevice;
-        }
-        return null;
+        return devicesById.get(deviceId);
     }
 
     private List<String> getModulesToPlace(Set<String> placedModules, Application app) {
@@ -484,5 +607,23 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
         return modulesToPlace;
     }
 
-
+    /**
+     * Placement of a request in progress, by mapModules.
+     */
+    private static class RequestPlacement {
+        final PlacementRequest placementRequest;
+        final Application app;
+        // device on which the next modules are tried, -1 for the cluster of clusterNode
+        int deviceToPlace;
+        Integer clusterNode;
+        // modules to place next, null if there are none
+        List<String> toPlace;
+        final List<Runnable> effects = new ArrayList<>();
+
+        RequestPlacement(PlacementRequest placementRequest, Application app, int deviceToPlace) {
+            this.placementRequest = placementRequest;
+            this.app = app;
+            this.deviceToPlace = deviceToPlace;
+        }
+    }
 }
@@ -9,9 +9,12 @@ import org.fog.application.Application;
 import org.fog.entities.Actuator;
 import org.fog.entities.FogDevice;
 import org.fog.entities.Sensor;
+import org.fog.mobilitydata.Clustering;
+import org.fog.mobilitydata.ClusteringEngine;
 import org.fog.mobilitydata.References;
 import org.fog.utils.*;
-import org.json.simple.JSONObject;
+import org.fog.utils.events.ClusteringRequest;
+import org.fog.utils.events.ModuleMigration;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -19,6 +22,8 @@ import java.util.stream.Collectors;
 
 public class ClusteringController extends SimEntity {
 
+    private static final long serialVersionUID = 1L;
+
     public static boolean ONLY_CLOUD = false;
 
     private List<FogDevice> fogDevices;
@@ -26,6 +31,7 @@ public class ClusteringController extends SimEntity {
     private List<Actuator> actuators;
     private LocationHandler locator;
     private Map<Integer, Integer> parentReference;
+    private ClusteringEngine clusteringEngine;
 
 
     private Map<String, Application> applications;
@@ -164,7 +170,7 @@ public class ClusteringController extends SimEntity {
                 printCostDetails();
                 printNetworkUsageDetails();
                 printMigrationDelayDetails();
-                System.exit(0);
+                FogSimulation.end(getFogDevices(), getApplications());
                 break;
 
         }
@@ -172,18 +178,44 @@ public class ClusteringController extends SimEntity {
 
     public void clusteringSubmit(List Levels) {
         System.out.println(CloudSim.clock() + " Start sending Clustering Request to Fog Devices in level: " + Levels);
+        if (clusteringEngine == null)
+            clusteringEngine = new ClusteringEngine(getLocator());
+        List<List<FogDevice>> levelDevices = new ArrayList<>();
+        Map<Integer, List<Integer>> clusters = new HashMap<>();
         for (int i = 0; i < Levels.size(); i++) {
             int clusterLevel = (int) Levels.get(i);
+            List<FogDevice> devices = new ArrayList<>();
             for (FogDevice fogDevice : fogDevices) {
                 System.out.println(CloudSim.clock() + " fog Device: " + fogDevice.getName() + " with id: " + fogDevice.getId() + " is at level: " + fogDevice.getLevel());
                 if ((int) fogDevice.getLevel() == clusterLevel) {
-                    JSONObject jsonMessage = new JSONObject();
-                    jsonMessage.put("locationsInfo", getLocator());
-                    sendNow(fogDevice.getId(), FogEvents.START_DYNAMIC_CLUSTERING, jsonMessage);
+                    devices.add(fogDevice);
                 }
             }
+            // all the clusters of the level in one pass, the devices then only apply theirs
+            clusters.putAll(clusteringEngine.clusterLevel(devices));
+            levelDevices.add(devices);
+        }
+        ClusteringRequest clusteringRequest = new ClusteringRequest(getLocator(), clusters);
+        for (List<FogDevice> devices : levelDevices) {
+            for (FogDevice fogDevice : devices) {
+                sendNow(fogDevice.getId(), FogEvents.START_DYNAMIC_CLUSTERING, clusteringRequest);
+            }
         }
+    }
 
+    /**
+     * Updates the clusters changed by the move of a device of a clustered level, without clustering the whole level
+     * again.
+     */
+    private void reclusterMovedDevice(FogDevice fogDevice) {
+        if (clusteringEngine == null || !clustering_levels.contains(fogDevice.getLevel()))
+            return;
+        Map<Integer, List<Integer>> changedClusters = clusteringEngine.recluster(Collections.singletonList(fogDevice));
+        for (Map.Entry<Integer, List<Integer>> cluster : changedClusters.entrySet()) {
+            FogDevice clusteredDevice = getFogDeviceById(cluster.getKey());
+            Clustering.applyClusterMembers(clusteredDevice, cluster.getValue());
+            System.out.println(CloudSim.clock() + " Cluster of " + clusteredDevice.getName() + " updated to " + cluster.getValue());
+        }
     }
 
 
@@ -243,17 +275,12 @@ public class ClusteringController extends SimEntity {
                             downDelay = 0;
                         }
                     }
-                    JSONObject jsonSend = new JSONObject();
-                    jsonSend.put("module", getApplications().get(applicationName).getModuleByName(moduleName));
-                    jsonSend.put("delay", upDelay);
-
-                    JSONObject jsonReceive = new JSONObject();
-                    jsonReceive.put("module", getApplications().get(applicationName).getModuleByName(moduleName));
-                    jsonReceive.put("delay", downDelay);
-                    jsonReceive.put("application", getApplications().get(applicationName));
+                    ModuleMigration migrationSend = new ModuleMigration(getApplications().get(applicationName).getModuleByName(moduleName), upDelay);
+                    ModuleMigration migrationReceive = new ModuleMigration(getApplications().get(applicationName).getModuleByName(moduleName),
+                            getApplications().get(applicationName), downDelay);
 
-                    send(prevParent.getId(), upDelay, FogEvents.MODULE_SEND, jsonSend);
-                    send(newParent.getId(), downDelay, FogEvents.MODULE_RECEIVE, jsonReceive);
+                    send(prevParent.getId(), upDelay, FogEvents.MODULE_SEND, migrationSend);
+                    send(newParent.getId(), downDelay, FogEvents.MODULE_RECEIVE, migrationReceive);
                     System.out.println("Migrating " + moduleName + " from " + prevParent.getName() + " to " + newParent.getName());
                 }
             }
@@ -263,7 +290,8 @@ public class ClusteringController extends SimEntity {
             //printFogDeviceChildren(prevParent.getId());
         }
 
-
+        if (Config.ENABLE_DYNAMIC_CLUSTERING)
+            reclusterMovedDevice(fogDevice);
     }
 
     private double getDownDelay(int deviceID, int commonAncestorID, AppModule module) {
@@ -317,7 +345,7 @@ public class ClusteringController extends SimEntity {
     }
 
     private void printNetworkUsageDetails() {
-        System.out.println("Total network usage = " + NetworkUsageMonitor.getNetworkUsage() / Config.MAX_SIMULATION_TIME);
+        System.out.println("Total network usage = " + NetworkUsageMonitor.getNetworkUsage() / CloudSim.clock());
     }
 
     private FogDevice getCloud() {
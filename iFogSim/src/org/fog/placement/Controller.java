@@ -17,11 +17,14 @@ import org.fog.entities.FogDevice;
 import org.fog.entities.Sensor;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogSimulation;
 import org.fog.utils.FogUtils;
 import org.fog.utils.NetworkUsageMonitor;
 import org.fog.utils.TimeKeeper;
 
 public class Controller extends SimEntity{
+
+	private static final long serialVersionUID = 1L;
 	
 	public static boolean ONLY_CLOUD = false;
 		
@@ -103,14 +106,14 @@ public class Controller extends SimEntity{
 			printPowerDetails();
 			printCostDetails();
 			printNetworkUsageDetails();
-			System.exit(0);
+			FogSimulation.end(getFogDevices(), getApplications());
 			break;
 			
 		}
 	}
 	
 	private void printNetworkUsageDetails() {
-		System.out.println("Total network usage = "+NetworkUsageMonitor.getNetworkUsage()/Config.MAX_SIMULATION_TIME);		
+		System.out.println("Total network usage = "+NetworkUsageMonitor.getNetworkUsage() / CloudSim.clock());		
 	}
 
 	private FogDevice getCloud(){
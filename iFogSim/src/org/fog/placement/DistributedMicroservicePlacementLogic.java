@@ -19,6 +19,9 @@ import java.util.*;
  * Per Placement Request Placement
  */
 public class DistributedMicroservicePlacementLogic implements MicroservicePlacementLogic {
+
+    private static final long serialVersionUID = 1L;
+
     /**
      * Fog network related details
      */
@@ -30,6 +33,7 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
 
     int fonID;
 
+    // load placed by the current run, the previous ones being already deducted from resourceAvailability
     protected Double currentCpuLoad = 0.0;
     protected List<String> currentModuleMap = new ArrayList<>();
     protected Map<String, Double> currentModuleLoadMap = new HashMap<>();
@@ -58,6 +62,12 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
         this.resourceAvailability = resourceAvailability;
         this.applicationInfo = applicationInfo;
 
+        currentCpuLoad = 0.0;
+        currentModuleMap.clear();
+        currentModuleLoadMap.clear();
+        currentModuleInstanceNum.clear();
+        prStatus = new HashMap<>();
+
         mapModules();
         PlacementLogicOutput placement = generatePlacementMap();
         updateResources(resourceAvailability);
@@ -83,7 +93,9 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
 
     private PlacementLogicOutput generatePlacementMap() {
         Map<Integer, Map<String, Integer>> placement = new HashMap<>();
+        Map<Integer, PlacementRequest> requestsById = new HashMap<>();
         for (PlacementRequest placementRequest : placementRequests) {
+            requestsById.put(placementRequest.getPlacementRequestId(), placementRequest);
             placement.put(placementRequest.getPlacementRequestId(), placementRequest.getPlacedMicroservices());
         }
 
@@ -92,11 +104,7 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
         if (placement != null) {
             for (int prID : placement.keySet()) {
                 //retrieve application
-                PlacementRequest placementRequest = null;
-                for (PlacementRequest pr : placementRequests) {
-                    if (pr.getPlacementRequestId() == prID)
-                        placementRequest = pr;
-                }
+                PlacementRequest placementRequest = requestsById.get(prID);
                 Application application = applicationInfo.get(placementRequest.getApplicationId());
                 for (String microserviceName : placement.get(prID).keySet()) {
                     int deviceID = placement.get(prID).get(microserviceName);
@@ -0,0 +1,483 @@
+package org.fog.placement;
+
+import org.apache.commons.math3.util.Pair;
+import org.fog.application.AppEdge;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.application.DAG;
+import org.fog.entities.ControllerComponent;
+import org.fog.entities.FogDevice;
+import org.fog.entities.PlacementRequest;
+import org.fog.entities.Tuple;
+import org.fog.utils.Logger;
+import org.fog.utils.ModuleLaunchConfig;
+
+import java.util.*;
+
+/**
+ * Places the microservices of a request in the order of the critical path of the application, each on the device
+ * minimising the cost of its placement:
+ * <pre>
+ * latencyWeight * latency + bandwidthWeight * transfer time + cpuWeight * CPU used + ramWeight * RAM used
+ * </pre>
+ * The latency and transfer time are the ones of the tuples exchanged with the microservices already placed, along
+ * the route the devices send them, and the CPU and RAM used are the fractions of the resources available on the
+ * device the microservices placed on it take. A microservice with a longer path to the end of the application, in
+ * execution and transfer time of the tuples, is placed first, so the microservices of the critical path are placed
+ * close to each other before the others take their devices.
+ * <p>
+ * The candidate devices of a request are the ancestors of its gateway device, from the gateway's parent up to the
+ * cloud, with the members of their clusters, so placing a request costs the same in topologies of any size. The
+ * load of each device is kept in arrays indexed by the position of the device, across runs, and only the devices
+ * used by the previous run are reset.
+ */
+public class LatencyAwareMicroservicePlacementLogic implements MicroservicePlacementLogic {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Fog network related details
+     */
+    List<FogDevice> fogDevices; //fog devices considered by FON for placements of requests
+    List<PlacementRequest> placementRequests; // requests to be processed
+    protected Map<Integer, Map<String, Double>> resourceAvailability;
+    private Map<String, Application> applicationInfo = new HashMap<>();
+
+    int fonID;
+
+    private double latencyWeight = 1.0;
+    private double bandwidthWeight = 1.0;
+    private double cpuWeight = 1.0;
+    private double ramWeight = 1.0;
+
+    // modules of each application, by decreasing length of their critical path, for the devices modelled
+    private Map<String, List<String>> placementOrders = new HashMap<>();
+    // mean bandwidth of the links of the devices modelled, at which the placement orders count the transfer times
+    private double meanLinkBandwidth;
+
+    /**
+     * Load placed on each device by the current run, indexed by the position of the device in the devices modelled.
+     * They are rebuilt when the devices considered change.
+     */
+    private List<FogDevice> modelledDevices;
+    private Map<Integer, Integer> deviceIndex = new HashMap<>();
+    private Map<String, FogDevice> devicesByName = new HashMap<>();
+    private double[] cpuLoad = new double[0];
+    private double[] ramLoad = new double[0];
+    private List<Map<String, Integer>> moduleInstanceNum = new ArrayList<>();
+    // positions of the devices on which the current run placed modules
+    protected Set<Integer> placedDevices = new TreeSet<>();
+
+    public LatencyAwareMicroservicePlacementLogic(int fonID) {
+        setFONId(fonID);
+    }
+
+    public void setFONId(int id) {
+        fonID = id;
+    }
+
+    public int getFonID() {
+        return fonID;
+    }
+
+    /**
+     * Sets the weights of the terms of the cost of a placement. The latency and transfer time are in the units of the
+     * link latencies, ms in the examples, and the CPU and RAM used are fractions.
+     */
+    public void setCostWeights(double latencyWeight, double bandwidthWeight, double cpuWeight, double ramWeight) {
+        this.latencyWeight = latencyWeight;
+        this.bandwidthWeight = bandwidthWeight;
+        this.cpuWeight = cpuWeight;
+        this.ramWeight = ramWeight;
+    }
+
+    @Override
+    public PlacementLogicOutput run(List<FogDevice> fogDevices, Map<String, Application> applicationInfo, Map<Integer, Map<String, Double>> resourceAvailability, List<PlacementRequest> pr) {
+        this.fogDevices = fogDevices;
+        this.placementRequests = pr;
+        this.resourceAvailability = resourceAvailability;
+        this.applicationInfo = applicationInfo;
+
+        if (modelledDevices != fogDevices)
+            initDeviceModel();
+        else
+            resetPlacedDevices();
+
+        Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
+        Map<Integer, Map<String, Integer>> placement = new LinkedHashMap<>();
+        for (PlacementRequest placementRequest : placementRequests) {
+            Map<String, Integer> mapped = new LinkedHashMap<>();
+            boolean allPlaced = mapModules(placementRequest, mapped);
+            placementRequest.getPlacedMicroservices().putAll(mapped);
+            placement.put(placementRequest.getPlacementRequestId(), mapped);
+            prStatus.put(placementRequest, allPlaced ? -1 : getForwardDevice(placementRequest));
+        }
+
+        PlacementLogicOutput output = generatePlacementMap(placement, prStatus);
+        updateResources(resourceAvailability);
+        postProcessing();
+        return output;
+    }
+
+    @Override
+    public void fogDevicesChanged() {
+        modelledDevices = null;
+    }
+
+    private void initDeviceModel() {
+        modelledDevices = fogDevices;
+        deviceIndex.clear();
+        devicesByName.clear();
+        for (int i = 0; i < fogDevices.size(); i++) {
+            FogDevice dev = fogDevices.get(i);
+            deviceIndex.putIfAbsent(dev.getId(), i);
+            devicesByName.putIfAbsent(dev.getName(), dev);
+        }
+        cpuLoad = new double[fogDevices.size()];
+        ramLoad = new double[fogDevices.size()];
+        moduleInstanceNum = new ArrayList<>(fogDevices.size());
+        for (int i = 0; i < fogDevices.size(); i++)
+            moduleInstanceNum.add(new LinkedHashMap<String, Integer>());
+        placedDevices.clear();
+
+        double bandwidthSum = 0;
+        int links = 0;
+        for (FogDevice dev : fogDevices) {
+            if (dev.getParentId() >= 0 && dev.getUplinkBandwidth() > 0) {
+                bandwidthSum += dev.getUplinkBandwidth();
+                links++;
+            }
+        }
+        meanLinkBandwidth = links > 0 ? bandwidthSum / links : 0;
+        placementOrders.clear();
+    }
+
+    private void resetPlacedDevices() {
+        for (int index : placedDevices) {
+            cpuLoad[index] = 0;
+            ramLoad[index] = 0;
+            moduleInstanceNum.get(index).clear();
+        }
+        placedDevices.clear();
+    }
+
+    @Override
+    public void updateResources(Map<Integer, Map<String, Double>> resourceAvailability) {
+        for (int index : placedDevices) {
+            Map<String, Double> resources = resourceAvailability.get(fogDevices.get(index).getId());
+            resources.put(ControllerComponent.CPU, resources.get(ControllerComponent.CPU) - cpuLoad[index]);
+            if (resources.containsKey(ControllerComponent.RAM))
+                resources.put(ControllerComponent.RAM, resources.get(ControllerComponent.RAM) - ramLoad[index]);
+        }
+    }
+
+    @Override
+    public void postProcessing() {
+
+    }
+
+    /**
+     * Places the modules of a request left to place, in the placement order of its application.
+     *
+     * @param mapped receives the devices of the modules placed
+     * @return whether all the modules of the request are placed
+     */
+    private boolean mapModules(PlacementRequest placementRequest, Map<String, Integer> mapped) {
+        Application app = applicationInfo.get(placementRequest.getApplicationId());
+        Map<String, Integer> placed = new HashMap<>(placementRequest.getPlacedMicroservices());
+        List<Integer> candidates = getCandidateDevices(placementRequest.getGatewayDeviceId());
+
+        boolean allPlaced = true;
+        for (String microservice : getPlacementOrder(app)) {
+            if (placed.containsKey(microservice))
+                continue;
+            AppModule module = app.getModuleByName(microservice);
+            List<String> specialPlacement = app.getSpecialPlacementInfo().get(microservice);
+            int index = selectDevice(module, app, specialPlacement != null ? getDevicesByName(specialPlacement) : candidates, placed);
+            if (index == -1) {
+                allPlaced = false;
+                continue;
+            }
+            placeModule(module, app, index);
+            placed.put(microservice, fogDevices.get(index).getId());
+            mapped.put(microservice, fogDevices.get(index).getId());
+        }
+        return allPlaced;
+    }
+
+    /**
+     * @return position of the device of least cost the module fits on, -1 if it fits on none of the candidates
+     */
+    private int selectDevice(AppModule module, Application app, List<Integer> candidates, Map<String, Integer> placed) {
+        List<EdgeRoute> routes = new ArrayList<>();
+        for (AppEdge edge : app.getEdges()) {
+            if (edge.getSource().equals(module.getName()) && placed.containsKey(edge.getDestination()))
+                routes.add(new EdgeRoute(placed.get(edge.getDestination()), true, edge.getTupleNwLength()));
+            else if (edge.getDestination().equals(module.getName()) && placed.containsKey(edge.getSource()))
+                routes.add(new EdgeRoute(placed.get(edge.getSource()), false, edge.getTupleNwLength()));
+        }
+
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        double[] delay = new double[2];
+        for (int index : candidates) {
+            int deviceId = fogDevices.get(index).getId();
+            Map<String, Double> resources = resourceAvailability.get(deviceId);
+            double cpu = resources.get(ControllerComponent.CPU);
+            Double ram = resources.get(ControllerComponent.RAM);
+            if (cpuLoad[index] + module.getMips() > cpu || ram != null && ramLoad[index] + module.getRam() > ram)
+                continue;
+
+            delay[0] = 0;
+            delay[1] = 0;
+            for (EdgeRoute route : routes)
+                route.addTransferDelay(deviceId, delay);
+            double cost = latencyWeight * delay[0] + bandwidthWeight * delay[1]
+                    + cpuWeight * (cpuLoad[index] + module.getMips()) / cpu;
+            if (ram != null && ram > 0)
+                cost += ramWeight * (ramLoad[index] + module.getRam()) / ram;
+            if (best == -1 || cost < bestCost) {
+                best = index;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Route of the tuples of an edge between the device of a module already placed and the candidate devices of the
+     * module being placed: through the cluster link if they are in the same cluster, up and down the hierarchy
+     * otherwise. The ancestors of the placed device, with the latency and transfer time of a tuple between each of them
+     * and the placed device, are found once for all the candidates.
+     */
+    private class EdgeRoute {
+
+        private final int placedId;
+        private final FogDevice placed;
+        // whether the tuples go from the candidates to the placed device
+        private final boolean toPlaced;
+        private final double nwLength;
+        private final Map<Integer, double[]> placedAncestors = new HashMap<>();
+
+        EdgeRoute(int placedId, boolean toPlaced, double nwLength) {
+            this.placedId = placedId;
+            this.placed = getDevice(placedId);
+            this.toPlaced = toPlaced;
+            this.nwLength = nwLength;
+            if (placed == null)
+                return;
+            // latency and transfer time between the placed device and each of its ancestors
+            double latency = 0;
+            double transfer = 0;
+            FogDevice device = placed;
+            placedAncestors.put(placedId, new double[]{0, 0});
+            while (device.getParentId() >= 0) {
+                FogDevice parent = getDevice(device.getParentId());
+                if (parent == null)
+                    break;
+                latency += device.getUplinkLatency();
+                transfer += nwLength / (toPlaced ? parent.getDownlinkBandwidth(device.getId()) : device.getUplinkBandwidth());
+                placedAncestors.put(parent.getId(), new double[]{latency, transfer});
+                device = parent;
+            }
+        }
+
+        /**
+         * Adds the latency and the transfer time of a tuple between a candidate device and the placed device to
+         * delay[0] and delay[1].
+         */
+        void addTransferDelay(int candidateId, double[] delay) {
+            if (candidateId == placedId)
+                return;
+            FogDevice candidate = getDevice(candidateId);
+            if (candidate == null || placed == null) {
+                delay[0] = Double.POSITIVE_INFINITY;
+                return;
+            }
+            FogDevice source = toPlaced ? candidate : placed;
+            int destinationId = toPlaced ? placedId : candidateId;
+            Double clusterLatency = source.getClusterMembersToLatencyMap() != null ? source.getClusterMembersToLatencyMap().get(destinationId) : null;
+            if (clusterLatency != null) {
+                delay[0] += clusterLatency;
+                if (source.getClusterLinkBandwidth() > 0)
+                    delay[1] += nwLength / source.getClusterLinkBandwidth();
+                return;
+            }
+
+            // latency and transfer time between the candidate and the lowest common ancestor
+            double latency = 0;
+            double transfer = 0;
+            FogDevice device = candidate;
+            while (!placedAncestors.containsKey(device.getId())) {
+                FogDevice parent = device.getParentId() >= 0 ? getDevice(device.getParentId()) : null;
+                if (parent == null) {
+                    // not connected
+                    delay[0] = Double.POSITIVE_INFINITY;
+                    return;
+                }
+                latency += device.getUplinkLatency();
+                transfer += nwLength / (toPlaced ? device.getUplinkBandwidth() : parent.getDownlinkBandwidth(device.getId()));
+                device = parent;
+            }
+            double[] placedDelay = placedAncestors.get(device.getId());
+            if (toPlaced) {
+                delay[0] += latency + placedDelay[0];
+                delay[1] += transfer + placedDelay[1];
+            } else {
+                delay[0] += placedDelay[0] + latency;
+                delay[1] += placedDelay[1] + transfer;
+            }
+        }
+    }
+
+    private void placeModule(AppModule module, Application app, int index) {
+        FogDevice device = fogDevices.get(index);
+        Logger.debug("ModulePlacementEdgeward", "Placement of operator " + module.getName() + " on device " + device.getName() + " successful.");
+        System.out.println("Placement of operator " + module.getName() + " on device " + device.getName() + " successful.");
+        cpuLoad[index] += module.getMips();
+        ramLoad[index] += module.getRam();
+        Map<String, Integer> instances = moduleInstanceNum.get(index);
+        instances.put(module.getName(), instances.getOrDefault(module.getName(), 0) + 1);
+        placedDevices.add(index);
+    }
+
+    /**
+     * @return the modules of the application by decreasing upward rank: the execution time of their tuples plus the
+     * longest path, in transfer and execution time, from them to the end of the application. As the devices of the
+     * modules are not known yet, transfer times are counted at the mean bandwidth of the links of the devices. Modules of equal rank
+     * keep the topological order, so a module always comes after the ones sending it tuples up.
+     */
+    private List<String> getPlacementOrder(Application app) {
+        List<String> order = placementOrders.get(app.getAppId());
+        if (order != null)
+            return order;
+        if (app.getDAG() == null)
+            app.createDAG();
+        DAG dag = app.getDAG();
+        List<String> topologicalOrder = dag.getTopologicalOrder();
+
+        Map<String, Double> ranks = new HashMap<>();
+        for (int i = topologicalOrder.size() - 1; i >= 0; i--) {
+            String moduleName = topologicalOrder.get(i);
+            AppModule module = app.getModuleByName(moduleName);
+            double execution = 0;
+            double longestPath = 0;
+            for (AppEdge edge : app.getEdges()) {
+                if (edge.getDirection() != Tuple.UP)
+                    continue;
+                if (edge.getDestination().equals(moduleName) && module.getMips() > 0)
+                    execution = Math.max(execution, edge.getTupleCpuLength() / module.getMips());
+                if (edge.getSource().equals(moduleName) && dag.getSuccessors(moduleName).contains(edge.getDestination())
+                        && ranks.containsKey(edge.getDestination())) {
+                    double transfer = meanLinkBandwidth > 0 ? edge.getTupleNwLength() / meanLinkBandwidth : 0;
+                    longestPath = Math.max(longestPath, transfer + ranks.get(edge.getDestination()));
+                }
+            }
+            ranks.put(moduleName, execution + longestPath);
+        }
+
+        Map<String, Integer> position = new HashMap<>();
+        for (int i = 0; i < topologicalOrder.size(); i++)
+            position.put(topologicalOrder.get(i), i);
+        order = new ArrayList<>(topologicalOrder);
+        order.sort(Comparator.comparing((String m) -> -ranks.get(m)).thenComparing(position::get));
+        order = Collections.unmodifiableList(order);
+        placementOrders.put(app.getAppId(), order);
+        return order;
+    }
+
+    /**
+     * @return positions of the ancestors of the gateway device, from its parent up, each followed by the members of
+     * its cluster
+     */
+    private List<Integer> getCandidateDevices(int gatewayDeviceId) {
+        Set<Integer> candidates = new LinkedHashSet<>();
+        FogDevice gateway = getDevice(gatewayDeviceId);
+        int deviceId = gateway != null ? gateway.getParentId() : -1;
+        while (deviceId >= 0) {
+            FogDevice device = getDevice(deviceId);
+            if (device == null)
+                break;
+            Integer index = deviceIndex.get(deviceId);
+            if (index != null)
+                candidates.add(index);
+            if (device.getIsInCluster() != null && device.getIsInCluster()) {
+                for (int member : device.getClusterMembers()) {
+                    Integer memberIndex = deviceIndex.get(member);
+                    if (memberIndex != null)
+                        candidates.add(memberIndex);
+                }
+            }
+            deviceId = device.getParentId();
+        }
+        return new ArrayList<>(candidates);
+    }
+
+    private List<Integer> getDevicesByName(List<String> deviceNames) {
+        List<Integer> devices = new ArrayList<>();
+        for (String deviceName : deviceNames) {
+            FogDevice device = devicesByName.get(deviceName);
+            if (device != null)
+                devices.add(deviceIndex.get(device.getId()));
+        }
+        return devices;
+    }
+
+    /**
+     * @return the device the requests that could not be placed entirely are sent to, the parent of the FON, -1 if
+     * there is none
+     */
+    private int getForwardDevice(PlacementRequest placementRequest) {
+        FogDevice fon = getDevice(fonID);
+        int parentId = fon != null ? fon.getParentId() : -1;
+        if (parentId < 0)
+            Logger.error("Placement Error", "Placement request " + placementRequest.getPlacementRequestId() + " could not be placed entirely");
+        return parentId;
+    }
+
+    private FogDevice getDevice(int deviceId) {
+        Integer index = deviceIndex.get(deviceId);
+        return index != null ? fogDevices.get(index) : null;
+    }
+
+    private PlacementLogicOutput generatePlacementMap(Map<Integer, Map<String, Integer>> placement, Map<PlacementRequest, Integer> prStatus) {
+        Map<Integer, Map<Application, List<ModuleLaunchConfig>>> perDevice = new LinkedHashMap<>();
+        Map<Integer, List<Pair<String, Integer>>> serviceDiscoveryInfo = new LinkedHashMap<>();
+        for (PlacementRequest placementRequest : prStatus.keySet()) {
+            Application application = applicationInfo.get(placementRequest.getApplicationId());
+            Map<String, Integer> mapped = placement.get(placementRequest.getPlacementRequestId());
+            for (String microserviceName : mapped.keySet()) {
+                int deviceID = mapped.get(microserviceName);
+                //service discovery info propagation
+                for (AppEdge edge : application.getEdges()) {
+                    if (!edge.getDestination().equals(microserviceName) || edge.getDirection() != Tuple.UP)
+                        continue;
+                    Integer clientDevice = placementRequest.getPlacedMicroservices().get(edge.getSource());
+                    if (clientDevice != null)
+                        serviceDiscoveryInfo.computeIfAbsent(clientDevice, d -> new ArrayList<>()).add(new Pair<>(microserviceName, deviceID));
+                }
+            }
+        }
+
+        for (int index : placedDevices) {
+            int deviceId = fogDevices.get(index).getId();
+            for (Map.Entry<String, Integer> instances : moduleInstanceNum.get(index).entrySet()) {
+                Application application = getApplication(instances.getKey());
+                AppModule appModule = new AppModule(application.getModuleByName(instances.getKey()));
+                perDevice.computeIfAbsent(deviceId, d -> new LinkedHashMap<>())
+                        .computeIfAbsent(application, a -> new ArrayList<>())
+                        .add(new ModuleLaunchConfig(appModule, instances.getValue()));
+            }
+        }
+        return new PlacementLogicOutput(perDevice, serviceDiscoveryInfo, prStatus);
+    }
+
+    //todo it assumed that modules are not shared among applications.
+    private Application getApplication(String moduleName) {
+        for (Application application : applicationInfo.values()) {
+            if (application.getModuleByName(moduleName) != null)
+                return application;
+        }
+        return null;
+    }
+}
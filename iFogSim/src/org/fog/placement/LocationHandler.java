@@ -1,5 +1,6 @@
 package org.fog.placement;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -10,8 +11,10 @@ import org.fog.mobilitydata.DataParser;
 import org.fog.mobilitydata.References;
 import org.fog.utils.Config;
 
-public class LocationHandler {
-	
+public class LocationHandler implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	public DataParser dataObject;
 	public Map<Integer, String> instanceToDataId;
 	
@@ -4,14 +4,18 @@ import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.PlacementRequest;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Created by Samodha Pallewatta
  */
-public interface MicroservicePlacementLogic {
+public interface MicroservicePlacementLogic extends Serializable {
     PlacementLogicOutput run(List<FogDevice> fogDevices, Map<String, Application> applicationInfo, Map<Integer, Map<String, Double>> resourceAvailability, List<PlacementRequest> pr);
     void updateResources(Map<Integer, Map<String, Double>> resourceAvailability);
     void postProcessing();
+    // devices joined or left the fogDevices given to run, so the state kept about them across runs is outdated
+    default void fogDevicesChanged() {
+    }
 }
@@ -1,6 +1,5 @@
 package org.fog.placement;
 
-import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
@@ -9,6 +8,7 @@ import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.*;
 import org.fog.utils.*;
+import org.fog.utils.events.ResourceInfoUpdate;
 
 import java.util.*;
 
@@ -17,6 +17,8 @@ import java.util.*;
  */
 public class MicroservicesController extends SimEntity {
 
+    private static final long serialVersionUID = 1L;
+
     protected List<FogDevice> fogDevices;
     protected List<Sensor> sensors;
     protected Map<String, Application> applications = new HashMap<>();
@@ -26,6 +28,8 @@ public class MicroservicesController extends SimEntity {
 
     protected List<Integer> clustering_levels;
 
+    protected HierarchicalRouting routing;
+
     /**
      * @param name
      * @param fogDevices
@@ -125,10 +129,10 @@ public class MicroservicesController extends SimEntity {
     }
 
     protected void generateRoutingTable() {
-        Map<Integer, Map<Integer, Integer>> routing = ShortestPathRoutingGenerator.generateRoutingTable(fogDevices);
+        routing = HierarchicalRouting.generateRoutingTables(fogDevices);
 
         for (FogDevice f : fogDevices) {
-            ((MicroserviceFogDevice) f).addRoutingTable(routing.get(f.getId()));
+            ((MicroserviceFogDevice) f).setRoutingTable(routing.getRoutingTable(f.getId()));
         }
 
     }
@@ -152,7 +156,7 @@ public class MicroservicesController extends SimEntity {
         for (FogDevice f : fogDevices) {
             if (((MicroserviceFogDevice) f).getIsInCluster()) {
                 for (int deviceId : ((MicroserviceFogDevice) f).getClusterMembers()) {
-                    Pair<Integer, Map<String, Double>> resources = new Pair<>(f.getId(), ((MicroserviceFogDevice) f).getResourceAvailabilityOfDevice());
+                    ResourceInfoUpdate resources = new ResourceInfoUpdate(f.getId(), ((MicroserviceFogDevice) f).getResourceAvailabilityOfDevice());
                     sendNow(deviceId, FogEvents.UPDATE_RESOURCE_INFO, resources);
                 }
             }
@@ -219,7 +223,7 @@ public class MicroservicesController extends SimEntity {
                 printCostDetails();
                 printNetworkUsageDetails();
                 printQoSDetails();
-                System.exit(0);
+                FogSimulation.end(fogDevices, applications);
                 break;
         }
 
@@ -260,7 +264,7 @@ public class MicroservicesController extends SimEntity {
     }
 
     protected void printNetworkUsageDetails() {
-        System.out.println("Total network usage = " + NetworkUsageMonitor.getNetworkUsage() / Config.MAX_SIMULATION_TIME);
+        System.out.println("Total network usage = " + NetworkUsageMonitor.getNetworkUsage() / CloudSim.clock());
     }
 
     protected FogDevice getCloud() {
@@ -1,6 +1,5 @@
 package org.fog.placement;
 
-import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.fog.application.AppEdge;
@@ -11,13 +10,19 @@ import org.fog.entities.Sensor;
 import org.fog.entities.Tuple;
 import org.fog.entities.MicroserviceFogDevice;
 import org.fog.entities.PlacementRequest;
+import org.fog.mobilitydata.Clustering;
+import org.fog.mobilitydata.ClusteringEngine;
 import org.fog.mobilitydata.References;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogSimulation;
 import org.fog.utils.MigrationDelayMonitor;
-import org.json.simple.JSONObject;
+import org.fog.utils.events.ClusteringRequest;
+import org.fog.utils.events.ModuleMigration;
+import org.fog.utils.events.ServiceDiscoveryUpdate;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,8 +33,11 @@ import java.util.stream.Collectors;
  */
 public class MicroservicesMobilityClusteringController extends MicroservicesController {
 
+    private static final long serialVersionUID = 1L;
+
     private LocationHandler locator;
     private Map<Integer, Integer> parentReference;
+    private ClusteringEngine clusteringEngine;
 
 
     protected Map<Integer, Map<String, PlacementRequest>> perClientDevicePrs = new HashMap<>();  // clientDevice -> <Application -> PR>
@@ -101,7 +109,7 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
                 printCostDetails();
                 printNetworkUsageDetails();
                 printMigrationDelayDetails();
-                System.exit(0);
+                FogSimulation.end(fogDevices, applications);
                 break;
             default:
                 super.processEvent(ev);
@@ -201,17 +209,12 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
                     double downDelay = getDownDelay(newParent.getId(), commonAncestor, applications.get(applicationName).getModuleByName(moduleName));
                     upDelays.put(moduleName, upDelay);
                     downDelays.put(moduleName, downDelay);
-                    JSONObject jsonSend = new JSONObject();
-                    jsonSend.put("module", applications.get(applicationName).getModuleByName(moduleName));
-                    jsonSend.put("delay", upDelay);
-
-                    JSONObject jsonReceive = new JSONObject();
-                    jsonReceive.put("module", new AppModule(applications.get(applicationName).getModuleByName(moduleName)));
-                    jsonReceive.put("delay", downDelay);
-                    jsonReceive.put("application", applications.get(applicationName));
+                    ModuleMigration migrationSend = new ModuleMigration(applications.get(applicationName).getModuleByName(moduleName), upDelay);
+                    ModuleMigration migrationReceive = new ModuleMigration(new AppModule(applications.get(applicationName).getModuleByName(moduleName)),
+                            applications.get(applicationName), downDelay);
 
-                    send(migratingModules.get(moduleName), upDelay, FogEvents.MODULE_SEND, jsonSend);
-                    send(newParent.getId(), downDelay, FogEvents.MODULE_RECEIVE, jsonReceive);
+                    send(migratingModules.get(moduleName), upDelay, FogEvents.MODULE_SEND, migrationSend);
+                    send(newParent.getId(), downDelay, FogEvents.MODULE_RECEIVE, migrationReceive);
                     System.out.println("Migrating " + moduleName + " from " + prevParent.getName() + " to " + newParent.getName());
                 }
 
@@ -227,6 +230,8 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
             //printFogDeviceChildren(prevParent.getId());
         }
 
+        if (Config.ENABLE_DYNAMIC_CLUSTERING)
+            reclusterMovedDevice(fogDevice);
         updateRoutingTable(fogDevice);
 
     }
@@ -253,20 +258,7 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
     }
 
     private void updateRoutingTable(FogDevice fogDevice) {
-
-        for (FogDevice f : fogDevices) {
-            if (f.getId() != fogDevice.getId()) {
-                // for mobile device update all to parent
-                ((MicroserviceFogDevice) fogDevice).updateRoutingTable(f.getId(), fogDevice.getParentId());
-
-                ////for other update route to mobile based on route to parent
-                int nextId = ((MicroserviceFogDevice) f).getRoutingTable().get(fogDevice.getParentId());
-                if (f.getId() != nextId)
-                    ((MicroserviceFogDevice) f).updateRoutingTable(fogDevice.getId(), nextId);
-                else
-                    ((MicroserviceFogDevice) f).updateRoutingTable(fogDevice.getId(), fogDevice.getId());
-            }
-        }
+        routing.updateRoutingOnHandover(fogDevice);
     }
 
     private void serviceDiscoveryUpdate(FogDevice fogDevice, Map<String, Integer> migratingModules, String applicationName, int newParent, HashMap<String, Double> upDelays, HashMap<String, Double> downDelays) {
@@ -275,10 +267,7 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
         for (String m : migratingModules.keySet()) {
             List<String> clientMs = getClientMicroservices(m, applicationName);
             for (String clientM : clientMs) {
-                JSONObject serviceDiscoveryRemove = new JSONObject();
-                serviceDiscoveryRemove.put("service data", new Pair<>(m, migratingModules.get(m)));
-                serviceDiscoveryRemove.put("action", "REMOVE");
-                send(pr.getPlacedMicroservices().get(clientM), downDelays.get(m), FogEvents.UPDATE_SERVICE_DISCOVERY, serviceDiscoveryRemove);
+                send(pr.getPlacedMicroservices().get(clientM), downDelays.get(m), FogEvents.UPDATE_SERVICE_DISCOVERY, ServiceDiscoveryUpdate.remove(m, migratingModules.get(m)));
             }
         }
 
@@ -287,10 +276,7 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
                 List<String> services = getServiceMicroservice(m, applicationName);
                 for (String service : services) {
                     if (migratingModules.containsKey(service)) {
-                        JSONObject serviceDiscoveryAdd = new JSONObject();
-                        serviceDiscoveryAdd.put("service data", new Pair<>(service, newParent));
-                        serviceDiscoveryAdd.put("action", "ADD");
-                        send(fogDevice.getId(), upDelays.get(service), FogEvents.UPDATE_SERVICE_DISCOVERY, serviceDiscoveryAdd);
+                        send(fogDevice.getId(), upDelays.get(service), FogEvents.UPDATE_SERVICE_DISCOVERY, ServiceDiscoveryUpdate.add(service, newParent));
                     }
                 }
             }
@@ -300,16 +286,10 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
             List<String> services = getServiceMicroservice(m, applicationName);
             for (String service : services) {
                 if (migratingModules.containsKey(service)) {
-                    JSONObject serviceDiscoveryAdd = new JSONObject();
-                    serviceDiscoveryAdd.put("service data", new Pair<>(service, newParent));
-                    serviceDiscoveryAdd.put("action", "ADD");
-                    send(newParent, upDelays.get(service), FogEvents.UPDATE_SERVICE_DISCOVERY, serviceDiscoveryAdd);
+                    send(newParent, upDelays.get(service), FogEvents.UPDATE_SERVICE_DISCOVERY, ServiceDiscoveryUpdate.add(service, newParent));
                 } else {
                     int d = pr.getPlacedMicroservices().get(service);
-                    JSONObject serviceDiscoveryAdd = new JSONObject();
-                    serviceDiscoveryAdd.put("service data", new Pair<>(service, d));
-                    serviceDiscoveryAdd.put("action", "ADD");
-                    sendNow(newParent, FogEvents.UPDATE_SERVICE_DISCOVERY, serviceDiscoveryAdd);
+                    sendNow(newParent, FogEvents.UPDATE_SERVICE_DISCOVERY, ServiceDiscoveryUpdate.add(service, d));
                 }
             }
         }
@@ -417,16 +397,45 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
 
     public void clusteringSubmit(List Levels) {
         System.out.println(CloudSim.clock() + " Start sending Clustering Request to Fog Devices in level: " + Levels);
+        if (clusteringEngine == null)
+            clusteringEngine = new ClusteringEngine(getLocator());
+        List<List<FogDevice>> levelDevices = new ArrayList<>();
+        Map<Integer, List<Integer>> clusters = new HashMap<>();
         for (int i = 0; i < Levels.size(); i++) {
             int clusterLevel = (int) Levels.get(i);
+            List<FogDevice> devices = new ArrayList<>();
             for (FogDevice fogDevice : fogDevices) {
                 System.out.println(CloudSim.clock() + " fog Device: " + fogDevice.getName() + " with id: " + fogDevice.getId() + " is at level: " + fogDevice.getLevel());
                 if ((int) fogDevice.getLevel() == clusterLevel) {
-                    JSONObject jsonMessage = new JSONObject();
-                    jsonMessage.put("locationsInfo", getLocator());
-                    sendNow(fogDevice.getId(), FogEvents.START_DYNAMIC_CLUSTERING, jsonMessage);
+                    devices.add(fogDevice);
                 }
             }
+            // all the clusters of the level in one pass, the devices then only apply theirs
+            clusters.putAll(clusteringEngine.clusterLevel(devices));
+            levelDevices.add(devices);
+        }
+        ClusteringRequest clusteringRequest = new ClusteringRequest(getLocator(), clusters);
+        for (List<FogDevice> devices : levelDevices) {
+            for (FogDevice fogDevice : devices) {
+                sendNow(fogDevice.getId(), FogEvents.START_DYNAMIC_CLUSTERING, clusteringRequest);
+            }
+        }
+    }
+
+    /**
+     * Updates the clusters changed by the move of a device of a clustered level, without clustering the whole level
+     * again.
+     */
+    private void reclusterMovedDevice(FogDevice fogDevice) {
+        if (clusteringEngine == null || !clustering_levels.contains(fogDevice.getLevel()))
+            return;
+        Map<Integer, List<Integer>> changedClusters = clusteringEngine.recluster(Collections.singletonList(fogDevice));
+        for (Map.Entry<Integer, List<Integer>> cluster : changedClusters.entrySet()) {
+            FogDevice clusteredDevice = getFogDeviceById(cluster.getKey());
+            List<Integer> previousMembers = clusteredDevice.getClusterMembers();
+            Clustering.applyClusterMembers(clusteredDevice, cluster.getValue());
+            routing.updateClusterRoutes(clusteredDevice, previousMembers);
+            System.out.println(CloudSim.clock() + " Cluster of " + clusteredDevice.getName() + " updated to " + cluster.getValue());
         }
     }
 
@@ -19,14 +19,17 @@ import org.fog.entities.Sensor;
 import org.fog.mobilitydata.References;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogSimulation;
 import org.fog.utils.FogUtils;
 import org.fog.utils.MigrationDelayMonitor;
 import org.fog.utils.NetworkUsageMonitor;
 import org.fog.utils.TimeKeeper;
-import org.json.simple.JSONObject;
+import org.fog.utils.events.ModuleMigration;
 
 
 public class MobilityController extends SimEntity{
+
+	private static final long serialVersionUID = 1L;
 	
 	public static boolean ONLY_CLOUD = false;
 		
@@ -152,7 +155,7 @@ public class MobilityController extends SimEntity{
 			printCostDetails();
 			printNetworkUsageDetails();
 			printMigrationDelayDetails();
-			System.exit(0);
+			FogSimulation.end(getFogDevices(), getApplications());
 			break;
 			
 		}
@@ -202,17 +205,12 @@ public class MobilityController extends SimEntity{
 				for(String moduleName:migratingModules){
 					double upDelay = getUpDelay(prevParent.getId(),commonAncestor,getApplications().get(applicationName).getModuleByName(moduleName));
 					double downDelay = getDownDelay(newParent.getId(),commonAncestor,getApplications().get(applicationName).getModuleByName(moduleName));
-					JSONObject jsonSend = new JSONObject();
-					jsonSend.put("module", getApplications().get(applicationName).getModuleByName(moduleName));
-					jsonSend.put("delay", upDelay);
-					
-					JSONObject jsonReceive = new JSONObject();
-					jsonReceive.put("module", getApplications().get(applicationName).getModuleByName(moduleName));
-					jsonReceive.put("delay", downDelay);
-					jsonReceive.put("application", getApplications().get(applicationName));
+					ModuleMigration migrationSend = new ModuleMigration(getApplications().get(applicationName).getModuleByName(moduleName), upDelay);
+					ModuleMigration migrationReceive = new ModuleMigration(getApplications().get(applicationName).getModuleByName(moduleName),
+							getApplications().get(applicationName), downDelay);
 					
-					send(prevParent.getId(),upDelay, FogEvents.MODULE_SEND, jsonSend);
-					send(newParent.getId(),downDelay, FogEvents.MODULE_RECEIVE, jsonReceive);
+					send(prevParent.getId(),upDelay, FogEvents.MODULE_SEND, migrationSend);
+					send(newParent.getId(),downDelay, FogEvents.MODULE_RECEIVE, migrationReceive);
 					System.out.println("Migrating "+moduleName+" from "+prevParent.getName()+" to "+newParent.getName());
 				}
 			}
@@ -276,7 +274,7 @@ public class MobilityController extends SimEntity{
 	}
 
 	private void printNetworkUsageDetails() {
-		System.out.println("Total network usage = "+NetworkUsageMonitor.getNetworkUsage()/Config.MAX_SIMULATION_TIME);		
+		System.out.println("Total network usage = "+NetworkUsageMonitor.getNetworkUsage() / CloudSim.clock());		
 	}
 
 	private FogDevice getCloud(){
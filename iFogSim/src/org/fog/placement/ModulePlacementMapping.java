@@ -10,6 +10,8 @@ import org.fog.entities.FogDevice;
 
 public class ModulePlacementMapping extends ModulePlacement{
 
+	private static final long serialVersionUID = 1L;
+
 	private ModuleMapping moduleMapping;
 	
 	@Override
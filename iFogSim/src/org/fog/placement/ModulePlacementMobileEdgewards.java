@@ -18,6 +18,8 @@ import org.fog.entities.Tuple;
 import org.fog.utils.Logger;
 
 public class ModulePlacementMobileEdgewards extends ModulePlacement{
+
+	private static final long serialVersionUID = 1L;
 	
 	protected ModuleMapping moduleMapping;
 	protected List<Sensor> sensors;
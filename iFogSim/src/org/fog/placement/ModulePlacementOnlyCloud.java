@@ -14,6 +14,8 @@ import org.fog.entities.Sensor;
 import org.fog.entities.Tuple;
 
 public class ModulePlacementOnlyCloud extends ModulePlacement{
+
+	private static final long serialVersionUID = 1L;
 	
 	private List<Sensor> sensors;
 	private List<Actuator> actuators;
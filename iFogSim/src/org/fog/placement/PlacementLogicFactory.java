@@ -1,15 +1,20 @@
 package org.fog.placement;
 
+import java.io.Serializable;
+
 import org.fog.utils.Logger;
 
 /**
  * Created by Samodha Pallewatta.
  */
-public class PlacementLogicFactory {
+public class PlacementLogicFactory implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public static final int EDGEWART_MICROSERCVICES_PLACEMENT = 1;
     public static final int CLUSTERED_MICROSERVICES_PLACEMENT = 2;
     public static final int DISTRIBUTED_MICROSERVICES_PLACEMENT =3;
+    public static final int LATENCY_AWARE_MICROSERVICES_PLACEMENT = 4;
 
     public MicroservicePlacementLogic getPlacementLogic(int logic, int fonId) {
         switch (logic) {
@@ -19,6 +24,8 @@ public class PlacementLogicFactory {
                 return new ClusteredMicroservicePlacementLogic(fonId);
             case DISTRIBUTED_MICROSERVICES_PLACEMENT:
                 return new DistributedMicroservicePlacementLogic(fonId);
+            case LATENCY_AWARE_MICROSERVICES_PLACEMENT:
+                return new LatencyAwareMicroservicePlacementLogic(fonId);
         }
 
         Logger.error("Placement Logic Error", "Error initializing placement logic");
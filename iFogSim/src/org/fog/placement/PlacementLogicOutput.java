@@ -5,6 +5,7 @@ import org.fog.application.Application;
 import org.fog.entities.PlacementRequest;
 import org.fog.utils.ModuleLaunchConfig;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,7 +13,9 @@ import java.util.Map;
 /**
  * Created by Samodha Pallewatta on 9/12/2020.
  */
-public class PlacementLogicOutput {
+public class PlacementLogicOutput implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     // module placement info
     //todo it assumed that modules are not shared among applications.
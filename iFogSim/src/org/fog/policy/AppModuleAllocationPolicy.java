@@ -11,6 +11,8 @@ import org.fog.application.AppModule;
 
 public class AppModuleAllocationPolicy extends VmAllocationPolicy{
 
+	private static final long serialVersionUID = 1L;
+
 	private Host fogHost;
 	
 	private List<Integer> appModuleIds;
@@ -10,6 +10,8 @@ import org.cloudbus.cloudsim.sdn.overbooking.VmSchedulerTimeSharedOverbookingEne
 
 public class StreamOperatorScheduler extends VmSchedulerTimeSharedOverbookingEnergy{
 
+	private static final long serialVersionUID = 1L;
+
 	public StreamOperatorScheduler(List<? extends Pe> pelist) {
 		super(pelist);
 	}
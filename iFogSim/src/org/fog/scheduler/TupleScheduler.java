@@ -5,6 +5,8 @@ import org.cloudbus.cloudsim.ResCloudlet;
 
 public class TupleScheduler extends CloudletSchedulerTimeShared{
 
+	private static final long serialVersionUID = 1L;
+
 	public TupleScheduler(double mips, int numberOfPes) {
 		//super(mips, numberOfPes);
 		super();
@@ -0,0 +1,69 @@
+package org.fog.test.benchmark;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.util.UtilizationTraceStore;
+
+/**
+ * Checks that a simulation saved at a checkpoint and resumed from it ends as the same simulation run
+ * in one go: runs the power datacenter of {@link PowerDatacenterScenario} whole, then up to a
+ * checkpoint half-way and resumed from it, with cloudlets following noisy sine waves and then traces
+ * of a memory-mapped {@link UtilizationTraceStore}, which the restored utilization models reopen.
+ *
+ * The arguments, optional, are "hosts vms policy hours", policy being thr, lr or mad.
+ */
+public class CheckpointRoundTripCheck {
+
+	private static final int TRACES = 20;
+
+	public static void main(String[] args) throws Exception {
+		int hostNum = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int vmNum = args.length > 1 ? Integer.parseInt(args[1]) : 80;
+		String policy = args.length > 2 ? args[2] : "lr";
+		double hours = args.length > 3 ? Double.parseDouble(args[3]) : 6;
+
+		File traceDirectory = Files.createTempDirectory("traces").toFile();
+		File storeFile = File.createTempFile("traces", ".utrc");
+		File checkpointFile = File.createTempFile("power", ".ckpt");
+		try {
+			Random random = new Random(1);
+			for (int t = 0; t < TRACES; t++) {
+				try (PrintWriter trace = new PrintWriter(new File(traceDirectory, "trace" + t))) {
+					int utilization = random.nextInt(101);
+					for (int i = 0; i < UtilizationTraceStore.PLANETLAB_SAMPLES - 1; i++) {
+						utilization = Math.max(0, Math.min(100, utilization + random.nextInt(21) - 10));
+						trace.println(utilization);
+					}
+				}
+			}
+			UtilizationTraceStore.pack(traceDirectory, storeFile, UtilizationTraceStore.PLANETLAB_SAMPLES);
+			UtilizationTraceStore traces = UtilizationTraceStore.open(storeFile);
+
+			boolean allSame = true;
+			for (UtilizationTraceStore store : new UtilizationTraceStore[] { null, traces }) {
+				PowerDatacenterScenario whole = PowerDatacenterScenario.run(hostNum, vmNum, policy, hours, false,
+						store, -1, null);
+				PowerDatacenterScenario.run(hostNum, vmNum, policy, hours, false, store, hours * 1800,
+						checkpointFile.getPath());
+				PowerDatacenterScenario resumed = PowerDatacenterScenario.resume(checkpointFile.getPath());
+				boolean same = whole.hasSameOutcome(resumed);
+				allSame &= same;
+				System.out.println((store == null ? "Sine waves" : "Trace store") + ", whole: " + whole);
+				System.out.println((store == null ? "Sine waves" : "Trace store") + ", resumed: " + resumed
+						+ ", same outcome: " + same);
+			}
+			System.out.println("Same outcome: " + allSame);
+		} finally {
+			for (File trace : traceDirectory.listFiles()) {
+				trace.delete();
+			}
+			traceDirectory.delete();
+			storeFile.delete();
+			checkpointFile.delete();
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package org.fog.test.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.commons.math3.util.Pair;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.utils.events.ModuleMigration;
+import org.fog.utils.events.ServiceDiscoveryUpdate;
+import org.json.simple.JSONObject;
+
+/**
+ * Compares the JSONObject maps the module migration and service discovery events used to carry with the
+ * typed payloads of org.fog.utils.events: times building and reading back one module send, one module
+ * receive and one service discovery payload, and measures the bytes allocated for them where the JVM
+ * reports the allocation of a thread.
+ *
+ * The only argument, optional, is the number of iterations of a round.
+ */
+public class EventPayloadBenchmark {
+
+	private static final int ROUNDS = 3;
+
+	/** Keeps the payloads reachable for a while, as an event queue would. */
+	private static final Object[] queue = new Object[1024];
+
+	private static double sink;
+
+	public static void main(String[] args) {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		AppModule module = null;
+		Application application = null;
+		for (int round = 0; round < ROUNDS; round++) {
+			long bytes0 = allocatedBytes();
+			long time0 = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				sink += sendAndReadJson(module, application, i);
+			}
+			long time1 = System.nanoTime();
+			long bytes1 = allocatedBytes();
+			for (int i = 0; i < iterations; i++) {
+				sink += sendAndReadTyped(module, application, i);
+			}
+			long time2 = System.nanoTime();
+			long bytes2 = allocatedBytes();
+			System.out.printf("Round %d: JSONObject %.1f ns %.0f B, typed %.1f ns %.0f B per iteration%n", round,
+					(time1 - time0) / (double) iterations, (bytes1 - bytes0) / (double) iterations,
+					(time2 - time1) / (double) iterations, (bytes2 - bytes1) / (double) iterations);
+		}
+		System.out.println("Checksum " + sink);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static double sendAndReadJson(AppModule module, Application application, int i) {
+		JSONObject send = new JSONObject();
+		send.put("module", module);
+		send.put("delay", (double) i);
+		JSONObject receive = new JSONObject();
+		receive.put("module", module);
+		receive.put("application", application);
+		receive.put("delay", (double) i);
+		JSONObject serviceDiscovery = new JSONObject();
+		serviceDiscovery.put("service data", new Pair<String, Integer>("microservice", i));
+		serviceDiscovery.put("action", "ADD");
+		queue[i & 1023] = send;
+		queue[(i + 1) & 1023] = receive;
+		queue[(i + 2) & 1023] = serviceDiscovery;
+
+		double result = (double) ((JSONObject) queue[i & 1023]).get("delay");
+		JSONObject received = (JSONObject) queue[(i + 1) & 1023];
+		result += (double) received.get("delay");
+		if (received.get("application") != null) {
+			result++;
+		}
+		JSONObject update = (JSONObject) queue[(i + 2) & 1023];
+		Pair<String, Integer> serviceData = (Pair<String, Integer>) update.get("service data");
+		if (update.get("action").equals("ADD")) {
+			result += serviceData.getSecond();
+		}
+		return result;
+	}
+
+	private static double sendAndReadTyped(AppModule module, Application application, int i) {
+		queue[i & 1023] = new ModuleMigration(module, (double) i);
+		queue[(i + 1) & 1023] = new ModuleMigration(module, application, (double) i);
+		queue[(i + 2) & 1023] = ServiceDiscoveryUpdate.add("microservice", i);
+
+		double result = ((ModuleMigration) queue[i & 1023]).getDelay();
+		ModuleMigration received = (ModuleMigration) queue[(i + 1) & 1023];
+		result += received.getDelay();
+		if (received.getApplication() != null) {
+			result++;
+		}
+		ServiceDiscoveryUpdate update = (ServiceDiscoveryUpdate) queue[(i + 2) & 1023];
+		if (update.getAction() == ServiceDiscoveryUpdate.Action.ADD) {
+			result += update.getDeviceId();
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the bytes allocated so far by the current thread.
+	 *
+	 * @return the bytes, or 0 if the JVM does not report them
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+}
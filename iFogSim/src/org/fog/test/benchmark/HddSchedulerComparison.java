@@ -0,0 +1,221 @@
+package org.fog.test.benchmark;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.EX.disk.DataItem;
+import org.cloudbus.cloudsim.EX.disk.HddCloudlet;
+import org.cloudbus.cloudsim.EX.disk.HddCloudletSchedulerProcessorSharing;
+import org.cloudbus.cloudsim.EX.disk.HddCloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.EX.disk.HddHost;
+import org.cloudbus.cloudsim.EX.disk.HddPe;
+import org.cloudbus.cloudsim.EX.disk.HddVm;
+import org.cloudbus.cloudsim.EX.disk.VmDiskScheduler;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+
+/**
+ * Compares {@link HddCloudletSchedulerProcessorSharing} with the {@link HddCloudletSchedulerTimeShared}
+ * it replaces: feeds both the same Poisson arrivals of cloudlets doing CPU work, IO work or both on a VM
+ * with 4 PEs and 3 disks, one of them of varying speed, optionally pausing and resuming some cloudlets,
+ * and compares the finish times of the cloudlets and the update times.
+ *
+ * The finish times agree up to a tolerance, not exactly: the time-shared scheduler estimates the next
+ * event from the remaining lengths rounded down to whole MIs, which may make it wake up for a cloudlet
+ * other than the one closest to its end, about one MI of service apart, and the following events then
+ * shift accordingly.
+ *
+ * The arguments, optional, are "cloudlets rate pauses tolerance", rate being the arrivals per second,
+ * pauses true or false and the tolerance relative to the finish times.
+ */
+public class HddSchedulerComparison {
+
+	private static final int ARRIVAL = 1;
+	private static final int UPDATE = 2;
+
+	public static void main(String[] args) {
+		int cloudletNum = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		double rate = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+		boolean pauses = args.length > 2 && Boolean.parseBoolean(args[2]);
+		double tolerance = args.length > 3 ? Double.parseDouble(args[3]) : 1e-3;
+
+		Log.disable();
+		boolean allWithin = true;
+		for (long seed = 1; seed <= 5; seed++) {
+			Driver timeShared = run(new HddCloudletSchedulerTimeShared(), cloudletNum, rate, pauses, seed);
+			Driver processorSharing = run(new HddCloudletSchedulerProcessorSharing(), cloudletNum, rate, pauses,
+					seed);
+
+			int notInBoth = 0;
+			int inexact = 0;
+			double maxDeviation = 0;
+			for (Map.Entry<Integer, Double> entry : timeShared.finishTimes.entrySet()) {
+				Double finishTime = processorSharing.finishTimes.get(entry.getKey());
+				if (finishTime == null) {
+					notInBoth++;
+					continue;
+				}
+				double deviation = Math.abs(finishTime - entry.getValue()) / Math.max(1, entry.getValue());
+				maxDeviation = Math.max(maxDeviation, deviation);
+				if (deviation > 1e-9) {
+					inexact++;
+				}
+			}
+			for (Integer index : processorSharing.finishTimes.keySet()) {
+				if (!timeShared.finishTimes.containsKey(index)) {
+					notInBoth++;
+				}
+			}
+			boolean within = notInBoth == 0 && timeShared.finishTimes.size() == cloudletNum
+					&& maxDeviation <= tolerance;
+			allWithin &= within;
+			System.out.printf("Seed %d: time-shared %d finished in %.1f ms, processor-sharing %d finished in %.1f ms, "
+					+ "%d not in both, %d inexact, max relative deviation %.3g, within tolerance %b%n", seed,
+					timeShared.finishTimes.size(), timeShared.nanos / 1e6, processorSharing.finishTimes.size(),
+					processorSharing.nanos / 1e6, notInBoth, inexact, maxDeviation, within);
+		}
+		System.out.println("Within tolerance: " + allWithin);
+	}
+
+	private static Driver run(HddCloudletSchedulerTimeShared scheduler, int cloudletNum, double rate,
+			boolean pauses, long seed) {
+		CloudSim.init(1, Calendar.getInstance(), false);
+
+		List<Pe> peList = new ArrayList<Pe>();
+		for (int i = 0; i < 4; i++) {
+			peList.add(new Pe(i, new PeProvisionerSimple(1000)));
+		}
+		DataItem[] items = { new DataItem(1), new DataItem(1), new DataItem(1) };
+		List<HddPe> hddList = new ArrayList<HddPe>();
+		for (DataItem item : items) {
+			hddList.add(new HddPe(new PeProvisionerSimple(100), item));
+		}
+		HddHost host = new HddHost(new RamProvisionerSimple(16384), new BwProvisionerSimple(100000), 1000000,
+				peList, hddList, new VmSchedulerTimeShared(peList), new VmDiskScheduler(hddList));
+		HddVm vm = new HddVm("VM", 0, 1000, 100, 4, 1024, 1000, 1000, "Xen", scheduler, new Integer[0]);
+		vm.setHost(host);
+
+		Driver driver = new Driver(scheduler, items, cloudletNum, rate, pauses, seed);
+		CloudSim.startSimulation();
+		CloudSim.stopSimulation();
+		return driver;
+	}
+
+	/**
+	 * Submits the cloudlets at their arrival times and updates the scheduler at the arrivals and at the
+	 * events it asks for.
+	 */
+	private static class Driver extends SimEntity {
+
+		private static final long serialVersionUID = 1L;
+
+		private final HddCloudletSchedulerTimeShared scheduler;
+		private final HddCloudlet[] cloudlets;
+		private final double[] arrivals;
+		private final boolean pauses;
+		private final Random pauseRandom;
+		private final List<Integer> paused = new ArrayList<Integer>();
+		private final List<Double> mipsShare = List.of(1000.0, 1000.0, 1000.0, 1000.0);
+
+		/** The finish times of the cloudlets, by their index in the arrivals. */
+		private final Map<Integer, Double> finishTimes = new HashMap<Integer, Double>();
+		private int submitted;
+		/** The number of the latest update event scheduled, the earlier ones being stale. */
+		private int updateNumber;
+		private long nanos;
+
+		Driver(HddCloudletSchedulerTimeShared scheduler, DataItem[] items, int cloudletNum, double rate,
+				boolean pauses, long seed) {
+			super("Driver");
+			this.scheduler = scheduler;
+			this.pauses = pauses;
+			pauseRandom = new Random(seed + 1);
+			Random random = new Random(seed);
+			cloudlets = new HddCloudlet[cloudletNum];
+			arrivals = new double[cloudletNum];
+			double time = 0;
+			for (int i = 0; i < cloudletNum; i++) {
+				time += -Math.log(1 - random.nextDouble()) / rate;
+				arrivals[i] = time;
+				int kind = random.nextInt(4);
+				long length = kind == 3 ? 0 : 50 + random.nextInt(2000);
+				long ioLength = kind == 2 ? 0 : 10 + random.nextInt(500);
+				cloudlets[i] = new HddCloudlet(length, ioLength, 1 + random.nextInt(2), 1 + random.nextInt(2), 1, 0,
+						false, items[random.nextInt(items.length)], false);
+			}
+		}
+
+		@Override
+		public void startEntity() {
+			for (int i = 0; i < arrivals.length; i++) {
+				schedule(getId(), arrivals[i], ARRIVAL);
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == UPDATE && (Integer) ev.getData() != updateNumber) {
+				return;
+			}
+			long start = System.nanoTime();
+			double nextEvent = update();
+			if (ev.getTag() == ARRIVAL) {
+				scheduler.cloudletSubmit(cloudlets[submitted++], 0);
+				nextEvent = update();
+				if (pauses && submitted % 50 == 0) {
+					// Pauses a cloudlet submitted so far, if it is still running
+					int cloudletId = cloudlets[pauseRandom.nextInt(submitted)].getCloudletId();
+					if (scheduler.cloudletPause(cloudletId)) {
+						paused.add(cloudletId);
+					}
+				}
+				if (pauses && submitted % 50 == 25 && !paused.isEmpty()) {
+					scheduler.cloudletResume(paused.remove(0));
+				}
+				if (pauses && submitted == cloudlets.length) {
+					for (int cloudletId : paused) {
+						scheduler.cloudletResume(cloudletId);
+					}
+					paused.clear();
+				}
+				if (pauses) {
+					nextEvent = update();
+				}
+			}
+			while (scheduler.isFinishedCloudlets()) {
+				Cloudlet cloudlet = scheduler.getNextFinishedCloudlet();
+				finishTimes.put(cloudlet.getCloudletId() - cloudlets[0].getCloudletId(), cloudlet.getFinishTime());
+			}
+			nanos += System.nanoTime() - start;
+
+			updateNumber++;
+			if (nextEvent != 0.0 && nextEvent < Double.MAX_VALUE) {
+				schedule(getId(), nextEvent - CloudSim.clock(), UPDATE, updateNumber);
+			}
+		}
+
+		private double update() {
+			double now = CloudSim.clock();
+			List<Double> iopsShare = List.of(100.0 + 50 * Math.sin(now / 100), 80.0, 120.0);
+			return scheduler.updateVmProcessing(now, mipsShare, iopsShare);
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+}
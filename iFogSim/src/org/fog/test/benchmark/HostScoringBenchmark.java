@@ -0,0 +1,47 @@
+package org.fog.test.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the speedup of scoring the migration target hosts in parallel: simulates the same power
+ * datacenter with sequential and with parallel host scoring, alternately for a few rounds, and compares
+ * the least host scoring and VM reallocation times recorded by the allocation policy in each mode. All
+ * runs must end in the same state.
+ *
+ * The arguments, optional, are "hosts vms policy hours rounds", policy being thr, lr or mad. The hosts
+ * are only scored in parallel from 512 hosts on and with more than one worker in the common fork-join
+ * pool.
+ */
+public class HostScoringBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int hostNum = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int vmNum = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+		String policy = args.length > 2 ? args[2] : "lr";
+		double hours = args.length > 3 ? Double.parseDouble(args[3]) : 4;
+		int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+		System.out.println("Common pool parallelism " + ForkJoinPool.commonPool().getParallelism());
+		PowerDatacenterScenario first = null;
+		boolean sameOutcome = true;
+		double[] hostScoringTime = { Double.MAX_VALUE, Double.MAX_VALUE };
+		double[] vmReallocationTime = { Double.MAX_VALUE, Double.MAX_VALUE };
+		for (int round = 0; round < rounds; round++) {
+			for (int mode = 0; mode < 2; mode++) {
+				boolean parallel = mode == 1;
+				PowerDatacenterScenario run = PowerDatacenterScenario.run(hostNum, vmNum, policy, hours, parallel);
+				System.out.println("Round " + round + (parallel ? ", parallel: " : ", sequential: ") + run);
+				if (first == null) {
+					first = run;
+				}
+				sameOutcome &= first.hasSameOutcome(run);
+				hostScoringTime[mode] = Math.min(hostScoringTime[mode], run.getHostScoringTime());
+				vmReallocationTime[mode] = Math.min(vmReallocationTime[mode], run.getVmReallocationTime());
+			}
+		}
+
+		System.out.printf("Same outcome: %b, host scoring speedup %.2f, VM reallocation speedup %.2f%n",
+				sameOutcome, hostScoringTime[0] / hostScoringTime[1], vmReallocationTime[0] / vmReallocationTime[1]);
+	}
+
+}
@@ -0,0 +1,48 @@
+package org.fog.test.benchmark;
+
+import org.fog.placement.LatencyAwareMicroservicePlacementLogic;
+import org.fog.placement.PlacementLogicFactory;
+
+/**
+ * Measures {@link LatencyAwareMicroservicePlacementLogic} on a topology of about ten thousand devices:
+ * runs rounds of a few hundred placement requests a few times, and reports the least total time and
+ * the round times of that run. All runs must place the same modules and print the same, so the
+ * hashes printed can be compared between builds.
+ *
+ * The arguments, optional, are "gateways mobiles rounds requests proxies clusterSize repetitions",
+ * mobiles being per gateway and requests per round. The defaults model 10011 devices: 10 proxies
+ * above 1000 gateways, in clusters of 5, of 9 mobiles each.
+ */
+public class LatencyAwarePlacementBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int gatewayNum = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int mobilesPerGateway = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+		int roundNum = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		int requestsPerRound = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+		int proxyNum = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+		int clusterSize = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+		int repetitions = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+
+		MicroservicePlacementScenario first = null;
+		MicroservicePlacementScenario fastest = null;
+		boolean sameOutcome = true;
+		for (int repetition = 0; repetition < repetitions; repetition++) {
+			MicroservicePlacementScenario run = MicroservicePlacementScenario.run(
+					PlacementLogicFactory.LATENCY_AWARE_MICROSERVICES_PLACEMENT, proxyNum, gatewayNum,
+					mobilesPerGateway, clusterSize, roundNum, requestsPerRound);
+			System.out.println("Repetition " + repetition + ": " + run);
+			if (first == null) {
+				first = run;
+			}
+			sameOutcome &= first.hasSameOutcome(run);
+			if (fastest == null || run.getTotalTime() < fastest.getTotalTime()) {
+				fastest = run;
+			}
+		}
+
+		System.out.printf("Same outcome: %b, total %.1f ms, median round %.3f ms, 99th percentile round %.3f ms%n",
+				sameOutcome, fastest.getTotalTime(), fastest.getRoundTime(50), fastest.getRoundTime(99));
+	}
+
+}
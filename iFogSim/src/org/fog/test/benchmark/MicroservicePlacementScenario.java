@@ -0,0 +1,313 @@
+package org.fog.test.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.math3.util.Pair;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppEdge;
+import org.fog.application.Application;
+import org.fog.application.selectivity.FractionalSelectivity;
+import org.fog.entities.ControllerComponent;
+import org.fog.entities.FogBroker;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.MicroserviceFogDevice;
+import org.fog.entities.PlacementRequest;
+import org.fog.entities.Tuple;
+import org.fog.placement.MicroservicePlacementLogic;
+import org.fog.placement.PlacementLogicFactory;
+import org.fog.placement.PlacementLogicOutput;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogSimulation;
+import org.fog.utils.FogUtils;
+import org.fog.utils.ModuleLaunchConfig;
+
+/**
+ * A microservice placement for the benchmarks: a cloud, optionally proxies, gateways possibly grouped
+ * in clusters and mobiles under each gateway, and the application of the cardiovascular health
+ * monitoring example without its cloud placements. The mobiles take turns in sending placement
+ * requests, in rounds of a number of requests, and the placement logic runs once per round, as a FON
+ * (fog orchestration node) processing its queue periodically would, without simulating anything else.
+ * The placements only depend on the sizes, so runs can be compared between modes and builds.
+ */
+public class MicroservicePlacementScenario {
+
+	/** The number of devices modelled. */
+	private int deviceNum;
+
+	/** The modules launched, over all rounds. */
+	private int launchCount;
+
+	/** A hash of the modules launched, the service discovery entries and the request status of each round. */
+	private int placementHash;
+
+	/** A hash of what the placement logic printed. */
+	private int outputHash;
+
+	/** The wall-clock time of each round, in milliseconds. */
+	private double[] roundTimes;
+
+	/**
+	 * Runs the placement logic on the topology, the configuration in
+	 * {@link org.fog.utils.MicroservicePlacementConfig} applying.
+	 *
+	 * @param logic the placement logic, one of the constants of {@link PlacementLogicFactory}
+	 * @param proxyNum the number of proxies between the cloud and the gateways, 0 for none
+	 * @param gatewayNum the number of gateways
+	 * @param mobilesPerGateway the number of mobiles under each gateway
+	 * @param clusterSize the number of gateways of a cluster, 1 for none
+	 * @param roundNum the number of rounds
+	 * @param requestsPerRound the number of placement requests of a round
+	 * @return the results
+	 * @throws Exception if the devices cannot be created
+	 */
+	public static MicroservicePlacementScenario run(int logic, int proxyNum, int gatewayNum, int mobilesPerGateway,
+			int clusterSize, int roundNum, int requestsPerRound) throws Exception {
+		Log.disable();
+		FogSimulation.reset();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		FogBroker broker = new FogBroker("broker");
+		Application application = createApplication("app", broker.getId());
+
+		List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+		MicroserviceFogDevice cloud = createDevice("cloud", 1000000000000L, MicroserviceFogDevice.CLOUD);
+		cloud.setParentId(-1);
+		fogDevices.add(cloud);
+		List<MicroserviceFogDevice> proxies = new ArrayList<MicroserviceFogDevice>();
+		for (int i = 0; i < proxyNum; i++) {
+			MicroserviceFogDevice proxy = createDevice("proxy_" + i, 2800, MicroserviceFogDevice.FCN);
+			proxy.setParentId(cloud.getId());
+			fogDevices.add(proxy);
+			proxies.add(proxy);
+		}
+		List<MicroserviceFogDevice> gateways = new ArrayList<MicroserviceFogDevice>();
+		List<FogDevice> mobiles = new ArrayList<FogDevice>();
+		for (int i = 0; i < gatewayNum; i++) {
+			MicroserviceFogDevice gateway = createDevice("gateway_" + i, 2800, MicroserviceFogDevice.FCN);
+			gateway.setParentId(proxyNum > 0 ? proxies.get(i * proxyNum / gatewayNum).getId() : cloud.getId());
+			fogDevices.add(gateway);
+			gateways.add(gateway);
+			for (int j = 0; j < mobilesPerGateway; j++) {
+				MicroserviceFogDevice mobile = createDevice("mobile_" + i + "_" + j, 200, MicroserviceFogDevice.CLIENT);
+				mobile.setParentId(gateway.getId());
+				fogDevices.add(mobile);
+				mobiles.add(mobile);
+			}
+		}
+		if (clusterSize > 1) {
+			for (int i = 0; i < gatewayNum; i++) {
+				int first = i / clusterSize * clusterSize;
+				List<Integer> members = new ArrayList<Integer>();
+				for (int j = first; j < Math.min(first + clusterSize, gatewayNum); j++) {
+					if (j != i) {
+						members.add(gateways.get(j).getId());
+					}
+				}
+				gateways.get(i).setClusterMembers(members);
+				gateways.get(i).setIsInCluster(true);
+			}
+		}
+
+		Map<Integer, Map<String, Double>> resourceAvailability = new HashMap<Integer, Map<String, Double>>();
+		for (FogDevice device : fogDevices) {
+			Map<String, Double> resources = new HashMap<String, Double>();
+			resources.put(ControllerComponent.CPU, (double) device.getHost().getTotalMips());
+			resources.put(ControllerComponent.RAM, 1e9);
+			resources.put(ControllerComponent.STORAGE, 1e9);
+			resourceAvailability.put(device.getId(), resources);
+		}
+		Map<String, Application> applications = new HashMap<String, Application>();
+		applications.put(application.getAppId(), application);
+		MicroservicePlacementLogic placementLogic = new PlacementLogicFactory().getPlacementLogic(logic, cloud.getId());
+
+		MicroservicePlacementScenario result = new MicroservicePlacementScenario();
+		result.deviceNum = fogDevices.size();
+		result.roundTimes = new double[roundNum];
+		StringBuilder placements = new StringBuilder();
+		PrintStream out = System.out;
+		ByteArrayOutputStream printed = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(printed));
+		try {
+			int requestId = 0;
+			for (int round = 0; round < roundNum; round++) {
+				List<PlacementRequest> placementRequests = new ArrayList<PlacementRequest>();
+				for (int i = 0; i < requestsPerRound; i++) {
+					FogDevice mobile = mobiles.get(requestId % mobiles.size());
+					Map<String, Integer> placedMicroservices = new HashMap<String, Integer>();
+					placedMicroservices.put("clientModule", mobile.getId());
+					placementRequests.add(new PlacementRequest(application.getAppId(), requestId++, mobile.getId(),
+							placedMicroservices));
+				}
+				long start = System.nanoTime();
+				PlacementLogicOutput output = placementLogic.run(fogDevices, applications, resourceAvailability,
+						placementRequests);
+				result.roundTimes[round] = (System.nanoTime() - start) / 1e6;
+				result.launchCount += describe(output, placementRequests, placements);
+			}
+		} finally {
+			System.setOut(out);
+		}
+		result.placementHash = placements.toString().hashCode();
+		result.outputHash = Arrays.hashCode(printed.toByteArray());
+		return result;
+	}
+
+	private static MicroserviceFogDevice createDevice(String name, long mips, String deviceType) throws Exception {
+		List<Pe> peList = new ArrayList<Pe>();
+		peList.add(new Pe(0, new PeProvisionerOverbooking(mips)));
+		PowerHost host = new PowerHost(FogUtils.generateEntityId(), new RamProvisionerSimple(1 << 30),
+				new BwProvisionerOverbooking(10000), 1000000, peList, new StreamOperatorScheduler(peList),
+				new FogLinearPowerModel(100, 80));
+		List<Host> hostList = new ArrayList<Host>();
+		hostList.add(host);
+		FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics("x86", "Linux", "Xen", host, 10.0,
+				3.0, 0.05, 0.001, 0.0);
+		return new MicroserviceFogDevice(name, characteristics, new AppModuleAllocationPolicy(hostList),
+				new LinkedList<Storage>(), 10, 10000, 10000, 10000, 0, 0, deviceType);
+	}
+
+	/**
+	 * The application of the cardiovascular health monitoring example, with no module placed in the
+	 * cloud beforehand.
+	 */
+	private static Application createApplication(String appId, int userId) {
+		Application application = Application.createApplication(appId, userId);
+		application.addAppModule("clientModule", 128, 150, 100);
+		application.addAppModule("mService1", 512, 250, 200);
+		application.addAppModule("mService2", 512, 350, 200);
+		application.addAppModule("mService3", 2048, 450, 1000);
+
+		application.addAppEdge("SENSOR", "clientModule", 1000, 500, "SENSOR", Tuple.UP, AppEdge.SENSOR);
+		application.addAppEdge("clientModule", "mService1", 2000, 500, "RAW_DATA", Tuple.UP, AppEdge.MODULE);
+		application.addAppEdge("mService1", "mService2", 2500, 500, "FILTERED_DATA1", Tuple.UP, AppEdge.MODULE);
+		application.addAppEdge("mService1", "mService3", 4000, 500, "FILTERED_DATA2", Tuple.UP, AppEdge.MODULE);
+		application.addAppEdge("mService2", "clientModule", 14, 500, "RESULT1", Tuple.DOWN, AppEdge.MODULE);
+		application.addAppEdge("mService3", "clientModule", 28, 500, "RESULT2", Tuple.DOWN, AppEdge.MODULE);
+		application.addAppEdge("clientModule", "DISPLAY", 14, 500, "RESULT1_DISPLAY", Tuple.DOWN, AppEdge.ACTUATOR);
+		application.addAppEdge("clientModule", "DISPLAY", 14, 500, "RESULT2_DISPLAY", Tuple.DOWN, AppEdge.ACTUATOR);
+
+		application.addTupleMapping("clientModule", "SENSOR", "RAW_DATA", new FractionalSelectivity(0.9));
+		application.addTupleMapping("mService1", "RAW_DATA", "FILTERED_DATA1", new FractionalSelectivity(1.0));
+		application.addTupleMapping("mService1", "RAW_DATA", "FILTERED_DATA2", new FractionalSelectivity(1.0));
+		application.addTupleMapping("mService2", "FILTERED_DATA1", "RESULT1", new FractionalSelectivity(1.0));
+		application.addTupleMapping("mService3", "FILTERED_DATA2", "RESULT2", new FractionalSelectivity(1.0));
+		application.addTupleMapping("clientModule", "RESULT1", "RESULT1_DISPLAY", new FractionalSelectivity(1.0));
+		application.addTupleMapping("clientModule", "RESULT2", "RESULT2_DISPLAY", new FractionalSelectivity(1.0));
+		return application;
+	}
+
+	/**
+	 * Appends the modules launched on each device, the service discovery entries of each device and the
+	 * status of each request of a round, by device and request id.
+	 *
+	 * @return the number of modules launched
+	 */
+	private static int describe(PlacementLogicOutput output, List<PlacementRequest> placementRequests,
+			StringBuilder placements) {
+		int launchCount = 0;
+		for (Map.Entry<Integer, Map<Application, List<ModuleLaunchConfig>>> entry : new TreeMap<Integer, Map<Application, List<ModuleLaunchConfig>>>(
+				output.getPerDevice()).entrySet()) {
+			placements.append(entry.getKey()).append(':');
+			for (List<ModuleLaunchConfig> launches : entry.getValue().values()) {
+				for (ModuleLaunchConfig launch : launches) {
+					placements.append(launch.getModule().getName()).append('x').append(launch.getInstanceCount())
+							.append(',');
+					launchCount++;
+				}
+			}
+			placements.append(';');
+		}
+		for (Map.Entry<Integer, List<Pair<String, Integer>>> entry : new TreeMap<Integer, List<Pair<String, Integer>>>(
+				output.getServiceDiscoveryInfo()).entrySet()) {
+			placements.append(entry.getKey()).append('>');
+			for (Pair<String, Integer> service : entry.getValue()) {
+				placements.append(service.getFirst()).append('@').append(service.getSecond()).append(',');
+			}
+			placements.append(';');
+		}
+		for (PlacementRequest placementRequest : placementRequests) {
+			placements.append(placementRequest.getPlacementRequestId()).append('=')
+					.append(output.getPrStatus().get(placementRequest)).append(';');
+		}
+		return launchCount;
+	}
+
+	public int getDeviceNum() {
+		return deviceNum;
+	}
+
+	public int getLaunchCount() {
+		return launchCount;
+	}
+
+	public int getPlacementHash() {
+		return placementHash;
+	}
+
+	public int getOutputHash() {
+		return outputHash;
+	}
+
+	/**
+	 * Gets a percentile of the wall-clock times of the rounds.
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the time, in milliseconds
+	 */
+	public double getRoundTime(double percentile) {
+		double[] sorted = roundTimes.clone();
+		Arrays.sort(sorted);
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile / 100))];
+	}
+
+	/**
+	 * Gets the wall-clock time of all rounds.
+	 *
+	 * @return the time, in milliseconds
+	 */
+	public double getTotalTime() {
+		double total = 0;
+		for (double roundTime : roundTimes) {
+			total += roundTime;
+		}
+		return total;
+	}
+
+	/**
+	 * Checks whether another run placed the same modules and printed the same.
+	 *
+	 * @param other the other run
+	 * @return true, if both runs placed the same modules and printed the same
+	 */
+	public boolean hasSameOutcome(MicroservicePlacementScenario other) {
+		return launchCount == other.launchCount && placementHash == other.placementHash
+				&& outputHash == other.outputHash;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d devices, %d launches, placement hash %d, output hash %d, total %.1f ms, "
+				+ "median round %.3f ms, 99th percentile round %.3f ms", deviceNum, launchCount, placementHash,
+				outputHash, getTotalTime(), getRoundTime(50), getRoundTime(99));
+	}
+
+}
@@ -0,0 +1,60 @@
+package org.fog.test.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.fog.placement.ClusteredMicroservicePlacementLogic;
+import org.fog.placement.PlacementLogicFactory;
+import org.fog.utils.MicroservicePlacementConfig;
+
+/**
+ * Checks that {@link ClusteredMicroservicePlacementLogic} places the same modules and prints the same
+ * when it places independent requests in parallel as when it places them one after the other: runs
+ * the same rounds of placement requests on clustered gateways in both modes, alternately for a few
+ * rounds, and compares the modules launched, the service discovery entries, the request status and
+ * the output of every run, and the least times in each mode.
+ *
+ * The arguments, optional, are "proxies gateways mobiles clusterSize rounds requests repetitions",
+ * mobiles being per gateway and requests per round. The requests are only placed in parallel from 64
+ * requests per round on and with more than one worker in the common fork-join pool, which can be set
+ * with -Djava.util.concurrent.ForkJoinPool.common.parallelism on machines with one core.
+ */
+public class ParallelPlacementCheck {
+
+	public static void main(String[] args) throws Exception {
+		int proxyNum = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int gatewayNum = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+		int mobilesPerGateway = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		int clusterSize = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		int roundNum = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+		int requestsPerRound = args.length > 5 ? Integer.parseInt(args[5]) : 500;
+		int repetitions = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+
+		System.out.println("Common pool parallelism " + ForkJoinPool.getCommonPoolParallelism());
+		boolean parallelPlacement = MicroservicePlacementConfig.PARALLEL_PLACEMENT;
+		MicroservicePlacementScenario first = null;
+		boolean sameOutcome = true;
+		double[] totalTime = { Double.MAX_VALUE, Double.MAX_VALUE };
+		try {
+			for (int repetition = 0; repetition < repetitions; repetition++) {
+				for (int mode = 0; mode < 2; mode++) {
+					boolean parallel = mode == 1;
+					MicroservicePlacementConfig.PARALLEL_PLACEMENT = parallel;
+					MicroservicePlacementScenario run = MicroservicePlacementScenario.run(
+							PlacementLogicFactory.CLUSTERED_MICROSERVICES_PLACEMENT, proxyNum, gatewayNum,
+							mobilesPerGateway, clusterSize, roundNum, requestsPerRound);
+					System.out.println("Repetition " + repetition + (parallel ? ", parallel: " : ", sequential: ") + run);
+					if (first == null) {
+						first = run;
+					}
+					sameOutcome &= first.hasSameOutcome(run);
+					totalTime[mode] = Math.min(totalTime[mode], run.getTotalTime());
+				}
+			}
+		} finally {
+			MicroservicePlacementConfig.PARALLEL_PLACEMENT = parallelPlacement;
+		}
+
+		System.out.printf("Same outcome: %b, speedup %.2f%n", sameOutcome, totalTime[0] / totalTime[1]);
+	}
+
+}
@@ -0,0 +1,48 @@
+package org.fog.test.benchmark;
+
+import org.fog.placement.PlacementLogicFactory;
+
+/**
+ * Measures the wall-clock time of the periodic placement rounds of a FON (fog orchestration node): runs
+ * a placement logic on a large topology for many rounds of a few placement requests each, a few times,
+ * and reports the median and 99th percentile round times of the fastest run. All runs must place the
+ * same modules and print the same.
+ *
+ * The arguments, optional, are "gateways mobiles rounds requests proxies clusterSize logic repetitions",
+ * mobiles being per gateway, requests per round and logic one of the constants of
+ * {@link PlacementLogicFactory}. The defaults, 1000 gateways of 10 mobiles and 2000 rounds of one
+ * request with the clustered logic, model 11001 devices.
+ */
+public class PlacementRoundBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int gatewayNum = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int mobilesPerGateway = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int roundNum = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+		int requestsPerRound = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		int proxyNum = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+		int clusterSize = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+		int logic = args.length > 6 ? Integer.parseInt(args[6]) : PlacementLogicFactory.CLUSTERED_MICROSERVICES_PLACEMENT;
+		int repetitions = args.length > 7 ? Integer.parseInt(args[7]) : 3;
+
+		MicroservicePlacementScenario first = null;
+		MicroservicePlacementScenario fastest = null;
+		boolean sameOutcome = true;
+		for (int repetition = 0; repetition < repetitions; repetition++) {
+			MicroservicePlacementScenario run = MicroservicePlacementScenario.run(logic, proxyNum, gatewayNum,
+					mobilesPerGateway, clusterSize, roundNum, requestsPerRound);
+			System.out.println("Repetition " + repetition + ": " + run);
+			if (first == null) {
+				first = run;
+			}
+			sameOutcome &= first.hasSameOutcome(run);
+			if (fastest == null || run.getTotalTime() < fastest.getTotalTime()) {
+				fastest = run;
+			}
+		}
+
+		System.out.printf("Same outcome: %b, median round %.3f ms, 99th percentile round %.3f ms%n", sameOutcome,
+				fastest.getRoundTime(50), fastest.getRoundTime(99));
+	}
+
+}
@@ -0,0 +1,294 @@
+package org.fog.test.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletSchedulerDynamicWorkload;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.UtilizationModelNull;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationCheckpoint;
+import org.cloudbus.cloudsim.power.PowerDatacenter;
+import org.cloudbus.cloudsim.power.PowerDatacenterBroker;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.power.PowerHostUtilizationHistory;
+import org.cloudbus.cloudsim.power.PowerVm;
+import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract;
+import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationLocalRegression;
+import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation;
+import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationStaticThreshold;
+import org.cloudbus.cloudsim.power.PowerVmSelectionPolicyMaximumCorrelation;
+import org.cloudbus.cloudsim.power.PowerVmSelectionPolicyMinimumMigrationTime;
+import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerHpProLiantMl110G4Xeon3040;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerHpProLiantMl110G5Xeon3075;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.util.UtilizationTraceStore;
+
+/**
+ * A power datacenter with VM migrations for the benchmarks: VMs of four types, each running a cloudlet
+ * whose utilization follows a noisy sine wave, on hosts of two types. The workload only depends on the
+ * number of VMs, so runs of the same size can be compared between builds. The cloudlets can follow
+ * the traces of a {@link UtilizationTraceStore} instead, and a run can stop at a checkpoint, to be
+ * resumed with {@link #resume(String)}.
+ */
+public class PowerDatacenterScenario {
+
+	/** The energy consumed, in kWh. */
+	private double energy;
+
+	private int migrationCount;
+
+	/** A hash of the host of each VM at the end of the simulation. */
+	private int placementHash;
+
+	/** The wall-clock time of the simulation, in seconds. */
+	private double simulationTime;
+
+	/** The time spent scoring hosts, over all optimizations, in seconds. */
+	private double hostScoringTime;
+
+	/** The time spent reallocating the VMs of over-utilized hosts, over all optimizations, in seconds. */
+	private double vmReallocationTime;
+
+	/**
+	 * Simulates the datacenter.
+	 *
+	 * @param hostNum the number of hosts
+	 * @param vmNum the number of VMs
+	 * @param policy the allocation policy: thr, lr or mad
+	 * @param hours the simulated time, in hours
+	 * @param parallelHostScoring whether the hosts are scored in parallel when there are many of them
+	 * @return the results
+	 * @throws Exception if the simulation fails
+	 */
+	public static PowerDatacenterScenario run(int hostNum, int vmNum, String policy, double hours,
+			boolean parallelHostScoring) throws Exception {
+		return run(hostNum, vmNum, policy, hours, parallelHostScoring, null, -1, null);
+	}
+
+	/**
+	 * Simulates the datacenter, possibly only up to a checkpoint.
+	 *
+	 * @param hostNum the number of hosts
+	 * @param vmNum the number of VMs
+	 * @param policy the allocation policy: thr, lr or mad
+	 * @param hours the simulated time, in hours
+	 * @param parallelHostScoring whether the hosts are scored in parallel when there are many of them
+	 * @param traces the store of the utilization traces of the cloudlets, which take them in turn, or
+	 *            null for the noisy sine waves
+	 * @param checkpointTime the simulation time at which the simulation is saved and terminated, or
+	 *            -1 to simulate all the time
+	 * @param checkpointFile the file of the checkpoint
+	 * @return the results, up to the checkpoint if there is one
+	 * @throws Exception if the simulation fails
+	 */
+	public static PowerDatacenterScenario run(int hostNum, int vmNum, String policy, double hours,
+			boolean parallelHostScoring, UtilizationTraceStore traces, double checkpointTime,
+			final String checkpointFile) throws Exception {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		PowerDatacenterBroker broker = new PowerDatacenterBroker("Broker");
+		int brokerId = broker.getId();
+
+		int[] vmMips = { 2500, 2000, 1000, 500 };
+		int[] vmRam = { 870, 1740, 1740, 613 };
+		Random random = new Random(42);
+		List<Vm> vms = new ArrayList<Vm>();
+		List<Cloudlet> cloudlets = new ArrayList<Cloudlet>();
+		for (int i = 0; i < vmNum; i++) {
+			int type = i % vmMips.length;
+			vms.add(new PowerVm(i, brokerId, vmMips[type], 1, vmRam[type], 100000, 2500, 1, "Xen",
+					new CloudletSchedulerDynamicWorkload(vmMips[type], 1), 300));
+			final double base = 0.1 + random.nextDouble() * 0.4;
+			final double amplitude = 0.1 + random.nextDouble() * 0.4;
+			final double phase = random.nextDouble() * 2 * Math.PI;
+			final double period = 3600 * (1 + random.nextInt(8));
+			final long seed = random.nextLong();
+			UtilizationModel utilizationModel;
+			if (traces != null) {
+				utilizationModel = traces.getUtilizationModel(i % traces.size(), 300);
+			} else {
+				utilizationModel = new UtilizationModel() {
+					@Override
+					public double getUtilization(double time) {
+						double noise = new Random(seed ^ (long) (time / 300)).nextDouble() * 0.1;
+						double utilization = base + amplitude * Math.sin(time / period * 2 * Math.PI + phase) + noise;
+						return Math.max(0, Math.min(1, utilization));
+					}
+				};
+			}
+			Cloudlet cloudlet = new Cloudlet(i, 2500L * 86400 * 10, 1, 300, 300, utilizationModel,
+					new UtilizationModelNull(), new UtilizationModelNull());
+			cloudlet.setUserId(brokerId);
+			cloudlet.setVmId(i);
+			cloudlets.add(cloudlet);
+		}
+
+		int[] hostMips = { 1860, 2660 };
+		PowerModel[] hostModels = { new PowerModelSpecPowerHpProLiantMl110G4Xeon3040(),
+				new PowerModelSpecPowerHpProLiantMl110G5Xeon3075() };
+		List<PowerHost> hosts = new ArrayList<PowerHost>();
+		for (int i = 0; i < hostNum; i++) {
+			int type = i % hostMips.length;
+			List<Pe> peList = new ArrayList<Pe>();
+			for (int j = 0; j < 2; j++) {
+				peList.add(new Pe(j, new PeProvisionerSimple(hostMips[type])));
+			}
+			hosts.add(new PowerHostUtilizationHistory(i, new RamProvisionerSimple(4096),
+					new BwProvisionerSimple(1000000), 1000000, peList,
+					new VmSchedulerTimeSharedOverSubscription(peList), hostModels[type]));
+		}
+
+		PowerVmAllocationPolicyMigrationAbstract allocationPolicy;
+		PowerVmAllocationPolicyMigrationStaticThreshold fallback = new PowerVmAllocationPolicyMigrationStaticThreshold(
+				hosts, new PowerVmSelectionPolicyMinimumMigrationTime(), 0.7);
+		if (policy.equals("thr")) {
+			allocationPolicy = new PowerVmAllocationPolicyMigrationStaticThreshold(hosts,
+					new PowerVmSelectionPolicyMinimumMigrationTime(), 0.8);
+		} else if (policy.equals("lr")) {
+			allocationPolicy = new PowerVmAllocationPolicyMigrationLocalRegression(hosts,
+					new PowerVmSelectionPolicyMaximumCorrelation(new PowerVmSelectionPolicyMinimumMigrationTime()),
+					1.2, 300, fallback);
+		} else if (policy.equals("mad")) {
+			allocationPolicy = new PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation(hosts,
+					new PowerVmSelectionPolicyMinimumMigrationTime(), 2.5, fallback);
+		} else {
+			throw new IllegalArgumentException("Unknown allocation policy " + policy);
+		}
+		allocationPolicy.setParallelHostScoring(parallelHostScoring);
+		fallback.setParallelHostScoring(parallelHostScoring);
+
+		DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+				10.0, 3.0, 0.05, 0.001, 0.0);
+		PowerDatacenter datacenter = new PowerDatacenter("Datacenter", characteristics, allocationPolicy,
+				new LinkedList<Storage>(), 300);
+		datacenter.setDisableMigrations(false);
+		broker.submitVmList(vms);
+		broker.submitCloudletList(cloudlets);
+
+		CloudSim.terminateSimulation(hours * 3600);
+		if (checkpointTime >= 0) {
+			CloudSim.scheduleCheckpoint(checkpointTime, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						SimulationCheckpoint.capture().save(checkpointFile);
+					} catch (IOException e) {
+						throw new UncheckedIOException("Cannot write the checkpoint to " + checkpointFile, e);
+					}
+					CloudSim.abruptallyTerminate();
+				}
+			});
+		}
+		long start = System.nanoTime();
+		CloudSim.startSimulation();
+		long end = System.nanoTime();
+		CloudSim.stopSimulation();
+		return collect(datacenter, vms, start, end);
+	}
+
+	/**
+	 * Resumes a simulation from a checkpoint written by
+	 * {@link #run(int, int, String, double, boolean, UtilizationTraceStore, double, String)}, until
+	 * the end of its simulated time.
+	 *
+	 * @param checkpointFile the file of the checkpoint
+	 * @return the results of the whole simulation; the times only cover what is simulated after the
+	 *         checkpoint
+	 * @throws Exception if the checkpoint cannot be read or the simulation fails
+	 */
+	public static PowerDatacenterScenario resume(String checkpointFile) throws Exception {
+		Log.disable();
+		SimulationCheckpoint.load(checkpointFile).restore();
+		PowerDatacenter datacenter = (PowerDatacenter) CloudSim.getEntity("Datacenter");
+		PowerDatacenterBroker broker = (PowerDatacenterBroker) CloudSim.getEntity("Broker");
+		long start = System.nanoTime();
+		CloudSim.startSimulation();
+		long end = System.nanoTime();
+		CloudSim.stopSimulation();
+		return collect(datacenter, broker.<Vm> getVmList(), start, end);
+	}
+
+	private static PowerDatacenterScenario collect(PowerDatacenter datacenter, List<Vm> vms, long start, long end) {
+		PowerVmAllocationPolicyMigrationAbstract allocationPolicy = (PowerVmAllocationPolicyMigrationAbstract) datacenter
+				.getVmAllocationPolicy();
+		PowerDatacenterScenario result = new PowerDatacenterScenario();
+		result.energy = datacenter.getPower() / 3600000;
+		result.migrationCount = datacenter.getMigrationCount();
+		StringBuilder placement = new StringBuilder();
+		for (Vm vm : vms) {
+			placement.append(vm.getHost() == null ? -1 : vm.getHost().getId()).append(',');
+		}
+		result.placementHash = placement.toString().hashCode();
+		result.simulationTime = (end - start) / 1e9;
+		result.hostScoringTime = sum(allocationPolicy.getExecutionTimeHistoryHostScoring());
+		result.vmReallocationTime = sum(allocationPolicy.getExecutionTimeHistoryVmReallocation());
+		return result;
+	}
+
+	private static double sum(List<Double> values) {
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	public double getEnergy() {
+		return energy;
+	}
+
+	public int getMigrationCount() {
+		return migrationCount;
+	}
+
+	public int getPlacementHash() {
+		return placementHash;
+	}
+
+	public double getSimulationTime() {
+		return simulationTime;
+	}
+
+	public double getHostScoringTime() {
+		return hostScoringTime;
+	}
+
+	public double getVmReallocationTime() {
+		return vmReallocationTime;
+	}
+
+	/**
+	 * Checks whether another run ended in the same state: same energy, migrations and placement.
+	 *
+	 * @param other the other run
+	 * @return true, if both runs ended in the same state
+	 */
+	public boolean hasSameOutcome(PowerDatacenterScenario other) {
+		return Double.doubleToLongBits(energy) == Double.doubleToLongBits(other.energy)
+				&& migrationCount == other.migrationCount && placementHash == other.placementHash;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("energy %.6f kWh, %d migrations, placement hash %d, simulation %.2f s, "
+				+ "host scoring %.3f s, VM reallocation %.3f s", energy, migrationCount, placementHash,
+				simulationTime, hostScoringTime, vmReallocationTime);
+	}
+
+}
@@ -0,0 +1,123 @@
+package org.fog.test.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerHpProLiantMl110G3PentiumD930;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerHpProLiantMl110G4Xeon3040;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerHpProLiantMl110G5Xeon3075;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerIbmX3250XeonX3470;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerIbmX3550XeonX5675;
+import org.cloudbus.cloudsim.power.models.PowerModelTable;
+
+/**
+ * Compares the SPECpower models with the power model tables they compile to: checks that both give
+ * bit-identical power, one value at a time and in batches, and times an evaluation of each.
+ *
+ * Run without arguments for the power models only. With the arguments "hosts vms policy [hours]",
+ * where policy is thr, lr or mad, it also simulates a power datacenter with migrations and prints the
+ * energy, the number of migrations and a hash of the final placement, to be compared between builds.
+ */
+public class PowerModelTableBenchmark {
+
+	private static final int RANDOM_UTILIZATIONS = 1000000;
+
+	private static final int ROUNDS = 5;
+
+	private static double sink;
+
+	public static void main(String[] args) throws Exception {
+		PowerModel[] models = {
+				new PowerModelSpecPowerHpProLiantMl110G3PentiumD930(),
+				new PowerModelSpecPowerHpProLiantMl110G4Xeon3040(),
+				new PowerModelSpecPowerHpProLiantMl110G5Xeon3075(),
+				new PowerModelSpecPowerIbmX3250XeonX3470(),
+				new PowerModelSpecPowerIbmX3550XeonX5675() };
+		PowerModel[] tables = new PowerModel[models.length];
+		for (int i = 0; i < models.length; i++) {
+			tables[i] = PowerModelTable.compile(models[i]);
+		}
+		Random random = new Random(1);
+
+		List<Double> utilizations = new ArrayList<Double>();
+		for (int i = 0; i <= 100000; i++) {
+			utilizations.add(i / 100000.0);
+		}
+		for (int i = 0; i <= 10; i++) {
+			double utilization = i / 10.0;
+			utilizations.add(Math.nextDown(utilization));
+			utilizations.add(Math.nextUp(utilization));
+		}
+		for (int i = 0; i < RANDOM_UTILIZATIONS; i++) {
+			utilizations.add(random.nextDouble());
+		}
+		double[] batch = new double[utilizations.size()];
+		int batchSize = 0;
+		for (double utilization : utilizations) {
+			if (utilization >= 0 && utilization <= 1) {
+				batch[batchSize++] = utilization;
+			}
+		}
+		batch = Arrays.copyOf(batch, batchSize);
+		double[] batchPower = new double[batchSize];
+		long checked = 0;
+		long mismatches = 0;
+		for (int i = 0; i < models.length; i++) {
+			tables[i].getPower(batch, batchPower);
+			for (int j = 0; j < batch.length; j++) {
+				checked++;
+				long bits = Double.doubleToLongBits(models[i].getPower(batch[j]));
+				if (bits != Double.doubleToLongBits(tables[i].getPower(batch[j]))
+						|| bits != Double.doubleToLongBits(batchPower[j])) {
+					mismatches++;
+				}
+			}
+		}
+		System.out.println("Checked " + checked + " utilization values, " + mismatches + " mismatches");
+
+		double[] sample = new double[1 << 16];
+		for (int i = 0; i < sample.length; i++) {
+			sample[i] = random.nextDouble();
+		}
+		for (int round = 0; round < ROUNDS; round++) {
+			System.out.printf("Round %d: SPECpower %.1f ns/call, table %.1f ns/call, table batch %.1f ns/value%n",
+					round, timePerCall(models, sample), timePerCall(tables, sample), timePerValue(tables, sample));
+		}
+
+		if (args.length >= 3) {
+			double hours = args.length > 3 ? Double.parseDouble(args[3]) : 24;
+			System.out.println(PowerDatacenterScenario.run(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+					args[2], hours, true));
+		}
+	}
+
+	private static double timePerCall(PowerModel[] models, double[] utilizations) {
+		long start = System.nanoTime();
+		double total = 0;
+		long calls = 0;
+		for (int repeat = 0; repeat < 40; repeat++) {
+			for (int i = 0; i < utilizations.length; i++) {
+				total += models[i % models.length].getPower(utilizations[i]);
+				calls++;
+			}
+		}
+		sink += total;
+		return (System.nanoTime() - start) / (double) calls;
+	}
+
+	private static double timePerValue(PowerModel[] models, double[] utilizations) {
+		double[] power = new double[utilizations.length];
+		long start = System.nanoTime();
+		double total = 0;
+		for (int repeat = 0; repeat < 40; repeat++) {
+			models[repeat % models.length].getPower(utilizations, power);
+			total += power[repeat];
+		}
+		sink += total;
+		return (System.nanoTime() - start) / (40.0 * utilizations.length);
+	}
+
+}
@@ -0,0 +1,158 @@
+package org.fog.test.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
+import org.cloudbus.cloudsim.Datacenter;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.WorkloadDatacenterBroker;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationCheckpoint;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.util.WorkloadFileReader;
+
+/**
+ * Checks that a {@link WorkloadDatacenterBroker} saved at a checkpoint and resumed from it submits
+ * the same jobs as a broker run in one go: runs a workload trace whole, then up to a checkpoint
+ * half-way through the trace and resumed from it, where the broker reopens the trace and skips the
+ * jobs it had already taken, and compares the cloudlets received.
+ *
+ * The arguments, optional, are "jobs vms".
+ */
+public class WorkloadCheckpointCheck {
+
+	/** The time between the submissions of two jobs of the trace, in seconds. */
+	private static final int INTERARRIVAL = 10;
+
+	public static void main(String[] args) throws Exception {
+		int jobNum = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int vmNum = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+		File traceFile = File.createTempFile("workload", ".swf");
+		File checkpointFile = File.createTempFile("workload", ".ckpt");
+		try {
+			writeTrace(traceFile, jobNum);
+			String whole = run(traceFile, vmNum, -1, null);
+			run(traceFile, vmNum, jobNum * INTERARRIVAL / 2, checkpointFile.getPath());
+			String resumed = resume(checkpointFile.getPath());
+			System.out.println("Whole: " + whole);
+			System.out.println("Resumed: " + resumed);
+			System.out.println("Same outcome: " + whole.equals(resumed));
+		} finally {
+			traceFile.delete();
+			checkpointFile.delete();
+		}
+	}
+
+	/**
+	 * Writes a trace in the standard workload format, with jobs of random run times and numbers of
+	 * processors submitted at a regular interval.
+	 */
+	private static void writeTrace(File traceFile, int jobNum) throws IOException {
+		Random random = new Random(1);
+		try (PrintWriter trace = new PrintWriter(traceFile)) {
+			trace.println("; a synthetic trace");
+			for (int job = 1; job <= jobNum; job++) {
+				int runTime = 1 + random.nextInt(100);
+				int numProc = 1 + random.nextInt(2);
+				trace.println(job + " " + job * INTERARRIVAL + " 0 " + runTime + " " + numProc
+						+ " -1 -1 " + numProc + " " + runTime + " -1 1 1 1 -1 -1 -1 -1 -1");
+			}
+		}
+	}
+
+	/**
+	 * Simulates the workload, possibly only up to a checkpoint.
+	 *
+	 * @return the cloudlets received, if the simulation is not stopped at a checkpoint
+	 */
+	private static String run(File traceFile, int vmNum, double checkpointTime, final String checkpointFile)
+			throws Exception {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+
+		List<Host> hosts = new ArrayList<Host>();
+		for (int i = 0; i < vmNum / 4; i++) {
+			List<Pe> peList = new ArrayList<Pe>();
+			for (int j = 0; j < 8; j++) {
+				peList.add(new Pe(j, new PeProvisionerSimple(1000)));
+			}
+			hosts.add(new Host(i, new RamProvisionerSimple(16384), new BwProvisionerSimple(100000), 1000000,
+					peList, new VmSchedulerTimeShared(peList)));
+		}
+		DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+				10.0, 3.0, 0.05, 0.001, 0.0);
+		new Datacenter("Datacenter", characteristics, new VmAllocationPolicySimple(hosts),
+				new LinkedList<Storage>(), 0);
+
+		WorkloadDatacenterBroker broker = new WorkloadDatacenterBroker("Broker",
+				new WorkloadFileReader(traceFile.getPath(), 1000).stream(), 100);
+		List<Vm> vms = new ArrayList<Vm>();
+		for (int i = 0; i < vmNum; i++) {
+			vms.add(new Vm(i, broker.getId(), 1000, 2, 2048, 1000, 10000, "Xen", new CloudletSchedulerSpaceShared()));
+		}
+		broker.submitVmList(vms);
+
+		if (checkpointTime >= 0) {
+			CloudSim.scheduleCheckpoint(checkpointTime, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						SimulationCheckpoint.capture().save(checkpointFile);
+					} catch (IOException e) {
+						throw new UncheckedIOException("Cannot write the checkpoint to " + checkpointFile, e);
+					}
+					CloudSim.abruptallyTerminate();
+				}
+			});
+		}
+		CloudSim.startSimulation();
+		CloudSim.stopSimulation();
+		return checkpointTime >= 0 ? null : describe(broker);
+	}
+
+	private static String resume(String checkpointFile) throws Exception {
+		Log.disable();
+		SimulationCheckpoint.load(checkpointFile).restore();
+		WorkloadDatacenterBroker broker = (WorkloadDatacenterBroker) CloudSim.getEntity("Broker");
+		CloudSim.startSimulation();
+		CloudSim.stopSimulation();
+		return describe(broker);
+	}
+
+	/**
+	 * Describes the cloudlets received by a broker: their number, the last finish time and a hash of
+	 * their IDs, VMs and finish times, in the order received.
+	 */
+	private static String describe(WorkloadDatacenterBroker broker) {
+		List<Cloudlet> cloudlets = broker.getCloudletReceivedList();
+		StringBuilder received = new StringBuilder();
+		double lastFinishTime = 0;
+		for (Cloudlet cloudlet : cloudlets) {
+			received.append(cloudlet.getCloudletId()).append(':').append(cloudlet.getVmId()).append(':')
+					.append(cloudlet.getFinishTime()).append(',');
+			lastFinishTime = Math.max(lastFinishTime, cloudlet.getFinishTime());
+		}
+		return String.format("%d cloudlets received, last finished at %.2f, hash %d", cloudlets.size(),
+				lastFinishTime, received.toString().hashCode());
+	}
+
+}
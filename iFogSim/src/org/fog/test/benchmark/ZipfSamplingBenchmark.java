@@ -0,0 +1,138 @@
+package org.fog.test.benchmark;
+
+import java.util.Random;
+
+import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
+import org.cloudbus.cloudsim.distributions.DiscreteDistr;
+import org.cloudbus.cloudsim.distributions.ZipfDistr;
+import org.cloudbus.cloudsim.distributions.ZipfRejectionInversionDistr;
+
+/**
+ * Compares the Zipf samplers of org.cloudbus.cloudsim.distributions. For each population and shape,
+ * checks that ZipfDistr draws bit-identical samples to the summation it used to do on every draw, times
+ * a draw of that summation, of ZipfDistr, of the alias table of DiscreteDistr and of
+ * ZipfRejectionInversionDistr, and gives the total variation distance between the exact distribution of
+ * the ranks and the ranks drawn by the last two.
+ */
+public class ZipfSamplingBenchmark {
+
+	private static final int[] POPULATIONS = { 100, 10000, 1000000 };
+
+	private static final double[] SHAPES = { 0.8, 1.0, 1.5 };
+
+	private static final long SEED = 42;
+
+	/** The largest population the total variation distance is computed for. */
+	private static final int MAX_DISTANCE_POPULATION = 10000;
+
+	private static final int DISTANCE_SAMPLES = 2000000;
+
+	private static double sink;
+
+	public static void main(String[] args) {
+		for (int population : POPULATIONS) {
+			for (double shape : SHAPES) {
+				// the summation gets slow with the population, so it is drawn less
+				int summationDraws = population >= 1000000 ? 2000 : 200000;
+				ZipfDistr zipf = new ZipfDistr(SEED, shape, population);
+				SummationZipf summation = new SummationZipf(SEED, shape, population);
+				long mismatches = 0;
+				for (int i = 0; i < summationDraws; i++) {
+					if (Double.doubleToLongBits(zipf.sample()) != Double.doubleToLongBits(summation.sample())) {
+						mismatches++;
+					}
+				}
+
+				ContinuousDistribution alias = DiscreteDistr.zipf(SEED, shape, population);
+				ContinuousDistribution rejectionInversion = new ZipfRejectionInversionDistr(SEED, shape, population);
+				for (int warmUp = 0; warmUp < 3; warmUp++) {
+					timePerDraw(new SummationZipf(SEED, shape, population), summationDraws / 100);
+					timePerDraw(zipf, 200000);
+					timePerDraw(alias, 200000);
+					timePerDraw(rejectionInversion, 200000);
+				}
+				System.out.printf("Population %d, shape %.1f: %d mismatches in %d draws; summation %.0f ns, "
+						+ "ZipfDistr %.0f ns, alias %.0f ns, rejection-inversion %.0f ns per draw",
+						population, shape, mismatches, summationDraws,
+						timePerDraw(new SummationZipf(SEED, shape, population), summationDraws / 10),
+						timePerDraw(zipf, 1000000), timePerDraw(alias, 1000000),
+						timePerDraw(rejectionInversion, 1000000));
+
+				int distancePopulation = Math.min(population, MAX_DISTANCE_POPULATION);
+				System.out.printf("; total variation at population %d: alias %.4f, rejection-inversion %.4f%n",
+						distancePopulation,
+						totalVariation(DiscreteDistr.zipf(SEED + 1, shape, distancePopulation), shape, distancePopulation),
+						totalVariation(new ZipfRejectionInversionDistr(SEED + 1, shape, distancePopulation), shape,
+								distancePopulation));
+			}
+		}
+		System.out.println("Checksum " + sink);
+	}
+
+	private static double timePerDraw(ContinuousDistribution distribution, int draws) {
+		long start = System.nanoTime();
+		double total = 0;
+		for (int i = 0; i < draws; i++) {
+			total += distribution.sample();
+		}
+		sink += total;
+		return (System.nanoTime() - start) / (double) draws;
+	}
+
+	/**
+	 * Gets the total variation distance between the Zipf distribution of ranks and the ranks drawn.
+	 */
+	private static double totalVariation(ContinuousDistribution ranks, double shape, int population) {
+		double den = 0;
+		for (int k = 1; k <= population; k++) {
+			den += 1 / Math.pow(k, shape);
+		}
+		long[] counts = new long[population + 1];
+		for (int i = 0; i < DISTANCE_SAMPLES; i++) {
+			counts[(int) ranks.sample()]++;
+		}
+		double distance = 0;
+		for (int k = 1; k <= population; k++) {
+			distance += Math.abs(counts[k] / (double) DISTANCE_SAMPLES - 1 / Math.pow(k, shape) / den);
+		}
+		return distance / 2;
+	}
+
+	/**
+	 * ZipfDistr as it was, summing the series up to the variate on every draw.
+	 */
+	private static class SummationZipf implements ContinuousDistribution {
+
+		private final Random numGen;
+
+		private final double shape;
+
+		private double den;
+
+		SummationZipf(long seed, double shape, int population) {
+			numGen = new Random(seed);
+			this.shape = shape;
+			for (int j = 1; j <= population; j++) {
+				den += 1 / Math.pow(j, shape);
+			}
+		}
+
+		@Override
+		public double sample() {
+			double variate = numGen.nextDouble();
+			double num = 1;
+			double nextNum = 1 + 1 / Math.pow(2, shape);
+			double j = 3;
+
+			while (variate > nextNum / den) {
+				num = nextNum;
+				nextNum += 1 / Math.pow(j, shape);
+				j++;
+			}
+
+			return num / den;
+		}
+
+	}
+
+}
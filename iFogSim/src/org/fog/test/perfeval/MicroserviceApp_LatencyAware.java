@@ -0,0 +1,304 @@
+package org.fog.test.perfeval;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppEdge;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.application.selectivity.FractionalSelectivity;
+import org.fog.entities.*;
+import org.fog.placement.MicroservicesController;
+import org.fog.placement.PlacementLogicFactory;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+import org.fog.utils.TimeKeeper;
+import org.fog.utils.distribution.DeterministicDistribution;
+
+import java.util.*;
+
+/**
+ * Simulation setup for a Microservices Application placed by the latency-aware placement logic
+ * (PlacementLogicFactory.LATENCY_AWARE_MICROSERVICES_PLACEMENT).
+ * The logic places the modules of each placement request by decreasing upward rank over the application DAG,
+ * each on the device of least cost: the latency and transfer time of the tuples exchanged with the modules
+ * already placed, and the fraction of the device's resources the module takes.
+ * The topology is a cloud, a proxy server acting as the FON and gateways of different resources, with mobiles.
+ */
+
+/**
+ * Config properties
+ * SIMULATION_MODE -> STATIC
+ * PR_PROCESSING_MODE -> PERIODIC
+ * ENABLE_STATIC_CLUSTERING -> true to cluster the gateways
+ */
+public class MicroserviceApp_LatencyAware {
+    static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+    static List<Sensor> sensors = new ArrayList<Sensor>();
+    static List<Actuator> actuators = new ArrayList<Actuator>();
+
+    static int numOfGateways = 4;
+    static int numOfMobilesPerGateway = 2;
+
+    // gateways alternate between these resources
+    static Integer[] cpus = new Integer[]{2800, 6000};
+    static Integer[] ram = new Integer[]{2048, 4096};
+
+    static double SENSOR_TRANSMISSION_TIME = 10;
+
+    //cluster link latency 2ms
+    static Double clusterLatency = 2.0;
+
+    public static void main(String[] args) {
+
+        try {
+
+            Log.disable();
+            int num_user = 1; // number of cloud users
+            Calendar calendar = Calendar.getInstance();
+            boolean trace_flag = false; // mean trace events
+
+            CloudSim.init(num_user, calendar, trace_flag);
+
+            String appId = "latencyAwareApp";
+            FogBroker broker = new FogBroker("broker");
+
+            Application application = createApplication(appId, broker.getId());
+            application.setUserId(broker.getId());
+
+            createFogDevices(broker.getId(), application);
+
+            List<Integer> clusterLevelIdentifier = new ArrayList<>();
+            clusterLevelIdentifier.add(2);
+
+            List<Application> appList = new ArrayList<>();
+            appList.add(application);
+
+            int placementAlgo = PlacementLogicFactory.LATENCY_AWARE_MICROSERVICES_PLACEMENT;
+            MicroservicesController microservicesController = new MicroservicesController("controller", fogDevices, sensors, appList, clusterLevelIdentifier, clusterLatency, placementAlgo);
+
+            // generate placement requests
+            List<PlacementRequest> placementRequests = new ArrayList<>();
+            for (Sensor s : sensors) {
+                Map<String, Integer> placedMicroservicesMap = new HashMap<>();
+                placedMicroservicesMap.put("clientModule", s.getGatewayDeviceId());
+                PlacementRequest p = new PlacementRequest(s.getAppId(), s.getId(), s.getGatewayDeviceId(), placedMicroservicesMap);
+                placementRequests.add(p);
+            }
+
+            microservicesController.submitPlacementRequests(placementRequests, 0);
+
+            TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+
+            CloudSim.startSimulation();
+
+            CloudSim.stopSimulation();
+
+            Log.printLine("Latency-aware placement app finished!");
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("Unwanted errors happen");
+        }
+    }
+
+    /**
+     * Creates the fog devices in the physical topology of the simulation.
+     *
+     * @param userId
+     * @param app
+     */
+    private static void createFogDevices(int userId, Application app) {
+        FogDevice cloud = createFogDevice("cloud", 44800, 40000, 100, 10000, 0, 0.01, 16 * 103, 16 * 83.25, MicroserviceFogDevice.CLOUD); // creates the fog device Cloud at the apex of the hierarchy with level=0
+        cloud.setParentId(-1);
+        fogDevices.add(cloud);
+
+        FogDevice proxy = createFogDevice("proxy-server", 2800, 4000, 10000, 10000, 1, 0.0, 107.339, 83.4333, MicroserviceFogDevice.FON); // creates the fog device Proxy Server (level=1)
+        proxy.setParentId(cloud.getId()); // setting Cloud as parent of the Proxy Server
+        proxy.setUplinkLatency(100); // latency of connection from Proxy Server to the Cloud is 100 ms
+        fogDevices.add(proxy);
+
+        for (int i = 0; i < numOfGateways; i++) {
+            FogDevice gateway = createFogDevice("gateway-" + i, cpus[i % 2], ram[i % 2], 10000, 10000, 2, 0.0, 107.339, 83.4333, MicroserviceFogDevice.FCN);
+            gateway.setParentId(proxy.getId());
+            gateway.setUplinkLatency(10); // latency of connection between gateways and proxy server is 10 ms
+            fogDevices.add(gateway);
+            for (int j = 0; j < numOfMobilesPerGateway; j++) {
+                FogDevice mobile = addMobile(i + "-" + j, userId, app, gateway.getId());
+                mobile.setUplinkLatency(2); // latency of connection between the mobile and the gateway is 2 ms
+                fogDevices.add(mobile);
+            }
+        }
+    }
+
+    private static FogDevice addMobile(String id, int userId, Application app, int parentId) {
+        FogDevice mobile = createFogDevice("m-" + id, 500, 1000, 10000, 10000, 3, 0, 87.53, 82.44, MicroserviceFogDevice.CLIENT);
+        mobile.setParentId(parentId);
+
+        Sensor sensor = new Sensor("s-" + id, "SENSOR", userId, app.getAppId(), new DeterministicDistribution(SENSOR_TRANSMISSION_TIME)); // inter-transmission time of the sensor follows a deterministic distribution
+        sensor.setApp(app);
+        sensors.add(sensor);
+
+        Actuator display = new Actuator("a-" + id, userId, app.getAppId(), "DISPLAY");
+        actuators.add(display);
+
+        sensor.setGatewayDeviceId(mobile.getId());
+        sensor.setLatency(6.0);  // latency of connection between the sensor and the parent mobile is 6 ms
+
+        display.setGatewayDeviceId(mobile.getId());
+        display.setLatency(1.0);  // latency of connection between the display actuator and the parent mobile is 1 ms
+        display.setApp(app);
+
+        return mobile;
+    }
+
+    /**
+     * Creates a vanilla fog device
+     *
+     * @param nodeName    name of the device to be used in simulation
+     * @param mips        MIPS
+     * @param ram         RAM
+     * @param upBw        uplink bandwidth
+     * @param downBw      downlink bandwidth
+     * @param level       hierarchy level of the device
+     * @param ratePerMips cost rate per MIPS used
+     * @param busyPower
+     * @param idlePower
+     * @return
+     */
+    private static MicroserviceFogDevice createFogDevice(String nodeName, long mips,
+                                                         int ram, long upBw, long downBw, int level, double ratePerMips, double busyPower, double idlePower, String deviceType) {
+
+        List<Pe> peList = new ArrayList<Pe>();
+
+        // 3. Create PEs and add these into a list.
+        peList.add(new Pe(0, new PeProvisionerOverbooking(mips))); // need to store Pe id and MIPS Rating
+
+        int hostId = FogUtils.generateEntityId();
+        long storage = 1000000; // host storage
+        int bw = 10000;
+
+        PowerHost host = new PowerHost(
+                hostId,
+                new RamProvisionerSimple(ram),
+                new BwProvisionerOverbooking(bw),
+                storage,
+                peList,
+                new StreamOperatorScheduler(peList),
+                new FogLinearPowerModel(busyPower, idlePower)
+        );
+
+        List<Host> hostList = new ArrayList<Host>();
+        hostList.add(host);
+
+        String arch = "x86"; // system architecture
+        String os = "Linux"; // operating system
+        String vmm = "Xen";
+        double time_zone = 10.0; // time zone this resource located
+        double cost = 3.0; // the cost of using processing in this resource
+        double costPerMem = 0.05; // the cost of using memory in this resource
+        double costPerStorage = 0.001; // the cost of using storage in this
+        // resource
+        double costPerBw = 0.0; // the cost of using bw in this resource
+        LinkedList<Storage> storageList = new LinkedList<Storage>(); // we are not adding SAN
+        // devices by now
+
+        FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics(
+                arch, os, vmm, host, time_zone, cost, costPerMem,
+                costPerStorage, costPerBw);
+
+        MicroserviceFogDevice fogdevice = null;
+        try {
+            fogdevice = new MicroserviceFogDevice(nodeName, characteristics,
+                    new AppModuleAllocationPolicy(hostList), storageList, 10, upBw, downBw, 10000, 0, ratePerMips, deviceType);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        fogdevice.setLevel(level);
+        return fogdevice;
+    }
+
+    /**
+     * Function to create the microservices application: a client module on the mobile, a filter and two analytics
+     * modules, one of them heavy enough for the cloud.
+     *
+     * @param appId  unique identifier of the application
+     * @param userId identifier of the user of the application
+     * @return
+     */
+    @SuppressWarnings({"serial"})
+    private static Application createApplication(String appId, int userId) {
+
+        Application application = Application.createApplication(appId, userId);
+
+        /*
+         * Adding modules (vertices) to the application model (directed graph)
+         */
+        application.addAppModule("clientModule", 128, 150, 100);
+        application.addAppModule("mService1", 512, 250, 200);
+        application.addAppModule("mService2", 512, 350, 200);
+        application.addAppModule("mService3", 2048, 450, 1000);
+
+        /*
+         * Connecting the application modules (vertices) in the application model (directed graph) with edges
+         */
+        application.addAppEdge("SENSOR", "clientModule", 1000, 500, "SENSOR", Tuple.UP, AppEdge.SENSOR);
+        application.addAppEdge("clientModule", "mService1", 2000, 500, "RAW_DATA", Tuple.UP, AppEdge.MODULE);
+        application.addAppEdge("mService1", "mService2", 2500, 500, "FILTERED_DATA1", Tuple.UP, AppEdge.MODULE);
+        application.addAppEdge("mService1", "mService3", 4000, 500, "FILTERED_DATA2", Tuple.UP, AppEdge.MODULE);
+
+        application.addAppEdge("mService2", "clientModule", 14, 500, "RESULT1", Tuple.DOWN, AppEdge.MODULE);
+        application.addAppEdge("mService3", "clientModule", 28, 500, "RESULT2", Tuple.DOWN, AppEdge.MODULE);
+        application.addAppEdge("clientModule", "DISPLAY", 14, 500, "RESULT1_DISPLAY", Tuple.DOWN, AppEdge.ACTUATOR);
+        application.addAppEdge("clientModule", "DISPLAY", 14, 500, "RESULT2_DISPLAY", Tuple.DOWN, AppEdge.ACTUATOR);
+
+        /*
+         * Defining the input-output relationships (represented by selectivity) of the application modules.
+         */
+        application.addTupleMapping("clientModule", "SENSOR", "RAW_DATA", new FractionalSelectivity(0.9));
+        application.addTupleMapping("mService1", "RAW_DATA", "FILTERED_DATA1", new FractionalSelectivity(1.0));
+        application.addTupleMapping("mService1", "RAW_DATA", "FILTERED_DATA2", new FractionalSelectivity(1.0));
+        application.addTupleMapping("mService2", "FILTERED_DATA1", "RESULT1", new FractionalSelectivity(1.0));
+        application.addTupleMapping("mService3", "FILTERED_DATA2", "RESULT2", new FractionalSelectivity(1.0));
+        application.addTupleMapping("clientModule", "RESULT1", "RESULT1_DISPLAY", new FractionalSelectivity(1.0));
+        application.addTupleMapping("clientModule", "RESULT2", "RESULT2_DISPLAY", new FractionalSelectivity(1.0));
+
+        /*
+         * Defining application loops to monitor the latency of.
+         */
+        final AppLoop loop1 = new AppLoop(new ArrayList<String>() {{
+            add("SENSOR");
+            add("clientModule");
+            add("mService1");
+            add("mService2");
+            add("clientModule");
+            add("DISPLAY");
+        }});
+
+        final AppLoop loop2 = new AppLoop(new ArrayList<String>() {{
+            add("SENSOR");
+            add("clientModule");
+            add("mService1");
+            add("mService3");
+            add("clientModule");
+            add("DISPLAY");
+        }});
+
+        List<AppLoop> loops = new ArrayList<AppLoop>() {{
+            add(loop1);
+            add(loop2);
+        }};
+        application.setLoops(loops);
+
+        return application;
+    }
+
+}
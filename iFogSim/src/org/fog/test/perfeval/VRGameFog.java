@@ -1,5 +1,6 @@
 package org.fog.test.perfeval;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.LinkedList;
@@ -34,9 +35,17 @@ import org.fog.utils.FogLinearPowerModel;
 import org.fog.utils.FogUtils;
 import org.fog.utils.TimeKeeper;
 import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.metrics.CsvMetricsExporter;
+import org.fog.utils.metrics.FogMetrics;
+import org.fog.utils.metrics.MetricsRegistry;
+import org.fog.utils.metrics.MetricsSampler;
 
 /**
  * Simulation setup for case study 1 - EEG Beam Tractor Game
+ * 
+ * Given the name of a CSV file as argument, it also exports the metrics of the simulation to it,
+ * sampling the energy and cost of the devices and the MIPS of the modules every
+ * METRICS_SAMPLING_INTERVAL.
  * @author Harshit Gupta
  *
  */
@@ -50,6 +59,7 @@ public class VRGameFog {
 	static int numOfDepts = 2;
 	static int numOfMobilesPerDept = 5;
 	static double EEG_TRANSMISSION_TIME = 5;
+	static double METRICS_SAMPLING_INTERVAL = 100;
 	
 	public static void main(String[] args) {
 
@@ -101,6 +111,13 @@ public class VRGameFog {
 					(CLOUD)?(new ModulePlacementMapping(fogDevices, application, moduleMapping))
 							:(new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
 
+			if(args.length > 0){
+				MetricsRegistry metrics = MetricsRegistry.getInstance();
+				metrics.addExporter(new CsvMetricsExporter(Paths.get(args[0])));
+				FogMetrics.registerDeviceMetrics(metrics, fogDevices);
+				new MetricsSampler("metrics-sampler", METRICS_SAMPLING_INTERVAL);
+			}
+
 			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 
 			CloudSim.startSimulation();
@@ -0,0 +1,97 @@
+package org.fog.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationCheckpoint;
+
+/**
+ * Checkpoints of fog simulations, to simulate the warm-up of an experiment once, placement
+ * included, and then run its variants from the warmed-up state. Besides the state of CloudSim, a
+ * checkpoint holds the one of the {@link TimeKeeper}, the monitors and the id generators of
+ * {@link FogUtils}.
+ * <p>
+ * The configuration, e.g. {@link Config} and {@link MicroservicePlacementConfig}, is not saved, so
+ * that the variants can change it after restoring the checkpoint. Neither is the metrics registry:
+ * its exporters write to files, so a restored simulation records its metrics with its own ones.
+ * <p>
+ * A warm-up run schedules the checkpoint before starting the simulation:
+ * <pre>
+ * FogCheckpoint.scheduleAt(warmUpTime, "warmup.ckpt", true);
+ * CloudSim.startSimulation();
+ * </pre>
+ * and each variant, possibly in a fresh JVM, restores it instead of setting up the simulation:
+ * <pre>
+ * FogCheckpoint.restore("warmup.ckpt");
+ * CloudSim.startSimulation();
+ * </pre>
+ */
+public class FogCheckpoint {
+
+	/**
+	 * Captures the state of the running simulation.
+	 *
+	 * @return the checkpoint, to be written before the simulation goes on
+	 */
+	public static SimulationCheckpoint capture(){
+		SimulationCheckpoint checkpoint = SimulationCheckpoint.capture();
+		TimeKeeper.saveState(checkpoint);
+		FogUtils.saveState(checkpoint);
+		NetworkUsageMonitor.saveState(checkpoint);
+		MigrationDelayMonitor.saveState(checkpoint);
+		return checkpoint;
+	}
+
+	/**
+	 * Schedules a checkpoint of the simulation, written to a file once every event up to the given
+	 * time has been processed.
+	 *
+	 * @param time the simulation time of the checkpoint
+	 * @param fileName the name of the file
+	 * @param terminate whether the simulation terminates once the checkpoint is written
+	 * @return true, if successful; false if the time has already passed
+	 */
+	public static boolean scheduleAt(double time, final String fileName, final boolean terminate){
+		return CloudSim.scheduleCheckpoint(time, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					capture().save(fileName);
+				} catch (IOException e) {
+					throw new UncheckedIOException("Cannot write the checkpoint to " + fileName, e);
+				}
+				Logger.debug("FogCheckpoint", "Checkpoint at " + CloudSim.clock() + " written to " + fileName);
+				if(terminate)
+					CloudSim.abruptallyTerminate();
+			}
+		});
+	}
+
+	/**
+	 * Restores a checkpoint. {@link CloudSim#startSimulation()} then resumes the simulation from
+	 * the time of the checkpoint.
+	 *
+	 * @param checkpoint the checkpoint
+	 */
+	public static void restore(SimulationCheckpoint checkpoint){
+		checkpoint.restore();
+		TimeKeeper.restoreState(checkpoint);
+		FogUtils.restoreState(checkpoint);
+		NetworkUsageMonitor.restoreState(checkpoint);
+		MigrationDelayMonitor.restoreState(checkpoint);
+	}
+
+	/**
+	 * Restores the checkpoint written to a file.
+	 *
+	 * @param fileName the name of the file
+	 * @return the checkpoint
+	 * @throws IOException if the file does not hold a checkpoint
+	 */
+	public static SimulationCheckpoint restore(String fileName) throws IOException{
+		SimulationCheckpoint checkpoint = SimulationCheckpoint.load(fileName);
+		restore(checkpoint);
+		return checkpoint;
+	}
+}
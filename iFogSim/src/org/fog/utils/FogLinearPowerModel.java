@@ -20,6 +20,8 @@ import org.cloudbus.cloudsim.power.models.PowerModel;
  */
 public class FogLinearPowerModel implements PowerModel {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The max power. */
 	private double maxPower;
 
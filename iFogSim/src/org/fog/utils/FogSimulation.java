@@ -0,0 +1,52 @@
+package org.fog.utils;
+
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.RandomStreams;
+import org.fog.application.Application;
+import org.fog.entities.FogDevice;
+import org.fog.utils.metrics.FogMetrics;
+import org.fog.utils.metrics.MetricsRegistry;
+
+/**
+ * The end of fog simulations. The controllers end a simulation without exiting the JVM, and reset
+ * the state kept outside of CloudSim, i.e. the one a {@link FogCheckpoint} holds: the
+ * {@link TimeKeeper}, the monitors and the id generators of {@link FogUtils}, and restart the
+ * numbering of the {@link RandomStreams}. Thus several simulations can run one after the other in
+ * one process, each set up after {@link CloudSim#init(int, java.util.Calendar, boolean)} as if it
+ * were the first, and getting the same random numbers for the same master seed.
+ * <p>
+ * The configuration, e.g. {@link Config} and {@link MicroservicePlacementConfig}, is not reset, nor
+ * are the static lists some examples build their topology in.
+ */
+public class FogSimulation {
+
+	/**
+	 * Ends the simulation once the controller has printed its results: records them in the metrics
+	 * registry, closes it, resets the state of the simulation and terminates it.
+	 * {@link CloudSim#startSimulation()} then returns.
+	 *
+	 * @param fogDevices the fog devices of the simulation
+	 * @param applications the applications, by id
+	 */
+	public static void end(List<FogDevice> fogDevices, Map<String, Application> applications){
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		FogMetrics.recordResults(metrics, fogDevices, applications);
+		metrics.close(CloudSim.clock());
+		reset();
+		CloudSim.abruptallyTerminate();
+	}
+
+	/**
+	 * Resets the state kept outside of CloudSim, for another simulation to start afresh.
+	 */
+	public static void reset(){
+		TimeKeeper.resetState();
+		FogUtils.resetState();
+		NetworkUsageMonitor.resetState();
+		MigrationDelayMonitor.resetState();
+		RandomStreams.setMasterSeed(RandomStreams.getMasterSeed());
+	}
+}
@@ -3,6 +3,8 @@ package org.fog.utils;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.SimulationCheckpoint;
+
 public class FogUtils {
 	private static int TUPLE_ID = 1;
 	private static int ENTITY_ID = 1;
@@ -30,4 +32,26 @@ public class FogUtils {
 	public static int MAX = 10000000;
 	
 	public static Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
+
+	static void saveState(SimulationCheckpoint checkpoint){
+		checkpoint.attach("FogUtils.ids", new int[]{TUPLE_ID, ENTITY_ID, ACTUAL_TUPLE_ID, USER_ID});
+		checkpoint.attach("FogUtils.appIdToGeoCoverageMap", new HashMap<String, GeoCoverage>(appIdToGeoCoverageMap));
+	}
+
+	static void restoreState(SimulationCheckpoint checkpoint){
+		int[] ids = checkpoint.getAttachment("FogUtils.ids");
+		TUPLE_ID = ids[0];
+		ENTITY_ID = ids[1];
+		ACTUAL_TUPLE_ID = ids[2];
+		USER_ID = ids[3];
+		appIdToGeoCoverageMap = checkpoint.getAttachment("FogUtils.appIdToGeoCoverageMap");
+	}
+
+	static void resetState(){
+		TUPLE_ID = 1;
+		ENTITY_ID = 1;
+		ACTUAL_TUPLE_ID = 1;
+		USER_ID = 1;
+		appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
+	}
 }
@@ -0,0 +1,242 @@
+package org.fog.utils;
+
+import org.fog.entities.FogDevice;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates the routing tables of the devices of a hierarchical topology, in which devices are connected to their parent,
+ * to their children and to the members of their cluster, which share their parent.
+ * <p>
+ * Unlike {@link ShortestPathRoutingGenerator}, the tables do not have an entry for each destination. The devices are
+ * numbered in depth-first order, so the devices of a subtree have consecutive numbers, and the table of a device
+ * routes each destination to the child or cluster member whose subtree contains it, and any other destination to the
+ * parent. The routing state is thus proportional to the number of devices rather than to its square.
+ * <p>
+ * The numbering is not changed when a device moves to another parent. The devices whose tables would route it to its
+ * former position instead get an explicit entry for it: they are on the branches from the former and the new parent
+ * up to their common ancestor, or in the clusters of these devices.
+ */
+public class HierarchicalRouting implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Integer, FogDevice> devices = new HashMap<>();
+
+    private final Map<Integer, HierarchicalRoutingTable> routingTables = new HashMap<>();
+
+    // indexed by device id, -1 for ids of other entities
+    private final int[] numbers;
+
+    // indexed by device id, the last number of the subtree of the device
+    private final int[] lastNumbers;
+
+    // indexed by device id, the parent of the device when it was numbered
+    private final int[] numberedParentIds;
+
+    // <moved device id, devices having an explicit entry for it>
+    private final Map<Integer, List<Integer>> explicitRouteHolders = new HashMap<>();
+
+    private HierarchicalRouting(List<FogDevice> fogDevices) {
+        int maxId = -1;
+        for (FogDevice fogDevice : fogDevices) {
+            devices.put(fogDevice.getId(), fogDevice);
+            maxId = Math.max(maxId, fogDevice.getId());
+        }
+        numbers = new int[maxId + 1];
+        lastNumbers = new int[maxId + 1];
+        numberedParentIds = new int[maxId + 1];
+        Arrays.fill(numbers, -1);
+        Arrays.fill(lastNumbers, -1);
+        Arrays.fill(numberedParentIds, -1);
+
+        int next = 0;
+        for (FogDevice fogDevice : fogDevices) {
+            if (!devices.containsKey(fogDevice.getParentId()))
+                next = number(fogDevice, next);
+        }
+    }
+
+    /**
+     * Numbers a device and its subtree in depth-first order.
+     *
+     * @return the next number
+     */
+    private int number(FogDevice fogDevice, int next) {
+        int id = fogDevice.getId();
+        numbers[id] = next++;
+        numberedParentIds[id] = fogDevice.getParentId();
+        if (fogDevice.getChildrenIds() != null) {
+            for (int childId : fogDevice.getChildrenIds()) {
+                FogDevice child = devices.get(childId);
+                if (child != null && numbers[childId] < 0)
+                    next = number(child, next);
+            }
+        }
+        lastNumbers[id] = next - 1;
+        return next;
+    }
+
+    public static HierarchicalRouting generateRoutingTables(List<FogDevice> fogDevices) {
+        HierarchicalRouting routing = new HierarchicalRouting(fogDevices);
+
+        for (FogDevice fogDevice : fogDevices) {
+            HierarchicalRoutingTable routingTable = new HierarchicalRoutingTable(routing, fogDevice.getId(), fogDevice.getParentId());
+            if (fogDevice.getChildrenIds() != null) {
+                for (int childId : fogDevice.getChildrenIds()) {
+                    if (routing.devices.containsKey(childId))
+                        routingTable.putSubtreeRoute(childId, childId);
+                }
+            }
+            if (fogDevice.getClusterMembers() != null) {
+                for (int clusterMemberId : fogDevice.getClusterMembers()) {
+                    if (routing.devices.containsKey(clusterMemberId))
+                        routingTable.putSubtreeRoute(clusterMemberId, clusterMemberId);
+                }
+            }
+            routing.routingTables.put(fogDevice.getId(), routingTable);
+        }
+
+        System.out.println("Routing Table : ");
+        for (FogDevice fogDevice : fogDevices) {
+            System.out.println(fogDevice.getName() + " : " + routing.getRoutingTable(fogDevice.getId()));
+        }
+        System.out.println("\n");
+
+        return routing;
+    }
+
+    public HierarchicalRoutingTable getRoutingTable(int deviceId) {
+        return routingTables.get(deviceId);
+    }
+
+    /**
+     * Updates the routing after a device moved to another parent, along with its subtree. The routing tables
+     * changed are the one of the device and, if the device is away from the parent it was numbered under, the ones
+     * of the devices on the branches from that parent and from the new parent up to their common ancestor, and of
+     * the members of their clusters. A device then routes the moved devices as it routes the new parent.
+     *
+     * @param fogDevice the device, whose parent id is already the one of the new parent
+     */
+    public void updateRoutingOnHandover(FogDevice fogDevice) {
+        int deviceId = fogDevice.getId();
+        int parentId = fogDevice.getParentId();
+        routingTables.get(deviceId).setDefaultRoute(parentId);
+
+        List<Integer> movedDevices = getSubtree(deviceId);
+        for (int movedId : movedDevices) {
+            List<Integer> holders = explicitRouteHolders.remove(movedId);
+            if (holders != null) {
+                for (int holderId : holders)
+                    routingTables.get(holderId).removeRoute(movedId);
+            }
+        }
+        if (parentId == numberedParentIds[deviceId])
+            return;
+
+        List<Integer> numberedBranch = getPathToRoot(numberedParentIds[deviceId]);
+        List<Integer> newBranch = getPathToRoot(parentId);
+        // keep the branches up to their common ancestor only, as the devices above route both through it
+        while (numberedBranch.size() > 1 && newBranch.size() > 1
+                && numberedBranch.get(numberedBranch.size() - 2).equals(newBranch.get(newBranch.size() - 2))) {
+            numberedBranch.remove(numberedBranch.size() - 1);
+            newBranch.remove(newBranch.size() - 1);
+        }
+        Integer commonAncestor = null;
+        if (!numberedBranch.isEmpty() && !newBranch.isEmpty()
+                && numberedBranch.get(numberedBranch.size() - 1).equals(newBranch.get(newBranch.size() - 1)))
+            commonAncestor = newBranch.get(newBranch.size() - 1);
+
+        Set<Integer> branchDevices = new LinkedHashSet<>(numberedBranch);
+        branchDevices.addAll(newBranch);
+        Set<Integer> affectedDevices = new LinkedHashSet<>(branchDevices);
+        for (int branchDeviceId : branchDevices) {
+            if (commonAncestor != null && branchDeviceId == commonAncestor)
+                continue;
+            List<Integer> clusterMembers = devices.get(branchDeviceId).getClusterMembers();
+            if (clusterMembers != null) {
+                for (int clusterMemberId : clusterMembers) {
+                    if (routingTables.containsKey(clusterMemberId))
+                        affectedDevices.add(clusterMemberId);
+                }
+            }
+        }
+        affectedDevices.removeAll(new HashSet<>(movedDevices));
+
+        for (int affectedId : affectedDevices) {
+            HierarchicalRoutingTable routingTable = routingTables.get(affectedId);
+            int nextId = affectedId == parentId ? deviceId : routingTable.getNextDevice(parentId);
+            for (int movedId : movedDevices) {
+                if (routingTable.getSubtreeRoute(movedId) != nextId) {
+                    routingTable.putRoute(movedId, nextId);
+                    explicitRouteHolders.computeIfAbsent(movedId, id -> new ArrayList<>()).add(affectedId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the routes of a device to the members of its cluster after the cluster changed.
+     *
+     * @param fogDevice       the device, whose cluster members are already the new ones
+     * @param previousMembers the former cluster members of the device
+     */
+    public void updateClusterRoutes(FogDevice fogDevice, List<Integer> previousMembers) {
+        HierarchicalRoutingTable routingTable = routingTables.get(fogDevice.getId());
+        List<Integer> clusterMembers = fogDevice.getClusterMembers();
+        for (int previousMemberId : previousMembers) {
+            if (!clusterMembers.contains(previousMemberId) && !fogDevice.getChildrenIds().contains(previousMemberId))
+                routingTable.removeSubtreeRoute(previousMemberId);
+        }
+        for (int clusterMemberId : clusterMembers) {
+            if (devices.containsKey(clusterMemberId))
+                routingTable.putSubtreeRoute(clusterMemberId, clusterMemberId);
+        }
+    }
+
+    private List<Integer> getSubtree(int deviceId) {
+        List<Integer> subtree = new ArrayList<>();
+        subtree.add(deviceId);
+        for (int i = 0; i < subtree.size(); i++) {
+            List<Integer> childrenIds = devices.get(subtree.get(i)).getChildrenIds();
+            if (childrenIds != null) {
+                for (int childId : childrenIds) {
+                    if (devices.containsKey(childId))
+                        subtree.add(childId);
+                }
+            }
+        }
+        return subtree;
+    }
+
+    private List<Integer> getPathToRoot(int deviceId) {
+        List<Integer> path = new ArrayList<>();
+        while (devices.containsKey(deviceId) && path.size() <= devices.size()) {
+            path.add(deviceId);
+            deviceId = devices.get(deviceId).getParentId();
+        }
+        return path;
+    }
+
+    int getNumber(int deviceId) {
+        return deviceId >= 0 && deviceId < numbers.length ? numbers[deviceId] : -1;
+    }
+
+    int getLastNumber(int deviceId) {
+        return deviceId >= 0 && deviceId < lastNumbers.length ? lastNumbers[deviceId] : -1;
+    }
+
+    String getDeviceName(int deviceId) {
+        FogDevice fogDevice = devices.get(deviceId);
+        return fogDevice != null ? fogDevice.getName() : String.valueOf(deviceId);
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.fog.utils;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Routing table of a device in a hierarchical topology. Devices are numbered in depth-first order by
+ * {@link HierarchicalRouting}, so the devices of a subtree have consecutive numbers. The table routes a destination
+ * to the child or cluster member whose range of numbers contains it, and any other destination to the default
+ * route, i.e. the parent. Destinations routed otherwise, such as mobile devices that moved out of the subtree they
+ * were numbered in, have explicit entries, which take precedence over the ranges.
+ */
+public class HierarchicalRoutingTable implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HierarchicalRouting routing;
+
+    private final int deviceId;
+
+    private int defaultRoute;
+
+    // <first number of the range>  ->  <last number of the range, next device to route to, root of the subtree>
+    private final TreeMap<Integer, int[]> subtreeRoutes = new TreeMap<>();
+
+    // <dest device id, next device to route to>
+    private final Map<Integer, Integer> explicitRoutes = new HashMap<>();
+
+    HierarchicalRoutingTable(HierarchicalRouting routing, int deviceId, int defaultRoute) {
+        this.routing = routing;
+        this.deviceId = deviceId;
+        this.defaultRoute = defaultRoute;
+    }
+
+    /**
+     * Gets the next device on the route to a destination.
+     *
+     * @param destId the id of the destination device
+     * @return the id of the next device, the id of this device if it is the destination, or the default route if
+     * the destination is unknown
+     */
+    public int getNextDevice(int destId) {
+        if (!explicitRoutes.isEmpty()) {
+            Integer nextId = explicitRoutes.get(destId);
+            if (nextId != null)
+                return nextId;
+        }
+        return getSubtreeRoute(destId);
+    }
+
+    /**
+     * Gets the next device on the route to a destination, ignoring the explicit entries.
+     */
+    int getSubtreeRoute(int destId) {
+        if (destId == deviceId)
+            return deviceId;
+        int number = routing.getNumber(destId);
+        if (number >= 0) {
+            Map.Entry<Integer, int[]> range = subtreeRoutes.floorEntry(number);
+            if (range != null && number <= range.getValue()[0])
+                return range.getValue()[1];
+        }
+        return defaultRoute;
+    }
+
+    /**
+     * Routes the devices numbered in the subtree of a device to a next device, e.g. the subtree of a child to the
+     * child. The subtrees routed by a table must not overlap.
+     *
+     * @param subtreeRootId the id of the root of the subtree
+     * @param nextId        the id of the next device
+     */
+    public void putSubtreeRoute(int subtreeRootId, int nextId) {
+        int first = routing.getNumber(subtreeRootId);
+        if (first < 0)
+            Logger.error("Routing error", "Device " + subtreeRootId + " is not numbered in the routing of device " + deviceId);
+        else
+            subtreeRoutes.put(first, new int[]{routing.getLastNumber(subtreeRootId), nextId, subtreeRootId});
+    }
+
+    public void removeSubtreeRoute(int subtreeRootId) {
+        int first = routing.getNumber(subtreeRootId);
+        int[] range = subtreeRoutes.get(first);
+        if (range != null && range[2] == subtreeRootId)
+            subtreeRoutes.remove(first);
+    }
+
+    public void putRoute(int destId, int nextId) {
+        explicitRoutes.put(destId, nextId);
+    }
+
+    public void removeRoute(int destId) {
+        explicitRoutes.remove(destId);
+    }
+
+    public int getDefaultRoute() {
+        return defaultRoute;
+    }
+
+    public void setDefaultRoute(int defaultRoute) {
+        this.defaultRoute = defaultRoute;
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Gets the number of entries of the table, the default route excluded.
+     */
+    public int size() {
+        return subtreeRoutes.size() + explicitRoutes.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder("{");
+        for (int[] range : subtreeRoutes.values()) {
+            table.append(routing.getDeviceName(range[2])).append(" subtree=").append(routing.getDeviceName(range[1])).append(", ");
+        }
+        for (Map.Entry<Integer, Integer> route : explicitRoutes.entrySet()) {
+            table.append(routing.getDeviceName(route.getKey())).append("=").append(routing.getDeviceName(route.getValue())).append(", ");
+        }
+        return table.append("default=").append(routing.getDeviceName(defaultRoute)).append("}").toString();
+    }
+
+}
@@ -1,12 +1,15 @@
 package org.fog.utils;
 
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.math.BigDecimal;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Pe;
@@ -27,127 +30,74 @@ import org.fog.utils.distribution.DeterministicDistribution;
 import org.fog.utils.distribution.Distribution;
 import org.fog.utils.distribution.NormalDistribution;
 import org.fog.utils.distribution.UniformDistribution;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
 
+/**
+ * Builds a {@link PhysicalTopology} from a JSON topology file or from a binary {@link TopologySnapshot} of one.
+ * JSON files are read with a streaming parser and entities are created as their nodes are read,
+ * and names are resolved through hash indexes, so loading is linear in the number of nodes and links.
+ */
 public class JsonToTopology {
 
 	private static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
 	private static List<Sensor> sensors = new ArrayList<Sensor>();
 	private static List<Actuator> actuators = new ArrayList<Actuator>();
+
+	/**
+	 * Entities indexed by lower-case name, as names are matched ignoring case
+	 */
+	private static Map<String, FogDevice> fogDeviceIndex = new HashMap<String, FogDevice>();
+	private static Map<String, Sensor> sensorIndex = new HashMap<String, Sensor>();
+	private static Map<String, Actuator> actuatorIndex = new HashMap<String, Actuator>();
+
+	private static String key(String name){
+		return name == null ? null : name.toLowerCase(Locale.ROOT);
+	}
  
 	private static boolean isFogDevice(String name){
-		for(FogDevice fogDevice : fogDevices){
-			if(fogDevice.getName().equalsIgnoreCase(name))
-				return true;
-		}
-		return false;
-		
+		return fogDeviceIndex.containsKey(key(name));
 	}
 	
 	private static FogDevice getFogDevice(String name){
-		for(FogDevice fogDevice : fogDevices){
-			if(fogDevice.getName().equalsIgnoreCase(name))
-				return fogDevice;
-		}
-		return null;
+		return fogDeviceIndex.get(key(name));
 	}
 	
 	private static boolean isActuator(String name){
-		for(Actuator actuator : actuators){
-			if(actuator.getName().equalsIgnoreCase(name))
-				return true;
-		}
-		return false;
+		return actuatorIndex.containsKey(key(name));
 	}
 	
 	private static Actuator getActuator(String name){
-		for(Actuator actuator : actuators){
-			if(actuator.getName().equalsIgnoreCase(name))
-				return actuator;
-		}
-		return null;
+		return actuatorIndex.get(key(name));
 	}
 	
 	private static boolean isSensor(String name){
-		for(Sensor sensor : sensors){
-			if(sensor.getName().equalsIgnoreCase(name))
-				return true;
-		}
-		return false;
+		return sensorIndex.containsKey(key(name));
 	}
 	
 	private static Sensor getSensor(String name){
-		for(Sensor sensor : sensors){
-			if(sensor.getName().equalsIgnoreCase(name))
-				return sensor;
-		}
-		return null;
+		return sensorIndex.get(key(name));
 	}
 	
+	/**
+	 * Creates the physical topology described by a JSON topology file or by a topology snapshot.
+	 * @param userId
+	 * @param appId
+	 * @param physicalTopologyFile path of a JSON topology or of a snapshot written by {@link TopologySnapshot#write(String, String)}
+	 * @return
+	 * @throws Exception
+	 */
 	public static PhysicalTopology getPhysicalTopology(int userId, String appId, String physicalTopologyFile) throws Exception{
 				
 		fogDevices = new ArrayList<FogDevice>();
 		sensors = new ArrayList<Sensor>();
 		actuators = new ArrayList<Actuator>();
-		
+		fogDeviceIndex = new HashMap<String, FogDevice>();
+		sensorIndex = new HashMap<String, Sensor>();
+		actuatorIndex = new HashMap<String, Actuator>();
 		
 		try {
-			JSONObject doc = (JSONObject) JSONValue.parse(new FileReader(physicalTopologyFile));
-    		JSONArray nodes = (JSONArray) doc.get("nodes");
-    		@SuppressWarnings("unchecked")
-			Iterator<JSONObject> iter =nodes.iterator(); 
-			while(iter.hasNext()){
-				JSONObject node = iter.next();
-				String nodeType = (String) node.get("type");
-				String nodeName = (String) node.get("name");
-				
-				if(nodeType.equalsIgnoreCase("FOG_DEVICE")){
-					long mips = (Long) node.get("mips");
-					int ram = new BigDecimal((Long)node.get("ram")).intValueExact();
-					long upBw = new BigDecimal((Long)node.get("upBw")).intValueExact();
-					long downBw = new BigDecimal((Long)node.get("downBw")).intValueExact();
-					int level = new BigDecimal((Long)node.get("level")).intValue();
-					double ratePerMips = new BigDecimal((Double)node.get("ratePerMips")).doubleValue();
-					
-					FogDevice fogDevice = createFogDevice(nodeName, mips, ram, upBw, downBw, level, ratePerMips);
-					fogDevice.setParentId(-1);
-					
-					fogDevices.add(fogDevice);
-
-				} else if(nodeType.equals("SENSOR")){
-					String sensorType = node.get("sensorType").toString();
-					int distType = new BigDecimal((Long)node.get("distribution")).intValue();
-					Distribution distribution = null;
-					if(distType == Distribution.DETERMINISTIC)
-						distribution = new DeterministicDistribution(new BigDecimal((Double)node.get("value")).doubleValue());
-					else if(distType == Distribution.NORMAL){
-						distribution = new NormalDistribution(new BigDecimal((Double)node.get("mean")).doubleValue(), 
-								new BigDecimal((Double)node.get("stdDev")).doubleValue());
-					} else if(distType == Distribution.UNIFORM){
-						distribution = new UniformDistribution(new BigDecimal((Double)node.get("min")).doubleValue(), 
-								new BigDecimal((Double)node.get("max")).doubleValue());
-					}
-					System.out.println("Sensor type : "+sensorType);
-					sensors.add(new Sensor(nodeName, sensorType, userId, appId, distribution));
-				} else if(nodeType.equals("ACTUATOR")){
-					String actuatorType = node.get("actuatorType").toString();
-					actuators.add(new Actuator(nodeName, userId, appId, actuatorType));
-				}
-			}
-				
-			JSONArray links = (JSONArray) doc.get("links");
-			@SuppressWarnings("unchecked")
-			Iterator<JSONObject> linksIter =links.iterator(); 
-			while(linksIter.hasNext()){
-				JSONObject link = linksIter.next();
-				String src = (String) link.get("source");  
-				String dst = (String) link.get("destination");
-				double lat = (Double) link.get("latency");
-				
-				connectEntities(src, dst, lat);
-			}
+			read(physicalTopologyFile, new EntityBuilder(userId, appId));
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		}
@@ -157,6 +107,228 @@ public class JsonToTopology {
 		physicalTopology.setSensors(sensors);
 		return physicalTopology;
 	}
+
+	/**
+	 * Reads a JSON topology file or a topology snapshot in one pass, reporting its entities and links to <i>handler</i>.
+	 * @param physicalTopologyFile path of the topology file
+	 * @param handler receiver of the entities and links
+	 * @throws Exception
+	 */
+	public static void read(String physicalTopologyFile, TopologyHandler handler) throws Exception{
+		if(TopologySnapshot.isSnapshot(physicalTopologyFile)){
+			TopologySnapshot.read(physicalTopologyFile, handler);
+			return;
+		}
+		Reader reader = new BufferedReader(new FileReader(physicalTopologyFile), 1 << 16);
+		try {
+			JsonTopologyReader jsonReader = new JsonTopologyReader(handler);
+			new JSONParser().parse(reader, jsonReader);
+			jsonReader.rethrow();
+		} finally {
+			reader.close();
+		}
+		handler.end();
+	}
+
+	/**
+	 * Streaming reader that turns each object of the <i>nodes</i> and <i>links</i> arrays of a JSON topology
+	 * into a call on a {@link TopologyHandler} as soon as the object is complete.
+	 */
+	private static class JsonTopologyReader implements ContentHandler {
+
+		private final TopologyHandler handler;
+		private final Map<String, Object> record = new HashMap<String, Object>();
+		private String section;
+		private String key;
+		private int depth;
+		private boolean inRecord;
+		private Exception error;
+
+		JsonTopologyReader(TopologyHandler handler){
+			this.handler = handler;
+		}
+
+		void rethrow() throws Exception{
+			if(error != null)
+				throw error;
+		}
+
+		@Override
+		public void startJSON() {
+		}
+
+		@Override
+		public void endJSON() {
+		}
+
+		@Override
+		public boolean startObject() {
+			depth++;
+			if(depth == 3 && section != null){
+				record.clear();
+				inRecord = true;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean endObject() {
+			boolean proceed = true;
+			if(depth == 3 && inRecord){
+				inRecord = false;
+				try {
+					if(section.equals("nodes"))
+						node(record);
+					else
+						link(record);
+				} catch (Exception e) {
+					error = e;
+					proceed = false;
+				}
+			}
+			depth--;
+			return proceed;
+		}
+
+		@Override
+		public boolean startObjectEntry(String key) {
+			if(depth == 1)
+				section = (key.equals("nodes") || key.equals("links")) ? key : null;
+			else if(depth == 3)
+				this.key = key;
+			return true;
+		}
+
+		@Override
+		public boolean endObjectEntry() {
+			if(depth == 1)
+				section = null;
+			return true;
+		}
+
+		@Override
+		public boolean startArray() {
+			depth++;
+			return true;
+		}
+
+		@Override
+		public boolean endArray() {
+			depth--;
+			return true;
+		}
+
+		@Override
+		public boolean primitive(Object value) {
+			if(depth == 3 && inRecord)
+				record.put(key, value);
+			return true;
+		}
+
+		private void node(Map<String, Object> node) throws Exception{
+			String nodeType = (String) node.get("type");
+			String nodeName = (String) node.get("name");
+			
+			if(nodeType.equalsIgnoreCase("FOG_DEVICE")){
+				long mips = ((Number) node.get("mips")).longValue();
+				int ram = Math.toIntExact(((Number) node.get("ram")).longValue());
+				long upBw = Math.toIntExact(((Number) node.get("upBw")).longValue());
+				long downBw = Math.toIntExact(((Number) node.get("downBw")).longValue());
+				int level = ((Number) node.get("level")).intValue();
+				double ratePerMips = ((Number) node.get("ratePerMips")).doubleValue();
+				handler.fogDevice(nodeName, mips, ram, upBw, downBw, level, ratePerMips);
+			} else if(nodeType.equals("SENSOR")){
+				String sensorType = node.get("sensorType").toString();
+				int distType = ((Number) node.get("distribution")).intValue();
+				double first = 0, second = 0;
+				if(distType == Distribution.DETERMINISTIC)
+					first = ((Number) node.get("value")).doubleValue();
+				else if(distType == Distribution.NORMAL){
+					first = ((Number) node.get("mean")).doubleValue();
+					second = ((Number) node.get("stdDev")).doubleValue();
+				} else if(distType == Distribution.UNIFORM){
+					first = ((Number) node.get("min")).doubleValue();
+					second = ((Number) node.get("max")).doubleValue();
+				}
+				handler.sensor(nodeName, sensorType, distType, first, second);
+			} else if(nodeType.equals("ACTUATOR")){
+				handler.actuator(nodeName, node.get("actuatorType").toString());
+			}
+		}
+
+		private void link(Map<String, Object> link) throws Exception{
+			String src = (String) link.get("source");  
+			String dst = (String) link.get("destination");
+			double lat = ((Number) link.get("latency")).doubleValue();
+			handler.link(src, dst, lat);
+		}
+	}
+
+	/**
+	 * Creates the simulation entities of the topology. Links are connected once all entities exist,
+	 * as a file may list links before the nodes they connect.
+	 */
+	private static class EntityBuilder implements TopologyHandler {
+
+		private final int userId;
+		private final String appId;
+		private final List<String> linkSources = new ArrayList<String>();
+		private final List<String> linkDestinations = new ArrayList<String>();
+		private final List<Double> linkLatencies = new ArrayList<Double>();
+
+		EntityBuilder(int userId, String appId){
+			this.userId = userId;
+			this.appId = appId;
+		}
+
+		@Override
+		public void fogDevice(String name, long mips, int ram, long upBw, long downBw, int level, double ratePerMips) {
+			FogDevice fogDevice = createFogDevice(name, mips, ram, upBw, downBw, level, ratePerMips);
+			fogDevice.setParentId(-1);
+			
+			fogDevices.add(fogDevice);
+			if(!fogDeviceIndex.containsKey(key(name)))
+				fogDeviceIndex.put(key(name), fogDevice);
+		}
+
+		@Override
+		public void sensor(String name, String sensorType, int distributionType, double first, double second) {
+			Distribution distribution = null;
+			if(distributionType == Distribution.DETERMINISTIC)
+				distribution = new DeterministicDistribution(first);
+			else if(distributionType == Distribution.NORMAL)
+				distribution = new NormalDistribution(first, second);
+			else if(distributionType == Distribution.UNIFORM)
+				distribution = new UniformDistribution(first, second);
+			Logger.debug("JsonToTopology", "Sensor type : "+sensorType);
+			Sensor sensor = new Sensor(name, sensorType, userId, appId, distribution);
+			sensors.add(sensor);
+			if(!sensorIndex.containsKey(key(name)))
+				sensorIndex.put(key(name), sensor);
+		}
+
+		@Override
+		public void actuator(String name, String actuatorType) {
+			Actuator actuator = new Actuator(name, userId, appId, actuatorType);
+			actuators.add(actuator);
+			if(!actuatorIndex.containsKey(key(name)))
+				actuatorIndex.put(key(name), actuator);
+		}
+
+		@Override
+		public void link(String source, String destination, double latency) {
+			linkSources.add(source);
+			linkDestinations.add(destination);
+			linkLatencies.add(latency);
+		}
+
+		@Override
+		public void end() {
+			for(int i = 0; i < linkSources.size(); i++)
+				connectEntities(linkSources.get(i), linkDestinations.get(i), linkLatencies.get(i));
+		}
+	}
+
 	private static FogDevice createFogDevice(String nodeName, long mips,
 			int ram, long upBw, long downBw, int level, double ratePerMips) {
 		
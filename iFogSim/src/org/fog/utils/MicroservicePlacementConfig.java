@@ -14,6 +14,9 @@ public class MicroservicePlacementConfig {
     // For periodic placement
     public static final double PLACEMENT_INTERVAL = 1;
 
+    // Placement requests of a FON placed concurrently, partitioned by the devices and clusters they are placed on
+    public static boolean PARALLEL_PLACEMENT = false;
+
     //Resource info sharing among cluster nodes
     public static Boolean ENABLE_RESOURCE_DATA_SHARING = false;
     public static double MODULE_DEPLOYMENT_TIME = 0.0;
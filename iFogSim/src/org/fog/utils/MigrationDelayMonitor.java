@@ -1,5 +1,7 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.SimulationCheckpoint;
+
 public class MigrationDelayMonitor {
 	
 	private static double migrationDelay = 0.0;
@@ -11,4 +13,16 @@ public class MigrationDelayMonitor {
 	public static void setMigrationDelay(double migrationDelayReceived) {
 		migrationDelay += migrationDelayReceived;
 	}
+
+	static void saveState(SimulationCheckpoint checkpoint) {
+		checkpoint.attach("MigrationDelayMonitor.migrationDelay", migrationDelay);
+	}
+
+	static void restoreState(SimulationCheckpoint checkpoint) {
+		migrationDelay = checkpoint.<Double>getAttachment("MigrationDelayMonitor.migrationDelay");
+	}
+
+	static void resetState() {
+		migrationDelay = 0.0;
+	}
 }
@@ -1,5 +1,7 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.SimulationCheckpoint;
+
 public class NetworkUsageMonitor {
 
 	private static double networkUsage = 0.0;
@@ -15,4 +17,16 @@ public class NetworkUsageMonitor {
 	public static double getNetworkUsage(){
 		return networkUsage;
 	}
+
+	static void saveState(SimulationCheckpoint checkpoint){
+		checkpoint.attach("NetworkUsageMonitor.networkUsage", networkUsage);
+	}
+
+	static void restoreState(SimulationCheckpoint checkpoint){
+		networkUsage = checkpoint.<Double>getAttachment("NetworkUsageMonitor.networkUsage");
+	}
+
+	static void resetState(){
+		networkUsage = 0.0;
+	}
 }
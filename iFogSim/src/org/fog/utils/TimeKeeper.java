@@ -1,14 +1,20 @@
 package org.fog.utils;
 
+import java.io.Serializable;
+import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationCheckpoint;
 import org.fog.entities.Tuple;
+import org.fog.utils.metrics.SteadyStateMonitor;
 
-public class TimeKeeper {
+public class TimeKeeper implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private static TimeKeeper instance;
 	
@@ -30,6 +36,8 @@ public class TimeKeeper {
 	private Map<Integer, Map<String, Map<Integer, Pair<Integer, Double>>>> costCalcData = new HashMap<>();
 	// last execution time
 	private Map<Integer, Double> tupleIdToExecutionTime = new HashMap<>();
+
+	private SteadyStateMonitor steadyStateMonitor;
 	
 	public static TimeKeeper getInstance(){
 		if(instance == null)
@@ -37,6 +45,23 @@ public class TimeKeeper {
 		return instance;
 	}
 	
+	static void saveState(SimulationCheckpoint checkpoint){
+		checkpoint.attach("TimeKeeper", getInstance());
+	}
+
+	/**
+	 * Restores the time keeper of a checkpoint. The wall clock time of the simulation is then
+	 * measured from the restoration, as only the rest of the simulation is run.
+	 */
+	static void restoreState(SimulationCheckpoint checkpoint){
+		instance = checkpoint.getAttachment("TimeKeeper");
+		instance.setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+	}
+
+	static void resetState(){
+		instance = null;
+	}
+	
 	public int getUniqueId(){
 		return count++;
 	}
@@ -49,6 +74,8 @@ public class TimeKeeper {
 		if(!tupleIdToCpuStartTime.containsKey(tuple.getCloudletId()))
 			return;
 		double executionTime = CloudSim.clock() - tupleIdToCpuStartTime.get(tuple.getCloudletId());
+		if(steadyStateMonitor != null)
+			steadyStateMonitor.tupleCpuTime(tuple.getTupleType(), executionTime);
 		if(!tupleTypeToAverageCpuTime.containsKey(tuple.getTupleType())){
 			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), executionTime);
 			tupleTypeToExecutedTupleCount.put(tuple.getTupleType(), 1);
@@ -59,6 +86,23 @@ public class TimeKeeper {
 		}
 	}
 	
+	/**
+	 * Records the delay of an execution of a loop, ending at the current time.
+	 */
+	public void loopEnded(int loopId, double delay){
+		if(!loopIdToCurrentAverage.containsKey(loopId)){
+			loopIdToCurrentAverage.put(loopId, 0.0);
+			loopIdToCurrentNum.put(loopId, 0);
+		}
+		double currentAverage = loopIdToCurrentAverage.get(loopId);
+		int currentCount = loopIdToCurrentNum.get(loopId);
+		double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
+		loopIdToCurrentAverage.put(loopId, newAverage);
+		loopIdToCurrentNum.put(loopId, currentCount+1);
+		if(steadyStateMonitor != null)
+			steadyStateMonitor.loopDelay(loopId, delay);
+	}
+	
 	public Map<Integer, List<Integer>> loopIdToTupleIds(){
 		return getInstance().getLoopIdToTupleIds();
 	}
@@ -157,6 +201,17 @@ public class TimeKeeper {
 		this.loopIdToCurrentNum = loopIdToCurrentNum;
 	}
 
+	public SteadyStateMonitor getSteadyStateMonitor() {
+		return steadyStateMonitor;
+	}
+
+	/**
+	 * Sets the monitor the loop delays and tuple CPU times are reported to, null for none.
+	 */
+	public void setSteadyStateMonitor(SteadyStateMonitor steadyStateMonitor) {
+		this.steadyStateMonitor = steadyStateMonitor;
+	}
+
 	public Map<Integer, Integer> getLoopIdToLatencyQoSSuccessCount() {
 		return loopIdToLatencyQoSSuccessCount;
 	}
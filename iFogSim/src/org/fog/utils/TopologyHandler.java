@@ -0,0 +1,30 @@
+package org.fog.utils;
+
+/**
+ * Receives the entities of a physical topology, in file order, while a topology file is being read.
+ * Implemented by the entity builder of {@link JsonToTopology} and by the writer of {@link TopologySnapshot},
+ * so that JSON topologies and binary snapshots are read through the same single pass.
+ */
+public interface TopologyHandler {
+
+	void fogDevice(String name, long mips, int ram, long upBw, long downBw, int level, double ratePerMips) throws Exception;
+
+	/**
+	 * @param distributionType one of the type constants of {@link org.fog.utils.distribution.Distribution}
+	 * @param first value of a deterministic distribution, mean of a normal distribution or min of a uniform distribution
+	 * @param second standard deviation of a normal distribution or max of a uniform distribution, 0 otherwise
+	 */
+	void sensor(String name, String sensorType, int distributionType, double first, double second) throws Exception;
+
+	void actuator(String name, String actuatorType) throws Exception;
+
+	/**
+	 * Links may be reported before the entities they connect.
+	 */
+	void link(String source, String destination, double latency) throws Exception;
+
+	/**
+	 * Called once after the last entity and link have been reported.
+	 */
+	void end() throws Exception;
+}
@@ -0,0 +1,196 @@
+package org.fog.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of a physical topology file, for instant reloads of large generated topologies.
+ * A snapshot holds the same entities and links as the JSON topology it was written from, so
+ * {@link JsonToTopology#getPhysicalTopology(int, String, String)} accepts either file.
+ *
+ * Layout: magic, version, then one tagged record per fog device, sensor and actuator in file order,
+ * then one record per link referring to its endpoints by node index, and an end tag.
+ */
+public class TopologySnapshot {
+
+	private static final int MAGIC = 0x49465450; // "IFTP"
+	private static final short VERSION = 1;
+
+	private static final byte END = 0;
+	private static final byte FOG_DEVICE = 1;
+	private static final byte SENSOR = 2;
+	private static final byte ACTUATOR = 3;
+	private static final byte LINK = 4;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Converts a JSON topology file into a snapshot.
+	 * @param physicalTopologyFile path of the JSON topology (or of another snapshot)
+	 * @param snapshotFile path of the snapshot to write
+	 * @throws Exception
+	 */
+	public static void write(String physicalTopologyFile, String snapshotFile) throws Exception {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotFile), BUFFER_SIZE));
+		try {
+			JsonToTopology.read(physicalTopologyFile, new Writer(out));
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @param file path of a topology file
+	 * @return true if the file starts with the snapshot header
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static boolean isSnapshot(String file) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads a snapshot, reporting its entities and links to <i>handler</i> in the order they were written.
+	 * @param snapshotFile path of the snapshot
+	 * @param handler receiver of the entities and links
+	 * @throws Exception
+	 */
+	public static void read(String snapshotFile, TopologyHandler handler) throws Exception {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), BUFFER_SIZE));
+		try {
+			if (in.readInt() != MAGIC)
+				throw new IOException(snapshotFile + " is not a topology snapshot");
+			short version = in.readShort();
+			if (version != VERSION)
+				throw new IOException("Unsupported topology snapshot version " + version + " in " + snapshotFile);
+			List<String> names = new ArrayList<String>();
+			for (byte tag = in.readByte(); tag != END; tag = in.readByte()) {
+				switch (tag) {
+					case FOG_DEVICE: {
+						String name = in.readUTF();
+						names.add(name);
+						handler.fogDevice(name, in.readLong(), in.readInt(), in.readLong(), in.readLong(), in.readInt(), in.readDouble());
+						break;
+					}
+					case SENSOR: {
+						String name = in.readUTF();
+						names.add(name);
+						handler.sensor(name, in.readUTF(), in.readInt(), in.readDouble(), in.readDouble());
+						break;
+					}
+					case ACTUATOR: {
+						String name = in.readUTF();
+						names.add(name);
+						handler.actuator(name, in.readUTF());
+						break;
+					}
+					case LINK:
+						handler.link(names.get(in.readInt()), names.get(in.readInt()), in.readDouble());
+						break;
+					default:
+						throw new IOException("Corrupt topology snapshot " + snapshotFile + " : unknown record " + tag);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		handler.end();
+	}
+
+	/**
+	 * Writes entities as they are read and links, which may precede their endpoints, once all nodes are known.
+	 */
+	private static class Writer implements TopologyHandler {
+
+		private final DataOutputStream out;
+		private final Map<String, Integer> nodeIndex = new HashMap<String, Integer>();
+		private int nodeCount;
+		private final List<String> linkSources = new ArrayList<String>();
+		private final List<String> linkDestinations = new ArrayList<String>();
+		private final List<Double> linkLatencies = new ArrayList<Double>();
+
+		Writer(DataOutputStream out) throws IOException {
+			this.out = out;
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+		}
+
+		private void addNode(String name) {
+			String key = name.toLowerCase(Locale.ROOT);
+			if (!nodeIndex.containsKey(key))
+				nodeIndex.put(key, nodeCount);
+			nodeCount++;
+		}
+
+		@Override
+		public void fogDevice(String name, long mips, int ram, long upBw, long downBw, int level, double ratePerMips) throws IOException {
+			out.writeByte(FOG_DEVICE);
+			out.writeUTF(name);
+			out.writeLong(mips);
+			out.writeInt(ram);
+			out.writeLong(upBw);
+			out.writeLong(downBw);
+			out.writeInt(level);
+			out.writeDouble(ratePerMips);
+			addNode(name);
+		}
+
+		@Override
+		public void sensor(String name, String sensorType, int distributionType, double first, double second) throws IOException {
+			out.writeByte(SENSOR);
+			out.writeUTF(name);
+			out.writeUTF(sensorType);
+			out.writeInt(distributionType);
+			out.writeDouble(first);
+			out.writeDouble(second);
+			addNode(name);
+		}
+
+		@Override
+		public void actuator(String name, String actuatorType) throws IOException {
+			out.writeByte(ACTUATOR);
+			out.writeUTF(name);
+			out.writeUTF(actuatorType);
+			addNode(name);
+		}
+
+		@Override
+		public void link(String source, String destination, double latency) {
+			linkSources.add(source);
+			linkDestinations.add(destination);
+			linkLatencies.add(latency);
+		}
+
+		@Override
+		public void end() throws IOException {
+			for (int i = 0; i < linkSources.size(); i++) {
+				Integer src = nodeIndex.get(linkSources.get(i).toLowerCase(Locale.ROOT));
+				Integer dst = nodeIndex.get(linkDestinations.get(i).toLowerCase(Locale.ROOT));
+				// links to unknown nodes are ignored when the topology is built, so they are not kept
+				if (src == null || dst == null)
+					continue;
+				out.writeByte(LINK);
+				out.writeInt(src);
+				out.writeInt(dst);
+				out.writeDouble(linkLatencies.get(i));
+			}
+			out.writeByte(END);
+		}
+	}
+}
@@ -2,6 +2,8 @@ package org.fog.utils.distribution;
 
 public class DeterministicDistribution extends Distribution{
 
+	private static final long serialVersionUID = 1L;
+
 	private double value;
 
 	public DeterministicDistribution(double value) {
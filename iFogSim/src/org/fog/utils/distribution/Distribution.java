@@ -1,8 +1,11 @@
 package org.fog.utils.distribution;
 
+import java.io.Serializable;
 import java.util.Random;
 
-public abstract class Distribution {
+public abstract class Distribution implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	public static int NORMAL = 1;
 	public static int DETERMINISTIC = 2;
@@ -1,16 +1,18 @@
 package org.fog.utils.distribution;
 
-import java.util.Random;
+import org.cloudbus.cloudsim.util.RandomStreams;
 
 public class NormalDistribution extends Distribution{
 
+	private static final long serialVersionUID = 1L;
+
 	private double mean;
 	private double stdDev;
 	
 	public NormalDistribution(double mean, double stdDev) {
 		setMean(mean);
 		setStdDev(stdDev);
-		setRandom(new Random());
+		setRandom(RandomStreams.newRandom(NormalDistribution.class.getName()));
 	}
 	
 	@Override
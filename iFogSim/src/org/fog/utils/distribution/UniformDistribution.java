@@ -1,7 +1,11 @@
 package org.fog.utils.distribution;
 
+import org.cloudbus.cloudsim.util.RandomStreams;
+
 public class UniformDistribution extends Distribution{
 
+	private static final long serialVersionUID = 1L;
+
 	private double min;
 	private double max;
 	
@@ -9,6 +13,7 @@ public class UniformDistribution extends Distribution{
 		super();
 		setMin(min);
 		setMax(max);
+		setRandom(RandomStreams.newRandom(UniformDistribution.class.getName()));
 	}
 	
 	@Override
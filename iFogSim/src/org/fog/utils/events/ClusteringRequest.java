@@ -0,0 +1,44 @@
+package org.fog.utils.events;
+
+import org.fog.placement.LocationHandler;
+import org.fog.utils.FogEvents;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payload of {@link FogEvents#START_DYNAMIC_CLUSTERING}: the locations the receiving device forms its cluster from,
+ * and possibly the clusters already computed for the levels clustered.
+ */
+public final class ClusteringRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LocationHandler locator;
+
+    // <device id, cluster members>
+    private final Map<Integer, List<Integer>> clusters;
+
+    public ClusteringRequest(LocationHandler locator) {
+        this(locator, Collections.emptyMap());
+    }
+
+    public ClusteringRequest(LocationHandler locator, Map<Integer, List<Integer>> clusters) {
+        this.locator = locator;
+        this.clusters = clusters;
+    }
+
+    public LocationHandler getLocator() {
+        return locator;
+    }
+
+    /**
+     * @return the cluster members computed for a device, or null if the device has to form its cluster itself
+     */
+    public List<Integer> getClusterMembers(int deviceId) {
+        return clusters.get(deviceId);
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.fog.utils.events;
+
+import java.io.Serializable;
+
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.utils.FogEvents;
+
+/**
+ * Payload of {@link FogEvents#MODULE_SEND} and {@link FogEvents#MODULE_RECEIVE}: a module migrating from the device
+ * sending it to the device receiving it, and the time the transfer takes.
+ */
+public final class ModuleMigration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AppModule module;
+
+    private final Application application;
+
+    private final double delay;
+
+    /**
+     * Creates the payload of {@link FogEvents#MODULE_SEND}.
+     */
+    public ModuleMigration(AppModule module, double delay) {
+        this(module, null, delay);
+    }
+
+    /**
+     * Creates the payload of {@link FogEvents#MODULE_RECEIVE}, which also carries the application of the module.
+     */
+    public ModuleMigration(AppModule module, Application application, double delay) {
+        this.module = module;
+        this.application = application;
+        this.delay = delay;
+    }
+
+    public AppModule getModule() {
+        return module;
+    }
+
+    /**
+     * @return the application of the module, or null if the module is being sent
+     */
+    public Application getApplication() {
+        return application;
+    }
+
+    public double getDelay() {
+        return delay;
+    }
+
+    @Override
+    public String toString() {
+        return "ModuleMigration{module=" + module.getName() + ", delay=" + delay + "}";
+    }
+
+}
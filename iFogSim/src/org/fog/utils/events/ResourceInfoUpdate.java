@@ -0,0 +1,33 @@
+package org.fog.utils.events;
+
+import org.fog.utils.FogEvents;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Payload of {@link FogEvents#UPDATE_RESOURCE_INFO}: the resources available on a device, shared with the members of
+ * its cluster. The map is not copied, so the receiver sees the resources as they are when it handles the event.
+ */
+public final class ResourceInfoUpdate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int deviceId;
+
+    private final Map<String, Double> resources;
+
+    public ResourceInfoUpdate(int deviceId, Map<String, Double> resources) {
+        this.deviceId = deviceId;
+        this.resources = resources;
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    public Map<String, Double> getResources() {
+        return resources;
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.fog.utils.events;
+
+import java.io.Serializable;
+
+import org.fog.utils.FogEvents;
+
+/**
+ * Payload of {@link FogEvents#UPDATE_SERVICE_DISCOVERY}: a microservice to add to or remove from the service discovery
+ * of the receiving device, with the device it is placed on.
+ */
+public final class ServiceDiscoveryUpdate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Action {
+        ADD, REMOVE
+    }
+
+    private final Action action;
+
+    private final String microservice;
+
+    private final int deviceId;
+
+    public ServiceDiscoveryUpdate(Action action, String microservice, int deviceId) {
+        this.action = action;
+        this.microservice = microservice;
+        this.deviceId = deviceId;
+    }
+
+    public static ServiceDiscoveryUpdate add(String microservice, int deviceId) {
+        return new ServiceDiscoveryUpdate(Action.ADD, microservice, deviceId);
+    }
+
+    public static ServiceDiscoveryUpdate remove(String microservice, int deviceId) {
+        return new ServiceDiscoveryUpdate(Action.REMOVE, microservice, deviceId);
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public String getMicroservice() {
+        return microservice;
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceDiscoveryUpdate{" + action + " " + microservice + " on " + deviceId + "}";
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.fog.utils.metrics;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands batches of rows to the exporters on a background thread, so that the simulation does not
+ * wait for the files to be written. The queue is bounded: if the exporters fall behind, the
+ * simulation waits for them instead of buffering without limit.
+ */
+class AsyncMetricsWriter {
+
+    /** Marks the end of the batches. */
+    private static final MetricsBatch END = new MetricsBatch(1);
+
+    private final List<MetricsExporter> exporters;
+    private final BlockingQueue<MetricsBatch> queue;
+    private final Thread thread;
+
+    /** First error of an exporter, reported when the writer is closed. */
+    private volatile IOException failure;
+
+    AsyncMetricsWriter(List<MetricsExporter> exporters, int queueCapacity) {
+        this.exporters = exporters;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        thread = new Thread(this::run, "metrics-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void submit(MetricsBatch batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while exporting metrics", e);
+        }
+    }
+
+    /**
+     * Waits for the batches submitted to be written, then closes the exporters.
+     * @throws IOException the first error of an exporter, if any
+     */
+    void close() throws IOException {
+        submit(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while exporting metrics", e);
+        }
+        for (MetricsExporter exporter : exporters) {
+            try {
+                exporter.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void run() {
+        while (true) {
+            MetricsBatch batch;
+            try {
+                batch = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (batch == END)
+                return;
+            for (MetricsExporter exporter : exporters) {
+                try {
+                    exporter.write(batch);
+                } catch (Exception e) {
+                    // keep draining the queue so that the simulation is not blocked
+                    if (failure == null)
+                        failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.fog.utils.metrics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**
+ * Estimates the steady-state mean of a series of observations, e.g. of loop delays, and a confidence
+ * interval on it, while the series is recorded.
+ *
+ * The warm-up of the series is truncated with MSER-5: the observations are grouped in blocks of 5,
+ * and the number d of leading blocks dropped is the one minimizing the variance of the mean of the
+ * remaining blocks, sum((Z_j - mean)^2) / (m - d)^2 over the m - d blocks left, searched in the
+ * first half of the series. A minimum at the end of that half means that the warm-up is not over
+ * yet, or the series too short to tell. The blocks left are then grouped in a fixed number of
+ * batches, whose means are nearly independent once the batches are long enough, giving the
+ * half-width t * s / sqrt(batches) of the confidence interval.
+ *
+ * Only the sums of the blocks are kept, so an estimator takes 16 bytes per 5 observations.
+ */
+public class BatchMeansEstimator implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Observations per block of MSER-5. */
+    public static final int BLOCK_SIZE = 5;
+
+    /** Variance of the blocks, relative to their sum of squares, taken as rounding error. */
+    private static final double VARIANCE_TOLERANCE = 1e-12;
+
+    private final int batches;
+
+    /** Quantile of the Student t distribution with batches - 1 degrees of freedom. */
+    private final double tQuantile;
+
+    /** Sums of the complete blocks. */
+    private double[] blockSums = new double[16];
+
+    /** Time of the last observation of each complete block. */
+    private double[] blockEndTimes = new double[16];
+
+    private int blocks;
+
+    private double currentSum;
+    private int currentCount;
+    private long count;
+
+    /** Number of blocks when the estimate was last computed, -1 if it was not. */
+    private int estimatedBlocks = -1;
+    private int truncatedBlocks;
+    private double mean;
+    private double halfWidth;
+
+    /**
+     * @param batches    number of batches of the batch means, at least 2; 10 to 30 are usual
+     * @param confidence level of the confidence interval, e.g. 0.95
+     */
+    public BatchMeansEstimator(int batches, double confidence) {
+        if (batches < 2)
+            throw new IllegalArgumentException("At least 2 batches are needed");
+        if (confidence <= 0 || confidence >= 1)
+            throw new IllegalArgumentException("The confidence level must be between 0 and 1");
+        this.batches = batches;
+        tQuantile = new TDistribution(null, batches - 1).inverseCumulativeProbability(0.5 + confidence / 2);
+    }
+
+    /**
+     * Records an observation.
+     *
+     * @param time  simulation time of the observation
+     * @param value the observation
+     */
+    public void add(double time, double value) {
+        if (Double.isNaN(value))
+            return;
+        count++;
+        currentSum += value;
+        if (++currentCount < BLOCK_SIZE)
+            return;
+        if (blocks == blockSums.length) {
+            blockSums = Arrays.copyOf(blockSums, 2 * blocks);
+            blockEndTimes = Arrays.copyOf(blockEndTimes, 2 * blocks);
+        }
+        blockSums[blocks] = currentSum;
+        blockEndTimes[blocks] = time;
+        blocks++;
+        currentSum = 0;
+        currentCount = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return whether the warm-up is over and enough observations are left after it for all the batches
+     */
+    public boolean isSteady() {
+        estimate();
+        return !Double.isNaN(mean);
+    }
+
+    /**
+     * @return number of observations of the warm-up, -1 if the warm-up is not over
+     */
+    public long getWarmUpCount() {
+        return isSteady() ? (long) truncatedBlocks * BLOCK_SIZE : -1;
+    }
+
+    /**
+     * @return simulation time at which the warm-up ends, i.e. of the last observation truncated, 0 if none is, NaN if
+     * the warm-up is not over
+     */
+    public double getWarmUpTime() {
+        if (!isSteady())
+            return Double.NaN;
+        return truncatedBlocks == 0 ? 0 : blockEndTimes[truncatedBlocks - 1];
+    }
+
+    /**
+     * @return mean of the observations after the warm-up, NaN if the warm-up is not over
+     */
+    public double getMean() {
+        estimate();
+        return mean;
+    }
+
+    /**
+     * @return half-width of the confidence interval on the mean, NaN if the warm-up is not over
+     */
+    public double getHalfWidth() {
+        estimate();
+        return halfWidth;
+    }
+
+    /**
+     * @param relativePrecision largest half-width accepted, relative to the mean, e.g. 0.05
+     * @return whether the confidence interval on the steady-state mean is narrow enough
+     */
+    public boolean isPrecise(double relativePrecision) {
+        return isSteady() && halfWidth <= relativePrecision * Math.abs(mean);
+    }
+
+    private void estimate() {
+        if (estimatedBlocks == blocks)
+            return;
+        estimatedBlocks = blocks;
+        mean = Double.NaN;
+        halfWidth = Double.NaN;
+        if (blocks < 2 * batches)
+            return;
+
+        // MSER statistic of the truncation points of the first half, from suffix sums of the block means
+        int lastCandidate = blocks / 2;
+        double sum = 0;
+        double sumOfSquares = 0;
+        double bestMser = Double.POSITIVE_INFINITY;
+        int best = 0;
+        for (int d = blocks - 1; d >= 0; d--) {
+            double blockMean = blockSums[d] / BLOCK_SIZE;
+            sum += blockMean;
+            sumOfSquares += blockMean * blockMean;
+            if (d > lastCandidate)
+                continue;
+            int left = blocks - d;
+            double variance = sumOfSquares - sum * sum / left;
+            // below the rounding error of the sums, e.g. for a constant power, the blocks left are all equal
+            if (variance <= VARIANCE_TOLERANCE * sumOfSquares)
+                variance = 0;
+            double mser = variance / ((double) left * left);
+            if (mser <= bestMser) {
+                bestMser = mser;
+                best = d;
+            }
+        }
+        if (best == lastCandidate)
+            return;
+        truncatedBlocks = best;
+
+        int batchSize = (blocks - best) / batches;
+        if (batchSize == 0)
+            return;
+        // the blocks not filling a batch are dropped right after the warm-up
+        int first = blocks - batchSize * batches;
+        double total = 0;
+        double[] batchMeans = new double[batches];
+        for (int b = 0; b < batches; b++) {
+            double batchSum = 0;
+            for (int j = first + b * batchSize; j < first + (b + 1) * batchSize; j++)
+                batchSum += blockSums[j];
+            batchMeans[b] = batchSum / (batchSize * BLOCK_SIZE);
+            total += batchMeans[b];
+        }
+        double grandMean = total / batches;
+        double squares = 0;
+        for (double batchMean : batchMeans)
+            squares += (batchMean - grandMean) * (batchMean - grandMean);
+        mean = grandMean;
+        halfWidth = tQuantile * Math.sqrt(squares / (batches - 1) / batches);
+    }
+}
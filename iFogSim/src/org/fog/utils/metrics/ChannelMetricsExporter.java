@@ -0,0 +1,110 @@
+package org.fog.utils.metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base of the exporters writing to a file through a buffered channel. Metric names and keys repeat
+ * across rows, so their encoded bytes are cached.
+ */
+public abstract class ChannelMetricsExporter implements MetricsExporter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<String, byte[]> encoded = new HashMap<>();
+
+    protected ChannelMetricsExporter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * @param text a metric name or key
+     * @return the text as written in the file, before encoding to UTF-8; the text itself by default
+     */
+    protected String escape(String text) {
+        return text;
+    }
+
+    /**
+     * Writes a metric name or key, escaped by {@link #escape(String)}.
+     */
+    protected void putText(String text) throws IOException {
+        byte[] bytes = encoded.get(text);
+        if (bytes == null) {
+            bytes = escape(text).getBytes(StandardCharsets.UTF_8);
+            encoded.put(text, bytes);
+        }
+        putBytes(bytes);
+    }
+
+    protected void putBytes(byte[] bytes) throws IOException {
+        if (bytes.length > BUFFER_SIZE) {
+            flush();
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining())
+                channel.write(wrapped);
+            return;
+        }
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes ASCII text, e.g. a number or punctuation.
+     */
+    protected void putAscii(String text) throws IOException {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++)
+            buffer.put((byte) text.charAt(i));
+    }
+
+    protected void putByte(byte value) throws IOException {
+        ensure(1);
+        buffer.put(value);
+    }
+
+    protected void putShort(short value) throws IOException {
+        ensure(2);
+        buffer.putShort(value);
+    }
+
+    protected void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    protected void putDouble(double value) throws IOException {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.fog.utils.metrics;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the metric rows in a compact binary columnar format. Metric names and keys are written once
+ * each and then referred to by their index in a dictionary growing through the file.
+ *
+ * Layout: magic, version, then one block per batch: the number of rows, the number of strings new
+ * in the block followed by each as a length-prefixed UTF-8 string, then the time, metric index, key
+ * index and value columns. All numbers are big-endian.
+ */
+public class ColumnarMetricsExporter extends ChannelMetricsExporter {
+
+    private static final int MAGIC = 0x4946534D; // "IFSM"
+    private static final short VERSION = 1;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    public ColumnarMetricsExporter(Path file) throws IOException {
+        super(file);
+        putInt(MAGIC);
+        putShort(VERSION);
+    }
+
+    @Override
+    public void write(MetricsBatch batch) throws IOException {
+        int size = batch.size();
+        int[] nameIds = new int[size];
+        int[] keyIds = new int[size];
+        List<String> newStrings = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            nameIds[i] = index(batch.getName(i), newStrings);
+            keyIds[i] = index(batch.getKey(i), newStrings);
+        }
+
+        putInt(size);
+        putInt(newStrings.size());
+        for (String text : newStrings) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+        for (int i = 0; i < size; i++)
+            putDouble(batch.getTime(i));
+        for (int i = 0; i < size; i++)
+            putInt(nameIds[i]);
+        for (int i = 0; i < size; i++)
+            putInt(keyIds[i]);
+        for (int i = 0; i < size; i++)
+            putDouble(batch.getValue(i));
+    }
+
+    private int index(String text, List<String> newStrings) {
+        Integer index = dictionary.get(text);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(text, index);
+            newStrings.add(text);
+        }
+        return index;
+    }
+
+    /**
+     * Reads a file written by this exporter, passing its rows to another exporter batch by batch,
+     * e.g. to convert it to CSV. The other exporter is not closed.
+     * @param file path of the columnar file
+     * @param target receiver of the rows
+     * @throws IOException if the file cannot be read or is not a columnar metrics file
+     */
+    public static void read(Path file, MetricsExporter target) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a columnar metrics file");
+            short version = in.readShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported columnar metrics version " + version + " in " + file);
+
+            List<String> dictionary = new ArrayList<>();
+            while (true) {
+                int size;
+                try {
+                    size = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                int newStrings = in.readInt();
+                for (int i = 0; i < newStrings; i++) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+                double[] times = new double[size];
+                int[] nameIds = new int[size];
+                int[] keyIds = new int[size];
+                for (int i = 0; i < size; i++)
+                    times[i] = in.readDouble();
+                for (int i = 0; i < size; i++)
+                    nameIds[i] = in.readInt();
+                for (int i = 0; i < size; i++)
+                    keyIds[i] = in.readInt();
+                MetricsBatch batch = new MetricsBatch(Math.max(size, 1));
+                for (int i = 0; i < size; i++)
+                    batch.add(times[i], dictionary.get(nameIds[i]), dictionary.get(keyIds[i]), in.readDouble());
+                target.write(batch);
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.fog.utils.metrics;
+
+/**
+ * A count that only grows, e.g. of tuples executed on a device.
+ */
+public class Counter {
+
+    private long count;
+
+    public void increment() {
+        count++;
+    }
+
+    public void add(long amount) {
+        if (amount < 0)
+            throw new IllegalArgumentException("A counter cannot decrease");
+        count += amount;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,36 @@
+package org.fog.utils.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the metric rows as CSV with the header <tt>time,metric,key,value</tt>.
+ */
+public class CsvMetricsExporter extends ChannelMetricsExporter {
+
+    public CsvMetricsExporter(Path file) throws IOException {
+        super(file);
+        putAscii("time,metric,key,value\n");
+    }
+
+    @Override
+    protected String escape(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0)
+            return text;
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void write(MetricsBatch batch) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            putAscii(Double.toString(batch.getTime(i)));
+            putByte((byte) ',');
+            putText(batch.getName(i));
+            putByte((byte) ',');
+            putText(batch.getKey(i));
+            putByte((byte) ',');
+            putAscii(Double.toString(batch.getValue(i)));
+            putByte((byte) '\n');
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.fog.utils.metrics;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.application.AppLoop;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.entities.FogDevice;
+import org.fog.utils.MigrationDelayMonitor;
+import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.TimeKeeper;
+
+/**
+ * The metrics of fog simulations: per-device and per-module time series, and the results the
+ * controllers print when the simulation stops.
+ */
+public class FogMetrics {
+
+    public static final String DEVICE_ENERGY = "device.energy";
+    public static final String DEVICE_COST = "device.cost";
+    public static final String MODULE_MIPS = "module.mips";
+    public static final String EXECUTION_TIME = "execution_time_ms";
+    public static final String LOOP_DELAY = "loop.delay";
+    public static final String TUPLE_CPU_TIME = "tuple.cpu_time";
+    public static final String CLOUD_COST = "cloud.cost";
+    public static final String NETWORK_USAGE = "network.usage";
+    public static final String QOS_SUCCESS = "qos.success_percent";
+    public static final String MIGRATION_DELAY = "migration.delay";
+    public static final String PLACEMENT_TIME = "placement.time_ms";
+    public static final String PLACEMENT_REQUESTS = "placement.requests";
+
+    /**
+     * Registers gauges of the energy consumed and cost of each device, and records at each sample
+     * the MIPS allocated to each module placed on a device, keyed by device and module name.
+     */
+    public static void registerDeviceMetrics(MetricsRegistry registry, List<FogDevice> fogDevices) {
+        for (FogDevice fogDevice : fogDevices) {
+            registry.gauge(DEVICE_ENERGY, fogDevice.getName(), fogDevice::getEnergyConsumption);
+            registry.gauge(DEVICE_COST, fogDevice.getName(), fogDevice::getTotalCost);
+        }
+        registry.addSampleListener(r -> {
+            for (FogDevice fogDevice : fogDevices) {
+                for (Vm vm : fogDevice.getHost().getVmList()) {
+                    if (!(vm instanceof AppModule))
+                        continue;
+                    String key = fogDevice.getName() + "/" + ((AppModule) vm).getName();
+                    r.record(CloudSim.clock(), MODULE_MIPS, key,
+                            fogDevice.getHost().getVmScheduler().getTotalAllocatedMipsForVm(vm));
+                }
+            }
+        });
+    }
+
+    /**
+     * Records the results of a simulation, as printed by the controllers, as gauges of the registry.
+     */
+    public static void recordResults(MetricsRegistry registry, List<FogDevice> fogDevices,
+                                     Map<String, Application> applications) {
+        TimeKeeper timeKeeper = TimeKeeper.getInstance();
+        set(registry, EXECUTION_TIME, "",
+                Calendar.getInstance().getTimeInMillis() - timeKeeper.getSimulationStartTime());
+        for (Integer loopId : timeKeeper.getLoopIdToTupleIds().keySet()) {
+            Double delay = timeKeeper.getLoopIdToCurrentAverage().get(loopId);
+            if (delay != null)
+                set(registry, LOOP_DELAY, getLoopName(applications, loopId), delay);
+        }
+        for (Map.Entry<String, Double> cpuTime : timeKeeper.getTupleTypeToAverageCpuTime().entrySet())
+            set(registry, TUPLE_CPU_TIME, cpuTime.getKey(), cpuTime.getValue());
+
+        double success = 0;
+        double total = 0;
+        for (Integer loopId : timeKeeper.getLoopIdToLatencyQoSSuccessCount().keySet()) {
+            success += timeKeeper.getLoopIdToLatencyQoSSuccessCount().get(loopId);
+            total += timeKeeper.getLoopIdToCurrentNum().get(loopId);
+        }
+        if (total > 0)
+            set(registry, QOS_SUCCESS, "", success / total * 100);
+
+        for (FogDevice fogDevice : fogDevices) {
+            set(registry, DEVICE_ENERGY, fogDevice.getName(), fogDevice.getEnergyConsumption());
+            set(registry, DEVICE_COST, fogDevice.getName(), fogDevice.getTotalCost());
+            if (fogDevice.getName().equals("cloud"))
+                set(registry, CLOUD_COST, "", fogDevice.getTotalCost());
+        }
+        set(registry, NETWORK_USAGE, "", NetworkUsageMonitor.getNetworkUsage() / CloudSim.clock());
+        set(registry, MIGRATION_DELAY, "", MigrationDelayMonitor.getMigrationDelay());
+    }
+
+    /**
+     * Records a round of the placement logic of a device: the wall-clock time the algorithm took, as a
+     * histogram and a time series, and the number of placement requests it processed.
+     */
+    public static void recordPlacementRound(MetricsRegistry registry, String deviceName, int requests, double timeMs) {
+        registry.histogram(PLACEMENT_TIME, deviceName).record(timeMs);
+        registry.record(CloudSim.clock(), PLACEMENT_TIME, deviceName, timeMs);
+        registry.counter(PLACEMENT_REQUESTS, deviceName).add(requests);
+    }
+
+    /**
+     * Sets a gauge to a final value, whether it was set explicitly or read from a supplier before.
+     */
+    private static void set(MetricsRegistry registry, String name, String key, double value) {
+        registry.gauge(name, key, () -> value);
+    }
+
+    private static String getLoopName(Map<String, Application> applications, int loopId) {
+        for (Application app : applications.values()) {
+            for (AppLoop loop : app.getLoops()) {
+                if (loop.getLoopId() == loopId)
+                    return loop.getModules().toString();
+            }
+        }
+        return String.valueOf(loopId);
+    }
+}
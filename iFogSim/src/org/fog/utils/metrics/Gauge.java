@@ -0,0 +1,31 @@
+package org.fog.utils.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A value that goes up and down, either set explicitly or read from a supplier each time the
+ * registry samples it.
+ */
+public class Gauge {
+
+    private double value;
+    private final DoubleSupplier supplier;
+
+    Gauge(DoubleSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    /**
+     * @param value the new value
+     * @throws IllegalStateException if the gauge reads its value from a supplier
+     */
+    public void set(double value) {
+        if (supplier != null)
+            throw new IllegalStateException("The gauge reads its value from a supplier");
+        this.value = value;
+    }
+
+    public double getValue() {
+        return supplier != null ? supplier.getAsDouble() : value;
+    }
+}
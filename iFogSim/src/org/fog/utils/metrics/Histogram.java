@@ -0,0 +1,107 @@
+package org.fog.utils.metrics;
+
+import java.util.Arrays;
+
+/**
+ * A distribution of values, e.g. of loop delays, kept in logarithmic buckets so that recording a
+ * value takes constant time and space does not grow with the number of values. Each power of two is
+ * split into 16 buckets, so quantiles are within about 3% of the exact ones.
+ */
+public class Histogram {
+
+    /** Bits of the mantissa distinguishing the buckets of a power of two. */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int BUCKET_SHIFT = 52 - SUB_BUCKET_BITS;
+
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** Number of values <= 0, which have no logarithmic bucket. */
+    private long nonPositiveCount;
+
+    /** Counts of the buckets from firstBucket on. */
+    private long[] counts = new long[0];
+    private int firstBucket;
+
+    public void record(double value) {
+        if (Double.isNaN(value))
+            return;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (value <= 0) {
+            nonPositiveCount++;
+            return;
+        }
+        // the exponent and high mantissa bits of a positive double grow with its value
+        int bucket = (int) (Double.doubleToRawLongBits(value) >>> BUCKET_SHIFT);
+        if (counts.length == 0) {
+            counts = new long[16];
+            firstBucket = bucket;
+        } else if (bucket < firstBucket || bucket >= firstBucket + counts.length) {
+            int from = Math.min(firstBucket, bucket);
+            int to = Math.max(firstBucket + counts.length, bucket + 1);
+            long[] grown = new long[Math.max(to - from, 2 * counts.length)];
+            System.arraycopy(counts, 0, grown, firstBucket - from, counts.length);
+            counts = grown;
+            firstBucket = from;
+        }
+        counts[bucket - firstBucket]++;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return approximate value below which the quantile of the values lies, NaN if no value was recorded
+     */
+    public double getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1)
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        if (count == 0)
+            return Double.NaN;
+        long rank = (long) Math.ceil(quantile * count);
+        if (rank <= nonPositiveCount)
+            return min;
+        long seen = nonPositiveCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                double lower = Double.longBitsToDouble((long) (firstBucket + i) << BUCKET_SHIFT);
+                double upper = Double.longBitsToDouble((long) (firstBucket + i + 1) << BUCKET_SHIFT);
+                return Math.min(max, Math.max(min, (lower + upper) / 2));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    public void clear() {
+        count = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        nonPositiveCount = 0;
+        Arrays.fill(counts, 0);
+    }
+}
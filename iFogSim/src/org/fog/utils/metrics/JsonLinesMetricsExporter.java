@@ -0,0 +1,50 @@
+package org.fog.utils.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes each metric row as a JSON object on its own line, e.g.
+ * <tt>{"time":100.0,"metric":"device.energy","key":"cloud","value":1332.1}</tt>. A value that is not
+ * a finite number is written as null.
+ */
+public class JsonLinesMetricsExporter extends ChannelMetricsExporter {
+
+    public JsonLinesMetricsExporter(Path file) throws IOException {
+        super(file);
+    }
+
+    @Override
+    protected String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\')
+                escaped.append('\\').append(c);
+            else if (c < 0x20)
+                escaped.append(String.format("\\u%04x", (int) c));
+            else
+                escaped.append(c);
+        }
+        return escaped.append('"').toString();
+    }
+
+    @Override
+    public void write(MetricsBatch batch) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            putAscii("{\"time\":");
+            putNumber(batch.getTime(i));
+            putAscii(",\"metric\":");
+            putText(batch.getName(i));
+            putAscii(",\"key\":");
+            putText(batch.getKey(i));
+            putAscii(",\"value\":");
+            putNumber(batch.getValue(i));
+            putAscii("}\n");
+        }
+    }
+
+    private void putNumber(double value) throws IOException {
+        putAscii(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+    }
+}
@@ -0,0 +1,55 @@
+package org.fog.utils.metrics;
+
+/**
+ * A batch of metric rows, each a (simulation time, metric name, key, value) record, held in
+ * columns. The key tells apart the series of a metric, e.g. the device or module it is about, and is
+ * empty for a metric with a single series. A batch handed to the exporters is not changed afterwards.
+ */
+public final class MetricsBatch {
+
+    private final double[] times;
+    private final String[] names;
+    private final String[] keys;
+    private final double[] values;
+    private int size;
+
+    MetricsBatch(int capacity) {
+        times = new double[capacity];
+        names = new String[capacity];
+        keys = new String[capacity];
+        values = new double[capacity];
+    }
+
+    /**
+     * Adds a row.
+     * @return true if the batch is full after the row was added
+     */
+    boolean add(double time, String name, String key, double value) {
+        times[size] = time;
+        names[size] = name;
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        return size == times.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getTime(int row) {
+        return times[row];
+    }
+
+    public String getName(int row) {
+        return names[row];
+    }
+
+    public String getKey(int row) {
+        return keys[row];
+    }
+
+    public double getValue(int row) {
+        return values[row];
+    }
+}
@@ -0,0 +1,18 @@
+package org.fog.utils.metrics;
+
+import java.io.IOException;
+
+/**
+ * Writes metric rows somewhere, e.g. to a file. The exporters of a {@link MetricsRegistry} are
+ * called from a single background thread, one batch at a time and in the order the rows were
+ * recorded, so an exporter needs no synchronization of its own.
+ */
+public interface MetricsExporter {
+
+    void write(MetricsBatch batch) throws IOException;
+
+    /**
+     * Writes out anything buffered and releases the exporter's resources.
+     */
+    void close() throws IOException;
+}
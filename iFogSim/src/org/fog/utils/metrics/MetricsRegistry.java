@@ -0,0 +1,208 @@
+package org.fog.utils.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry of the metrics of a simulation: counters, gauges, histograms and time series, each
+ * identified by a name and a key telling apart its series, e.g. a device or module name.
+ *
+ * The registry writes rows of (simulation time, name, key, value) to its exporters: a row for each
+ * point of a time series, the current value of every counter and gauge each time it is sampled, and
+ * a summary of everything when it is closed. The rows are batched and written on a background thread.
+ * Without exporters, nothing is recorded but the metrics themselves.
+ *
+ * Exporting is opt-in: the controllers only record the results of a simulation when it ends, see
+ * {@link FogMetrics#recordResults}. A simulation adds exporters before it starts, and registers the
+ * time series it wants, e.g. with {@link FogMetrics#registerDeviceMetrics} and a
+ * {@link MetricsSampler}, as {@code org.fog.test.perfeval.VRGameFog} does when given a file.
+ *
+ * Like the other monitors of the simulation, the registry is used from the simulation thread only.
+ */
+public class MetricsRegistry {
+
+    private static final int BATCH_SIZE = 4096;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private static MetricsRegistry instance;
+
+    private final Map<String, Map<String, Counter>> counters = new LinkedHashMap<>();
+    private final Map<String, Map<String, Gauge>> gauges = new LinkedHashMap<>();
+    private final Map<String, Map<String, Histogram>> histograms = new LinkedHashMap<>();
+    private final List<Consumer<MetricsRegistry>> sampleListeners = new ArrayList<>();
+
+    private final List<MetricsExporter> exporters = new ArrayList<>();
+    private AsyncMetricsWriter writer;
+    private MetricsBatch batch;
+    private boolean closed;
+
+    /**
+     * @return the registry of the current simulation, a new one if the last one was closed
+     */
+    public static MetricsRegistry getInstance() {
+        if (instance == null || instance.closed)
+            instance = new MetricsRegistry();
+        return instance;
+    }
+
+    /**
+     * Adds an exporter. The exporters must be added before the first row is recorded.
+     */
+    public void addExporter(MetricsExporter exporter) {
+        if (writer != null || closed)
+            throw new IllegalStateException("Exporters must be added before metrics are recorded");
+        exporters.add(exporter);
+    }
+
+    public Counter counter(String name) {
+        return counter(name, "");
+    }
+
+    public Counter counter(String name, String key) {
+        Map<String, Counter> series = counters.computeIfAbsent(name, n -> new LinkedHashMap<>());
+        Counter counter = series.get(key);
+        if (counter == null) {
+            counter = new Counter();
+            series.put(key, counter);
+        }
+        return counter;
+    }
+
+    public Gauge gauge(String name) {
+        return gauge(name, "");
+    }
+
+    /**
+     * @return the gauge of the given name and key, created if needed with a value set explicitly
+     */
+    public Gauge gauge(String name, String key) {
+        Map<String, Gauge> series = gauges.computeIfAbsent(name, n -> new LinkedHashMap<>());
+        Gauge gauge = series.get(key);
+        if (gauge == null) {
+            gauge = new Gauge(null);
+            series.put(key, gauge);
+        }
+        return gauge;
+    }
+
+    /**
+     * Registers a gauge reading its value from a supplier, replacing any gauge of the same name and key.
+     */
+    public Gauge gauge(String name, String key, DoubleSupplier supplier) {
+        Gauge gauge = new Gauge(supplier);
+        gauges.computeIfAbsent(name, n -> new LinkedHashMap<>()).put(key, gauge);
+        return gauge;
+    }
+
+    public Histogram histogram(String name) {
+        return histogram(name, "");
+    }
+
+    public Histogram histogram(String name, String key) {
+        Map<String, Histogram> series = histograms.computeIfAbsent(name, n -> new LinkedHashMap<>());
+        Histogram histogram = series.get(key);
+        if (histogram == null) {
+            histogram = new Histogram();
+            series.put(key, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * Adds a listener called each time the registry is sampled, before the counters and gauges are
+     * written, e.g. to record points of time series whose keys change during the simulation.
+     */
+    public void addSampleListener(Consumer<MetricsRegistry> listener) {
+        sampleListeners.add(listener);
+    }
+
+    /**
+     * Records a point of a time series.
+     */
+    public void record(double time, String name, String key, double value) {
+        if (exporters.isEmpty() || closed)
+            return;
+        write(time, name, key, value);
+    }
+
+    private void write(double time, String name, String key, double value) {
+        if (batch == null)
+            batch = new MetricsBatch(BATCH_SIZE);
+        if (batch.add(time, name, key, value))
+            flush();
+    }
+
+    /**
+     * Records the current value of every counter and gauge as a point of its time series.
+     * @param time current simulation time
+     */
+    public void sample(double time) {
+        for (Consumer<MetricsRegistry> listener : sampleListeners)
+            listener.accept(this);
+        if (exporters.isEmpty() || closed)
+            return;
+        for (Map.Entry<String, Map<String, Counter>> series : counters.entrySet())
+            for (Map.Entry<String, Counter> counter : series.getValue().entrySet())
+                write(time, series.getKey(), counter.getKey(), counter.getValue().getCount());
+        for (Map.Entry<String, Map<String, Gauge>> series : gauges.entrySet())
+            for (Map.Entry<String, Gauge> gauge : series.getValue().entrySet())
+                write(time, series.getKey(), gauge.getKey(), gauge.getValue().getValue());
+    }
+
+    /**
+     * Records the final value of every counter and gauge and a summary of every histogram, as
+     * metrics suffixed with .count, .mean, .min, .max, .p50, .p90 and .p99, then waits for all the
+     * rows to be written and closes the exporters. Nothing is recorded afterwards.
+     * @param time current simulation time
+     * @throws UncheckedIOException if an exporter failed
+     */
+    public void close(double time) {
+        if (closed)
+            return;
+        sample(time);
+        closed = true;
+        if (exporters.isEmpty())
+            return;
+        for (Map.Entry<String, Map<String, Histogram>> series : histograms.entrySet()) {
+            String name = series.getKey();
+            for (Map.Entry<String, Histogram> entry : series.getValue().entrySet()) {
+                String key = entry.getKey();
+                Histogram histogram = entry.getValue();
+                write(time, name + ".count", key, histogram.getCount());
+                write(time, name + ".mean", key, histogram.getMean());
+                write(time, name + ".min", key, histogram.getMin());
+                write(time, name + ".max", key, histogram.getMax());
+                write(time, name + ".p50", key, histogram.getQuantile(0.5));
+                write(time, name + ".p90", key, histogram.getQuantile(0.9));
+                write(time, name + ".p99", key, histogram.getQuantile(0.99));
+            }
+        }
+        flush();
+        if (writer == null)
+            return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export metrics", e);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void flush() {
+        if (batch == null || batch.size() == 0)
+            return;
+        if (writer == null)
+            writer = new AsyncMetricsWriter(exporters, QUEUE_CAPACITY);
+        writer.submit(batch);
+        batch = null;
+    }
+}
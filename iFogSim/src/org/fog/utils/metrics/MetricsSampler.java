@@ -0,0 +1,51 @@
+package org.fog.utils.metrics;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.utils.Config;
+import org.fog.utils.FogEvents;
+
+/**
+ * Samples the {@link MetricsRegistry} at a fixed interval of simulation time, from the start of the
+ * simulation up to {@link Config#MAX_SIMULATION_TIME}.
+ */
+public class MetricsSampler extends SimEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double interval;
+
+    /**
+     * @param name     name of the entity
+     * @param interval simulation time between two samples
+     */
+    public MetricsSampler(String name, double interval) {
+        super(name);
+        if (interval <= 0)
+            throw new IllegalArgumentException("The sampling interval must be > 0");
+        this.interval = interval;
+    }
+
+    @Override
+    public void startEntity() {
+        send(getId(), interval, FogEvents.METRICS_SAMPLE);
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        if (ev.getTag() == FogEvents.METRICS_SAMPLE) {
+            MetricsRegistry.getInstance().sample(CloudSim.clock());
+            if (CloudSim.clock() + interval <= Config.MAX_SIMULATION_TIME)
+                send(getId(), interval, FogEvents.METRICS_SAMPLE);
+        }
+    }
+
+    @Override
+    public void shutdownEntity() {
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+}
@@ -0,0 +1,226 @@
+package org.fog.utils.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.entities.FogDevice;
+import org.fog.utils.Config;
+import org.fog.utils.FogEvents;
+import org.fog.utils.TimeKeeper;
+
+/**
+ * Stops a simulation once its results have converged instead of at {@link Config#MAX_SIMULATION_TIME}.
+ *
+ * The monitor estimates the steady-state mean of the delay of each loop and of the CPU time of each
+ * tuple type, reported by the {@link TimeKeeper}, and of the power drawn by each device, from its
+ * energy consumption sampled at a fixed interval, each with a {@link BatchMeansEstimator}. At each
+ * sample, once every series has a confidence interval narrower than the precision required, it
+ * sends {@link FogEvents#STOP_SIMULATION} to the controller, which prints the results and ends the
+ * simulation as at the maximum simulation time. The monitor prints the steady-state estimates and
+ * the warm-up truncated from each series when the simulation ends.
+ *
+ * The results the controllers print still cover the whole run, warm-up included, as when the
+ * simulation runs to its end.
+ */
+public class SteadyStateMonitor extends SimEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int controllerId;
+    private final List<FogDevice> fogDevices;
+    private final double interval;
+
+    private int batches = 20;
+    private double confidence = 0.95;
+    private double relativePrecision = 0.05;
+
+    private final Map<Integer, BatchMeansEstimator> loopDelays = new LinkedHashMap<>();
+    private final Map<String, BatchMeansEstimator> tupleCpuTimes = new LinkedHashMap<>();
+    private final Map<String, BatchMeansEstimator> devicePowers = new LinkedHashMap<>();
+
+    /** Energy consumed by each device at the last sample. */
+    private double[] lastEnergy;
+    private double lastSampleTime;
+
+    /** Time at which the results converged, NaN if they did not. */
+    private double steadyStateTime = Double.NaN;
+
+    /**
+     * @param name         name of the entity
+     * @param controllerId id of the controller stopping the simulation
+     * @param fogDevices   devices whose power is estimated
+     * @param interval     simulation time between two samples of the energy consumption, and two checks of the
+     *                     convergence
+     */
+    public SteadyStateMonitor(String name, int controllerId, List<FogDevice> fogDevices, double interval) {
+        super(name);
+        if (interval <= 0)
+            throw new IllegalArgumentException("The sampling interval must be > 0");
+        this.controllerId = controllerId;
+        this.fogDevices = new ArrayList<>(fogDevices);
+        this.interval = interval;
+    }
+
+    /**
+     * Sets the precision required of the estimates, before the simulation starts.
+     *
+     * @param confidence        level of the confidence intervals, e.g. 0.95
+     * @param relativePrecision largest half-width of the confidence intervals, relative to the means, e.g. 0.05
+     * @param batches           number of batches of the batch means, 20 by default
+     */
+    public void setPrecision(double confidence, double relativePrecision, int batches) {
+        if (confidence <= 0 || confidence >= 1)
+            throw new IllegalArgumentException("The confidence level must be between 0 and 1");
+        if (relativePrecision <= 0)
+            throw new IllegalArgumentException("The relative precision must be > 0");
+        if (batches < 2)
+            throw new IllegalArgumentException("At least 2 batches are needed");
+        this.confidence = confidence;
+        this.relativePrecision = relativePrecision;
+        this.batches = batches;
+    }
+
+    @Override
+    public void startEntity() {
+        TimeKeeper.getInstance().setSteadyStateMonitor(this);
+        lastEnergy = new double[fogDevices.size()];
+        for (int i = 0; i < fogDevices.size(); i++) {
+            FogDevice fogDevice = fogDevices.get(i);
+            lastEnergy[i] = fogDevice.getEnergyConsumption();
+            devicePowers.put(fogDevice.getName(), new BatchMeansEstimator(batches, confidence));
+        }
+        lastSampleTime = CloudSim.clock();
+        send(getId(), interval, FogEvents.STEADY_STATE_CHECK);
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        if (ev.getTag() != FogEvents.STEADY_STATE_CHECK)
+            return;
+        double elapsed = CloudSim.clock() - lastSampleTime;
+        for (int i = 0; i < fogDevices.size(); i++) {
+            FogDevice fogDevice = fogDevices.get(i);
+            double energy = fogDevice.getEnergyConsumption();
+            devicePowers.get(fogDevice.getName()).add(CloudSim.clock(), (energy - lastEnergy[i]) / elapsed);
+            lastEnergy[i] = energy;
+        }
+        lastSampleTime = CloudSim.clock();
+
+        if (isPrecise()) {
+            steadyStateTime = CloudSim.clock();
+            sendNow(controllerId, FogEvents.STOP_SIMULATION);
+        } else if (CloudSim.clock() + interval < Config.MAX_SIMULATION_TIME) {
+            send(getId(), interval, FogEvents.STEADY_STATE_CHECK);
+        }
+    }
+
+    @Override
+    public void shutdownEntity() {
+        if (TimeKeeper.getInstance().getSteadyStateMonitor() == this)
+            TimeKeeper.getInstance().setSteadyStateMonitor(null);
+        printSteadyStateDetails();
+    }
+
+    /**
+     * Records the delay of an execution of a loop, ending at the current time.
+     */
+    public void loopDelay(int loopId, double delay) {
+        BatchMeansEstimator estimator = loopDelays.get(loopId);
+        if (estimator == null) {
+            estimator = new BatchMeansEstimator(batches, confidence);
+            loopDelays.put(loopId, estimator);
+        }
+        estimator.add(CloudSim.clock(), delay);
+    }
+
+    /**
+     * Records the CPU time of a tuple, whose execution ends at the current time.
+     */
+    public void tupleCpuTime(String tupleType, double cpuTime) {
+        BatchMeansEstimator estimator = tupleCpuTimes.get(tupleType);
+        if (estimator == null) {
+            estimator = new BatchMeansEstimator(batches, confidence);
+            tupleCpuTimes.put(tupleType, estimator);
+        }
+        estimator.add(CloudSim.clock(), cpuTime);
+    }
+
+    private boolean isPrecise() {
+        if (loopDelays.isEmpty() && tupleCpuTimes.isEmpty() && devicePowers.isEmpty())
+            return false;
+        for (BatchMeansEstimator estimator : getEstimators().values()) {
+            if (!estimator.isPrecise(relativePrecision))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the estimators of all the series, by name
+     */
+    public Map<String, BatchMeansEstimator> getEstimators() {
+        Map<String, BatchMeansEstimator> estimators = new LinkedHashMap<>();
+        for (Map.Entry<Integer, BatchMeansEstimator> entry : loopDelays.entrySet())
+            estimators.put("loop " + entry.getKey() + " delay", entry.getValue());
+        for (Map.Entry<String, BatchMeansEstimator> entry : tupleCpuTimes.entrySet())
+            estimators.put(entry.getKey() + " CPU time", entry.getValue());
+        for (Map.Entry<String, BatchMeansEstimator> entry : devicePowers.entrySet())
+            estimators.put(entry.getKey() + " power", entry.getValue());
+        return estimators;
+    }
+
+    /**
+     * @return whether the simulation was stopped because the results converged
+     */
+    public boolean isSteadyStateReached() {
+        return !Double.isNaN(steadyStateTime);
+    }
+
+    /**
+     * @return simulation time at which the results converged, NaN if they did not
+     */
+    public double getSteadyStateTime() {
+        return steadyStateTime;
+    }
+
+    /**
+     * @return longest warm-up truncated from a series, in simulation time, NaN if the warm-up of a series is not over
+     */
+    public double getWarmUpTime() {
+        double warmUpTime = 0;
+        for (BatchMeansEstimator estimator : getEstimators().values())
+            warmUpTime = Math.max(warmUpTime, estimator.getWarmUpTime());
+        return warmUpTime;
+    }
+
+    private void printSteadyStateDetails() {
+        System.out.println("=========================================");
+        System.out.println("STEADY STATE");
+        System.out.println("=========================================");
+        if (isSteadyStateReached())
+            System.out.println("Converged at " + steadyStateTime + " to " + confidence * 100 + "% confidence intervals within "
+                    + relativePrecision * 100 + "% of the means");
+        else
+            System.out.println("Not converged by " + CloudSim.clock());
+        System.out.println("Warm-up truncated up to " + getWarmUpTime());
+        for (Map.Entry<String, BatchMeansEstimator> entry : getEstimators().entrySet()) {
+            BatchMeansEstimator estimator = entry.getValue();
+            if (estimator.isSteady())
+                System.out.println(entry.getKey() + " ---> " + estimator.getMean() + " +- " + estimator.getHalfWidth()
+                        + " (warm-up " + estimator.getWarmUpCount() + " of " + estimator.getCount()
+                        + " observations, up to " + estimator.getWarmUpTime() + ")");
+            else
+                System.out.println(entry.getKey() + " ---> not steady (" + estimator.getCount() + " observations)");
+        }
+        System.out.println("=========================================");
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+}